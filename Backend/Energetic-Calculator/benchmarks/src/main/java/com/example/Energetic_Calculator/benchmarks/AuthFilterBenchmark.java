@@ -0,0 +1,95 @@
+package com.example.Energetic_Calculator.benchmarks;
+
+import com.example.Energetic_Calculator.security.FirebaseAuthFilter;
+import com.example.Energetic_Calculator.security.FirebaseTokenVerifier;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por petición del filtro de autenticación. FirebaseAuth es un mock: solo la primera verificación
+ * llega a él y el resto sale de la caché de FirebaseTokenVerifier (hash SHA-256 + TtlCache)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthFilterBenchmark {
+
+    private static final String ID_TOKEN = "eyJhbGciOiJSUzI1NiIsImtpZCI6ImJlbmNoIn0."
+            + "eyJ1aWQiOiJiZW5jaC11c2VyIiwiZXhwIjo0MTAyNDQ0ODAwfQ."
+            + "c2lnbmF0dXJlLW5vdC12ZXJpZmllZC1pbi1iZW5jaG1hcmtz";
+
+    private static final FilterChain CHAIN = (request, response) -> { };
+
+    private FirebaseAuthFilter filter;
+    private FirebaseTokenVerifier verifier;
+    private MockHttpServletRequest authenticated;
+    private MockHttpServletRequest anonymous;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() throws Exception {
+        FirebaseAuth firebaseAuth = Mockito.mock(FirebaseAuth.class);
+        Mockito.when(firebaseAuth.verifyIdToken(ID_TOKEN)).thenReturn(token());
+        verifier = new FirebaseTokenVerifier(firebaseAuth, true, 10_000, 3600);
+        filter = new FirebaseAuthFilter(verifier);
+
+        authenticated = new MockHttpServletRequest("GET", "/api/user-devices");
+        authenticated.addHeader("Authorization", "Bearer " + ID_TOKEN);
+        anonymous = new MockHttpServletRequest("GET", "/api/devices");
+        response = new MockHttpServletResponse();
+    }
+
+    /**
+     * Se limpia el contexto como hace Spring Security al terminar cada petición
+     */
+    @Benchmark
+    public void bearerTokenCached() throws ServletException, IOException {
+        filter.doFilter(authenticated, response, CHAIN);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void noAuthorizationHeader() throws ServletException, IOException {
+        filter.doFilter(anonymous, response, CHAIN);
+    }
+
+    @Benchmark
+    public FirebaseToken verifierCached() throws FirebaseAuthException {
+        return verifier.verify(ID_TOKEN);
+    }
+
+    /**
+     * FirebaseToken no tiene constructor público; se crea con los claims que usa la caché (exp)
+     */
+    private static FirebaseToken token() throws ReflectiveOperationException {
+        Constructor<FirebaseToken> constructor = FirebaseToken.class.getDeclaredConstructor(Map.class);
+        constructor.setAccessible(true);
+        long exp = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + TimeUnit.DAYS.toSeconds(1);
+        return constructor.newInstance(Map.<String, Object>of("sub", "bench-user", "uid", "bench-user", "exp", exp));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.Energetic_Calculator.benchmarks;
+
+import com.example.Energetic_Calculator.model.ConsumptionSummary;
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.UserDevice;
+import com.example.Energetic_Calculator.service.ConsumptionEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Agregación de consumo (ConsumptionEngine.summarize) sobre hogares de distinto tamaño
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsumptionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int devices;
+
+    private ConsumptionEngine engine;
+    private List<UserDevice> userDevices;
+    private Map<String, Device> catalog;
+
+    @Setup
+    public void setup() {
+        // summarize no usa los servicios de Firestore
+        engine = new ConsumptionEngine(null, null, 600, 0.164);
+        List<Device> catalogList = Fixtures.catalog(500);
+        catalog = catalogList.stream().collect(Collectors.toMap(Device::getId, Function.identity()));
+        userDevices = Fixtures.userDevices(catalogList, devices);
+    }
+
+    @Benchmark
+    public ConsumptionSummary summarize() {
+        return engine.summarize(userDevices, catalog, 600);
+    }
+
+    @Benchmark
+    public double monthlyKwhLoop() {
+        double total = 0;
+        for (UserDevice userDevice : userDevices) {
+            Device device = catalog.get(userDevice.getDeviceId());
+            total += ConsumptionEngine.monthlyKwh(device.getPotenciaWatts(), userDevice.getDailyHours(),
+                    userDevice.getQuantity(), userDevice.getWeeklyDays());
+        }
+        return total;
+    }
+}
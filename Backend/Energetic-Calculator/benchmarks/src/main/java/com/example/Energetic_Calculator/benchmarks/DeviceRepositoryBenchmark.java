@@ -0,0 +1,85 @@
+package com.example.Energetic_Calculator.benchmarks;
+
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.PageResult;
+import com.example.Energetic_Calculator.repository.DeviceAlternativesIndex;
+import com.example.Energetic_Calculator.repository.DeviceCatalogMirror;
+import com.example.Energetic_Calculator.repository.DeviceRepository;
+import com.example.Energetic_Calculator.repository.DocumentStore;
+import com.example.Energetic_Calculator.repository.InMemoryDocumentStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste propio de DeviceRepository sobre el almacén en memoria, sin red ni proyecto de Firebase.
+ * La cache del catálogo está desactivada para que cada lectura pase por el almacén y la conversión a Device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class DeviceRepositoryBenchmark {
+
+    @Param({"1000", "10000"})
+    public int catalogSize;
+
+    private DocumentStore store;
+    private DeviceRepository repository;
+    private List<Device> catalog;
+
+    @Setup
+    public void setup() throws ExecutionException, InterruptedException {
+        store = new InMemoryDocumentStore();
+        repository = new DeviceRepository(new DeviceCatalogMirror(null, false), new DeviceAlternativesIndex(300),
+                store, false, 300, 5000);
+        catalog = Fixtures.catalog(catalogSize);
+        for (Device device : catalog) {
+            repository.saveDevice(device);
+        }
+    }
+
+    @Benchmark
+    public Device getById() throws ExecutionException, InterruptedException {
+        return repository.getDeviceById(randomDevice().getId());
+    }
+
+    @Benchmark
+    public PageResult<Device> page() throws ExecutionException, InterruptedException {
+        return repository.getDevicesPage(100, randomDevice().getId());
+    }
+
+    @Benchmark
+    public List<DocumentStore.Document> findByCategory() throws ExecutionException, InterruptedException {
+        return store.findBy(DeviceRepository.COLLECTION_NAME, "categoria", randomDevice().getCategoria()).get();
+    }
+
+    /**
+     * Escritura con invalidación de cache e índice de alternativas incluidas
+     */
+    @Benchmark
+    public String save() throws ExecutionException, InterruptedException {
+        return repository.saveDevice(randomDevice());
+    }
+
+    private Device randomDevice() {
+        return catalog.get(ThreadLocalRandom.current().nextInt(catalog.size()));
+    }
+}
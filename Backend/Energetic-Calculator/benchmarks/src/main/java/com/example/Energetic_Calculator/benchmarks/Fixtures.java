@@ -0,0 +1,59 @@
+package com.example.Energetic_Calculator.benchmarks;
+
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.UserDevice;
+import com.google.cloud.Timestamp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Datos sintéticos deterministas (semilla fija) con la forma de los documentos reales de Firestore
+ */
+final class Fixtures {
+
+    static final String[] CATEGORIES = {"Cocina", "Iluminación", "Climatización", "Entretenimiento", "Lavandería"};
+
+    private Fixtures() {
+    }
+
+    static List<Device> catalog(int size) {
+        Random random = new Random(42);
+        List<Device> devices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            devices.add(new Device("d" + i, "Dispositivo " + i, CATEGORIES[i % CATEGORIES.length],
+                    5 + random.nextInt(2000), 0.5f + random.nextInt(24), 30));
+        }
+        return devices;
+    }
+
+    static List<UserDevice> userDevices(List<Device> catalog, int size) {
+        Random random = new Random(7);
+        List<UserDevice> userDevices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Device device = catalog.get(random.nextInt(catalog.size()));
+            userDevices.add(new UserDevice("u" + i, "user", device.getId(),
+                    1 + random.nextInt(4), 0.5f + random.nextInt(24), 1 + random.nextInt(7)));
+        }
+        return userDevices;
+    }
+
+    /**
+     * Documento de user_devices tal como lo devuelve el SDK: enteros como Long, decimales como Double
+     */
+    static Map<String, Object> userDeviceDocument() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("userId", "3fZkq0aUe1Yp8wH2");
+        data.put("deviceId", "d17");
+        data.put("quantity", 2L);
+        data.put("dailyHours", 6.5d);
+        data.put("weeklyDays", 5L);
+        data.put("kwhMonth", 42.75d);
+        data.put("category", "Cocina");
+        data.put("createdAt", Timestamp.ofTimeSecondsAndNanos(1_750_000_000L, 0));
+        return data;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.Energetic_Calculator.benchmarks;
+
+import com.example.Energetic_Calculator.service.ReadingRollups;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bucle del hilo agregador de lecturas: un lote de 1000 lecturas por dispositivo sumado en los anillos de minuto,
+ * hora y día. El resultado es lecturas por segundo; el lote avanza en el tiempo para que los periodos roten.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadingRollupsBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final int DEVICES = 1000;
+
+    private ReadingRollups rollups;
+    private String[] deviceIds;
+    private long[] timestamps;
+    private double[] kwh;
+    private int next;
+
+    @Setup
+    public void setup() {
+        rollups = new ReadingRollups(120, 48, 35);
+        deviceIds = new String[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            deviceIds[i] = "meter-" + i;
+        }
+        timestamps = new long[BATCH];
+        kwh = new double[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            timestamps[i] = 1_700_000_000_000L + i * 1_000L;
+            kwh[i] = 0.0025;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int addBatch() {
+        int device = next++ % DEVICES;
+        if (device == 0) {
+            for (int i = 0; i < BATCH; i++) {
+                timestamps[i] += BATCH * 1_000L;
+            }
+        }
+        return rollups.add("bench-user", deviceIds[device], timestamps, kwh, 0, BATCH, 0);
+    }
+
+    /**
+     * Coste de preparar un flush con todos los dispositivos modificados
+     */
+    @Benchmark
+    public List<ReadingRollups.Rollup> addAndDrain() {
+        for (String deviceId : deviceIds) {
+            rollups.add("bench-user", deviceId, timestamps, kwh, 0, 1, 0);
+        }
+        return rollups.drainDirty();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.Energetic_Calculator.benchmarks;
+
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.UserDevice;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización Jackson de Device y UserDevice, con un ObjectMapper compartido como el de Spring MVC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectWriter deviceWriter;
+    private ObjectReader deviceReader;
+    private ObjectWriter userDeviceWriter;
+    private ObjectReader userDeviceReader;
+    private ObjectWriter listWriter;
+
+    private Device device;
+    private UserDevice userDevice;
+    private List<Device> catalog;
+    private byte[] deviceJson;
+    private byte[] userDeviceJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+        deviceWriter = mapper.writerFor(Device.class);
+        deviceReader = mapper.readerFor(Device.class);
+        userDeviceWriter = mapper.writerFor(UserDevice.class);
+        userDeviceReader = mapper.readerFor(UserDevice.class);
+        listWriter = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, Device.class));
+
+        catalog = Fixtures.catalog(100);
+        device = catalog.get(0);
+        userDevice = Fixtures.userDevices(catalog, 1).get(0);
+        userDevice.setCreatedAt(new Date(1_750_000_000_000L));
+        userDevice.setKwhMonth(42.75);
+        userDevice.setCategory(device.getCategoria());
+        deviceJson = deviceWriter.writeValueAsBytes(device);
+        userDeviceJson = userDeviceWriter.writeValueAsBytes(userDevice);
+    }
+
+    @Benchmark
+    public byte[] writeDevice() throws JsonProcessingException {
+        return deviceWriter.writeValueAsBytes(device);
+    }
+
+    @Benchmark
+    public Device readDevice() throws IOException {
+        return deviceReader.readValue(deviceJson);
+    }
+
+    @Benchmark
+    public byte[] writeUserDevice() throws JsonProcessingException {
+        return userDeviceWriter.writeValueAsBytes(userDevice);
+    }
+
+    @Benchmark
+    public UserDevice readUserDevice() throws IOException {
+        return userDeviceReader.readValue(userDeviceJson);
+    }
+
+    /**
+     * Respuesta de GET /api/devices con 100 dispositivos
+     */
+    @Benchmark
+    public byte[] writeCatalogPage() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(catalog);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.Energetic_Calculator.benchmarks;
+
+import com.example.Energetic_Calculator.timeseries.Level;
+import com.example.Energetic_Calculator.timeseries.TimeSeriesPoint;
+import com.example.Energetic_Calculator.timeseries.TimeSeriesStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Historial en segmentos mapeados: anexar un lote de lecturas (con la reducción a horas y días) y leer el mes de
+ * un dispositivo en cada nivel. La serie consultada tiene 60 días de una lectura por minuto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeSeriesBenchmark {
+
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 86_400_000L;
+    // 2026-01-01T00:00:00Z
+    private static final long START = 20_454 * DAY;
+    private static final int BATCH = 1000;
+
+    private Path directory;
+    private TimeSeriesStore store;
+    private long[] timestamps;
+    private double[] kwh;
+    private long nextTimestamp;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("timeseries-bench");
+        store = new TimeSeriesStore(true, directory.toString(), 64, 0, 0, 0, 900, 3600);
+        store.start();
+        int days = 60;
+        long[] history = new long[days * 1440];
+        double[] values = new double[history.length];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = START + i * MINUTE;
+            values[i] = 0.002 + (i % 17) * 0.0001;
+        }
+        store.append("history", history, values, 0, history.length);
+        store.maintain(START + (days + 1) * DAY);
+
+        timestamps = new long[BATCH];
+        kwh = new double[BATCH];
+        nextTimestamp = START;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Un lote de 1000 lecturas a un segundo entre sí
+     */
+    @Benchmark
+    public int appendBatch() {
+        for (int i = 0; i < BATCH; i++) {
+            timestamps[i] = nextTimestamp;
+            kwh[i] = 0.0005 + (i & 7) * 0.00001;
+            nextTimestamp += 1000;
+        }
+        return store.append("appended", timestamps, kwh, 0, BATCH);
+    }
+
+    @Benchmark
+    public List<TimeSeriesPoint> monthOfDays() {
+        return store.query("history", Level.DAY, START + 31 * DAY, START + 59 * DAY);
+    }
+
+    @Benchmark
+    public List<TimeSeriesPoint> monthOfHours() {
+        return store.query("history", Level.HOUR, START + 31 * DAY, START + 59 * DAY);
+    }
+
+    @Benchmark
+    public List<TimeSeriesPoint> dayOfReadings() {
+        return store.query("history", Level.RAW, START + 40 * DAY, START + 41 * DAY);
+    }
+}
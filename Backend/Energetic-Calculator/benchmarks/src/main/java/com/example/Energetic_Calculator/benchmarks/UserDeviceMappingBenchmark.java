@@ -0,0 +1,58 @@
+package com.example.Energetic_Calculator.benchmarks;
+
+import com.example.Energetic_Calculator.model.UserDevice;
+import com.example.Energetic_Calculator.service.UserDeviceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión de un documento de user_devices (Map del SDK) a UserDevice: la conversión manual de
+ * UserDeviceService frente a ObjectMapper.convertValue como referencia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDeviceMappingBenchmark {
+
+    private Map<String, Object> document;
+    private Map<String, Object> jacksonDocument;
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setup() {
+        document = Fixtures.userDeviceDocument();
+        // Jackson no conoce el Timestamp de Firestore: la referencia recibe un Date
+        jacksonDocument = new HashMap<>(document);
+        jacksonDocument.put("createdAt", ((Timestamp) document.get("createdAt")).toDate());
+        mapper = new ObjectMapper();
+    }
+
+    @Benchmark
+    public UserDevice manual() {
+        return UserDeviceService.toUserDevice("u1", document);
+    }
+
+    @Benchmark
+    public UserDevice jacksonConvertValue() {
+        UserDevice device = mapper.convertValue(jacksonDocument, UserDevice.class);
+        device.setId("u1");
+        return device;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.Energetic_Calculator.config;
+
+import com.example.Energetic_Calculator.model.CatalogImportReport;
+import com.example.Energetic_Calculator.service.CatalogImportService;
+import com.example.Energetic_Calculator.service.CatalogRecordReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.logging.Logger;
+
+/**
+ * Importa un catálogo al arrancar, por ejemplo:
+ * java -jar app.jar --catalog.import.file=file:devices_preloaded.json [--catalog.import.dry-run=true]
+ */
+@Component
+@ConditionalOnProperty(name = "catalog.import.file")
+public class CatalogImportRunner implements ApplicationRunner {
+
+    private static final Logger logger = Logger.getLogger(CatalogImportRunner.class.getName());
+
+    private final CatalogImportService catalogImportService;
+    private final String file;
+    private final boolean dryRun;
+
+    public CatalogImportRunner(CatalogImportService catalogImportService,
+                               @Value("${catalog.import.file}") String file,
+                               @Value("${catalog.import.dry-run:false}") boolean dryRun) {
+        this.catalogImportService = catalogImportService;
+        this.file = file;
+        this.dryRun = dryRun;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Resource resource = new DefaultResourceLoader().getResource(file);
+        logger.info("Importing device catalog from " + resource.getDescription());
+        try (InputStream in = resource.getInputStream()) {
+            CatalogImportReport report = catalogImportService.importCatalog(in, CatalogRecordReader.Format.fromName(file), dryRun);
+            for (String error : report.getErrors()) {
+                logger.warning(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.Energetic_Calculator.config;
+
+import com.example.Energetic_Calculator.service.ConsumptionSummaryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Al arrancar sella kwhMonth/category en los user_devices anteriores al resumen y reconstruye los resúmenes, una sola
+ * vez: al terminar deja una marca en migrations. Mientras tanto cada usuario se sella al leer su resumen o filtrar.
+ */
+@Component
+public class ConsumptionBackfillRunner implements ApplicationRunner {
+
+    private static final Logger logger = Logger.getLogger(ConsumptionBackfillRunner.class.getName());
+
+    private final ConsumptionSummaryService summaryService;
+    private final boolean enabled;
+
+    public ConsumptionBackfillRunner(ConsumptionSummaryService summaryService,
+                                     @Value("${consumption.summary.backfill:true}") boolean enabled) {
+        this.summaryService = summaryService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            summaryService.markBackfilled();
+            return;
+        }
+        try {
+            Map<String, Object> report = summaryService.backfill();
+            if (summaryService.isBackfilled()) {
+                logger.info("Consumption summary backfill done: " + report);
+            } else {
+                logger.warning("⚠️ Backfill del resumen incompleto, se repetirá en el próximo arranque: " + report);
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "❌ Consumption summary backfill failed", e);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.Energetic_Calculator.config;
 
+import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.Firestore;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.cloud.FirestoreClient;
+import com.google.firebase.database.FirebaseDatabase;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
@@ -12,10 +17,16 @@ import org.springframework.core.io.ClassPathResource;
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.logging.Logger;
 
 @Configuration
 public class FirebaseConfig {
 
+    private static final Logger logger = Logger.getLogger(FirebaseConfig.class.getName());
+
     @Value("${firebase.service-account-key-path}")
     private String serviceAccountKeyPath;
 
@@ -25,21 +36,38 @@ public class FirebaseConfig {
     @Value("${firebase.database-url}")
     private String databaseUrl; // 👈 agregamos esta línea
 
+    @Value("${storage.backend:firestore}")
+    private String storageBackend;
+
     @PostConstruct
     public void initializeFirebase() throws IOException {
-        try (InputStream serviceAccount = new ClassPathResource(serviceAccountKeyPath).getInputStream()) {
-
-            FirebaseOptions options = FirebaseOptions.builder()
-                    .setCredentials(GoogleCredentials.fromStream(serviceAccount))
-                    .setProjectId(projectId)
-                    .setDatabaseUrl(databaseUrl) // 👈 ESTA ES LA CLAVE
-                    .build();
-
-            if (FirebaseApp.getApps().isEmpty()) {
-                FirebaseApp.initializeApp(options);
-                System.out.println("✅ Firebase inicializado correctamente con Realtime Database");
-            }
+        if (!FirebaseApp.getApps().isEmpty()) {
+            return;
+        }
+
+        ClassPathResource key = new ClassPathResource(serviceAccountKeyPath);
+        if (!key.exists() && !"firestore".equals(storageBackend)) {
+            // Sin proyecto (memory o jdbc) los beans que dependen de FirebaseApp arrancan con un token ficticio, pero solo
+            // las rutas servidas por el DocumentStore funcionan sin red. Lleva caducidad porque Realtime Database programa
+            // el refresco del token a partir de ella.
+            AccessToken offline = new AccessToken("offline", Date.from(Instant.now().plus(Duration.ofDays(365))));
+            FirebaseApp.initializeApp(options(GoogleCredentials.create(offline)));
+            logger.warning("⚠️ Firebase sin credenciales (storage.backend=" + storageBackend + "): solo funciona el DocumentStore");
+            return;
         }
+
+        try (InputStream serviceAccount = key.getInputStream()) {
+            FirebaseApp.initializeApp(options(GoogleCredentials.fromStream(serviceAccount)));
+            logger.info("✅ Firebase inicializado correctamente con Realtime Database");
+        }
+    }
+
+    private FirebaseOptions options(GoogleCredentials credentials) {
+        return FirebaseOptions.builder()
+                .setCredentials(credentials)
+                .setProjectId(projectId)
+                .setDatabaseUrl(databaseUrl) // 👈 ESTA ES LA CLAVE
+                .build();
     }
 
     @Bean
@@ -48,6 +76,20 @@ public class FirebaseConfig {
         return FirebaseApp.getInstance();
     }
 
+    @Bean
+    public FirebaseDatabase firebaseDatabase(FirebaseApp firebaseApp) {
+        return FirebaseDatabase.getInstance(firebaseApp);
+    }
+
+    /**
+     * Solo con storage.backend=firestore: quien lo necesite fuera de esa ruta lo pide con ObjectProvider
+     */
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "firestore", matchIfMissing = true)
+    public Firestore firestore(FirebaseApp firebaseApp) {
+        return FirestoreClient.getFirestore(firebaseApp);
+    }
+
     @Bean
     public FirebaseAuth firebaseAuth(FirebaseApp firebaseApp) {
         return FirebaseAuth.getInstance(firebaseApp);
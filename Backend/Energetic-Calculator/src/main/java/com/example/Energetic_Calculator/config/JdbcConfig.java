@@ -0,0 +1,88 @@
+package com.example.Energetic_Calculator.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+/**
+ * Pool de conexiones MySQL para storage.backend=jdbc. Las sentencias preparadas se cachean en el driver y
+ * rewriteBatchedStatements agrupa los executeBatch de JdbcDocumentStore en INSERT de varias filas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "jdbc")
+public class JdbcConfig {
+
+    private static final Logger logger = Logger.getLogger(JdbcConfig.class.getName());
+    private static final String SCHEMA = "db/mysql/schema.sql";
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource(@Value("${storage.jdbc.url}") String url,
+                                       @Value("${storage.jdbc.username:}") String username,
+                                       @Value("${storage.jdbc.password:}") String password,
+                                       @Value("${storage.jdbc.pool-size:16}") int poolSize,
+                                       @Value("${storage.jdbc.initialize-schema:false}") boolean initializeSchema,
+                                       MeterRegistry meterRegistry) throws SQLException, IOException {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("storage");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        // hikaricp.connections.* en /actuator/prometheus
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        HikariDataSource dataSource = new HikariDataSource(config);
+        if (initializeSchema) {
+            try {
+                initializeSchema(dataSource);
+            } catch (SQLException | IOException | RuntimeException e) {
+                dataSource.close();
+                throw e;
+            }
+        }
+        logger.info("✅ Pool JDBC listo (" + poolSize + " conexiones)");
+        return dataSource;
+    }
+
+    /**
+     * Ejecuta schema.sql sentencia por sentencia; todas son CREATE TABLE IF NOT EXISTS
+     */
+    private static void initializeSchema(HikariDataSource dataSource) throws SQLException, IOException {
+        String script;
+        try (InputStream in = new ClassPathResource(SCHEMA).getInputStream()) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        StringBuilder withoutComments = new StringBuilder();
+        for (String line : script.split("\n")) {
+            int comment = line.indexOf("--");
+            withoutComments.append(comment < 0 ? line : line.substring(0, comment)).append('\n');
+        }
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : withoutComments.toString().split(";")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+        logger.info("Esquema " + SCHEMA + " aplicado");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.Energetic_Calculator.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas @Scheduled; cada una se desactiva con su cron en "-"
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,108 @@
+package com.example.Energetic_Calculator.config;
+
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.example.Energetic_Calculator.repository.DocumentStore;
+import com.example.Energetic_Calculator.repository.FirestoreCallLimiter;
+import com.example.Energetic_Calculator.repository.FirestoreDocumentStore;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.google.firebase.FirebaseApp;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+
+/**
+ * Copia colecciones de Firestore al DocumentStore configurado al arrancar, conservando los ids, por ejemplo:
+ * java -jar app.jar --storage.backend=jdbc --storage.migrate.collections=devices,user_devices
+ * Mientras se escribe una página ya se está leyendo la siguiente. Las escrituras son upserts, así que se puede repetir.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.migrate.collections")
+public class StorageMigrationRunner implements ApplicationRunner {
+
+    private static final Logger logger = Logger.getLogger(StorageMigrationRunner.class.getName());
+
+    private final DocumentStore target;
+    private final FirebaseApp firebaseApp;
+    private final FirestoreCallLimiter limiter;
+    private final List<String> collections;
+    private final int pageSize;
+
+    public StorageMigrationRunner(DocumentStore target, FirebaseApp firebaseApp, FirestoreCallLimiter limiter,
+                                  @Value("${storage.migrate.collections}") List<String> collections,
+                                  @Value("${storage.migrate.page-size:500}") int pageSize) {
+        this.target = target;
+        this.firebaseApp = firebaseApp;
+        this.limiter = limiter;
+        this.collections = collections;
+        this.pageSize = Math.max(1, Math.min(pageSize, 500));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if ("firestore".equals(target.backend())) {
+            logger.warning("⚠️ storage.migrate.collections ignorado: storage.backend ya es firestore");
+            return;
+        }
+        DocumentStore source = new FirestoreDocumentStore(firebaseApp, limiter);
+        for (String collection : collections) {
+            if (!collection.isBlank()) {
+                migrate(source, collection.trim());
+            }
+        }
+    }
+
+    private void migrate(DocumentStore source, String collection) throws ExecutionException, InterruptedException {
+        long start = System.nanoTime();
+        long copied = 0;
+        List<DocumentStore.Write> failed = new ArrayList<>();
+        CompletableFuture<Void> pendingCommit = CompletableFuture.completedFuture(null);
+        List<DocumentStore.Write> pendingWrites = List.of();
+        String cursor = null;
+
+        while (true) {
+            List<DocumentStore.Document> page = FirestoreFutures.await(source.page(collection, pageSize, cursor, null));
+            FirestoreFutures.await(pendingCommit);
+            collectFailures(pendingWrites, failed);
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<DocumentStore.Write> writes = new ArrayList<>(page.size());
+            for (DocumentStore.Document document : page) {
+                writes.add(new DocumentStore.Write(new BatchItemResult("set", 0, document.id()), document.id(), document.data()));
+            }
+            pendingCommit = target.commit(collection, writes);
+            pendingWrites = writes;
+            copied += page.size();
+            cursor = page.get(page.size() - 1).id();
+            if (page.size() < pageSize) {
+                FirestoreFutures.await(pendingCommit);
+                collectFailures(pendingWrites, failed);
+                break;
+            }
+        }
+
+        logger.info("Migrated " + collection + " from Firestore to " + target.backend() + ": " + (copied - failed.size())
+                + " of " + copied + " documents in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        if (!failed.isEmpty()) {
+            logger.warning("❌ " + failed.size() + " documentos de " + collection + " no se copiaron; primer error: "
+                    + failed.get(0).result().getError());
+        }
+    }
+
+    private static void collectFailures(List<DocumentStore.Write> writes, List<DocumentStore.Write> failed) {
+        for (DocumentStore.Write write : writes) {
+            if (!write.result().isSuccess()) {
+                failed.add(write);
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.Energetic_Calculator.controller;
 
+import com.example.Energetic_Calculator.security.AuthenticatedUser;
+import com.example.Energetic_Calculator.security.FirebaseTokenVerifier;
 import com.example.Energetic_Calculator.service.FirebaseAuthService;
 import com.google.firebase.auth.FirebaseAuthException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,9 +17,11 @@ import java.util.Map;
 public class AuthController {
 
     private final FirebaseAuthService authService;
+    private final FirebaseTokenVerifier tokenVerifier;
 
-    public AuthController(FirebaseAuthService authService) {
+    public AuthController(FirebaseAuthService authService, FirebaseTokenVerifier tokenVerifier) {
         this.authService = authService;
+        this.tokenVerifier = tokenVerifier;
     }
 
     @PostMapping("/register")
@@ -55,6 +60,15 @@ public class AuthController {
         }
     }
 
+    @GetMapping("/token-cache/stats")
+    public ResponseEntity<?> tokenCacheStats() {
+        if (!AuthenticatedUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Solo un administrador puede ver las estadísticas de la caché de tokens"));
+        }
+        return ResponseEntity.ok(tokenVerifier.stats());
+    }
+
     @PostMapping("/update")
     public ResponseEntity<?> updateUser(@RequestBody Map<String, String> request) {
         try {
@@ -0,0 +1,47 @@
+package com.example.Energetic_Calculator.controller;
+
+import com.example.Energetic_Calculator.model.CatalogImportReport;
+import com.example.Energetic_Calculator.security.AuthenticatedUser;
+import com.example.Energetic_Calculator.service.CatalogImportService;
+import com.example.Energetic_Calculator.service.CatalogRecordReader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+@RestController
+@RequestMapping("/api/devices/import")
+@CrossOrigin(origins = "*")
+public class CatalogImportController {
+
+    private final CatalogImportService catalogImportService;
+
+    public CatalogImportController(CatalogImportService catalogImportService) {
+        this.catalogImportService = catalogImportService;
+    }
+
+    /**
+     * POST /api/devices/import - Importa un catálogo JSON o CSV enviado como cuerpo de la petición.
+     * Solo para usuarios con el custom claim admin=true.
+     */
+    @PostMapping
+    public ResponseEntity<?> importCatalog(InputStream body,
+                                           @RequestHeader(value = "Content-Type", required = false) String contentType,
+                                           @RequestParam(required = false) String format,
+                                           @RequestParam(defaultValue = "false") boolean dryRun)
+            throws IOException, ExecutionException, InterruptedException {
+
+        if (!AuthenticatedUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Solo un administrador puede importar el catálogo"));
+        }
+
+        CatalogRecordReader.Format resolved = CatalogRecordReader.Format.fromName(format != null ? format : contentType);
+        CatalogImportReport report = catalogImportService.importCatalog(body, resolved, dryRun);
+        return ResponseEntity.ok(report);
+    }
+}
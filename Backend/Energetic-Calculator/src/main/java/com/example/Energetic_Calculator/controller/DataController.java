@@ -1,114 +1,214 @@
 package com.example.Energetic_Calculator.controller;
 
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.example.Energetic_Calculator.repository.FirestorePages;
+import com.example.Energetic_Calculator.security.AuthenticatedUser;
 import com.example.Energetic_Calculator.service.FirebaseFirestoreService;
 import com.example.Energetic_Calculator.service.FirebaseRealtimeDatabaseService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/data")
 @CrossOrigin(origins = "*")
 public class DataController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final FirebaseFirestoreService firestoreService;
     private final FirebaseRealtimeDatabaseService realtimeService;
+    private final ObjectMapper objectMapper;
 
-    public DataController(FirebaseFirestoreService firestoreService, FirebaseRealtimeDatabaseService realtimeService) {
+    public DataController(FirebaseFirestoreService firestoreService, FirebaseRealtimeDatabaseService realtimeService,
+                          ObjectMapper objectMapper) {
         this.firestoreService = firestoreService;
         this.realtimeService = realtimeService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Los fallos de Firestore se devuelven como 400 con el mensaje original, igual que antes
+     */
+    private static ResponseEntity<?> badRequest(Throwable error) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(FirestoreFutures.unwrap(error).getMessage())));
+    }
+
+    /**
+     * Sin respuesta de Realtime Database a tiempo: 504; demasiadas escrituras sin confirmar: 503
+     */
+    private static ResponseEntity<?> realtimeError(Throwable error) {
+        Throwable cause = FirestoreFutures.unwrap(error);
+        if (cause instanceof TimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body(Map.of("error", "Realtime Database no respondió a tiempo"));
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", cause.getMessage()));
+        }
+        return badRequest(error);
     }
 
     // Firestore endpoints
     @PostMapping("/firestore/{collection}")
-    public ResponseEntity<?> createFirestoreDocument(@PathVariable String collection, @RequestBody Map<String, Object> data) {
-        try {
-            String id = firestoreService.createDocument(collection, data);
-            return ResponseEntity.ok(Map.of("id", id, "message", "Document created"));
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<?>> createFirestoreDocument(@PathVariable String collection, @RequestBody Map<String, Object> data) {
+        return firestoreService.createDocumentAsync(collection, data)
+                .<ResponseEntity<?>>thenApply(id -> ResponseEntity.ok(Map.of("id", id, "message", "Document created")))
+                .exceptionally(DataController::badRequest);
     }
 
     @GetMapping("/firestore/{collection}/{id}")
-    public ResponseEntity<?> getFirestoreDocument(@PathVariable String collection, @PathVariable String id) {
+    public CompletableFuture<ResponseEntity<?>> getFirestoreDocument(@PathVariable String collection, @PathVariable String id) {
+        return firestoreService.getDocumentAsync(collection, id)
+                .<ResponseEntity<?>>thenApply(data -> {
+                    if (data != null) {
+                        return ResponseEntity.ok(data);
+                    } else {
+                        return ResponseEntity.notFound().build();
+                    }
+                })
+                .exceptionally(DataController::badRequest);
+    }
+
+    @GetMapping("/firestore/{collection}")
+    public CompletableFuture<ResponseEntity<?>> getAllFirestoreDocuments(@PathVariable String collection,
+                                                                         @RequestParam(required = false) Integer limit,
+                                                                         @RequestParam(required = false) String startAfter,
+                                                                         @RequestParam(required = false) List<String> fields,
+                                                                         @RequestParam(required = false) String field,
+                                                                         @RequestParam(required = false) String equals) {
+        CompletableFuture<?> result;
         try {
-            Map<String, Object> data = firestoreService.getDocument(collection, id);
-            if (data != null) {
-                return ResponseEntity.ok(data);
+            if (field != null && !field.isBlank()) {
+                // Filtro de igualdad sobre un campo de texto (?field=categoria&equals=Cocina)
+                result = firestoreService.findDocumentsAsync(collection, field, equals);
+            } else if (FirestorePages.isPaged(limit, startAfter, fields)) {
+                int pageSize = FirestorePages.resolveLimit(limit);
+                result = firestoreService.getDocumentsPageAsync(collection, pageSize, startAfter, fields);
             } else {
-                return ResponseEntity.notFound().build();
+                result = firestoreService.getAllDocumentsAsync(collection);
             }
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(badRequest(e));
         }
+        return result.<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(DataController::badRequest);
     }
 
-    @GetMapping("/firestore/{collection}")
-    public ResponseEntity<?> getAllFirestoreDocuments(@PathVariable String collection) {
-        try {
-            List<Map<String, Object>> data = firestoreService.getAllDocuments(collection);
-            return ResponseEntity.ok(data);
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        }
+    /**
+     * Exporta toda la colección como JSON delimitado por saltos de línea (un documento por línea),
+     * paginando en Firestore y escribiendo directo a la respuesta con memoria constante.
+     */
+    @GetMapping("/firestore/{collection}/stream")
+    public ResponseEntity<StreamingResponseBody> streamFirestoreDocuments(@PathVariable String collection,
+                                                                          @RequestParam(required = false) Integer pageSize) {
+        int size = pageSize == null ? FirestorePages.MAX_PAGE_SIZE
+                : Math.max(1, Math.min(pageSize, FirestorePages.MAX_PAGE_SIZE));
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                long[] written = {0};
+                firestoreService.forEachDocument(collection, size, (id, data) -> {
+                    generator.writeStartObject();
+                    generator.writeStringField("id", id);
+                    for (Map.Entry<String, Object> field : data.entrySet()) {
+                        generator.writeFieldName(field.getKey());
+                        generator.writeObject(field.getValue());
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    if (++written[0] % size == 0) {
+                        generator.flush();
+                    }
+                });
+            } catch (ExecutionException e) {
+                throw new IOException("Error leyendo la colección " + collection, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Exportación interrumpida", e);
+            }
+        };
+
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @PutMapping("/firestore/{collection}/{id}")
-    public ResponseEntity<?> updateFirestoreDocument(@PathVariable String collection, @PathVariable String id, @RequestBody Map<String, Object> data) {
-        try {
-            firestoreService.updateDocument(collection, id, data);
-            return ResponseEntity.ok(Map.of("message", "Document updated"));
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<?>> updateFirestoreDocument(@PathVariable String collection, @PathVariable String id, @RequestBody Map<String, Object> data) {
+        return firestoreService.updateDocumentAsync(collection, id, data)
+                .<ResponseEntity<?>>thenApply(ignored -> ResponseEntity.ok(Map.of("message", "Document updated")))
+                .exceptionally(DataController::badRequest);
     }
 
     @DeleteMapping("/firestore/{collection}/{id}")
-    public ResponseEntity<?> deleteFirestoreDocument(@PathVariable String collection, @PathVariable String id) {
-        try {
-            firestoreService.deleteDocument(collection, id);
-            return ResponseEntity.ok(Map.of("message", "Document deleted"));
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<?>> deleteFirestoreDocument(@PathVariable String collection, @PathVariable String id) {
+        return firestoreService.deleteDocumentAsync(collection, id)
+                .<ResponseEntity<?>>thenApply(ignored -> ResponseEntity.ok(Map.of("message", "Document deleted")))
+                .exceptionally(DataController::badRequest);
     }
 
     // Realtime Database endpoints
-    @PostMapping("/realtime/{path}")
-    public ResponseEntity<?> createRealtimeData(@PathVariable String path, @RequestBody Map<String, Object> data) {
-        try {
-            String result = realtimeService.createOrUpdateData(path, data);
-            return ResponseEntity.ok(Map.of("message", result));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        }
+    /**
+     * Responde cuando Realtime Database confirma la escritura
+     */
+    @PostMapping("/realtime/{*path}")
+    public CompletableFuture<ResponseEntity<?>> createRealtimeData(@PathVariable String path, @RequestBody Map<String, Object> data) {
+        return realtimeService.createOrUpdateDataAsync(path, data)
+                .<ResponseEntity<?>>thenApply(done -> ResponseEntity.ok(Map.of("message", "Data saved at " + path)))
+                .exceptionally(DataController::realtimeError);
     }
 
-    @GetMapping("/realtime/{path}")
-    public ResponseEntity<?> getRealtimeData(@PathVariable String path) {
-        try {
-            Map<String, Object> data = realtimeService.getData(path);
-            if (data != null) {
-                return ResponseEntity.ok(data);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        }
+    /**
+     * Modifica solo los hijos del cuerpo; las actualizaciones cercanas en el tiempo se agrupan en un updateChildren
+     */
+    @PatchMapping("/realtime/{*path}")
+    public CompletableFuture<ResponseEntity<?>> updateRealtimeData(@PathVariable String path, @RequestBody Map<String, Object> data) {
+        return realtimeService.updateDataAsync(path, data)
+                .<ResponseEntity<?>>thenApply(done -> ResponseEntity.ok(Map.of("message", "Data updated at " + path)))
+                .exceptionally(DataController::realtimeError);
     }
 
-    @DeleteMapping("/realtime/{path}")
-    public ResponseEntity<?> deleteRealtimeData(@PathVariable String path) {
-        try {
-            String result = realtimeService.deleteData(path);
-            return ResponseEntity.ok(Map.of("message", result));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    /**
+     * La ruta puede tener varios segmentos (/api/data/realtime/meters/m1/latest)
+     */
+    @GetMapping("/realtime/{*path}")
+    public CompletableFuture<ResponseEntity<?>> getRealtimeData(@PathVariable String path) {
+        return realtimeService.getDataAsync(path)
+                .<ResponseEntity<?>>thenApply(data -> {
+                    if (data != null) {
+                        return ResponseEntity.ok(data);
+                    } else {
+                        return ResponseEntity.notFound().build();
+                    }
+                })
+                .exceptionally(DataController::realtimeError);
+    }
+
+    @GetMapping("/realtime-cache/stats")
+    public ResponseEntity<?> getRealtimeCacheStats() {
+        if (!AuthenticatedUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Solo un administrador puede ver las estadísticas de la caché de Realtime Database"));
         }
+        return ResponseEntity.ok(realtimeService.getCacheStats());
+    }
+
+    @DeleteMapping("/realtime/{*path}")
+    public CompletableFuture<ResponseEntity<?>> deleteRealtimeData(@PathVariable String path) {
+        return realtimeService.deleteDataAsync(path)
+                .<ResponseEntity<?>>thenApply(done -> ResponseEntity.ok(Map.of("message", "Data deleted at " + path)))
+                .exceptionally(DataController::realtimeError);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package com.example.Energetic_Calculator.controller;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Fechas de los parámetros de consulta de los endpoints
+ */
+final class DateParams {
+
+    private DateParams() {
+    }
+
+    /**
+     * Fecha ISO-8601 (2024-05-01T10:00:00Z) o solo el día (2024-05-01, en UTC); como límite superior un día
+     * se incluye completo. null si el parámetro no viene.
+     */
+    static Instant parse(String name, String value, boolean upperBound) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                LocalDate day = LocalDate.parse(value);
+                return (upperBound ? day.plusDays(1) : day).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " debe ser una fecha ISO-8601, por ejemplo 2024-05-01 o 2024-05-01T10:00:00Z");
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.example.Energetic_Calculator.controller;
 
+import com.example.Energetic_Calculator.model.BatchRequest;
 import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.repository.FirestoreBatches;
+import com.example.Energetic_Calculator.repository.FirestorePages;
+import com.example.Energetic_Calculator.security.AuthenticatedUser;
+import com.example.Energetic_Calculator.service.ConsumptionEngine;
 import com.example.Energetic_Calculator.service.DeviceService;
+import com.example.Energetic_Calculator.service.DeviceValidator;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/devices")
@@ -16,117 +22,175 @@ import java.util.concurrent.ExecutionException;
 public class DeviceController {
 
     private final DeviceService deviceService;
+    private final ConsumptionEngine consumptionEngine;
 
-    public DeviceController(DeviceService deviceService) {
+    public DeviceController(DeviceService deviceService, ConsumptionEngine consumptionEngine) {
         this.deviceService = deviceService;
+        this.consumptionEngine = consumptionEngine;
     }
 
 
     @PostMapping
-    public ResponseEntity<?> createDevice(@RequestBody Device device) throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<?>> createDevice(@RequestBody Device device) {
 
 
-        if (device.getNombre() == null || device.getNombre().length() < 3 || device.getNombre().length() > 50) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ El nombre debe tener entre 3 y 50 caracteres."));
-        }
-
-        List<String> categoriasValidas = List.of("Cocina", "Lavandería", "Clima", "Entretenimiento", "Iluminación", "Otros");
-        if (!categoriasValidas.contains(device.getCategoria())) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ La categoría debe ser una de: " + categoriasValidas));
-        }
-
-        if (device.getPotenciaWatts() < 1 || device.getPotenciaWatts() > 5000) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ La potencia debe estar entre 1 y 5000 watts."));
-        }
-
-        if (device.getHorasUsoDiario() < 0.1 || device.getHorasUsoDiario() > 24.0) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ Las horas de uso diario deben estar entre 0.1 y 24."));
-        }
-
-        if (device.getDiasUsoMensual() < 1 || device.getDiasUsoMensual() > 31) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ Los días de uso mensual deben estar entre 1 y 31."));
+        String error = DeviceValidator.validate(device);
+        if (error != null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", error)));
         }
 
 
-        String result = deviceService.addDevice(device);
-        return ResponseEntity.ok(Map.of("message", "✅ Dispositivo registrado con éxito", "timestamp", result));
+        return deviceService.addDeviceAsync(device)
+                .thenApply(result -> ResponseEntity.ok(Map.of("message", "✅ Dispositivo registrado con éxito", "timestamp", result)));
     }
 
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getDevice(@PathVariable String id) throws ExecutionException, InterruptedException {
-        Device device = deviceService.getDevice(id);
-
-        if (device == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "⚠️ No se encontró ningún dispositivo con el ID: " + id));
-        }
-
-        return ResponseEntity.ok(device);
+    public CompletableFuture<ResponseEntity<?>> getDevice(@PathVariable String id) {
+        return deviceService.getDeviceAsync(id).thenApply(device -> {
+            if (device == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "⚠️ No se encontró ningún dispositivo con el ID: " + id));
+            }
+
+            return ResponseEntity.ok(device);
+        });
     }
 
 
     @GetMapping
-    public ResponseEntity<?> getAllDevices() throws ExecutionException, InterruptedException {
-        List<Device> devices = deviceService.listDevices();
-
-        if (devices.isEmpty()) {
-            return ResponseEntity.ok(Map.of("message", "ℹ️ No hay dispositivos registrados actualmente."));
+    public CompletableFuture<ResponseEntity<?>> getAllDevices(@RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) String startAfter,
+                                                              @RequestParam(required = false) List<String> fields) {
+
+        if (FirestorePages.isPaged(limit, startAfter, fields)) {
+            int pageSize;
+            try {
+                pageSize = FirestorePages.resolveLimit(limit);
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "❌ " + e.getMessage())));
+            }
+            if (fields != null && !fields.isEmpty()) {
+                return deviceService.listDevicesPageAsync(pageSize, startAfter, fields).thenApply(ResponseEntity::ok);
+            }
+            return deviceService.listDevicesPageAsync(pageSize, startAfter).thenApply(ResponseEntity::ok);
         }
 
-        return ResponseEntity.ok(devices);
-    }
+        return deviceService.listDevicesAsync().thenApply(devices -> {
+            if (devices.isEmpty()) {
+                return ResponseEntity.ok(Map.of("message", "ℹ️ No hay dispositivos registrados actualmente."));
+            }
 
+            return ResponseEntity.ok(devices);
+        });
+    }
 
-    @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteDevice(@PathVariable String id) throws ExecutionException, InterruptedException {
-        Device device = deviceService.getDevice(id);
 
-        if (device == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "⚠️ No se puede eliminar. No existe un dispositivo con el ID: " + id));
+    /**
+     * POST /api/devices/batch - Crea, actualiza y elimina dispositivos en lotes con un resultado por elemento
+     */
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<?>> applyBatch(@RequestBody BatchRequest<Device> request) {
+        if (request.size() == 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "❌ El lote está vacío.")));
+        }
+        if (request.size() > FirestoreBatches.MAX_ITEMS_PER_REQUEST) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error",
+                    "❌ El lote no puede tener más de " + FirestoreBatches.MAX_ITEMS_PER_REQUEST + " operaciones.")));
         }
 
-        String result = deviceService.deleteDevice(id);
-        return ResponseEntity.ok(Map.of("message", "🗑️ Dispositivo eliminado con éxito", "timestamp", result));
+        return deviceService.applyBatchAsync(request).thenApply(ResponseEntity::ok);
     }
 
-    @PutMapping("/{id}")
-    public ResponseEntity<?> updateDevice(@PathVariable String id, @RequestBody Device updatedDevice)
-            throws ExecutionException, InterruptedException {
 
-        Device existingDevice = deviceService.getDevice(id);
-        if (existingDevice == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "⚠️ No se puede actualizar. No existe un dispositivo con el ID: " + id));
+    /**
+     * GET /api/devices/{id}/alternatives - Dispositivos de la misma categoría más baratos de operar
+     */
+    @GetMapping("/{id}/alternatives")
+    public CompletableFuture<ResponseEntity<?>> getAlternatives(@PathVariable String id,
+                                                                @RequestParam(defaultValue = "3") int limit,
+                                                                @RequestParam(required = false) Float dailyHours,
+                                                                @RequestParam(required = false) Integer quantity,
+                                                                @RequestParam(required = false) Integer weeklyDays,
+                                                                @RequestParam(required = false) Double tariff) {
+
+        String error = validateUsage(limit, dailyHours, quantity, weeklyDays, tariff);
+        if (error != null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", error)));
         }
 
+        return consumptionEngine.alternativesAsync(id, limit, dailyHours, quantity, weeklyDays, tariff).thenApply(alternatives -> {
+            if (alternatives == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "⚠️ No se encontró ningún dispositivo con el ID: " + id));
+            }
 
-        if (updatedDevice.getNombre() == null || updatedDevice.getNombre().length() < 3 || updatedDevice.getNombre().length() > 50) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ El nombre debe tener entre 3 y 50 caracteres."));
-        }
+            return ResponseEntity.ok(alternatives);
+        });
+    }
 
-        List<String> categoriasValidas = List.of("Cocina", "Lavandería", "Clima", "Entretenimiento", "Iluminación", "Otros");
-        if (!categoriasValidas.contains(updatedDevice.getCategoria())) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ La categoría debe ser una de: " + categoriasValidas));
+    private static String validateUsage(int limit, Float dailyHours, Integer quantity, Integer weeklyDays, Double tariff) {
+        if (limit < 1 || limit > 50) {
+            return "❌ El límite debe estar entre 1 y 50.";
         }
-
-        if (updatedDevice.getPotenciaWatts() < 1 || updatedDevice.getPotenciaWatts() > 5000) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ La potencia debe estar entre 1 y 5000 watts."));
+        if (dailyHours != null && (dailyHours <= 0 || dailyHours > 24)) {
+            return "❌ Las horas diarias deben estar entre 0 y 24.";
         }
-
-        if (updatedDevice.getHorasUsoDiario() < 0.1 || updatedDevice.getHorasUsoDiario() > 24.0) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ Las horas de uso diario deben estar entre 0.1 y 24."));
+        if (quantity != null && quantity < 1) {
+            return "❌ La cantidad debe ser mayor a 0.";
+        }
+        if (weeklyDays != null && (weeklyDays < 1 || weeklyDays > 7)) {
+            return "❌ Los días semanales deben estar entre 1 y 7.";
+        }
+        if (tariff != null && tariff < 0) {
+            return "❌ La tarifa no puede ser negativa.";
         }
+        return null;
+    }
+
 
-        if (updatedDevice.getDiasUsoMensual() < 1 || updatedDevice.getDiasUsoMensual() > 31) {
-            return ResponseEntity.badRequest().body(Map.of("error", "❌ Los días de uso mensual deben estar entre 1 y 31."));
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getCacheStats() {
+        if (!AuthenticatedUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Solo un administrador puede ver las estadísticas de la caché"));
         }
+        return ResponseEntity.ok(deviceService.getCacheStats());
+    }
 
-        updatedDevice.setId(id);
 
-        String result = deviceService.updateDevice(updatedDevice);
-        return ResponseEntity.ok(Map.of("message", "🔄 Dispositivo actualizado con éxito", "timestamp", result));
+    @DeleteMapping("/{id}")
+    public CompletableFuture<ResponseEntity<?>> deleteDevice(@PathVariable String id) {
+        return deviceService.getDeviceAsync(id).thenCompose(device -> {
+            if (device == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "⚠️ No se puede eliminar. No existe un dispositivo con el ID: " + id)));
+            }
+
+            return deviceService.deleteDeviceAsync(id)
+                    .thenApply(result -> ResponseEntity.ok(Map.of("message", "🗑️ Dispositivo eliminado con éxito", "timestamp", result)));
+        });
+    }
+
+    @PutMapping("/{id}")
+    public CompletableFuture<ResponseEntity<?>> updateDevice(@PathVariable String id, @RequestBody Device updatedDevice) {
+
+        // Como antes: un id inexistente es 404 aunque el cuerpo tampoco sea válido
+        return deviceService.getDeviceAsync(id).thenCompose(existingDevice -> {
+            if (existingDevice == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "⚠️ No se puede actualizar. No existe un dispositivo con el ID: " + id)));
+            }
+
+            String error = DeviceValidator.validate(updatedDevice);
+            if (error != null) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", error)));
+            }
+
+            updatedDevice.setId(id);
+            return deviceService.updateDeviceAsync(updatedDevice)
+                    .thenApply(result -> ResponseEntity.ok(Map.of("message", "🔄 Dispositivo actualizado con éxito", "timestamp", result)));
+        });
     }
 
 }
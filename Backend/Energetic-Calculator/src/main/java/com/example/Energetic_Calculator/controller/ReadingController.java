@@ -0,0 +1,162 @@
+package com.example.Energetic_Calculator.controller;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.Energetic_Calculator.model.ReadingsRequest;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.example.Energetic_Calculator.security.AuthenticatedUser;
+import com.example.Energetic_Calculator.service.ReadingIngestionService;
+import com.example.Energetic_Calculator.service.ReadingRollups;
+import com.example.Energetic_Calculator.timeseries.Level;
+import com.google.firebase.auth.FirebaseToken;
+
+@RestController
+@RequestMapping("/api/readings")
+@CrossOrigin(origins = "*")
+public class ReadingController {
+
+    private final ReadingIngestionService ingestionService;
+
+    public ReadingController(ReadingIngestionService ingestionService) {
+        this.ingestionService = ingestionService;
+    }
+
+    private String getAuthenticatedUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof FirebaseToken token) {
+            return token.getUid();
+        }
+        return null;
+    }
+
+    private static Function<Throwable, ResponseEntity<?>> errorResponse(String context) {
+        return error -> {
+            Throwable cause = FirestoreFutures.unwrap(error);
+            if (cause instanceof IllegalArgumentException) {
+                return ResponseEntity.badRequest().body(Map.of("error", cause.getMessage()));
+            }
+            if (cause instanceof SecurityException) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", cause.getMessage()));
+            }
+            if (cause instanceof RejectedExecutionException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", cause.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", context + ": " + cause.getMessage()));
+        };
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> unauthorized() {
+        return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("error", "Usuario no autenticado")));
+    }
+
+    /**
+     * POST /api/readings - Encola lecturas de kWh de los dispositivos del usuario autenticado (202 al encolar,
+     * 503 si la cola de agregación está llena)
+     */
+    @PostMapping
+    public CompletableFuture<ResponseEntity<?>> ingest(@RequestBody ReadingsRequest request) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
+
+        return ingestionService.ingestAsync(userId, request.getDevices())
+                .<ResponseEntity<?>>thenApply(accepted -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(Map.of("accepted", accepted)))
+                .exceptionally(errorResponse("Error al ingerir lecturas"));
+    }
+
+    /**
+     * GET /api/readings/{userDeviceId}/rollups?resolution=minute|hour|day - Acumulados recientes que conserva este nodo
+     */
+    @GetMapping("/{userDeviceId}/rollups")
+    public CompletableFuture<ResponseEntity<?>> getRollups(@PathVariable String userDeviceId,
+                                                           @RequestParam(defaultValue = "hour") String resolution) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
+
+        ReadingRollups.Resolution parsed;
+        try {
+            parsed = ReadingRollups.Resolution.of(resolution);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", e.getMessage())));
+        }
+        return ingestionService.getRollupsAsync(userId, userDeviceId, parsed)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(errorResponse("Error al obtener acumulados"));
+    }
+
+    /**
+     * GET /api/readings/{userDeviceId}/history?resolution=raw|hour|day&from=&to= - Historial guardado en los segmentos
+     * del nodo. Sin from se devuelve el último día (raw), la última semana (hour) o los últimos 31 días (day).
+     */
+    @GetMapping("/{userDeviceId}/history")
+    public CompletableFuture<ResponseEntity<?>> getHistory(@PathVariable String userDeviceId,
+                                                           @RequestParam(defaultValue = "day") String resolution,
+                                                           @RequestParam(required = false) String from,
+                                                           @RequestParam(required = false) String to) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
+        if (!ingestionService.isHistoryEnabled()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "El historial de lecturas está deshabilitado")));
+        }
+
+        Level level;
+        long end;
+        long start;
+        try {
+            level = Level.of(resolution);
+            Instant toInstant = DateParams.parse("to", to, true);
+            Instant fromInstant = DateParams.parse("from", from, false);
+            end = toInstant != null ? toInstant.toEpochMilli() : System.currentTimeMillis() + 1;
+            start = fromInstant != null ? fromInstant.toEpochMilli() : end - switch (level) {
+                case RAW -> 86_400_000L;
+                case HOUR -> 7 * 86_400_000L;
+                case DAY -> 31 * 86_400_000L;
+            };
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", e.getMessage())));
+        }
+        return ingestionService.getHistoryAsync(userId, userDeviceId, level, start, end)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(errorResponse("Error al obtener el historial"));
+    }
+
+    /**
+     * GET /api/readings/stats - Estado de la cola y de los acumulados en memoria
+     */
+    @GetMapping("/stats")
+    public CompletableFuture<ResponseEntity<?>> getStats() {
+        if (!AuthenticatedUser.isAdmin()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Solo un administrador puede ver las estadísticas de lecturas")));
+        }
+        return ingestionService.statsAsync()
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(errorResponse("Error al obtener estadísticas de lecturas"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.Energetic_Calculator.controller;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.Energetic_Calculator.model.ReportJob;
+import com.example.Energetic_Calculator.model.ReportRequest;
+import com.example.Energetic_Calculator.security.AuthenticatedUser;
+import com.example.Energetic_Calculator.service.ReportService;
+
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "*")
+public class ReportController {
+
+    private final ReportService reportService;
+    private final long sseTimeoutMillis;
+
+    public ReportController(ReportService reportService,
+                            @Value("${reports.sse-timeout-ms:600000}") long sseTimeoutMillis) {
+        this.reportService = reportService;
+        this.sseTimeoutMillis = sseTimeoutMillis;
+    }
+
+    private static ResponseEntity<?> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("error", "Solo un administrador puede generar reportes"));
+    }
+
+    private static ResponseEntity<?> notFound(String jobId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Reporte no encontrado o expirado: " + jobId));
+    }
+
+    /**
+     * POST /api/reports?refresh=false - Encola un reporte (202 con el trabajo). Si el mismo reporte ya está en cache
+     * se devuelve terminado (200) y si está en curso se devuelve ese trabajo; refresh=true fuerza recalcularlo.
+     */
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestBody ReportRequest request,
+                                    @RequestParam(defaultValue = "false") boolean refresh) {
+        if (!AuthenticatedUser.isAdmin()) {
+            return forbidden();
+        }
+
+        try {
+            ReportJob job = reportService.submit(request, refresh);
+            return ResponseEntity.status(job.isFinished() ? HttpStatus.OK : HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/reports/jobs/{jobId} - Estado del trabajo y, al terminar, su resultado
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId) {
+        if (!AuthenticatedUser.isAdmin()) {
+            return forbidden();
+        }
+
+        ReportJob job = reportService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : notFound(jobId);
+    }
+
+    /**
+     * GET /api/reports/jobs/{jobId}/events - Server-sent events: "status" al conectar y "done" o "failed" con el
+     * trabajo completo al terminar, tras lo cual se cierra el flujo
+     */
+    @GetMapping("/jobs/{jobId}/events")
+    public ResponseEntity<?> events(@PathVariable String jobId) {
+        if (!AuthenticatedUser.isAdmin()) {
+            return forbidden();
+        }
+        CompletableFuture<ReportJob> completion = reportService.completion(jobId);
+        if (completion == null) {
+            return notFound(jobId);
+        }
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        try {
+            emitter.send(SseEmitter.event().name("status").data(reportService.getJob(jobId)));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return ResponseEntity.ok(emitter);
+        }
+        completion.whenComplete((job, error) -> {
+            try {
+                String name = job.getStatus() == ReportJob.Status.DONE ? "done" : "failed";
+                emitter.send(SseEmitter.event().name(name).data(job));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // El cliente se desconectó o el flujo expiró
+                emitter.completeWithError(e);
+            }
+        });
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * GET /api/reports/stats - Cola, trabajos y aciertos de cache
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats() {
+        if (!AuthenticatedUser.isAdmin()) {
+            return forbidden();
+        }
+        return ResponseEntity.ok(reportService.stats());
+    }
+}
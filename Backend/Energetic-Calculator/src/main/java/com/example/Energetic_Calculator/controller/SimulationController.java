@@ -0,0 +1,58 @@
+package com.example.Energetic_Calculator.controller;
+
+import com.example.Energetic_Calculator.model.SimulationRequest;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.example.Energetic_Calculator.service.ScenarioSimulator;
+import com.google.firebase.auth.FirebaseToken;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/simulations")
+@CrossOrigin(origins = "*")
+public class SimulationController {
+
+    private final ScenarioSimulator scenarioSimulator;
+
+    public SimulationController(ScenarioSimulator scenarioSimulator) {
+        this.scenarioSimulator = scenarioSimulator;
+    }
+
+    /**
+     * POST /api/simulations - Evalúa combinaciones de cambios sobre los dispositivos del usuario
+     * (o los enviados en el cuerpo) y devuelve los escenarios con mayor ahorro
+     */
+    @PostMapping
+    public CompletableFuture<ResponseEntity<?>> simulate(@RequestBody SimulationRequest request) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Usuario no autenticado")));
+        }
+
+        return scenarioSimulator.simulateAsync(userId, request)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(error -> {
+                    Throwable cause = FirestoreFutures.unwrap(error);
+                    if (cause instanceof IllegalArgumentException) {
+                        return ResponseEntity.badRequest().body(Map.of("error", cause.getMessage()));
+                    }
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(Map.of("error", "Error al simular escenarios: " + cause.getMessage()));
+                });
+    }
+
+    private String getAuthenticatedUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof FirebaseToken token) {
+            return token.getUid();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.Energetic_Calculator.controller;
+
+import com.example.Energetic_Calculator.security.AuthenticatedUser;
+import com.example.Energetic_Calculator.service.TariffService;
+import com.example.Energetic_Calculator.service.TariffTable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/tariffs")
+@CrossOrigin(origins = "*")
+public class TariffController {
+
+    private final TariffService tariffService;
+
+    public TariffController(TariffService tariffService) {
+        this.tariffService = tariffService;
+    }
+
+    /**
+     * GET /api/tariffs - Tabla de tarifas en memoria agrupada por estrato
+     */
+    @GetMapping
+    public ResponseEntity<?> getTariffs() {
+        TariffTable table = tariffService.table();
+        return ResponseEntity.ok(Map.of(
+                "byStratum", table.getByStratum(),
+                "subsistenceKwh", table.getSubsistenceKwh(),
+                "loadedAt", table.getLoadedAt()));
+    }
+
+    /**
+     * GET /api/tariffs/quote?kwh=&stratum= - Costo mensual de un consumo sin consultar Firestore
+     */
+    @GetMapping("/quote")
+    public ResponseEntity<?> quote(@RequestParam double kwh, @RequestParam int stratum) {
+        if (kwh < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "❌ El consumo no puede ser negativo."));
+        }
+        if (stratum < 1 || stratum > 6) {
+            return ResponseEntity.badRequest().body(Map.of("error", "❌ El estrato debe estar entre 1 y 6."));
+        }
+        return ResponseEntity.ok(tariffService.quote(kwh, stratum));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats() {
+        if (!AuthenticatedUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Solo un administrador puede ver las estadísticas de tarifas"));
+        }
+        return ResponseEntity.ok(tariffService.stats());
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.Energetic_Calculator.controller;
 
+import java.time.Instant;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,9 +20,20 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.Energetic_Calculator.model.BatchRequest;
 import com.example.Energetic_Calculator.model.UserDevice;
+import com.example.Energetic_Calculator.model.UserDeviceQuery;
+import com.example.Energetic_Calculator.repository.FirestoreBatches;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.example.Energetic_Calculator.repository.FirestorePages;
+import com.example.Energetic_Calculator.security.AuthenticatedUser;
+import com.example.Energetic_Calculator.service.ConsumptionEngine;
+import com.example.Energetic_Calculator.service.ConsumptionSummaryService;
+import com.example.Energetic_Calculator.service.ReadingIngestionService;
+import com.example.Energetic_Calculator.service.TariffService;
 import com.example.Energetic_Calculator.service.UserDeviceService;
 import com.google.firebase.auth.FirebaseToken;
 
@@ -26,9 +43,19 @@ import com.google.firebase.auth.FirebaseToken;
 public class UserDeviceController {
 
     private final UserDeviceService userDeviceService;
+    private final ConsumptionEngine consumptionEngine;
+    private final ConsumptionSummaryService summaryService;
+    private final TariffService tariffService;
+    private final ReadingIngestionService readingIngestionService;
 
-    public UserDeviceController(UserDeviceService userDeviceService) {
+    public UserDeviceController(UserDeviceService userDeviceService, ConsumptionEngine consumptionEngine,
+                                ConsumptionSummaryService summaryService, TariffService tariffService,
+                                ReadingIngestionService readingIngestionService) {
         this.userDeviceService = userDeviceService;
+        this.consumptionEngine = consumptionEngine;
+        this.summaryService = summaryService;
+        this.tariffService = tariffService;
+        this.readingIngestionService = readingIngestionService;
     }
 
     /**
@@ -43,112 +70,291 @@ public class UserDeviceController {
         return null;
     }
 
+    /**
+     * Traduce el fallo de un futuro a la misma respuesta de error que devolvían los endpoints síncronos
+     */
+    private static Function<Throwable, ResponseEntity<?>> errorResponse(String context) {
+        return error -> {
+            Throwable cause = FirestoreFutures.unwrap(error);
+            if (cause instanceof IllegalArgumentException) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", cause.getMessage()));
+            }
+            if (cause instanceof SecurityException) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", cause.getMessage()));
+            }
+            if (cause instanceof RejectedExecutionException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(Map.of("error", cause.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", context + ": " + cause.getMessage()));
+        };
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> unauthorized() {
+        return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("error", "Usuario no autenticado")));
+    }
+
     /**
      * GET /api/user-devices - Obtiene todos los dispositivos del usuario autenticado
+     * (con ?expand=device incluye la entrada del catálogo de cada uno; con category, minKwh, createdFrom, createdTo
+     * o sort devuelve una página filtrada y ordenada en el almacén)
      */
     @GetMapping
-    public ResponseEntity<?> getUserDevices() {
+    public CompletableFuture<ResponseEntity<?>> getUserDevices(@RequestParam(required = false) Integer limit,
+                                                               @RequestParam(required = false) String startAfter,
+                                                               @RequestParam(required = false) List<String> fields,
+                                                               @RequestParam(required = false) String expand,
+                                                               @RequestParam(required = false) String category,
+                                                               @RequestParam(required = false) Double minKwh,
+                                                               @RequestParam(required = false) String createdFrom,
+                                                               @RequestParam(required = false) String createdTo,
+                                                               @RequestParam(required = false) String sort) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
+
+        boolean expandDevice = "device".equals(expand);
+        boolean projected = fields != null && !fields.isEmpty();
+        CompletableFuture<?> result;
         try {
-            String userId = getAuthenticatedUserId();
-            if (userId == null) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(Map.of("error", "Usuario no autenticado"));
+            if (expand != null && !expandDevice) {
+                throw new IllegalArgumentException("El único valor soportado para expand es device");
+            }
+            if (expandDevice && projected) {
+                throw new IllegalArgumentException("expand=device no se puede combinar con fields");
+            }
+            if (category != null || minKwh != null || createdFrom != null || createdTo != null || sort != null) {
+                UserDeviceQuery query = new UserDeviceQuery(category, minKwh,
+                        toDate(DateParams.parse("createdFrom", createdFrom, false)),
+                        toDate(DateParams.parse("createdTo", createdTo, true)), sort);
+                int pageSize = FirestorePages.resolveLimit(limit);
+                if (projected) {
+                    result = userDeviceService.queryUserDevicesAsync(userId, query, pageSize, startAfter, fields);
+                } else if (expandDevice) {
+                    result = userDeviceService.queryUserDevicesExpandedAsync(userId, query, pageSize, startAfter);
+                } else {
+                    result = userDeviceService.queryUserDevicesAsync(userId, query, pageSize, startAfter);
+                }
+            } else if (FirestorePages.isPaged(limit, startAfter, fields)) {
+                int pageSize = FirestorePages.resolveLimit(limit);
+                if (projected) {
+                    result = userDeviceService.getUserDevicesPageAsync(userId, pageSize, startAfter, fields);
+                } else if (expandDevice) {
+                    result = userDeviceService.getUserDevicesPageExpandedAsync(userId, pageSize, startAfter);
+                } else {
+                    result = userDeviceService.getUserDevicesPageAsync(userId, pageSize, startAfter);
+                }
+            } else {
+                result = expandDevice
+                        ? userDeviceService.getUserDevicesExpandedAsync(userId)
+                        : userDeviceService.getUserDevicesAsync(userId);
             }
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage())));
+        }
 
-            List<UserDevice> devices = userDeviceService.getUserDevices(userId);
-            return ResponseEntity.ok(devices);
+        return result.<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(errorResponse("Error al obtener dispositivos"));
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Error al obtener dispositivos: " + e.getMessage()));
+    private static Date toDate(Instant instant) {
+        return instant == null ? null : Date.from(instant);
+    }
+
+    /**
+     * GET /api/user-devices/consumption - Calcula consumo (kWh/mes), costo y CO2 del usuario autenticado
+     */
+    @GetMapping("/consumption")
+    public CompletableFuture<ResponseEntity<?>> getConsumption(@RequestParam(required = false) Double tariff) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
+
+        if (tariff != null && tariff < 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "La tarifa no puede ser negativa")));
         }
+
+        return consumptionEngine.summarizeUserAsync(userId, tariff)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(errorResponse("Error al calcular el consumo"));
     }
 
     /**
-     * POST /api/user-devices - Crea un nuevo dispositivo para el usuario autenticado
+     * GET /api/user-devices/summary - Totales materializados del usuario autenticado (una sola lectura)
      */
-    @PostMapping
-    public ResponseEntity<?> createUserDevice(@RequestBody UserDevice userDevice) {
-        try {
-            String userId = getAuthenticatedUserId();
-            if (userId == null) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(Map.of("error", "Usuario no autenticado"));
-            }
+    @GetMapping("/summary")
+    public CompletableFuture<ResponseEntity<?>> getSummary(@RequestParam(required = false) Double tariff) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
 
-            // Establecer el userId del usuario autenticado
-            userDevice.setUserId(userId);
+        if (tariff != null && tariff < 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "La tarifa no puede ser negativa")));
+        }
 
-            UserDevice createdDevice = userDeviceService.createUserDevice(userDevice);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdDevice);
+        return summaryService.getSummaryAsync(userId, tariff)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(errorResponse("Error al obtener el resumen de consumo"));
+    }
 
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                    .body(Map.of("error", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Error al crear dispositivo: " + e.getMessage()));
+    /**
+     * GET /api/user-devices/cost - Costo mensual del usuario autenticado con la tarifa vigente de su estrato
+     * (404 si no se envía stratum y el perfil no tiene uno)
+     */
+    @GetMapping("/cost")
+    public CompletableFuture<ResponseEntity<?>> getCost(@RequestParam(required = false) Integer stratum) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
+
+        if (stratum != null && (stratum < 1 || stratum > 6)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "El estrato debe estar entre 1 y 6")));
         }
+
+        Function<Throwable, ResponseEntity<?>> otherError = errorResponse("Error al calcular el costo");
+        return tariffService.quoteUserAsync(userId, stratum)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(error -> {
+                    // Sin stratum y sin estrato en el perfil no hay tarifa que aplicar
+                    if (FirestoreFutures.unwrap(error) instanceof NoSuchElementException missing) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", missing.getMessage()));
+                    }
+                    return otherError.apply(error);
+                });
     }
 
     /**
-     * DELETE /api/user-devices/{id} - Elimina un dispositivo del usuario autenticado
+     * POST /api/user-devices/summary/rebuild - Recalcula el resumen del usuario autenticado desde sus dispositivos
      */
-    @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteUserDevice(@PathVariable String id) {
-        try {
-            String userId = getAuthenticatedUserId();
-            if (userId == null) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(Map.of("error", "Usuario no autenticado"));
-            }
+    @PostMapping("/summary/rebuild")
+    public CompletableFuture<ResponseEntity<?>> rebuildSummary() {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
 
-            boolean deleted = userDeviceService.deleteUserDevice(id, userId);
-            
-            if (!deleted) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("error", "Dispositivo no encontrado"));
-            }
+        return summaryService.rebuildUserAsync(userId)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(errorResponse("Error al recalcular el resumen de consumo"));
+    }
 
-            return ResponseEntity.ok(Map.of("message", "Dispositivo eliminado exitosamente"));
+    /**
+     * GET /api/user-devices/report/categories - Consumo de todos los usuarios por categoría (solo administradores)
+     */
+    @GetMapping("/report/categories")
+    public CompletableFuture<ResponseEntity<?>> getCategoryReport() {
+        if (getAuthenticatedUserId() == null) {
+            return unauthorized();
+        }
+        if (!AuthenticatedUser.isAdmin()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Solo un administrador puede ver el reporte")));
+        }
 
-        } catch (SecurityException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("error", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Error al eliminar dispositivo: " + e.getMessage()));
+        return summaryService.getCategoryReportAsync()
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(errorResponse("Error al generar el reporte"));
+    }
+
+    /**
+     * POST /api/user-devices - Crea un nuevo dispositivo para el usuario autenticado
+     */
+    @PostMapping
+    public CompletableFuture<ResponseEntity<?>> createUserDevice(@RequestBody UserDevice userDevice) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
         }
+
+        // Establecer el userId del usuario autenticado
+        userDevice.setUserId(userId);
+
+        return userDeviceService.createUserDeviceAsync(userDevice)
+                .<ResponseEntity<?>>thenApply(createdDevice -> ResponseEntity.status(HttpStatus.CREATED).body(createdDevice))
+                .exceptionally(errorResponse("Error al crear dispositivo"));
     }
 
     /**
-     * GET /api/user-devices/{id} - Obtiene un dispositivo específico del usuario autenticado
+     * POST /api/user-devices/batch - Crea, modifica y elimina varios dispositivos del usuario autenticado
      */
-    @GetMapping("/{id}")
-    public ResponseEntity<?> getUserDevice(@PathVariable String id) {
-        try {
-            String userId = getAuthenticatedUserId();
-            if (userId == null) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(Map.of("error", "Usuario no autenticado"));
-            }
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<?>> applyBatch(@RequestBody BatchRequest<UserDevice> request) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
 
-            UserDevice device = userDeviceService.getUserDevice(id, userId);
-            
-            if (device == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("error", "Dispositivo no encontrado"));
-            }
+        if (request.size() == 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "El lote está vacío")));
+        }
+        if (request.size() > FirestoreBatches.MAX_ITEMS_PER_REQUEST) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "El lote no puede tener más de " + FirestoreBatches.MAX_ITEMS_PER_REQUEST + " operaciones")));
+        }
 
-            return ResponseEntity.ok(device);
+        return userDeviceService.applyBatchAsync(userId, request)
+                .<ResponseEntity<?>>thenApply(result -> {
+                    result.getResults().stream()
+                            .filter(item -> "delete".equals(item.getOperation()) && item.isSuccess())
+                            .forEach(item -> readingIngestionService.forgetDevice(item.getId()));
+                    return ResponseEntity.ok(result);
+                })
+                .exceptionally(errorResponse("Error al procesar el lote"));
+    }
 
-        } catch (SecurityException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("error", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Error al obtener dispositivo: " + e.getMessage()));
+    /**
+     * DELETE /api/user-devices/{id} - Elimina un dispositivo del usuario autenticado
+     */
+    @DeleteMapping("/{id}")
+    public CompletableFuture<ResponseEntity<?>> deleteUserDevice(@PathVariable String id) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
         }
+
+        return userDeviceService.deleteUserDeviceAsync(id, userId)
+                .<ResponseEntity<?>>thenApply(deleted -> {
+                    if (!deleted) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                .body(Map.of("error", "Dispositivo no encontrado"));
+                    }
+                    readingIngestionService.forgetDevice(id);
+                    return ResponseEntity.ok(Map.of("message", "Dispositivo eliminado exitosamente"));
+                })
+                .exceptionally(errorResponse("Error al eliminar dispositivo"));
     }
-}
 
+    /**
+     * GET /api/user-devices/{id} - Obtiene un dispositivo específico del usuario autenticado
+     */
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<?>> getUserDevice(@PathVariable String id) {
+        String userId = getAuthenticatedUserId();
+        if (userId == null) {
+            return unauthorized();
+        }
+
+        return userDeviceService.getUserDeviceAsync(id, userId)
+                .<ResponseEntity<?>>thenApply(device -> {
+                    if (device == null) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                .body(Map.of("error", "Dispositivo no encontrado"));
+                    }
+                    return ResponseEntity.ok(device);
+                })
+                .exceptionally(errorResponse("Error al obtener dispositivo"));
+    }
+}
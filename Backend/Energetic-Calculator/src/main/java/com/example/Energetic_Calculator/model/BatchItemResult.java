@@ -0,0 +1,92 @@
+package com.example.Energetic_Calculator.model;
+
+public class BatchItemResult {
+
+    private String operation;
+    private int index;
+    private String id;
+    private int status;
+    private String error;
+    private String updateTime;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(String operation, int index, String id) {
+        this.operation = operation;
+        this.index = index;
+        this.id = id;
+    }
+
+    public void succeed(int status, String updateTime) {
+        this.status = status;
+        this.updateTime = updateTime;
+        this.error = null;
+    }
+
+    public void fail(int status, String error) {
+        this.status = status;
+        this.error = error;
+    }
+
+    public boolean isSuccess() {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * create, update o delete
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Posición del elemento dentro de su lista en la petición
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Código HTTP equivalente al que habría devuelto la operación individual (0 mientras espera su lote)
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(String updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchRequest<T> {
+
+    private List<T> create = new ArrayList<>();
+    private List<T> update = new ArrayList<>();
+    private List<String> delete = new ArrayList<>();
+
+    public BatchRequest() {
+    }
+
+    public List<T> getCreate() {
+        return create;
+    }
+
+    public void setCreate(List<T> create) {
+        this.create = create != null ? create : new ArrayList<>();
+    }
+
+    public List<T> getUpdate() {
+        return update;
+    }
+
+    public void setUpdate(List<T> update) {
+        this.update = update != null ? update : new ArrayList<>();
+    }
+
+    /**
+     * Ids de los documentos a eliminar
+     */
+    public List<String> getDelete() {
+        return delete;
+    }
+
+    public void setDelete(List<String> delete) {
+        this.delete = delete != null ? delete : new ArrayList<>();
+    }
+
+    public int size() {
+        return create.size() + update.size() + delete.size();
+    }
+}
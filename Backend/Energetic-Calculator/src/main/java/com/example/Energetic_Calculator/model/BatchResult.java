@@ -0,0 +1,48 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.List;
+
+public class BatchResult {
+
+    private List<BatchItemResult> results;
+    private int succeeded;
+    private int failed;
+
+    public BatchResult() {
+    }
+
+    public BatchResult(List<BatchItemResult> results) {
+        this.results = results;
+        for (BatchItemResult result : results) {
+            if (result.isSuccess()) {
+                succeeded++;
+            } else {
+                failed++;
+            }
+        }
+    }
+
+    public List<BatchItemResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BatchItemResult> results) {
+        this.results = results;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+}
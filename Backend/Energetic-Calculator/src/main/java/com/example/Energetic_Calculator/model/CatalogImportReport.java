@@ -0,0 +1,139 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CatalogImportReport {
+
+    /** Máximo de mensajes de error que se devuelven; el resto solo se cuenta */
+    public static final int MAX_ERRORS = 100;
+
+    private String format;
+    private boolean dryRun;
+    private long read;
+    private long created;
+    private long updated;
+    private long duplicates;
+    private long invalid;
+    private long failed;
+    private long elapsedMillis;
+    private double docsPerSecond;
+    private List<String> errors = new ArrayList<>();
+
+    public CatalogImportReport() {
+    }
+
+    public CatalogImportReport(String format, boolean dryRun) {
+        this.format = format;
+        this.dryRun = dryRun;
+    }
+
+    public synchronized void addError(String error) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * Registros leídos del archivo
+     */
+    public long getRead() {
+        return read;
+    }
+
+    public void setRead(long read) {
+        this.read = read;
+    }
+
+    /**
+     * Dispositivos nuevos escritos (o que se escribirían en dryRun)
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    /**
+     * Dispositivos que ya existían con el mismo nombre y categoría y se sobrescribieron
+     */
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    /**
+     * Registros repetidos dentro del mismo archivo (se conserva el primero)
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(long duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(long invalid) {
+        this.invalid = invalid;
+    }
+
+    /**
+     * Escrituras rechazadas por Firestore
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getDocsPerSecond() {
+        return docsPerSecond;
+    }
+
+    public void setDocsPerSecond(double docsPerSecond) {
+        this.docsPerSecond = docsPerSecond;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+}
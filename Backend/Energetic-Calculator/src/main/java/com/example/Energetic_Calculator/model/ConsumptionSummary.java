@@ -0,0 +1,83 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConsumptionSummary {
+
+    private String userId;
+    private double tariffPerKwh;
+    private double totalConsumptionKwh;
+    private double totalCost;
+    private double totalCo2;
+    private int deviceCount;
+    private List<DeviceConsumption> devices = new ArrayList<>();
+    private List<String> unresolvedDeviceIds = new ArrayList<>();
+
+    public ConsumptionSummary() {
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public double getTariffPerKwh() {
+        return tariffPerKwh;
+    }
+
+    public void setTariffPerKwh(double tariffPerKwh) {
+        this.tariffPerKwh = tariffPerKwh;
+    }
+
+    public double getTotalConsumptionKwh() {
+        return totalConsumptionKwh;
+    }
+
+    public void setTotalConsumptionKwh(double totalConsumptionKwh) {
+        this.totalConsumptionKwh = totalConsumptionKwh;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public double getTotalCo2() {
+        return totalCo2;
+    }
+
+    public void setTotalCo2(double totalCo2) {
+        this.totalCo2 = totalCo2;
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    public void setDeviceCount(int deviceCount) {
+        this.deviceCount = deviceCount;
+    }
+
+    public List<DeviceConsumption> getDevices() {
+        return devices;
+    }
+
+    public void setDevices(List<DeviceConsumption> devices) {
+        this.devices = devices;
+    }
+
+    public List<String> getUnresolvedDeviceIds() {
+        return unresolvedDeviceIds;
+    }
+
+    public void setUnresolvedDeviceIds(List<String> unresolvedDeviceIds) {
+        this.unresolvedDeviceIds = unresolvedDeviceIds;
+    }
+}
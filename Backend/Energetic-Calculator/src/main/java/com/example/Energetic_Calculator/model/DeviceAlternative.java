@@ -0,0 +1,54 @@
+package com.example.Energetic_Calculator.model;
+
+/**
+ * Dispositivo del catálogo que consume menos que el actual con el mismo uso
+ */
+public class DeviceAlternative {
+
+    private final Device device;
+    private final double consumptionKwh;
+    private final double cost;
+    private final double savingsKwh;
+    private final double savingsCost;
+    private final double savingsPercentage;
+    private final int powerDifference;
+
+    public DeviceAlternative(Device device, double consumptionKwh, double cost, double savingsKwh,
+                             double savingsCost, double savingsPercentage, int powerDifference) {
+        this.device = device;
+        this.consumptionKwh = consumptionKwh;
+        this.cost = cost;
+        this.savingsKwh = savingsKwh;
+        this.savingsCost = savingsCost;
+        this.savingsPercentage = savingsPercentage;
+        this.powerDifference = powerDifference;
+    }
+
+    public Device getDevice() {
+        return device;
+    }
+
+    public double getConsumptionKwh() {
+        return consumptionKwh;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public double getSavingsKwh() {
+        return savingsKwh;
+    }
+
+    public double getSavingsCost() {
+        return savingsCost;
+    }
+
+    public double getSavingsPercentage() {
+        return savingsPercentage;
+    }
+
+    public int getPowerDifference() {
+        return powerDifference;
+    }
+}
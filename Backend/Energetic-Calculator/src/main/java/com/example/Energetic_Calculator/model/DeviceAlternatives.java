@@ -0,0 +1,44 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.List;
+
+/**
+ * Respuesta de GET /api/devices/{id}/alternatives: consumo actual y alternativas ordenadas por mayor ahorro
+ */
+public class DeviceAlternatives {
+
+    private final Device device;
+    private final double consumptionKwh;
+    private final double cost;
+    private final double tariffPerKwh;
+    private final List<DeviceAlternative> alternatives;
+
+    public DeviceAlternatives(Device device, double consumptionKwh, double cost, double tariffPerKwh,
+                              List<DeviceAlternative> alternatives) {
+        this.device = device;
+        this.consumptionKwh = consumptionKwh;
+        this.cost = cost;
+        this.tariffPerKwh = tariffPerKwh;
+        this.alternatives = alternatives;
+    }
+
+    public Device getDevice() {
+        return device;
+    }
+
+    public double getConsumptionKwh() {
+        return consumptionKwh;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public double getTariffPerKwh() {
+        return tariffPerKwh;
+    }
+
+    public List<DeviceAlternative> getAlternatives() {
+        return alternatives;
+    }
+}
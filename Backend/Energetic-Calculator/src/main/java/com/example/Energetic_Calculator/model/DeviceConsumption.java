@@ -0,0 +1,92 @@
+package com.example.Energetic_Calculator.model;
+
+public class DeviceConsumption {
+
+    private String userDeviceId;
+    private String deviceId;
+    private String nombre;
+    private String categoria;
+    private double consumptionKwh;
+    private double cost;
+    private double co2;
+    private double percentage;
+
+    public DeviceConsumption() {
+    }
+
+    public DeviceConsumption(String userDeviceId, String deviceId, String nombre, String categoria,
+                             double consumptionKwh, double cost, double co2, double percentage) {
+        this.userDeviceId = userDeviceId;
+        this.deviceId = deviceId;
+        this.nombre = nombre;
+        this.categoria = categoria;
+        this.consumptionKwh = consumptionKwh;
+        this.cost = cost;
+        this.co2 = co2;
+        this.percentage = percentage;
+    }
+
+    public String getUserDeviceId() {
+        return userDeviceId;
+    }
+
+    public void setUserDeviceId(String userDeviceId) {
+        this.userDeviceId = userDeviceId;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public void setCategoria(String categoria) {
+        this.categoria = categoria;
+    }
+
+    public double getConsumptionKwh() {
+        return consumptionKwh;
+    }
+
+    public void setConsumptionKwh(double consumptionKwh) {
+        this.consumptionKwh = consumptionKwh;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public void setCost(double cost) {
+        this.cost = cost;
+    }
+
+    public double getCo2() {
+        return co2;
+    }
+
+    public void setCo2(double co2) {
+        this.co2 = co2;
+    }
+
+    public double getPercentage() {
+        return percentage;
+    }
+
+    public void setPercentage(double percentage) {
+        this.percentage = percentage;
+    }
+}
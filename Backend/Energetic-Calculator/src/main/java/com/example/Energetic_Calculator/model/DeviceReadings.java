@@ -0,0 +1,49 @@
+package com.example.Energetic_Calculator.model;
+
+/**
+ * Lecturas de un dispositivo de usuario en columnas: timestamps[i] (epoch millis) y kwh[i] son la lectura i.
+ * Jackson llena los arreglos primitivos directamente, sin un objeto por lectura.
+ */
+public class DeviceReadings {
+
+    private String userDeviceId;
+    private long[] timestamps;
+    private double[] kwh;
+
+    public DeviceReadings() {
+    }
+
+    public DeviceReadings(String userDeviceId, long[] timestamps, double[] kwh) {
+        this.userDeviceId = userDeviceId;
+        this.timestamps = timestamps;
+        this.kwh = kwh;
+    }
+
+    public String getUserDeviceId() {
+        return userDeviceId;
+    }
+
+    public void setUserDeviceId(String userDeviceId) {
+        this.userDeviceId = userDeviceId;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public void setTimestamps(long[] timestamps) {
+        this.timestamps = timestamps;
+    }
+
+    public double[] getKwh() {
+        return kwh;
+    }
+
+    public void setKwh(double[] kwh) {
+        this.kwh = kwh;
+    }
+
+    public int size() {
+        return timestamps != null ? timestamps.length : 0;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.Date;
+
+/**
+ * Documento de la colección fee tal como lo guarda el panel de tarifas.
+ * price está en centavos de COP por kWh; excessPrice y subsistenceKwh son opcionales.
+ */
+public class Fee {
+
+    private String id;
+    private int stratum;
+    private double price;
+    private Double excessPrice;
+    private Double subsistenceKwh;
+    private Date startDate;
+    private Date endDate;
+    private String status;
+
+    public Fee() {
+    }
+
+    public Fee(String id, int stratum, double price, Date startDate, Date endDate, String status) {
+        this.id = id;
+        this.stratum = stratum;
+        this.price = price;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.status = status;
+    }
+
+    /**
+     * Activa y vigente en la fecha dada (sin fecha de inicio se considera vigente desde siempre)
+     */
+    public boolean isActiveAt(Date at) {
+        return "Active".equalsIgnoreCase(status)
+                && (startDate == null || !startDate.after(at))
+                && (endDate == null || endDate.after(at));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getStratum() {
+        return stratum;
+    }
+
+    public void setStratum(int stratum) {
+        this.stratum = stratum;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public Double getExcessPrice() {
+        return excessPrice;
+    }
+
+    public void setExcessPrice(Double excessPrice) {
+        this.excessPrice = excessPrice;
+    }
+
+    public Double getSubsistenceKwh() {
+        return subsistenceKwh;
+    }
+
+    public void setSubsistenceKwh(Double subsistenceKwh) {
+        this.subsistenceKwh = subsistenceKwh;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(Date endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @Override
+    public String toString() {
+        return "Fee{" +
+                "id='" + id + '\'' +
+                ", stratum=" + stratum +
+                ", price=" + price +
+                ", excessPrice=" + excessPrice +
+                ", subsistenceKwh=" + subsistenceKwh +
+                ", startDate=" + startDate +
+                ", endDate=" + endDate +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
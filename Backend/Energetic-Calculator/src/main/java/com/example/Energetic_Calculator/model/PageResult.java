@@ -0,0 +1,46 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.List;
+
+public class PageResult<T> {
+
+    private List<T> items;
+    private String nextCursor;
+    private int count;
+
+    public PageResult() {
+    }
+
+    public PageResult(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.count = items.size();
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    /**
+     * Id del último documento de la página; se envía como startAfter para pedir la siguiente. Null si no hay más.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
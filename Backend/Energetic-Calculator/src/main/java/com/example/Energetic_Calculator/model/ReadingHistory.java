@@ -0,0 +1,97 @@
+package com.example.Energetic_Calculator.model;
+
+import com.example.Energetic_Calculator.timeseries.TimeSeriesPoint;
+
+import java.util.List;
+
+/**
+ * Respuesta de GET /api/readings/{userDeviceId}/history: puntos del nivel pedido en [from, to) (epoch millis)
+ * y su total
+ */
+public class ReadingHistory {
+
+    private String userDeviceId;
+    private String resolution;
+    private long from;
+    private long to;
+    private double totalKwh;
+    private long readings;
+    private List<TimeSeriesPoint> points;
+
+    public ReadingHistory() {
+    }
+
+    public ReadingHistory(String userDeviceId, String resolution, long from, long to, List<TimeSeriesPoint> points) {
+        this.userDeviceId = userDeviceId;
+        this.resolution = resolution;
+        this.from = from;
+        this.to = to;
+        this.points = points;
+        for (TimeSeriesPoint point : points) {
+            totalKwh += point.kwh();
+            readings += point.count();
+        }
+    }
+
+    public String getUserDeviceId() {
+        return userDeviceId;
+    }
+
+    public void setUserDeviceId(String userDeviceId) {
+        this.userDeviceId = userDeviceId;
+    }
+
+    /**
+     * raw, hour o day
+     */
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public void setFrom(long from) {
+        this.from = from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public void setTo(long to) {
+        this.to = to;
+    }
+
+    public double getTotalKwh() {
+        return totalKwh;
+    }
+
+    public void setTotalKwh(double totalKwh) {
+        this.totalKwh = totalKwh;
+    }
+
+    /**
+     * Lecturas que forman los puntos
+     */
+    public long getReadings() {
+        return readings;
+    }
+
+    public void setReadings(long readings) {
+        this.readings = readings;
+    }
+
+    public List<TimeSeriesPoint> getPoints() {
+        return points;
+    }
+
+    public void setPoints(List<TimeSeriesPoint> points) {
+        this.points = points;
+    }
+}
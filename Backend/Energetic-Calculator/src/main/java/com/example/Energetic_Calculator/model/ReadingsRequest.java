@@ -0,0 +1,23 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuerpo de POST /api/readings
+ */
+public class ReadingsRequest {
+
+    private List<DeviceReadings> devices = new ArrayList<>();
+
+    public ReadingsRequest() {
+    }
+
+    public List<DeviceReadings> getDevices() {
+        return devices;
+    }
+
+    public void setDevices(List<DeviceReadings> devices) {
+        this.devices = devices != null ? devices : new ArrayList<>();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Estado de un reporte encolado. Lo modifica el hilo que lo calcula y lo leen las consultas, por eso los campos
+ * que cambian son volatile.
+ */
+public class ReportJob {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private final String id;
+    private final String type;
+    private final String month;
+    private final Integer limit;
+    private final String parametersHash;
+    private final Date submittedAt = new Date();
+    private volatile Status status = Status.QUEUED;
+    private volatile Date startedAt;
+    private volatile Date finishedAt;
+    private volatile long scannedDocuments;
+    private volatile Map<String, Object> result;
+    private volatile String error;
+
+    public ReportJob(String id, String type, String month, Integer limit, String parametersHash) {
+        this.id = id;
+        this.type = type;
+        this.month = month;
+        this.limit = limit;
+        this.parametersHash = parametersHash;
+    }
+
+    public void start() {
+        startedAt = new Date();
+        status = Status.RUNNING;
+    }
+
+    public void succeed(Map<String, Object> result) {
+        this.result = result;
+        finishedAt = new Date();
+        status = Status.DONE;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = new Date();
+        status = Status.FAILED;
+    }
+
+    public void addScanned(long documents) {
+        scannedDocuments += documents;
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    /**
+     * SHA-256 de los parámetros normalizados; dos peticiones iguales comparten resultado
+     */
+    public String getParametersHash() {
+        return parametersHash;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Date getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Date getStartedAt() {
+        return startedAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Documentos de user_devices leídos hasta ahora
+     */
+    public long getScannedDocuments() {
+        return scannedDocuments;
+    }
+
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.Energetic_Calculator.model;
+
+/**
+ * Cuerpo de POST /api/reports. type es consumption-by-category o top-consumers; month (YYYY-MM, opcional) limita a
+ * los dispositivos creados antes de fin de mes y añade el consumo medido del mes; limit aplica a top-consumers.
+ */
+public class ReportRequest {
+
+    private String type;
+    private String month;
+    private Integer limit;
+
+    public ReportRequest() {
+    }
+
+    public ReportRequest(String type, String month, Integer limit) {
+        this.type = type;
+        this.month = month;
+        this.limit = limit;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.Energetic_Calculator.model;
+
+/**
+ * Cambio candidato sobre uno de los dispositivos del usuario para el simulador de escenarios
+ */
+public class ScenarioChange {
+
+    public enum Type {
+        /** Reemplazar por otro dispositivo del catálogo (deviceId) */
+        SWAP_DEVICE,
+        /** Nuevas horas de uso diarias (value) */
+        DAILY_HOURS,
+        /** Nuevos días de uso por semana (value) */
+        WEEKLY_DAYS,
+        /** Nueva cantidad (value); 0 equivale a retirar el dispositivo */
+        QUANTITY
+    }
+
+    private String id;
+    private String userDeviceId;
+    private Type type;
+    private String deviceId;
+    private Double value;
+    private double investment;
+
+    public ScenarioChange() {
+    }
+
+    public ScenarioChange(String id, String userDeviceId, Type type, String deviceId, Double value, double investment) {
+        this.id = id;
+        this.userDeviceId = userDeviceId;
+        this.type = type;
+        this.deviceId = deviceId;
+        this.value = value;
+        this.investment = investment;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserDeviceId() {
+        return userDeviceId;
+    }
+
+    public void setUserDeviceId(String userDeviceId) {
+        this.userDeviceId = userDeviceId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public Double getValue() {
+        return value;
+    }
+
+    public void setValue(Double value) {
+        this.value = value;
+    }
+
+    public double getInvestment() {
+        return investment;
+    }
+
+    public void setInvestment(double investment) {
+        this.investment = investment;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuerpo de POST /api/simulations. Sin devices se usan los dispositivos guardados del usuario autenticado.
+ */
+public class SimulationRequest {
+
+    private List<UserDevice> devices;
+    private List<ScenarioChange> changes = new ArrayList<>();
+    private Integer maxChanges;
+    private Integer topK;
+    private Double tariff;
+    private Integer stratum;
+
+    public SimulationRequest() {
+    }
+
+    public List<UserDevice> getDevices() {
+        return devices;
+    }
+
+    public void setDevices(List<UserDevice> devices) {
+        this.devices = devices;
+    }
+
+    public List<ScenarioChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<ScenarioChange> changes) {
+        this.changes = changes != null ? changes : new ArrayList<>();
+    }
+
+    public Integer getMaxChanges() {
+        return maxChanges;
+    }
+
+    public void setMaxChanges(Integer maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+
+    public Integer getTopK() {
+        return topK;
+    }
+
+    public void setTopK(Integer topK) {
+        this.topK = topK;
+    }
+
+    public Double getTariff() {
+        return tariff;
+    }
+
+    public void setTariff(Double tariff) {
+        this.tariff = tariff;
+    }
+
+    public Integer getStratum() {
+        return stratum;
+    }
+
+    public void setStratum(Integer stratum) {
+        this.stratum = stratum;
+    }
+}
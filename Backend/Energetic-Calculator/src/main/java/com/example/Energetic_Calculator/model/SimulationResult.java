@@ -0,0 +1,59 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.List;
+
+public class SimulationResult {
+
+    private final double baselineKwh;
+    private final double baselineCost;
+    private final double baselineCo2;
+    private final long evaluated;
+    private final long elapsedMillis;
+    private final List<SimulationScenario> scenarios;
+    private final List<String> unresolvedDeviceIds;
+
+    public SimulationResult(double baselineKwh, double baselineCost, double baselineCo2, long evaluated,
+                            long elapsedMillis, List<SimulationScenario> scenarios, List<String> unresolvedDeviceIds) {
+        this.baselineKwh = baselineKwh;
+        this.baselineCost = baselineCost;
+        this.baselineCo2 = baselineCo2;
+        this.evaluated = evaluated;
+        this.elapsedMillis = elapsedMillis;
+        this.scenarios = scenarios;
+        this.unresolvedDeviceIds = unresolvedDeviceIds;
+    }
+
+    public double getBaselineKwh() {
+        return baselineKwh;
+    }
+
+    public double getBaselineCost() {
+        return baselineCost;
+    }
+
+    public double getBaselineCo2() {
+        return baselineCo2;
+    }
+
+    /**
+     * Número de combinaciones evaluadas
+     */
+    public long getEvaluated() {
+        return evaluated;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Los mejores escenarios ordenados por ahorro mensual
+     */
+    public List<SimulationScenario> getScenarios() {
+        return scenarios;
+    }
+
+    public List<String> getUnresolvedDeviceIds() {
+        return unresolvedDeviceIds;
+    }
+}
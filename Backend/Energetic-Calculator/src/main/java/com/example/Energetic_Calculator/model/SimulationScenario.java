@@ -0,0 +1,65 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.List;
+
+/**
+ * Un escenario evaluado: combinación de cambios y su efecto mensual frente al consumo actual
+ */
+public class SimulationScenario {
+
+    private final List<String> changes;
+    private final double kwhMonth;
+    private final double cost;
+    private final double savingsKwh;
+    private final double savingsCost;
+    private final double co2ReductionKg;
+    private final double investment;
+    private final Double paybackMonths;
+
+    public SimulationScenario(List<String> changes, double kwhMonth, double cost, double savingsKwh, double savingsCost,
+                              double co2ReductionKg, double investment, Double paybackMonths) {
+        this.changes = changes;
+        this.kwhMonth = kwhMonth;
+        this.cost = cost;
+        this.savingsKwh = savingsKwh;
+        this.savingsCost = savingsCost;
+        this.co2ReductionKg = co2ReductionKg;
+        this.investment = investment;
+        this.paybackMonths = paybackMonths;
+    }
+
+    public List<String> getChanges() {
+        return changes;
+    }
+
+    public double getKwhMonth() {
+        return kwhMonth;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public double getSavingsKwh() {
+        return savingsKwh;
+    }
+
+    public double getSavingsCost() {
+        return savingsCost;
+    }
+
+    public double getCo2ReductionKg() {
+        return co2ReductionKg;
+    }
+
+    public double getInvestment() {
+        return investment;
+    }
+
+    /**
+     * Meses para recuperar la inversión; null si no hay inversión o no hay ahorro
+     */
+    public Double getPaybackMonths() {
+        return paybackMonths;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.Energetic_Calculator.model;
+
+/**
+ * Costo mensual de un consumo separado en bloque de subsistencia y bloque de excedente (precios en COP/kWh)
+ */
+public class TariffQuote {
+
+    private final int stratum;
+    private final String feeId;
+    private final String source;
+    private final double kwh;
+    private final double subsistenceLimitKwh;
+    private final double subsistenceKwh;
+    private final double excessKwh;
+    private final double subsistencePricePerKwh;
+    private final double excessPricePerKwh;
+    private final double subsistenceCost;
+    private final double excessCost;
+    private final double totalCost;
+
+    public TariffQuote(int stratum, String feeId, String source, double kwh, double subsistenceLimitKwh,
+                       double subsistencePricePerKwh, double excessPricePerKwh) {
+        this.stratum = stratum;
+        this.feeId = feeId;
+        this.source = source;
+        this.kwh = kwh;
+        this.subsistenceLimitKwh = subsistenceLimitKwh;
+        this.subsistenceKwh = Math.min(kwh, subsistenceLimitKwh);
+        this.excessKwh = Math.max(0, kwh - subsistenceLimitKwh);
+        this.subsistencePricePerKwh = subsistencePricePerKwh;
+        this.excessPricePerKwh = excessPricePerKwh;
+        this.subsistenceCost = round(subsistenceKwh * subsistencePricePerKwh);
+        this.excessCost = round(excessKwh * excessPricePerKwh);
+        this.totalCost = round(subsistenceCost + excessCost);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    public int getStratum() {
+        return stratum;
+    }
+
+    public String getFeeId() {
+        return feeId;
+    }
+
+    /**
+     * "fee" si salió de la colección fee, "default" si se usó calculator.tariff-per-kwh
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public double getKwh() {
+        return kwh;
+    }
+
+    public double getSubsistenceLimitKwh() {
+        return subsistenceLimitKwh;
+    }
+
+    public double getSubsistenceKwh() {
+        return subsistenceKwh;
+    }
+
+    public double getExcessKwh() {
+        return excessKwh;
+    }
+
+    public double getSubsistencePricePerKwh() {
+        return subsistencePricePerKwh;
+    }
+
+    public double getExcessPricePerKwh() {
+        return excessPricePerKwh;
+    }
+
+    public double getSubsistenceCost() {
+        return subsistenceCost;
+    }
+
+    public double getExcessCost() {
+        return excessCost;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public double getEffectivePricePerKwh() {
+        return kwh > 0 ? round(totalCost / kwh) : subsistencePricePerKwh;
+    }
+}
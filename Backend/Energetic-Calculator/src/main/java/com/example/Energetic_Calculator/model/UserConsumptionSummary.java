@@ -0,0 +1,98 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Documento de user_consumption_summary: totales del usuario mantenidos por incrementos
+ */
+public class UserConsumptionSummary {
+
+    private String userId;
+    private double totalKwh;
+    private long deviceCount;
+    private Map<String, Double> categoryKwh = new HashMap<>();
+    private Map<String, Long> categoryCount = new HashMap<>();
+    private Date updatedAt;
+
+    // Calculados al leer con la tarifa pedida; no se guardan
+    private double tariffPerKwh;
+    private double totalCost;
+    private double totalCo2;
+
+    public UserConsumptionSummary() {
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public double getTotalKwh() {
+        return totalKwh;
+    }
+
+    public void setTotalKwh(double totalKwh) {
+        this.totalKwh = totalKwh;
+    }
+
+    public long getDeviceCount() {
+        return deviceCount;
+    }
+
+    public void setDeviceCount(long deviceCount) {
+        this.deviceCount = deviceCount;
+    }
+
+    public Map<String, Double> getCategoryKwh() {
+        return categoryKwh;
+    }
+
+    public void setCategoryKwh(Map<String, Double> categoryKwh) {
+        this.categoryKwh = categoryKwh;
+    }
+
+    public Map<String, Long> getCategoryCount() {
+        return categoryCount;
+    }
+
+    public void setCategoryCount(Map<String, Long> categoryCount) {
+        this.categoryCount = categoryCount;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public double getTariffPerKwh() {
+        return tariffPerKwh;
+    }
+
+    public void setTariffPerKwh(double tariffPerKwh) {
+        this.tariffPerKwh = tariffPerKwh;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public double getTotalCo2() {
+        return totalCo2;
+    }
+
+    public void setTotalCo2(double totalCo2) {
+        this.totalCo2 = totalCo2;
+    }
+}
@@ -11,6 +11,8 @@ public class UserDevice {
     private float dailyHours;
     private int weeklyDays;
     private Date createdAt;
+    private Double kwhMonth;
+    private String category;
 
     public UserDevice() {
         this.createdAt = new Date();
@@ -82,6 +84,28 @@ public class UserDevice {
         this.createdAt = createdAt;
     }
 
+    /**
+     * kWh/mes con los que este dispositivo suma al resumen del usuario (calculado al guardarlo)
+     */
+    public Double getKwhMonth() {
+        return kwhMonth;
+    }
+
+    public void setKwhMonth(Double kwhMonth) {
+        this.kwhMonth = kwhMonth;
+    }
+
+    /**
+     * Categoría del catálogo al momento de guardarlo
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
     @Override
     public String toString() {
         return "UserDevice{" +
@@ -92,6 +116,8 @@ public class UserDevice {
                 ", dailyHours=" + dailyHours +
                 ", weeklyDays=" + weeklyDays +
                 ", createdAt=" + createdAt +
+                ", kwhMonth=" + kwhMonth +
+                ", category='" + category + '\'' +
                 '}';
     }
 }
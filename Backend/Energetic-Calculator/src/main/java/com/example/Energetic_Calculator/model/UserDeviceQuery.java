@@ -0,0 +1,67 @@
+package com.example.Energetic_Calculator.model;
+
+import java.util.Date;
+
+/**
+ * Filtros y orden de GET /api/user-devices. createdFrom se incluye y createdTo no; sort es createdAt, kwhMonth o id,
+ * con "-" delante para orden descendente.
+ */
+public class UserDeviceQuery {
+
+    private String category;
+    private Double minKwh;
+    private Date createdFrom;
+    private Date createdTo;
+    private String sort;
+
+    public UserDeviceQuery() {
+    }
+
+    public UserDeviceQuery(String category, Double minKwh, Date createdFrom, Date createdTo, String sort) {
+        this.category = category;
+        this.minKwh = minKwh;
+        this.createdFrom = createdFrom;
+        this.createdTo = createdTo;
+        this.sort = sort;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public Double getMinKwh() {
+        return minKwh;
+    }
+
+    public void setMinKwh(Double minKwh) {
+        this.minKwh = minKwh;
+    }
+
+    public Date getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public void setCreatedFrom(Date createdFrom) {
+        this.createdFrom = createdFrom;
+    }
+
+    public Date getCreatedTo() {
+        return createdTo;
+    }
+
+    public void setCreatedTo(Date createdTo) {
+        this.createdTo = createdTo;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.Energetic_Calculator.model;
+
+/**
+ * Dispositivo del usuario junto con su entrada del catálogo (respuesta de ?expand=device)
+ */
+public class UserDeviceView extends UserDevice {
+
+    private Device device;
+
+    public UserDeviceView() {
+    }
+
+    public UserDeviceView(UserDevice userDevice, Device device) {
+        super(userDevice.getId(), userDevice.getUserId(), userDevice.getDeviceId(),
+                userDevice.getQuantity(), userDevice.getDailyHours(), userDevice.getWeeklyDays());
+        setCreatedAt(userDevice.getCreatedAt());
+        setKwhMonth(userDevice.getKwhMonth());
+        setCategory(userDevice.getCategory());
+        this.device = device;
+    }
+
+    /**
+     * Null si el deviceId ya no existe en el catálogo
+     */
+    public Device getDevice() {
+        return device;
+    }
+
+    public void setDevice(Device device) {
+        this.device = device;
+    }
+}
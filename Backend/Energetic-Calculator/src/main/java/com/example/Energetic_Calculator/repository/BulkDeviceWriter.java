@@ -0,0 +1,64 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.Device;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * Escritura masiva del catálogo con el escritor del almacén (BulkWriter en Firestore, que agrupa y envía los lotes
+ * en paralelo con su propio control de ritmo); el semáforo frena al productor para que la cola en memoria quede acotada.
+ */
+public final class BulkDeviceWriter implements AutoCloseable {
+
+    private final DocumentStore.Bulk writer;
+    private final Semaphore pending;
+    private final int maxPending;
+    private final Runnable onClose;
+
+    BulkDeviceWriter(DocumentStore.Bulk writer, int maxPending, Runnable onClose) {
+        this.writer = writer;
+        // Con menos permisos que un lote el escritor nunca llenaría uno, y con 0 o menos save() no avanzaría
+        this.maxPending = Math.max(FirestoreBatches.MAX_WRITES_PER_BATCH, maxPending);
+        this.pending = new Semaphore(this.maxPending);
+        this.onClose = onClose;
+    }
+
+    /**
+     * Encola el dispositivo (con id ya asignado); bloquea si hay demasiadas escrituras sin confirmar.
+     * onDone se ejecuta antes de que close() pueda terminar.
+     */
+    public void save(Device device, BiConsumer<String, Throwable> onDone) throws InterruptedException {
+        pending.acquire();
+        CompletableFuture<String> result;
+        try {
+            result = writer.set(device.getId(), DeviceRepository.toDocument(device));
+        } catch (RuntimeException e) {
+            pending.release();
+            throw e;
+        }
+        result.whenComplete((updateTime, error) -> {
+            try {
+                onDone.accept(updateTime, error);
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    /**
+     * Envía lo pendiente, espera a que terminen todas las escrituras y sus callbacks y descarta la cache del catálogo
+     */
+    @Override
+    public void close() throws ExecutionException, InterruptedException {
+        try {
+            writer.close();
+            pending.acquire(maxPending);
+            pending.release(maxPending);
+        } finally {
+            onClose.run();
+        }
+    }
+}
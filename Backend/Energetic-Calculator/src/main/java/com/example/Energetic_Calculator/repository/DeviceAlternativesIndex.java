@@ -0,0 +1,151 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.Device;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Índice del catálogo por categoría ordenado por potencia. Responde "dispositivos de la misma categoría
+ * con menor potencia que X" en O(log n + k) sin recorrer el catálogo. Se construye completo la primera vez
+ * (o cuando vence) y después se actualiza con cada escritura de DeviceRepository.
+ */
+@Component
+public class DeviceAlternativesIndex {
+
+    private static final Comparator<Entry> BY_POWER = Comparator.comparingInt(Entry::watts).thenComparing(Entry::id);
+
+    private final long maxAgeNanos;
+    private volatile State state;
+
+    public DeviceAlternativesIndex(@Value("${devices.alternatives.rebuild-seconds:300}") long rebuildSeconds) {
+        this.maxAgeNanos = TimeUnit.SECONDS.toNanos(rebuildSeconds);
+    }
+
+    /**
+     * Construido y sin vencer. El vencimiento recoge cambios hechos fuera de este proceso (otra instancia o el frontend).
+     */
+    public boolean isFresh() {
+        State current = state;
+        return current != null && System.nanoTime() - current.builtAtNanos < maxAgeNanos;
+    }
+
+    /**
+     * expired publica el índice ya vencido: sirve para la consulta en curso pero la siguiente lo reconstruye
+     * (se usa cuando hubo una escritura mientras se leía el catálogo)
+     */
+    public synchronized void rebuild(Collection<Device> devices, boolean expired) {
+        State next = new State(expired ? System.nanoTime() - maxAgeNanos : System.nanoTime());
+        for (Device device : devices) {
+            next.add(device);
+        }
+        state = next;
+    }
+
+    public synchronized void put(Device device) {
+        State current = state;
+        if (current != null && device.getId() != null) {
+            current.remove(device.getId());
+            current.add(device);
+        }
+    }
+
+    public synchronized void remove(String id) {
+        State current = state;
+        if (current != null) {
+            current.remove(id);
+        }
+    }
+
+    /**
+     * Fuerza una reconstrucción completa en la siguiente consulta (p. ej. tras una importación masiva)
+     */
+    public void invalidate() {
+        state = null;
+    }
+
+    public Device get(String id) {
+        State current = state;
+        Entry entry = current == null ? null : current.byId.get(id);
+        return entry == null ? null : entry.device();
+    }
+
+    /**
+     * Hasta limit dispositivos de la misma categoría con potencia estrictamente menor, de menor a mayor potencia
+     */
+    public List<Device> lowerPower(Device device, int limit) {
+        State current = state;
+        if (current == null || device.getCategoria() == null) {
+            return List.of();
+        }
+        NavigableSet<Entry> category = current.byCategory.get(device.getCategoria());
+        if (category == null) {
+            return List.of();
+        }
+        List<Device> result = new ArrayList<>(limit);
+        // El id vacío ordena antes que cualquier otro, así que headSet deja fuera toda la potencia igual
+        for (Entry entry : category.headSet(new Entry("", device.getPotenciaWatts(), null, null), false)) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(entry.device());
+        }
+        return result;
+    }
+
+    public Map<String, Object> stats() {
+        State current = state;
+        return Map.of(
+                "built", current != null,
+                "fresh", isFresh(),
+                "devices", current == null ? 0 : current.byId.size(),
+                "categories", current == null ? 0 : current.byCategory.size());
+    }
+
+    public record Match(Device device, List<Device> alternatives) {
+    }
+
+    /**
+     * Copia inmutable de los campos que ordenan: si alguien modifica el Device después, el orden no se rompe
+     */
+    private record Entry(String id, int watts, String category, Device device) {
+    }
+
+    private static final class State {
+        final long builtAtNanos;
+        final Map<String, NavigableSet<Entry>> byCategory = new ConcurrentHashMap<>();
+        final Map<String, Entry> byId = new ConcurrentHashMap<>();
+
+        State(long builtAtNanos) {
+            this.builtAtNanos = builtAtNanos;
+        }
+
+        void add(Device device) {
+            if (device.getId() == null || device.getCategoria() == null) {
+                return;
+            }
+            Entry entry = new Entry(device.getId(), device.getPotenciaWatts(), device.getCategoria(), device);
+            byId.put(entry.id(), entry);
+            byCategory.computeIfAbsent(device.getCategoria(), key -> new ConcurrentSkipListSet<>(BY_POWER)).add(entry);
+        }
+
+        void remove(String id) {
+            Entry previous = byId.remove(id);
+            if (previous != null) {
+                NavigableSet<Entry> category = byCategory.get(previous.category());
+                if (category != null) {
+                    category.remove(previous);
+                }
+            }
+        }
+    }
+}
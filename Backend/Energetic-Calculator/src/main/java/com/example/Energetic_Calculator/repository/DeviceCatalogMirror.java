@@ -0,0 +1,197 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.PageResult;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.cloud.FirestoreClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Copia local de la colección "devices" mantenida por un listener de Firestore.
+ * Los lectores leen una instantánea inmutable publicada con copy-on-write y nunca se bloquean.
+ */
+@Component
+public class DeviceCatalogMirror {
+
+    private static final Logger logger = Logger.getLogger(DeviceCatalogMirror.class.getName());
+    private static final String COLLECTION_NAME = "devices";
+    private static final long RESUBSCRIBE_DELAY_SECONDS = 5;
+
+    private final FirebaseApp firebaseApp;
+    private final boolean enabled;
+
+    private volatile Snapshot snapshot;
+    private ListenerRegistration registration;
+    private ScheduledExecutorService resubscriber;
+
+    public DeviceCatalogMirror(FirebaseApp firebaseApp,
+                               @Value("${devices.mirror.enabled:false}") boolean enabled,
+                               @Value("${storage.backend:firestore}") String storageBackend) {
+        this.firebaseApp = firebaseApp;
+        // El listener escucha Firestore: con otro backend reflejaría una colección que no es la que se escribe
+        this.enabled = enabled && "firestore".equals(storageBackend);
+        if (enabled && !this.enabled) {
+            logger.warning("⚠️ devices.mirror.enabled ignorado: storage.backend=" + storageBackend + " no es firestore");
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        resubscriber = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "device-mirror-resubscribe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        subscribe();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        if (resubscriber != null) {
+            resubscriber.shutdownNow();
+        }
+    }
+
+    private synchronized void subscribe() {
+        registration = FirestoreClient.getFirestore(firebaseApp)
+                .collection(COLLECTION_NAME)
+                .addSnapshotListener(this::onEvent);
+        logger.info("Device catalog mirror subscribed to '" + COLLECTION_NAME + "'");
+    }
+
+    private void onEvent(QuerySnapshot querySnapshot, FirestoreException error) {
+        if (error != null) {
+            // El listener queda cancelado: se vuelve a leer de Firestore hasta que se reconecte
+            logger.log(Level.WARNING, "Device catalog mirror listener failed, resubscribing", error);
+            snapshot = null;
+            synchronized (this) {
+                registration = null;
+            }
+            if (!resubscriber.isShutdown()) {
+                resubscriber.schedule(this::subscribe, RESUBSCRIBE_DELAY_SECONDS, TimeUnit.SECONDS);
+            }
+            return;
+        }
+        if (querySnapshot == null) {
+            return;
+        }
+
+        synchronized (this) {
+            Snapshot current = snapshot;
+            Map<String, Device> next = current == null ? new HashMap<>() : new HashMap<>(current.byId());
+            for (DocumentChange change : querySnapshot.getDocumentChanges()) {
+                String id = change.getDocument().getId();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    next.remove(id);
+                } else {
+                    Device device = change.getDocument().toObject(Device.class);
+                    if (device.getId() == null) {
+                        device.setId(id);
+                    }
+                    next.put(id, device);
+                }
+            }
+            snapshot = new Snapshot(next);
+        }
+    }
+
+    /**
+     * Aplica una escritura local para que la siguiente lectura la vea antes de que llegue el evento
+     */
+    synchronized void applyLocalWrite(Device device) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        Map<String, Device> next = new HashMap<>(current.byId());
+        next.put(device.getId(), device);
+        snapshot = new Snapshot(next);
+    }
+
+    synchronized void applyLocalDelete(String id) {
+        Snapshot current = snapshot;
+        if (current == null || !current.byId().containsKey(id)) {
+            return;
+        }
+        Map<String, Device> next = new HashMap<>(current.byId());
+        next.remove(id);
+        snapshot = new Snapshot(next);
+    }
+
+    /**
+     * Instantánea actual o null si el modo espejo está apagado o aún no recibió el primer evento
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot current = snapshot;
+        return Map.of(
+                "enabled", enabled,
+                "ready", current != null,
+                "size", current == null ? 0 : current.byId().size(),
+                "updatedAt", current == null ? "" : current.updatedAt().toString());
+    }
+
+    /**
+     * all está ordenada por id de documento (ids, en el mismo orden) para paginar con el mismo cursor que Firestore,
+     * aunque el campo id guardado en un documento no coincida con su clave
+     */
+    public record Snapshot(Map<String, Device> byId, List<String> ids, List<Device> all, Date updatedAt) {
+
+        Snapshot(Map<String, Device> devices) {
+            this(new TreeMap<>(devices));
+        }
+
+        private Snapshot(TreeMap<String, Device> sorted) {
+            this(Map.copyOf(sorted), List.copyOf(sorted.keySet()), List.copyOf(sorted.values()), new Date());
+        }
+
+        public PageResult<Device> page(int limit, String startAfter) {
+            int from = 0;
+            if (startAfter != null && !startAfter.isBlank()) {
+                int low = 0;
+                int high = ids.size();
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (ids.get(mid).compareTo(startAfter) <= 0) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                from = low;
+            }
+            int to = Math.min(from + limit, all.size());
+            List<Device> items = all.subList(from, to);
+            String nextCursor = items.size() == limit ? ids.get(to - 1) : null;
+            return new PageResult<>(items, nextCursor);
+        }
+    }
+}
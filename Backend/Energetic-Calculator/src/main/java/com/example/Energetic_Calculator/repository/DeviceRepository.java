@@ -1,56 +1,385 @@
 package com.example.Energetic_Calculator.repository;
 
+import com.example.Energetic_Calculator.cache.TtlCache;
 import com.example.Energetic_Calculator.model.Device;
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.*;
-import com.google.firebase.cloud.FirestoreClient;
+import com.example.Energetic_Calculator.model.PageResult;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Repository
 public class DeviceRepository {
 
-    private static final String COLLECTION_NAME = "devices";
+    public static final String COLLECTION_NAME = "devices";
+    private static final String ALL_DEVICES_KEY = "*";
+
+    private final DeviceCatalogMirror mirror;
+    private final DeviceAlternativesIndex alternativesIndex;
+    private final DocumentStore store;
+    private final boolean cacheEnabled;
+    private final TtlCache<String, Device> deviceCache;
+    private final TtlCache<String, List<Device>> catalogCache;
+    // Se incrementa en cada escritura para no cachear lecturas que empezaron antes de ella
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    public DeviceRepository(DeviceCatalogMirror mirror,
+                            DeviceAlternativesIndex alternativesIndex,
+                            DocumentStore store,
+                            @Value("${devices.cache.enabled:true}") boolean cacheEnabled,
+                            @Value("${devices.cache.ttl-seconds:300}") long ttlSeconds,
+                            @Value("${devices.cache.max-entries:5000}") int maxEntries) {
+        this.mirror = mirror;
+        this.alternativesIndex = alternativesIndex;
+        this.store = store;
+        this.cacheEnabled = cacheEnabled;
+        this.deviceCache = new TtlCache<>(maxEntries, ttlSeconds, TimeUnit.SECONDS);
+        this.catalogCache = new TtlCache<>(1, ttlSeconds, TimeUnit.SECONDS);
+    }
 
     public String saveDevice(Device device) throws ExecutionException, InterruptedException {
-        Firestore db = FirestoreClient.getFirestore();
+        return FirestoreFutures.await(saveDeviceAsync(device));
+    }
 
+    public CompletableFuture<String> saveDeviceAsync(Device device) {
         if (device.getId() == null || device.getId().isEmpty()) {
             device.setId(UUID.randomUUID().toString());
         }
 
-        ApiFuture<WriteResult> result = db.collection(COLLECTION_NAME)
-                .document(device.getId())
-                .set(device);
-
-        return result.get().getUpdateTime().toString();
+        return store.set(COLLECTION_NAME, device.getId(), toDocument(device)).whenComplete((updateTime, error) -> {
+            if (error == null) {
+                mirror.applyLocalWrite(copyOf(device));
+                alternativesIndex.put(device);
+            }
+            onCatalogWrite(device.getId(), error == null ? device : null);
+        });
     }
 
     public Device getDeviceById(String id) throws ExecutionException, InterruptedException {
-        Firestore db = FirestoreClient.getFirestore();
-        DocumentSnapshot document = db.collection(COLLECTION_NAME).document(id).get().get();
-        if (document.exists()) {
-            return document.toObject(Device.class);
-        } else {
-            return null;
+        return FirestoreFutures.await(getDeviceByIdAsync(id));
+    }
+
+    public CompletableFuture<Device> getDeviceByIdAsync(String id) {
+        DeviceCatalogMirror.Snapshot mirrored = mirror.snapshot();
+        if (mirrored != null) {
+            return CompletableFuture.completedFuture(copyOf(mirrored.byId().get(id)));
         }
+
+        if (cacheEnabled) {
+            Device cached = deviceCache.get(id);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(copyOf(cached));
+            }
+        }
+
+        long version = catalogVersion.get();
+        return store.get(COLLECTION_NAME, id)
+                .thenApply(document -> {
+                    if (document == null) {
+                        return null;
+                    }
+                    Device device = toDevice(id, document);
+                    if (cacheEnabled && version == catalogVersion.get()) {
+                        deviceCache.put(id, copyOf(device));
+                    }
+                    return device;
+                });
     }
 
+    /**
+     * Lista inmutable con copias de los dispositivos: modificarlos no altera el espejo ni la cache
+     */
     public List<Device> getAllDevices() throws ExecutionException, InterruptedException {
-        Firestore db = FirestoreClient.getFirestore();
-        List<QueryDocumentSnapshot> documents = db.collection(COLLECTION_NAME).get().get().getDocuments();
-        List<Device> devices = new ArrayList<>();
-        for (QueryDocumentSnapshot doc : documents) {
-            devices.add(doc.toObject(Device.class));
+        return FirestoreFutures.await(getAllDevicesAsync());
+    }
+
+    public CompletableFuture<List<Device>> getAllDevicesAsync() {
+        DeviceCatalogMirror.Snapshot mirrored = mirror.snapshot();
+        if (mirrored != null) {
+            return CompletableFuture.completedFuture(copiesOf(mirrored.all()));
+        }
+
+        if (cacheEnabled) {
+            List<Device> cached = catalogCache.get(ALL_DEVICES_KEY);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(copiesOf(cached));
+            }
+        }
+
+        long version = catalogVersion.get();
+        return store.list(COLLECTION_NAME)
+                .thenApply(documents -> {
+                    List<Device> devices = new ArrayList<>(documents.size());
+                    for (DocumentStore.Document document : documents) {
+                        devices.add(toDevice(document.id(), document.data()));
+                    }
+
+                    if (cacheEnabled && version == catalogVersion.get()) {
+                        // La cache guarda sus propias instancias; quien llama recibe otras
+                        List<Device> snapshot = copiesOf(devices);
+                        catalogCache.put(ALL_DEVICES_KEY, snapshot);
+                        for (Device device : snapshot) {
+                            deviceCache.put(device.getId(), device);
+                        }
+                    }
+                    return Collections.unmodifiableList(devices);
+                });
+    }
+
+    /**
+     * Resuelve varios ids del catálogo de una vez: espejo o cache primero y los que falten con un solo getAll
+     * (en grupos de 500). Los ids que no existen no aparecen en el mapa.
+     */
+    public Map<String, Device> getDevicesByIds(Collection<String> ids) throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(getDevicesByIdsAsync(ids));
+    }
+
+    public CompletableFuture<Map<String, Device>> getDevicesByIdsAsync(Collection<String> ids) {
+        Map<String, Device> found = new HashMap<>(ids.size() * 2);
+        DeviceCatalogMirror.Snapshot mirrored = mirror.snapshot();
+        if (mirrored != null) {
+            for (String id : ids) {
+                Device device = mirrored.byId().get(id);
+                if (device != null) {
+                    found.put(id, copyOf(device));
+                }
+            }
+            return CompletableFuture.completedFuture(found);
+        }
+
+        Set<String> missing = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id == null || id.isEmpty() || found.containsKey(id)) {
+                continue;
+            }
+            Device cached = cacheEnabled ? deviceCache.get(id) : null;
+            if (cached != null) {
+                found.put(id, copyOf(cached));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(found);
+        }
+
+        long version = catalogVersion.get();
+        return store.getAll(COLLECTION_NAME, missing).thenApply(documents -> {
+            boolean cacheable = cacheEnabled && version == catalogVersion.get();
+            for (Map.Entry<String, Map<String, Object>> document : documents.entrySet()) {
+                Device device = toDevice(document.getKey(), document.getValue());
+                found.put(document.getKey(), device);
+                if (cacheable) {
+                    deviceCache.put(document.getKey(), copyOf(device));
+                }
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Página del catálogo ordenada por id, empezando después del cursor startAfter
+     */
+    public PageResult<Device> getDevicesPage(int limit, String startAfter) throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(getDevicesPageAsync(limit, startAfter));
+    }
+
+    public CompletableFuture<PageResult<Device>> getDevicesPageAsync(int limit, String startAfter) {
+        DeviceCatalogMirror.Snapshot mirrored = mirror.snapshot();
+        if (mirrored != null) {
+            PageResult<Device> page = mirrored.page(limit, startAfter);
+            return CompletableFuture.completedFuture(new PageResult<>(copiesOf(page.getItems()), page.getNextCursor()));
         }
-        return devices;
+
+        return store.page(COLLECTION_NAME, limit, startAfter, null)
+                .thenApply(documents -> DocumentStore.toPage(documents, limit, document -> toDevice(document.id(), document.data())));
+    }
+
+    /**
+     * Página del catálogo con solo los campos pedidos (select) más el id
+     */
+    public PageResult<Map<String, Object>> getDevicesPage(int limit, String startAfter, List<String> fields)
+            throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(getDevicesPageAsync(limit, startAfter, fields));
+    }
+
+    public CompletableFuture<PageResult<Map<String, Object>>> getDevicesPageAsync(int limit, String startAfter, List<String> fields) {
+        return store.page(COLLECTION_NAME, limit, startAfter, fields)
+                .thenApply(documents -> DocumentStore.toPage(documents, limit, DocumentStore.Document::toMap));
     }
 
     public String deleteDevice(String id) throws ExecutionException, InterruptedException {
-        Firestore db = FirestoreClient.getFirestore();
-        ApiFuture<WriteResult> writeResult = db.collection(COLLECTION_NAME).document(id).delete();
-        return writeResult.get().getUpdateTime().toString();
+        return FirestoreFutures.await(deleteDeviceAsync(id));
+    }
+
+    public CompletableFuture<String> deleteDeviceAsync(String id) {
+        return store.delete(COLLECTION_NAME, id).whenComplete((updateTime, error) -> {
+            if (error == null) {
+                mirror.applyLocalDelete(id);
+                alternativesIndex.remove(id);
+            }
+            onCatalogWrite(id, null);
+        });
+    }
+
+    /**
+     * Ids de la lista que existen en el catálogo (con el espejo activo no consulta Firestore)
+     */
+    public CompletableFuture<Set<String>> findExistingIdsAsync(List<String> ids) {
+        DeviceCatalogMirror.Snapshot mirrored = mirror.snapshot();
+        if (mirrored != null) {
+            Set<String> existing = new HashSet<>();
+            for (String id : ids) {
+                if (mirrored.byId().containsKey(id)) {
+                    existing.add(id);
+                }
+            }
+            return CompletableFuture.completedFuture(existing);
+        }
+
+        return store.getAll(COLLECTION_NAME, ids).thenApply(byId -> new HashSet<>(byId.keySet()));
+    }
+
+    /**
+     * Guarda (set) y elimina dispositivos en lotes de 500 y refleja en espejo y cache solo lo confirmado
+     */
+    public CompletableFuture<Void> writeBatchAsync(List<FirestoreBatches.Item<Device>> upserts,
+                                                   List<FirestoreBatches.Item<String>> deletes) {
+        List<DocumentStore.Write> writes = new ArrayList<>(upserts.size() + deletes.size());
+        for (FirestoreBatches.Item<Device> item : upserts) {
+            Device device = item.value();
+            if (device.getId() == null || device.getId().isEmpty()) {
+                device.setId(UUID.randomUUID().toString());
+            }
+            item.result().setId(device.getId());
+            writes.add(new DocumentStore.Write(item.result(), device.getId(), toDocument(device)));
+        }
+        for (FirestoreBatches.Item<String> item : deletes) {
+            writes.add(new DocumentStore.Write(item.result(), item.value(), null));
+        }
+
+        return store.commit(COLLECTION_NAME, writes).whenComplete((ignored, error) -> {
+            for (FirestoreBatches.Item<Device> item : upserts) {
+                boolean written = item.result().isSuccess();
+                if (written) {
+                    mirror.applyLocalWrite(copyOf(item.value()));
+                    alternativesIndex.put(item.value());
+                }
+                onCatalogWrite(item.value().getId(), written ? item.value() : null);
+            }
+            for (FirestoreBatches.Item<String> item : deletes) {
+                if (item.result().isSuccess()) {
+                    mirror.applyLocalDelete(item.value());
+                    alternativesIndex.remove(item.value());
+                }
+                onCatalogWrite(item.value(), null);
+            }
+        });
+    }
+
+    /**
+     * Abre un escritor masivo sobre "devices" (BulkWriter en Firestore) para importaciones grandes.
+     * maxOpsPerSecond 0 deja la rampa por defecto del SDK. El espejo no se actualiza localmente: recibe los cambios por su listener.
+     */
+    public BulkDeviceWriter openBulkWriter(int maxOpsPerSecond, int maxPending) {
+        return new BulkDeviceWriter(store.openBulk(COLLECTION_NAME, maxOpsPerSecond), maxPending, () -> {
+            catalogVersion.incrementAndGet();
+            catalogCache.invalidateAll();
+            deviceCache.invalidateAll();
+            alternativesIndex.invalidate();
+        });
+    }
+
+    /**
+     * Alternativas de menor potencia en la misma categoría. El índice se reconstruye desde el catálogo
+     * (espejo, cache o Firestore) solo si no existe o venció; null si el dispositivo no existe.
+     */
+    public CompletableFuture<DeviceAlternativesIndex.Match> findLowerPowerAlternativesAsync(String id, int limit) {
+        CompletableFuture<Void> ready;
+        if (alternativesIndex.isFresh()) {
+            ready = CompletableFuture.completedFuture(null);
+        } else {
+            long version = catalogVersion.get();
+            ready = getAllDevicesAsync().thenAccept(
+                    devices -> alternativesIndex.rebuild(devices, version != catalogVersion.get()));
+        }
+        return ready.thenApply(ignored -> {
+            Device device = alternativesIndex.get(id);
+            return device == null ? null : new DeviceAlternativesIndex.Match(device, alternativesIndex.lowerPower(device, limit));
+        });
+    }
+
+    private static Device copyOf(Device device) {
+        if (device == null) {
+            return null;
+        }
+        return new Device(device.getId(), device.getNombre(), device.getCategoria(), device.getPotenciaWatts(),
+                device.getHorasUsoDiario(), device.getDiasUsoMensual());
+    }
+
+    private static List<Device> copiesOf(List<Device> devices) {
+        List<Device> copies = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            copies.add(copyOf(device));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    /**
+     * Write-through: invalida el listado completo y guarda (o descarta) la entrada escrita
+     */
+    private void onCatalogWrite(String id, Device written) {
+        catalogVersion.incrementAndGet();
+        catalogCache.invalidate(ALL_DEVICES_KEY);
+        if (cacheEnabled && written != null) {
+            deviceCache.put(id, copyOf(written));
+        } else {
+            deviceCache.invalidate(id);
+        }
+    }
+
+    /**
+     * Estadísticas de la cache del catálogo (aciertos, fallos, desalojos)
+     */
+    public Map<String, Object> getCacheStats() {
+        return Map.of(
+                "enabled", cacheEnabled,
+                "devices", deviceCache.stats(),
+                "catalog", catalogCache.stats(),
+                "mirror", mirror.stats(),
+                "alternativesIndex", alternativesIndex.stats(),
+                "store", store.stats());
+    }
+
+    /**
+     * Campos que guarda Firestore al hacer set(device) con el mapeo de POJOs (enteros como Long, decimales como Double)
+     */
+    public static Map<String, Object> toDocument(Device device) {
+        Map<String, Object> data = new HashMap<>(8);
+        data.put("id", device.getId());
+        data.put("nombre", device.getNombre());
+        data.put("categoria", device.getCategoria());
+        data.put("potenciaWatts", (long) device.getPotenciaWatts());
+        data.put("horasUsoDiario", (double) device.getHorasUsoDiario());
+        data.put("diasUsoMensual", (long) device.getDiasUsoMensual());
+        return data;
+    }
+
+    /**
+     * Inversa de toDocument; el id del documento se usa si el campo id no está guardado
+     */
+    public static Device toDevice(String id, Map<String, Object> data) {
+        Device device = new Device();
+        device.setId(data.get("id") instanceof String stored ? stored : id);
+        device.setNombre((String) data.get("nombre"));
+        device.setCategoria((String) data.get("categoria"));
+        device.setPotenciaWatts(data.get("potenciaWatts") instanceof Number watts ? watts.intValue() : 0);
+        device.setHorasUsoDiario(data.get("horasUsoDiario") instanceof Number hours ? hours.floatValue() : 0f);
+        device.setDiasUsoMensual(data.get("diasUsoMensual") instanceof Number days ? days.intValue() : 0);
+        return device;
     }
-}
\ No newline at end of file
+}
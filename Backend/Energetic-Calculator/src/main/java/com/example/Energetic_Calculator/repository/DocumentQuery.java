@@ -0,0 +1,122 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consulta con filtros de igualdad, rangos y orden para DocumentStore.query.
+ * orderBy null ordena por id; con orderBy solo entran los documentos que tienen ese campo, como en Firestore,
+ * y los empates se ordenan por id en la misma dirección. startAfter es el id del último documento de la página anterior.
+ */
+public record DocumentQuery(Map<String, Object> equalTo, List<Range> ranges, String orderBy, boolean descending,
+                            int limit, String startAfter, List<String> fields) {
+
+    public DocumentQuery {
+        // LinkedHashMap y no Map.copyOf: la igualdad con null es un filtro válido
+        equalTo = equalTo == null ? Map.of() : Collections.unmodifiableMap(new LinkedHashMap<>(equalTo));
+        ranges = ranges == null ? List.of() : List.copyOf(ranges);
+        fields = fields == null || fields.isEmpty() ? null : List.copyOf(fields);
+        if (startAfter != null && startAfter.isBlank()) {
+            startAfter = null;
+        }
+    }
+
+    /**
+     * min incluido y max excluido; null = sin límite por ese lado
+     */
+    public record Range(String field, Object min, Object max) {
+
+        /**
+         * Como en Firestore, un rango solo incluye valores del mismo tipo que sus límites
+         */
+        public boolean contains(Object value) {
+            if (value == null) {
+                return false;
+            }
+            if (min != null && (typeOrder(value) != typeOrder(min) || compareValues(value, min) < 0)) {
+                return false;
+            }
+            return max == null || typeOrder(value) == typeOrder(max) && compareValues(value, max) < 0;
+        }
+    }
+
+    public Range range(String field) {
+        for (Range range : ranges) {
+            if (range.field().equals(field)) {
+                return range;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rangos sobre campos distintos de orderBy: Firestore solo admite desigualdades en el campo ordenado
+     */
+    public List<Range> residualRanges() {
+        List<Range> residual = new ArrayList<>();
+        for (Range range : ranges) {
+            if (!range.field().equals(orderBy)) {
+                residual.add(range);
+            }
+        }
+        return residual;
+    }
+
+    /**
+     * Orden de Firestore entre valores: primero por tipo (null, booleano, número, fecha, texto, bytes, geopunto,
+     * lista, mapa) y dentro del tipo por valor; los números se comparan por valor sin importar Long o Double
+     */
+    public static int compareValues(Object a, Object b) {
+        int byType = Integer.compare(typeOrder(a), typeOrder(b));
+        if (byType != 0) {
+            return byType;
+        }
+        if (a instanceof Number x && b instanceof Number y) {
+            return x instanceof Long && y instanceof Long
+                    ? Long.compare(x.longValue(), y.longValue())
+                    : Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        if (a instanceof Boolean x && b instanceof Boolean y) {
+            return x.compareTo(y);
+        }
+        if (a instanceof Timestamp x && b instanceof Timestamp y) {
+            return x.compareTo(y);
+        }
+        if (a instanceof String x && b instanceof String y) {
+            return x.compareTo(y);
+        }
+        return 0;
+    }
+
+    private static int typeOrder(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Number) {
+            return 2;
+        }
+        if (value instanceof Timestamp) {
+            return 3;
+        }
+        if (value instanceof String) {
+            return 4;
+        }
+        if (value instanceof Blob) {
+            return 5;
+        }
+        if (value instanceof GeoPoint) {
+            return 6;
+        }
+        return value instanceof List<?> ? 7 : 8;
+    }
+}
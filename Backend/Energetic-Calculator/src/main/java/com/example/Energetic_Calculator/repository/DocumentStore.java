@@ -0,0 +1,173 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.example.Energetic_Calculator.model.PageResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Almacenamiento de documentos por colección, elegido con storage.backend: FirestoreDocumentStore en producción,
+ * JdbcDocumentStore ("jdbc") sobre MySQL e InMemoryDocumentStore ("memory") para pruebas de carga y benchmarks
+ * sin tocar el proyecto de Firebase.
+ * Los documentos son mapas con los tipos que devuelve Firestore (Long, Double, Timestamp, Map, List).
+ * Las escrituras devuelven el updateTime del documento como texto.
+ */
+public interface DocumentStore {
+
+    String ID_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    int ID_LENGTH = 20;
+
+    /**
+     * "firestore", "jdbc" o "memory"
+     */
+    String backend();
+
+    /**
+     * Crea el documento con un id generado y devuelve el id
+     */
+    CompletableFuture<String> add(String collection, Map<String, Object> data);
+
+    CompletableFuture<String> set(String collection, String id, Map<String, Object> data);
+
+    /**
+     * null si el documento no existe
+     */
+    CompletableFuture<Map<String, Object>> get(String collection, String id);
+
+    /**
+     * Solo los documentos que existen, indexados por id
+     */
+    CompletableFuture<Map<String, Map<String, Object>>> getAll(String collection, Collection<String> ids);
+
+    CompletableFuture<List<Document>> list(String collection);
+
+    /**
+     * Página ordenada por id que empieza después de startAfter; fields proyecta solo esos campos (null = todos)
+     */
+    CompletableFuture<List<Document>> page(String collection, int limit, String startAfter, List<String> fields);
+
+    /**
+     * Documentos cuyo campo es igual a value, ordenados por id
+     */
+    CompletableFuture<List<Document>> findBy(String collection, String field, Object value);
+
+    /**
+     * Como page, pero solo con los documentos cuyo campo es igual a value
+     */
+    CompletableFuture<List<Document>> pageBy(String collection, String field, Object value, int limit, String startAfter,
+                                             List<String> fields);
+
+    /**
+     * Página filtrada y ordenada según query; falla con IllegalArgumentException si el documento de startAfter
+     * ya no existe o si el backend no puede resolver un filtro
+     */
+    CompletableFuture<List<Document>> query(String collection, DocumentQuery query);
+
+    /**
+     * Cuenta y suma sumField agrupando por groupField, solo en los documentos donde sumField es numérico.
+     * Con field null se agrega toda la colección; los documentos sin groupField quedan en el grupo de clave null.
+     */
+    CompletableFuture<List<Group>> aggregate(String collection, String field, Object value, String groupField, String sumField);
+
+    /**
+     * Modifica solo los campos dados (las claves con punto son rutas anidadas); falla si el documento no existe
+     */
+    CompletableFuture<String> update(String collection, String id, Map<String, Object> data);
+
+    CompletableFuture<String> delete(String collection, String id);
+
+    /**
+     * Aplica set, update, increment y delete en lotes atómicos de hasta 500 y completa el resultado de cada escritura; el futuro
+     * no falla aunque fallen lotes. Como en Firestore, un update sobre un documento que ya no existe hace fallar
+     * su lote completo.
+     */
+    CompletableFuture<Void> commit(String collection, List<Write> writes);
+
+    /**
+     * Escritor para importaciones grandes: los set se envían sin esperarse uno a uno. maxOpsPerSecond 0 = sin límite propio.
+     */
+    Bulk openBulk(String collection, int maxOpsPerSecond);
+
+    Map<String, Object> stats();
+
+    record Document(String id, Map<String, Object> data) {
+
+        /**
+         * Copia de los datos con el id incluido, como la devuelve la API genérica
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>(data.size() + 1);
+            map.putAll(data);
+            map.put("id", id);
+            return map;
+        }
+    }
+
+    /**
+     * Escritura de commit: SET reemplaza el documento, UPDATE modifica solo los campos de data (como update),
+     * INCREMENT suma los valores numéricos de data a los campos de primer nivel y fija los demás, creando el documento
+     * si no existe (set con merge y FieldValue.increment en Firestore), y DELETE lo elimina (data null)
+     */
+    record Write(BatchItemResult result, String id, Map<String, Object> data, Kind kind) {
+
+        public enum Kind { SET, UPDATE, INCREMENT, DELETE }
+
+        /**
+         * set si data != null, delete si data == null
+         */
+        public Write(BatchItemResult result, String id, Map<String, Object> data) {
+            this(result, id, data, data == null ? Kind.DELETE : Kind.SET);
+        }
+
+        public static Write update(BatchItemResult result, String id, Map<String, Object> changes) {
+            return new Write(result, id, changes, Kind.UPDATE);
+        }
+
+        public static Write increment(BatchItemResult result, String id, Map<String, Object> fields) {
+            return new Write(result, id, fields, Kind.INCREMENT);
+        }
+    }
+
+    record Group(Object key, long count, double sum) {
+    }
+
+    interface Bulk extends AutoCloseable {
+
+        CompletableFuture<String> set(String id, Map<String, Object> data);
+
+        /**
+         * Envía lo pendiente y espera a que terminen todas las escrituras
+         */
+        @Override
+        void close() throws ExecutionException, InterruptedException;
+    }
+
+    /**
+     * Id aleatorio de 20 caracteres, del mismo formato que los ids automáticos de Firestore
+     */
+    static String newId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] id = new char[ID_LENGTH];
+        for (int i = 0; i < ID_LENGTH; i++) {
+            id[i] = ID_ALPHABET.charAt(random.nextInt(ID_ALPHABET.length()));
+        }
+        return new String(id);
+    }
+
+    static <T> PageResult<T> toPage(List<Document> documents, int limit, Function<Document, T> mapper) {
+        List<T> items = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            items.add(mapper.apply(document));
+        }
+        String nextCursor = documents.size() == limit ? documents.get(documents.size() - 1).id() : null;
+        return new PageResult<>(items, nextCursor);
+    }
+}
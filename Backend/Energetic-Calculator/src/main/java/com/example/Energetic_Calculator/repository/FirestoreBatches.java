@@ -0,0 +1,92 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Escrituras en lote: agrupa hasta 500 operaciones por WriteBatch (el máximo de Firestore)
+ * y deja el resultado de cada operación en su BatchItemResult.
+ */
+public final class FirestoreBatches {
+
+    public static final int MAX_WRITES_PER_BATCH = 500;
+    public static final int MAX_ITEMS_PER_REQUEST = 5000;
+
+    private FirestoreBatches() {
+    }
+
+    /**
+     * Operación pendiente: apply agrega la escritura al lote, result recibe el resultado
+     */
+    public record Write(BatchItemResult result, Consumer<WriteBatch> apply) {
+    }
+
+    /**
+     * Elemento de la petición junto con el resultado que le corresponde
+     */
+    public record Item<T>(BatchItemResult result, T value) {
+    }
+
+    /**
+     * Confirma las escrituras en lotes de 500 (collection solo etiqueta las métricas). Cada lote es atómico: si falla, todas sus operaciones quedan con 500.
+     */
+    public static CompletableFuture<Void> commit(Firestore db, FirestoreCallLimiter limiter, String collection,
+                                               List<Write> writes) {
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < writes.size(); from += MAX_WRITES_PER_BATCH) {
+            List<Write> chunk = writes.subList(from, Math.min(from + MAX_WRITES_PER_BATCH, writes.size()));
+            chunks.add(limiter.submit(collection, "batch", () -> {
+                WriteBatch batch = db.batch();
+                for (Write write : chunk) {
+                    write.apply().accept(batch);
+                }
+                return batch.commit();
+            }).handle((writeResults, error) -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    BatchItemResult result = chunk.get(i).result();
+                    if (error != null) {
+                        result.fail(500, "Error al confirmar el lote: " + FirestoreFutures.unwrap(error).getMessage());
+                    } else {
+                        WriteResult writeResult = writeResults.get(i);
+                        result.succeed("create".equals(result.getOperation()) ? 201 : 200, writeResult.getUpdateTime().toString());
+                    }
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Lee varios documentos con getAll en grupos de 500 y los devuelve indexados por id
+     */
+    public static CompletableFuture<Map<String, DocumentSnapshot>> fetch(Firestore db, FirestoreCallLimiter limiter,
+                                                                         String collection, List<DocumentReference> refs) {
+        List<CompletableFuture<List<DocumentSnapshot>>> chunks = new ArrayList<>();
+        for (int from = 0; from < refs.size(); from += MAX_WRITES_PER_BATCH) {
+            DocumentReference[] chunk = refs.subList(from, Math.min(from + MAX_WRITES_PER_BATCH, refs.size()))
+                    .toArray(new DocumentReference[0]);
+            chunks.add(limiter.submit(collection, "getAll", () -> db.getAll(chunk)));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Map<String, DocumentSnapshot> byId = new HashMap<>(refs.size() * 2);
+            for (CompletableFuture<List<DocumentSnapshot>> chunk : chunks) {
+                for (DocumentSnapshot snapshot : chunk.join()) {
+                    byId.put(snapshot.getId(), snapshot);
+                }
+            }
+            return byId;
+        });
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.api.core.ApiFuture;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Limita las llamadas a Firestore que están en vuelo al mismo tiempo.
+ * Las que no consiguen permiso esperan en una cola acotada sin bloquear ningún hilo;
+ * si la cola está llena se rechazan en lugar de agotar la cuota del proyecto.
+ * Cada llamada lleva la colección y la operación con las que se registran sus métricas.
+ */
+@Component
+public class FirestoreCallLimiter {
+
+    private final FirestoreMetrics metrics;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Semaphore permits;
+    private final Queue<Pending<?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    // Permisos por traspasar en el hilo que ya está dentro de handOff (ver handOff)
+    private final ThreadLocal<int[]> handOffs = new ThreadLocal<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public FirestoreCallLimiter(FirestoreMetrics metrics,
+                                @Value("${firestore.limiter.max-concurrent:256}") int maxConcurrent,
+                                @Value("${firestore.limiter.max-queued:10000}") int maxQueued) {
+        this.metrics = metrics;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+        metrics.gauge("firestore.limiter.in-flight", "Llamadas a Firestore en vuelo",
+                () -> permits == null ? 0 : maxConcurrent - permits.availablePermits());
+        metrics.gauge("firestore.limiter.queued", "Llamadas esperando permiso", queued::get);
+    }
+
+    /**
+     * Lanza la llamada cuando hay permiso libre y devuelve su resultado como CompletableFuture.
+     * collection y operation solo etiquetan las métricas (p. ej. "devices", "get").
+     */
+    public <T> CompletableFuture<T> submit(String collection, String operation, Supplier<ApiFuture<T>> call) {
+        calls.increment();
+        Pending<T> pending = new Pending<>(collection, operation, call);
+        if (permits == null) {
+            run(pending, null);
+            return pending.result;
+        }
+
+        if (permits.tryAcquire()) {
+            start(pending);
+            return pending.result;
+        }
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            metrics.recordRejected(collection, operation);
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Demasiadas llamadas pendientes a Firestore"));
+        }
+        delayed.increment();
+        pending.queuedAtNanos = System.nanoTime();
+        queue.add(pending);
+
+        // Un permiso pudo liberarse entre el tryAcquire y el encolado: sin esto la entrada quedaría huérfana
+        if (permits.tryAcquire()) {
+            handOff();
+        }
+        return pending.result;
+    }
+
+    /**
+     * Se llama con un permiso ya tomado. Una llamada que falla o termina sin esperar completa dentro de start y
+     * traspasa su permiso en el mismo hilo: en vez de anidar otro drain (una ráfaga de fallos inmediatos recorrería
+     * toda la cola en la pila) lo anota y el bucle de fuera lo traspasa al volver.
+     */
+    private void handOff() {
+        int[] pending = handOffs.get();
+        if (pending != null) {
+            pending[0]++;
+            return;
+        }
+        pending = new int[]{1};
+        handOffs.set(pending);
+        try {
+            while (pending[0] > 0) {
+                pending[0]--;
+                drain();
+            }
+        } finally {
+            handOffs.remove();
+        }
+    }
+
+    /**
+     * Pasa el permiso tomado a la siguiente llamada en cola o lo devuelve
+     */
+    private void drain() {
+        while (true) {
+            Pending<?> next = queue.poll();
+            if (next != null) {
+                queued.decrementAndGet();
+                start(next);
+                return;
+            }
+            permits.release();
+            if (queue.isEmpty() || !permits.tryAcquire()) {
+                return;
+            }
+        }
+    }
+
+    private <T> void start(Pending<T> pending) {
+        if (pending.queuedAtNanos != 0) {
+            metrics.recordQueueWait(System.nanoTime() - pending.queuedAtNanos);
+        }
+        run(pending, this::handOff);
+    }
+
+    /**
+     * Lanza la llamada, registra su latencia y propaga el resultado a pending.result después de
+     * ejecutar onDone (liberar el permiso antes de que corran las continuaciones del llamador)
+     */
+    private <T> void run(Pending<T> pending, Runnable onDone) {
+        long startNanos = System.nanoTime();
+        CompletableFuture<T> call;
+        try {
+            call = FirestoreFutures.toCompletable(pending.call.get());
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((value, error) -> {
+            metrics.recordCall(pending.collection, pending.operation, System.nanoTime() - startNanos, value, error);
+            if (onDone != null) {
+                onDone.run();
+            }
+            if (error != null) {
+                pending.result.completeExceptionally(error);
+            } else {
+                pending.result.complete(value);
+            }
+        });
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "enabled", permits != null,
+                "maxConcurrent", maxConcurrent,
+                "inFlight", permits == null ? 0 : maxConcurrent - permits.availablePermits(),
+                "queued", queued.get(),
+                "calls", calls.sum(),
+                "delayed", delayed.sum(),
+                "rejected", rejected.sum());
+    }
+
+    private static final class Pending<T> {
+        private final String collection;
+        private final String operation;
+        private final Supplier<ApiFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private long queuedAtNanos;
+
+        private Pending(String collection, String operation, Supplier<ApiFuture<T>> call) {
+            this.collection = collection;
+            this.operation = operation;
+            this.call = call;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.BulkWriterOptions;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteResult;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.cloud.FirestoreClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * DocumentStore sobre Firestore. Todas las llamadas pasan por FirestoreCallLimiter (límite de concurrencia y métricas).
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreDocumentStore implements DocumentStore {
+
+    private final FirebaseApp firebaseApp;
+    private final FirestoreCallLimiter limiter;
+
+    public FirestoreDocumentStore(FirebaseApp firebaseApp, FirestoreCallLimiter limiter) {
+        this.firebaseApp = firebaseApp;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public String backend() {
+        return "firestore";
+    }
+
+    @Override
+    public CompletableFuture<String> add(String collection, Map<String, Object> data) {
+        DocumentReference document = db().collection(collection).document();
+        return limiter.submit(collection, "set", () -> document.set(data)).thenApply(result -> document.getId());
+    }
+
+    @Override
+    public CompletableFuture<String> set(String collection, String id, Map<String, Object> data) {
+        DocumentReference document = db().collection(collection).document(id);
+        return limiter.submit(collection, "set", () -> document.set(data)).thenApply(FirestoreDocumentStore::updateTime);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> get(String collection, String id) {
+        DocumentReference document = db().collection(collection).document(id);
+        return limiter.submit(collection, "get", document::get)
+                .thenApply(snapshot -> snapshot.exists() ? snapshot.getData() : null);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Map<String, Object>>> getAll(String collection, Collection<String> ids) {
+        Firestore db = db();
+        CollectionReference collectionRef = db.collection(collection);
+        List<DocumentReference> refs = new ArrayList<>(ids.size());
+        for (String id : new LinkedHashSet<>(ids)) {
+            refs.add(collectionRef.document(id));
+        }
+        return FirestoreBatches.fetch(db, limiter, collection, refs).thenApply(snapshots -> {
+            Map<String, Map<String, Object>> found = new HashMap<>(snapshots.size() * 2);
+            for (DocumentSnapshot snapshot : snapshots.values()) {
+                if (snapshot.exists()) {
+                    found.put(snapshot.getId(), snapshot.getData());
+                }
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> list(String collection) {
+        CollectionReference collectionRef = db().collection(collection);
+        return limiter.submit(collection, "list", collectionRef::get).thenApply(FirestoreDocumentStore::toDocuments);
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> page(String collection, int limit, String startAfter, List<String> fields) {
+        CollectionReference collectionRef = db().collection(collection);
+        return limiter.submit(collection, "page", () -> FirestorePages.page(collectionRef, collectionRef, limit, startAfter, fields).get())
+                .thenApply(FirestoreDocumentStore::toDocuments);
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> findBy(String collection, String field, Object value) {
+        CollectionReference collectionRef = db().collection(collection);
+        return limiter.submit(collection, "query", () -> collectionRef.whereEqualTo(field, value).get())
+                .thenApply(FirestoreDocumentStore::toDocuments);
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> pageBy(String collection, String field, Object value, int limit,
+                                                    String startAfter, List<String> fields) {
+        CollectionReference collectionRef = db().collection(collection);
+        Query query = FirestorePages.page(collectionRef.whereEqualTo(field, value), collectionRef, limit, startAfter, fields);
+        return limiter.submit(collection, "page", query::get).thenApply(FirestoreDocumentStore::toDocuments);
+    }
+
+    /**
+     * Igualdades, orden y el rango sobre el campo ordenado van en la consulta (cada combinación necesita su índice
+     * compuesto, ver firestore.indexes.json). Los rangos sobre otros campos se filtran aquí, pidiendo más páginas
+     * hasta llenar el límite.
+     */
+    @Override
+    public CompletableFuture<List<Document>> query(String collection, DocumentQuery query) {
+        CollectionReference collectionRef = db().collection(collection);
+        Query base = collectionRef;
+        for (Map.Entry<String, Object> filter : query.equalTo().entrySet()) {
+            base = base.whereEqualTo(filter.getKey(), filter.getValue());
+        }
+        Query.Direction direction = query.descending() ? Query.Direction.DESCENDING : Query.Direction.ASCENDING;
+        if (query.orderBy() == null) {
+            base = base.orderBy(FieldPath.documentId(), direction);
+        } else {
+            DocumentQuery.Range range = query.range(query.orderBy());
+            if (range != null && range.min() != null) {
+                base = base.whereGreaterThanOrEqualTo(query.orderBy(), range.min());
+            }
+            if (range != null && range.max() != null) {
+                base = base.whereLessThan(query.orderBy(), range.max());
+            }
+            base = base.orderBy(query.orderBy(), direction);
+        }
+        List<DocumentQuery.Range> residual = query.residualRanges();
+        if (query.fields() != null) {
+            // startAfter(snapshot) necesita el campo ordenado y el filtro de aquí los campos de los rangos
+            Set<String> selected = new LinkedHashSet<>(query.fields());
+            if (query.orderBy() != null) {
+                selected.add(query.orderBy());
+            }
+            residual.forEach(range -> selected.add(range.field()));
+            base = base.select(selected.toArray(new String[0]));
+        }
+        Query filtered = base;
+
+        CompletableFuture<DocumentSnapshot> cursor = query.startAfter() == null
+                ? CompletableFuture.completedFuture(null)
+                : limiter.submit(collection, "get", collectionRef.document(query.startAfter())::get);
+        return cursor.thenCompose(snapshot -> {
+            if (snapshot != null && !snapshot.exists()) {
+                throw new IllegalArgumentException("El documento de startAfter no existe: " + query.startAfter());
+            }
+            return queryPages(collection, filtered, snapshot, residual, query, new ArrayList<>());
+        });
+    }
+
+    /**
+     * Cada página pide query.limit() documentos aunque ya haya algunos: pedir solo los que faltan haría muchas
+     * lecturas pequeñas cuando el filtro local descarta la mayoría. Al llenarse se corta en el último documento
+     * devuelto, que es el cursor de la página siguiente.
+     */
+    CompletableFuture<List<Document>> queryPages(String collection, Query base, DocumentSnapshot after,
+                                                 List<DocumentQuery.Range> residual, DocumentQuery query,
+                                                 List<Document> found) {
+        Query page = (after == null ? base : base.startAfter(after)).limit(query.limit());
+        return limiter.submit(collection, "query", page::get).thenCompose(querySnapshot -> {
+            List<QueryDocumentSnapshot> snapshots = querySnapshot.getDocuments();
+            for (QueryDocumentSnapshot snapshot : snapshots) {
+                if (found.size() == query.limit()) {
+                    return CompletableFuture.completedFuture(found);
+                }
+                if (inRanges(snapshot, residual)) {
+                    found.add(new Document(snapshot.getId(), query.fields() == null
+                            ? snapshot.getData()
+                            : InMemoryDocumentStore.project(snapshot.getData(), query.fields())));
+                }
+            }
+            if (found.size() == query.limit() || snapshots.size() < query.limit()) {
+                return CompletableFuture.completedFuture(found);
+            }
+            return queryPages(collection, base, snapshots.get(snapshots.size() - 1), residual, query, found);
+        });
+    }
+
+    private static boolean inRanges(DocumentSnapshot snapshot, List<DocumentQuery.Range> ranges) {
+        for (DocumentQuery.Range range : ranges) {
+            if (!range.contains(snapshot.get(range.field()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Firestore no agrupa en el servidor: se leen los documentos que cumplen el filtro y se agregan aquí
+     */
+    @Override
+    public CompletableFuture<List<Group>> aggregate(String collection, String field, Object value, String groupField,
+                                                    String sumField) {
+        CollectionReference collectionRef = db().collection(collection);
+        Query query = field == null ? collectionRef : collectionRef.whereEqualTo(field, value);
+        return limiter.submit(collection, "query", query.select(groupField, sumField)::get).thenApply(querySnapshot -> {
+            Map<Object, double[]> groups = new LinkedHashMap<>();
+            for (QueryDocumentSnapshot snapshot : querySnapshot.getDocuments()) {
+                if (snapshot.get(sumField) instanceof Number number) {
+                    double[] group = groups.computeIfAbsent(snapshot.get(groupField), key -> new double[2]);
+                    group[0]++;
+                    group[1] += number.doubleValue();
+                }
+            }
+            List<Group> result = new ArrayList<>(groups.size());
+            groups.forEach((key, group) -> result.add(new Group(key, (long) group[0], group[1])));
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> update(String collection, String id, Map<String, Object> data) {
+        DocumentReference document = db().collection(collection).document(id);
+        return limiter.submit(collection, "update", () -> document.update(data)).thenApply(FirestoreDocumentStore::updateTime);
+    }
+
+    @Override
+    public CompletableFuture<String> delete(String collection, String id) {
+        DocumentReference document = db().collection(collection).document(id);
+        return limiter.submit(collection, "delete", document::delete).thenApply(FirestoreDocumentStore::updateTime);
+    }
+
+    @Override
+    public CompletableFuture<Void> commit(String collection, List<Write> writes) {
+        Firestore db = db();
+        CollectionReference collectionRef = db.collection(collection);
+        List<FirestoreBatches.Write> batchWrites = new ArrayList<>(writes.size());
+        for (Write write : writes) {
+            DocumentReference document = collectionRef.document(write.id());
+            batchWrites.add(new FirestoreBatches.Write(write.result(), switch (write.kind()) {
+                case SET -> batch -> batch.set(document, write.data());
+                case UPDATE -> batch -> batch.update(document, write.data());
+                case INCREMENT -> batch -> batch.set(document, toIncrements(write.data()), SetOptions.merge());
+                case DELETE -> batch -> batch.delete(document);
+            }));
+        }
+        return FirestoreBatches.commit(db, limiter, collection, batchWrites);
+    }
+
+    /**
+     * Los valores numéricos pasan a FieldValue.increment; el servidor los suma sin leer el documento
+     */
+    static Map<String, Object> toIncrements(Map<String, Object> fields) {
+        Map<String, Object> increments = new HashMap<>(fields.size() * 2);
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            Object value = field.getValue();
+            if (value instanceof Double || value instanceof Float) {
+                value = FieldValue.increment(((Number) value).doubleValue());
+            } else if (value instanceof Number number) {
+                value = FieldValue.increment(number.longValue());
+            }
+            increments.put(field.getKey(), value);
+        }
+        return increments;
+    }
+
+    @Override
+    public Bulk openBulk(String collection, int maxOpsPerSecond) {
+        Firestore db = db();
+        BulkWriterOptions.Builder options = BulkWriterOptions.builder();
+        if (maxOpsPerSecond > 0) {
+            options.setInitialOpsPerSecond(Math.min(maxOpsPerSecond, 500));
+            options.setMaxOpsPerSecond(maxOpsPerSecond);
+        }
+        BulkWriter writer = db.bulkWriter(options.build());
+        CollectionReference collectionRef = db.collection(collection);
+        return new Bulk() {
+            @Override
+            public CompletableFuture<String> set(String id, Map<String, Object> data) {
+                return FirestoreFutures.toCompletable(writer.set(collectionRef.document(id), data))
+                        .thenApply(FirestoreDocumentStore::updateTime);
+            }
+
+            @Override
+            public void close() throws ExecutionException, InterruptedException {
+                writer.close();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        return Map.of("backend", backend(), "limiter", limiter.stats());
+    }
+
+    private Firestore db() {
+        return FirestoreClient.getFirestore(firebaseApp);
+    }
+
+    private static List<Document> toDocuments(QuerySnapshot querySnapshot) {
+        List<QueryDocumentSnapshot> snapshots = querySnapshot.getDocuments();
+        List<Document> documents = new ArrayList<>(snapshots.size());
+        for (QueryDocumentSnapshot snapshot : snapshots) {
+            documents.add(new Document(snapshot.getId(), snapshot.getData()));
+        }
+        return documents;
+    }
+
+    private static String updateTime(WriteResult writeResult) {
+        return writeResult.getUpdateTime().toString();
+    }
+}
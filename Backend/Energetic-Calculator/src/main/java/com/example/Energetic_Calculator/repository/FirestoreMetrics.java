@@ -0,0 +1,120 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.WriteResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas de las llamadas a Firestore, etiquetadas por colección y operación:
+ * firestore.calls (latencia con histograma, resultado y excepción), firestore.documents
+ * (documentos leídos o escritos por llamada) y firestore.calls.rejected (rechazos del limitador).
+ * /api/data/firestore recibe la colección en la URL, así que las etiquetas de colección se limitan a
+ * MAX_COLLECTIONS valores distintos y el resto se agrupa como "other".
+ */
+@Component
+public class FirestoreMetrics {
+
+    static final int MAX_COLLECTIONS = 64;
+
+    private final MeterRegistry registry;
+    private final Set<String> collections = ConcurrentHashMap.newKeySet();
+
+    public FirestoreMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Sin registro: los medidores no guardan nada (tests y herramientas que no levantan Spring)
+     */
+    public static FirestoreMetrics noop() {
+        return new FirestoreMetrics(new CompositeMeterRegistry());
+    }
+
+    public void recordCall(String collection, String operation, long elapsedNanos, Object result, Throwable error) {
+        Throwable cause = error == null ? null : FirestoreFutures.unwrap(error);
+        Timer.builder("firestore.calls")
+                .description("Latencia de las llamadas a Firestore")
+                .tag("collection", collectionTag(collection))
+                .tag("operation", operation)
+                .tag("outcome", cause == null ? "success" : "error")
+                .tag("exception", cause == null ? "none" : cause.getClass().getSimpleName())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        int documents = documentCount(result);
+        if (documents >= 0) {
+            DistributionSummary.builder("firestore.documents")
+                    .description("Documentos leídos o escritos por llamada")
+                    .baseUnit("documents")
+                    .tag("collection", collectionTag(collection))
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(documents);
+        }
+    }
+
+    public void recordRejected(String collection, String operation) {
+        Counter.builder("firestore.calls.rejected")
+                .description("Llamadas rechazadas por la cola llena del limitador")
+                .tag("collection", collectionTag(collection))
+                .tag("operation", operation)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordQueueWait(long elapsedNanos) {
+        Timer.builder("firestore.limiter.wait")
+                .description("Tiempo en la cola del limitador antes de lanzar la llamada")
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void gauge(String name, String description, Supplier<Number> value) {
+        Gauge.builder(name, value).description(description).register(registry);
+    }
+
+    private String collectionTag(String collection) {
+        if (collections.contains(collection)) {
+            return collection;
+        }
+        // El tamaño puede pasarse por unos pocos elementos con escrituras concurrentes; basta como cota
+        if (collections.size() < MAX_COLLECTIONS && collections.add(collection)) {
+            return collection;
+        }
+        return "other";
+    }
+
+    /**
+     * -1 cuando el resultado no es una lectura o escritura de documentos (p. ej. una transacción)
+     */
+    private static int documentCount(Object result) {
+        if (result instanceof QuerySnapshot snapshot) {
+            return snapshot.size();
+        }
+        if (result instanceof DocumentSnapshot snapshot) {
+            return snapshot.exists() ? 1 : 0;
+        }
+        if (result instanceof WriteResult) {
+            return 1;
+        }
+        if (result instanceof List<?> list) {
+            return list.size();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.PageResult;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Paginación por cursor (orden por id de documento) y proyección de campos con select()
+ */
+public final class FirestorePages {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private FirestorePages() {
+    }
+
+    public static int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    public static boolean isPaged(Integer limit, String startAfter, List<String> fields) {
+        return limit != null || (startAfter != null && !startAfter.isBlank()) || (fields != null && !fields.isEmpty());
+    }
+
+    /**
+     * Construye la consulta de una página: ordena por id, aplica el cursor y la proyección
+     */
+    public static Query page(Query base, CollectionReference collection, int limit, String startAfter, List<String> fields) {
+        Query query = base.orderBy(FieldPath.documentId()).limit(limit);
+        if (startAfter != null && !startAfter.isBlank()) {
+            query = query.startAfter(collection.document(startAfter));
+        }
+        if (fields != null && !fields.isEmpty()) {
+            query = query.select(fields.toArray(new String[0]));
+        }
+        return query;
+    }
+
+    public static <T> PageResult<T> toPage(List<QueryDocumentSnapshot> documents, int limit,
+                                           Function<QueryDocumentSnapshot, T> mapper) {
+        List<T> items = new ArrayList<>(documents.size());
+        for (QueryDocumentSnapshot doc : documents) {
+            items.add(mapper.apply(doc));
+        }
+        String nextCursor = documents.size() == limit ? documents.get(documents.size() - 1).getId() : null;
+        return new PageResult<>(items, nextCursor);
+    }
+
+    public static Map<String, Object> toMap(DocumentSnapshot doc) {
+        Map<String, Object> source = doc.getData();
+        Map<String, Object> data = new HashMap<>(source == null ? 1 : source.size() + 1);
+        if (source != null) {
+            data.putAll(source);
+        }
+        data.put("id", doc.getId());
+        return data;
+    }
+}
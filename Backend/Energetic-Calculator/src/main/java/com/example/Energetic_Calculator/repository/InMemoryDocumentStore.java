@@ -0,0 +1,642 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.GeoPoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * DocumentStore en memoria (storage.backend=memory) para pruebas de carga y benchmarks sin red.
+ * Cada colección es un ConcurrentSkipListMap ordenado por id (las páginas salen en el mismo orden que en Firestore);
+ * la primera consulta por un campo crea un índice valor -> ids que después se mantiene en cada escritura.
+ * Los valores se normalizan como en Firestore (enteros a Long, decimales a Double, Date a Timestamp), así que
+ * el código que lee los documentos ve los mismos tipos con los dos backends. Lecturas sin bloqueo; las escrituras
+ * se serializan por colección para que documento e índices cambien juntos.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "memory")
+public class InMemoryDocumentStore implements DocumentStore {
+
+    private final Map<String, MemoryCollection> collections = new ConcurrentHashMap<>();
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder indexedQueries = new LongAdder();
+
+    @Override
+    public String backend() {
+        return "memory";
+    }
+
+    @Override
+    public CompletableFuture<String> add(String collection, Map<String, Object> data) {
+        String id = DocumentStore.newId();
+        return set(collection, id, data).thenApply(updateTime -> id);
+    }
+
+    @Override
+    public CompletableFuture<String> set(String collection, String id, Map<String, Object> data) {
+        Map<String, Object> document;
+        try {
+            document = normalizeDocument(data);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        MemoryCollection target = collection(collection);
+        target.lock.lock();
+        try {
+            target.write(id, document);
+        } finally {
+            target.lock.unlock();
+        }
+        writes.increment();
+        return CompletableFuture.completedFuture(now());
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> get(String collection, String id) {
+        reads.increment();
+        MemoryCollection source = collections.get(collection);
+        Map<String, Object> document = source == null ? null : source.documents.get(id);
+        return CompletableFuture.completedFuture(document == null ? null : new HashMap<>(document));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Map<String, Object>>> getAll(String collection, Collection<String> ids) {
+        reads.add(ids.size());
+        MemoryCollection source = collections.get(collection);
+        Map<String, Map<String, Object>> found = new HashMap<>(ids.size() * 2);
+        if (source != null) {
+            for (String id : ids) {
+                Map<String, Object> document = source.documents.get(id);
+                if (document != null) {
+                    found.put(id, new HashMap<>(document));
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(found);
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> list(String collection) {
+        MemoryCollection source = collections.get(collection);
+        List<Document> documents = source == null ? List.of() : toDocuments(source.documents, Integer.MAX_VALUE, null);
+        reads.add(documents.size());
+        return CompletableFuture.completedFuture(documents);
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> page(String collection, int limit, String startAfter, List<String> fields) {
+        MemoryCollection source = collections.get(collection);
+        if (source == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        NavigableMap<String, Map<String, Object>> range = startAfter == null || startAfter.isBlank()
+                ? source.documents
+                : source.documents.tailMap(startAfter, false);
+        List<Document> documents = toDocuments(range, limit, fields == null || fields.isEmpty() ? null : fields);
+        reads.add(documents.size());
+        return CompletableFuture.completedFuture(documents);
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> findBy(String collection, String field, Object value) {
+        return pageBy(collection, field, value, Integer.MAX_VALUE, null, null);
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> pageBy(String collection, String field, Object value, int limit,
+                                                    String startAfter, List<String> fields) {
+        MemoryCollection source = collections.get(collection);
+        if (source == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        List<String> projection = fields == null || fields.isEmpty() ? null : fields;
+        List<Document> documents = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : matching(source, field, value, startAfter)) {
+            if (documents.size() == limit) {
+                break;
+            }
+            documents.add(new Document(entry.getKey(), project(entry.getValue(), projection)));
+        }
+        reads.add(documents.size());
+        return CompletableFuture.completedFuture(documents);
+    }
+
+    /**
+     * La primera igualdad no nula sale del índice del campo; el resto de filtros y el orden se aplican sobre esos
+     * candidatos, que para user_devices son los dispositivos de un usuario
+     */
+    @Override
+    public CompletableFuture<List<Document>> query(String collection, DocumentQuery query) {
+        MemoryCollection source = collections.get(collection);
+        if (source == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        Map<String, Object> equalTo = new LinkedHashMap<>();
+        List<DocumentQuery.Range> ranges = new ArrayList<>(query.ranges().size());
+        try {
+            query.equalTo().forEach((field, value) -> equalTo.put(field, normalize(value)));
+            for (DocumentQuery.Range range : query.ranges()) {
+                ranges.add(new DocumentQuery.Range(range.field(), normalize(range.min()), normalize(range.max())));
+            }
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String indexed = null;
+        for (Map.Entry<String, Object> filter : equalTo.entrySet()) {
+            if (filter.getValue() != null) {
+                indexed = filter.getKey();
+                break;
+            }
+        }
+        Iterable<Map.Entry<String, Map<String, Object>>> candidates = indexed == null
+                ? source.documents.entrySet()
+                : matching(source, indexed, equalTo.get(indexed), null);
+
+        String orderBy = query.orderBy();
+        List<Map.Entry<String, Map<String, Object>>> matches = new ArrayList<>();
+        long scanned = 0;
+        for (Map.Entry<String, Map<String, Object>> entry : candidates) {
+            scanned++;
+            if (matches(entry.getValue(), equalTo, ranges) && (orderBy == null || hasPath(entry.getValue(), orderBy))) {
+                matches.add(entry);
+            }
+        }
+        reads.add(scanned);
+
+        Comparator<Map.Entry<String, Map<String, Object>>> order = Map.Entry.comparingByKey();
+        if (orderBy != null) {
+            order = Comparator.<Map.Entry<String, Map<String, Object>>, Object>comparing(
+                    entry -> valueAt(entry.getValue(), orderBy), DocumentQuery::compareValues).thenComparing(order);
+        }
+        if (query.descending()) {
+            order = order.reversed();
+        }
+        matches.sort(order);
+
+        int from = 0;
+        if (query.startAfter() != null) {
+            Map<String, Object> cursor = source.documents.get(query.startAfter());
+            if (cursor == null || orderBy != null && !hasPath(cursor, orderBy)) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException(
+                        "El documento de startAfter no existe: " + query.startAfter()));
+            }
+            Map.Entry<String, Map<String, Object>> position = Map.entry(query.startAfter(), cursor);
+            while (from < matches.size() && order.compare(matches.get(from), position) <= 0) {
+                from++;
+            }
+        }
+        List<Document> documents = new ArrayList<>(Math.min(query.limit(), matches.size() - from));
+        for (int i = from; i < matches.size() && documents.size() < query.limit(); i++) {
+            documents.add(new Document(matches.get(i).getKey(), project(matches.get(i).getValue(), query.fields())));
+        }
+        return CompletableFuture.completedFuture(documents);
+    }
+
+    private static boolean matches(Map<String, Object> document, Map<String, Object> equalTo,
+                                   List<DocumentQuery.Range> ranges) {
+        for (Map.Entry<String, Object> filter : equalTo.entrySet()) {
+            if (filter.getValue() == null
+                    ? !hasPath(document, filter.getKey()) || valueAt(document, filter.getKey()) != null
+                    : !indexKey(filter.getValue()).equals(indexKey(valueAt(document, filter.getKey())))) {
+                return false;
+            }
+        }
+        for (DocumentQuery.Range range : ranges) {
+            if (!range.contains(valueAt(document, range.field()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> aggregate(String collection, String field, Object value, String groupField,
+                                                    String sumField) {
+        MemoryCollection source = collections.get(collection);
+        if (source == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        Map<Object, double[]> groups = new LinkedHashMap<>();
+        Iterable<Map.Entry<String, Map<String, Object>>> documents = field == null
+                ? source.documents.entrySet()
+                : matching(source, field, value, null);
+        long scanned = 0;
+        for (Map.Entry<String, Map<String, Object>> entry : documents) {
+            scanned++;
+            if (valueAt(entry.getValue(), sumField) instanceof Number number) {
+                double[] group = groups.computeIfAbsent(valueAt(entry.getValue(), groupField), key -> new double[2]);
+                group[0]++;
+                group[1] += number.doubleValue();
+            }
+        }
+        reads.add(scanned);
+        List<Group> result = new ArrayList<>(groups.size());
+        groups.forEach((key, group) -> result.add(new Group(key, (long) group[0], group[1])));
+        return CompletableFuture.completedFuture(result);
+    }
+
+    /**
+     * Documentos cuyo campo es igual a value, en orden de id y después de startAfter. Con un valor no nulo usa el
+     * índice del campo; la igualdad con null no se indexa y recorre la colección.
+     */
+    private Iterable<Map.Entry<String, Map<String, Object>>> matching(MemoryCollection source, String field, Object value,
+                                                                      String startAfter) {
+        boolean from = startAfter != null && !startAfter.isBlank();
+        Object key = indexKey(normalize(value));
+        List<Map.Entry<String, Map<String, Object>>> matches = new ArrayList<>();
+        if (key == null) {
+            NavigableMap<String, Map<String, Object>> range = from ? source.documents.tailMap(startAfter, false) : source.documents;
+            for (Map.Entry<String, Map<String, Object>> entry : range.entrySet()) {
+                if (hasPath(entry.getValue(), field) && valueAt(entry.getValue(), field) == null) {
+                    matches.add(entry);
+                }
+            }
+            return matches;
+        }
+        indexedQueries.increment();
+        NavigableSet<String> ids = source.index(field).get(key);
+        if (ids == null) {
+            return matches;
+        }
+        for (String id : from ? ids.tailSet(startAfter, false) : ids) {
+            Map<String, Object> document = source.documents.get(id);
+            // Una escritura concurrente pudo cambiar el documento entre el índice y esta lectura
+            if (document != null && key.equals(indexKey(valueAt(document, field)))) {
+                matches.add(Map.entry(id, document));
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public CompletableFuture<String> update(String collection, String id, Map<String, Object> data) {
+        MemoryCollection target = collections.get(collection);
+        if (target == null) {
+            return CompletableFuture.failedFuture(notFound(collection, id));
+        }
+        target.lock.lock();
+        try {
+            Map<String, Object> existing = target.documents.get(id);
+            if (existing == null) {
+                return CompletableFuture.failedFuture(notFound(collection, id));
+            }
+            target.write(id, merge(existing, normalizeDocument(data)));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            target.lock.unlock();
+        }
+        writes.increment();
+        return CompletableFuture.completedFuture(now());
+    }
+
+    @Override
+    public CompletableFuture<String> delete(String collection, String id) {
+        MemoryCollection target = collections.get(collection);
+        if (target != null) {
+            target.lock.lock();
+            try {
+                target.write(id, null);
+            } finally {
+                target.lock.unlock();
+            }
+        }
+        writes.increment();
+        return CompletableFuture.completedFuture(now());
+    }
+
+    @Override
+    public CompletableFuture<Void> commit(String collection, List<Write> batch) {
+        MemoryCollection target = collection(collection);
+        for (int from = 0; from < batch.size(); from += FirestoreBatches.MAX_WRITES_PER_BATCH) {
+            List<Write> chunk = batch.subList(from, Math.min(from + FirestoreBatches.MAX_WRITES_PER_BATCH, batch.size()));
+            List<Map<String, Object>> documents = new ArrayList<>(chunk.size());
+            try {
+                for (Write write : chunk) {
+                    documents.add(write.data() == null ? null : normalizeDocument(write.data()));
+                }
+            } catch (IllegalArgumentException e) {
+                // Como en Firestore el lote es atómico: si una escritura no es válida no se aplica ninguna
+                chunk.forEach(write -> write.result().fail(500, "Error al confirmar el lote: " + e.getMessage()));
+                continue;
+            }
+
+            target.lock.lock();
+            try {
+                List<Map<String, Object>> resolved;
+                try {
+                    resolved = withUpdatesMerged(target, collection, chunk, documents);
+                } catch (NoSuchElementException e) {
+                    chunk.forEach(write -> write.result().fail(500, "Error al confirmar el lote: " + e.getMessage()));
+                    continue;
+                }
+                for (int i = 0; i < chunk.size(); i++) {
+                    target.write(chunk.get(i).id(), resolved.get(i));
+                }
+            } finally {
+                target.lock.unlock();
+            }
+            writes.add(chunk.size());
+            String updateTime = now();
+            for (Write write : chunk) {
+                write.result().succeed("create".equals(write.result().getOperation()) ? 201 : 200, updateTime);
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public Bulk openBulk(String collection, int maxOpsPerSecond) {
+        return new Bulk() {
+            @Override
+            public CompletableFuture<String> set(String id, Map<String, Object> data) {
+                return InMemoryDocumentStore.this.set(collection, id, data);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> byCollection = new LinkedHashMap<>();
+        for (Map.Entry<String, MemoryCollection> entry : new TreeMap<>(collections).entrySet()) {
+            byCollection.put(entry.getKey(), Map.of(
+                    "documents", entry.getValue().documents.size(),
+                    "indexedFields", new TreeSet<>(entry.getValue().indexes.keySet())));
+        }
+        return Map.of(
+                "backend", backend(),
+                "collections", byCollection,
+                "reads", reads.sum(),
+                "writes", writes.sum(),
+                "indexedQueries", indexedQueries.sum());
+    }
+
+    /**
+     * Sustituye los cambios de cada update e increment por el documento completo resultante (con lock tomado),
+     * teniendo en cuenta las escrituras anteriores del mismo lote; un update falla si el documento no existe
+     */
+    private static List<Map<String, Object>> withUpdatesMerged(MemoryCollection target, String collection,
+                                                               List<Write> chunk, List<Map<String, Object>> documents) {
+        List<Map<String, Object>> resolved = new ArrayList<>(documents);
+        Map<String, Map<String, Object>> written = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Write write = chunk.get(i);
+            if (write.kind() == Write.Kind.UPDATE || write.kind() == Write.Kind.INCREMENT) {
+                Map<String, Object> existing = written.containsKey(write.id())
+                        ? written.get(write.id())
+                        : target.documents.get(write.id());
+                if (write.kind() == Write.Kind.INCREMENT) {
+                    resolved.set(i, increment(existing, documents.get(i)));
+                } else if (existing == null) {
+                    throw notFound(collection, write.id());
+                } else {
+                    resolved.set(i, merge(existing, documents.get(i)));
+                }
+            }
+            written.put(write.id(), resolved.get(i));
+        }
+        return resolved;
+    }
+
+    private MemoryCollection collection(String name) {
+        return collections.computeIfAbsent(name, key -> new MemoryCollection());
+    }
+
+    private static List<Document> toDocuments(Map<String, Map<String, Object>> range, int limit, List<String> fields) {
+        List<Document> documents = new ArrayList<>(Math.min(limit, 1024));
+        for (Map.Entry<String, Map<String, Object>> entry : range.entrySet()) {
+            if (documents.size() == limit) {
+                break;
+            }
+            documents.add(new Document(entry.getKey(), project(entry.getValue(), fields)));
+        }
+        return documents;
+    }
+
+    /**
+     * Copia del documento con solo los campos pedidos (null = todos)
+     */
+    static Map<String, Object> project(Map<String, Object> document, List<String> fields) {
+        if (fields == null) {
+            return new HashMap<>(document);
+        }
+        Map<String, Object> data = new HashMap<>(fields.size() * 2);
+        for (String field : fields) {
+            if (hasPath(document, field)) {
+                setPath(data, field, valueAt(document, field));
+            }
+        }
+        return data;
+    }
+
+    private static String now() {
+        return Timestamp.now().toString();
+    }
+
+    private static NoSuchElementException notFound(String collection, String id) {
+        return new NoSuchElementException("No existe el documento " + collection + "/" + id);
+    }
+
+    /**
+     * Copia inmutable del documento con los tipos que guardaría Firestore
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> normalizeDocument(Map<String, ?> data) {
+        return (Map<String, Object>) normalize(data);
+    }
+
+    static Object normalize(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Long
+                || value instanceof Double || value instanceof Timestamp || value instanceof GeoPoint || value instanceof Blob) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float number) {
+            return number.doubleValue();
+        }
+        if (value instanceof Date date) {
+            return Timestamp.of(date);
+        }
+        if (value instanceof Enum<?> constant) {
+            return constant.name();
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>(map.size() * 2);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String key)) {
+                    throw new IllegalArgumentException("Las claves de un documento deben ser texto");
+                }
+                copy.put(key, normalize(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof Collection<?> collection) {
+            List<Object> copy = new ArrayList<>(collection.size());
+            for (Object item : collection) {
+                copy.add(normalize(item));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        throw new IllegalArgumentException("Tipo no soportado en el almacén en memoria: " + value.getClass().getName());
+    }
+
+    /**
+     * Firestore compara los números por valor: 2 y 2.0 son iguales en una consulta
+     */
+    private static Object indexKey(Object value) {
+        if (value instanceof Double number && number == Math.rint(number) && Math.abs(number) < 0x1p53) {
+            return number.longValue();
+        }
+        return value;
+    }
+
+    static Object valueAt(Map<String, Object> document, String path) {
+        Object current = document;
+        for (String part : path.split("\\.")) {
+            if (!(current instanceof Map<?, ?> map)) {
+                return null;
+            }
+            current = map.get(part);
+        }
+        return current;
+    }
+
+    static boolean hasPath(Map<String, Object> document, String path) {
+        int dot = path.lastIndexOf('.');
+        Object parent = dot < 0 ? document : valueAt(document, path.substring(0, dot));
+        return parent instanceof Map<?, ?> map && map.containsKey(path.substring(dot + 1));
+    }
+
+    /**
+     * Copia de existing con los cambios aplicados; las claves con punto de changes son rutas anidadas
+     */
+    static Map<String, Object> merge(Map<String, Object> existing, Map<String, Object> changes) {
+        Map<String, Object> merged = new HashMap<>(existing);
+        for (Map.Entry<String, Object> entry : changes.entrySet()) {
+            setPath(merged, entry.getKey(), entry.getValue());
+        }
+        return normalizeDocument(merged);
+    }
+
+    /**
+     * Copia de existing (null si no existe) con los valores numéricos de increments sumados a sus campos. Como con
+     * FieldValue.increment, un campo que no es numérico toma el valor del incremento y long + long sigue siendo long.
+     */
+    static Map<String, Object> increment(Map<String, Object> existing, Map<String, Object> increments) {
+        Map<String, Object> merged = existing == null ? new HashMap<>() : new HashMap<>(existing);
+        for (Map.Entry<String, Object> entry : increments.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Number by && merged.get(entry.getKey()) instanceof Number current) {
+                value = by instanceof Long && current instanceof Long
+                        ? (Object) (current.longValue() + by.longValue())
+                        : current.doubleValue() + by.doubleValue();
+            }
+            merged.put(entry.getKey(), value);
+        }
+        return normalizeDocument(merged);
+    }
+
+    @SuppressWarnings("unchecked")
+    static void setPath(Map<String, Object> target, String path, Object value) {
+        int dot = path.indexOf('.');
+        if (dot < 0) {
+            target.put(path, value);
+            return;
+        }
+        String head = path.substring(0, dot);
+        Map<String, Object> child = target.get(head) instanceof Map<?, ?> existing
+                ? new HashMap<>((Map<String, Object>) existing)
+                : new HashMap<>();
+        setPath(child, path.substring(dot + 1), value);
+        target.put(head, child);
+    }
+
+    private static final class MemoryCollection {
+        final ConcurrentSkipListMap<String, Map<String, Object>> documents = new ConcurrentSkipListMap<>();
+        // campo -> valor -> ids ordenados (findBy devuelve en orden de id sin ordenar en cada consulta)
+        final Map<String, Map<Object, NavigableSet<String>>> indexes = new ConcurrentHashMap<>();
+        final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Se llama con lock tomado; document null elimina
+         */
+        void write(String id, Map<String, Object> document) {
+            Map<String, Object> previous = document == null ? documents.remove(id) : documents.put(id, document);
+            for (Map.Entry<String, Map<Object, NavigableSet<String>>> index : indexes.entrySet()) {
+                Object before = previous == null ? null : indexKey(valueAt(previous, index.getKey()));
+                Object after = document == null ? null : indexKey(valueAt(document, index.getKey()));
+                if (Objects.equals(before, after)) {
+                    continue;
+                }
+                if (before != null) {
+                    Set<String> ids = index.getValue().get(before);
+                    if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                        index.getValue().remove(before);
+                    }
+                }
+                if (after != null) {
+                    index.getValue().computeIfAbsent(after, key -> new ConcurrentSkipListSet<>()).add(id);
+                }
+            }
+        }
+
+        /**
+         * El índice de un campo se construye con la primera consulta; desde ahí lo mantiene write
+         */
+        Map<Object, NavigableSet<String>> index(String field) {
+            Map<Object, NavigableSet<String>> index = indexes.get(field);
+            if (index != null) {
+                return index;
+            }
+            lock.lock();
+            try {
+                index = indexes.get(field);
+                if (index == null) {
+                    index = new ConcurrentHashMap<>();
+                    for (Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
+                        Object key = indexKey(valueAt(entry.getValue(), field));
+                        if (key != null) {
+                            index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(entry.getKey());
+                        }
+                    }
+                    indexes.put(field, index);
+                }
+                return index;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,945 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.GeoPoint;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DocumentStore sobre MySQL (storage.backend=jdbc) con el pool de JdbcConfig.
+ * devices y user_devices tienen una columna por campo, con índices sobre categoria y userId, así que las consultas por
+ * usuario y los GROUP BY de aggregate se resuelven en el servidor; las demás colecciones van a la tabla documents como JSON.
+ * Los campos sin columna, o cuyo tipo no coincide con el de la columna, se guardan en la columna extra: un documento se
+ * lee con los mismos tipos con que se escribió (Long, Double, Timestamp...). JDBC bloquea, así que cada llamada corre en
+ * un ejecutor del tamaño del pool y devuelve un CompletableFuture como los otros backends.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "jdbc")
+public class JdbcDocumentStore implements DocumentStore, DisposableBean {
+
+    enum Type { TEXT, LONG, DOUBLE, TIMESTAMP }
+
+    record Column(String field, String name, Type type) {
+    }
+
+    /**
+     * Tabla de una colección; shared = tabla documents, compartida por todas las colecciones sin tabla propia
+     */
+    record Table(String name, List<Column> columns, String jsonColumn, boolean shared) {
+
+        Column column(String field) {
+            for (Column column : columns) {
+                if (column.field().equals(field)) {
+                    return column;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final Map<String, Table> TABLES = Map.of(
+            DeviceRepository.COLLECTION_NAME, new Table("devices", List.of(
+                    new Column("nombre", "nombre", Type.TEXT),
+                    new Column("categoria", "categoria", Type.TEXT),
+                    new Column("potenciaWatts", "potencia_watts", Type.LONG),
+                    new Column("horasUsoDiario", "horas_uso_diario", Type.DOUBLE),
+                    new Column("diasUsoMensual", "dias_uso_mensual", Type.LONG)), "extra", false),
+            "user_devices", new Table("user_devices", List.of(
+                    new Column("userId", "user_id", Type.TEXT),
+                    new Column("deviceId", "device_id", Type.TEXT),
+                    new Column("quantity", "quantity", Type.LONG),
+                    new Column("dailyHours", "daily_hours", Type.DOUBLE),
+                    new Column("weeklyDays", "weekly_days", Type.LONG),
+                    new Column("createdAt", "created_at", Type.TIMESTAMP),
+                    new Column("kwhMonth", "kwh_month", Type.DOUBLE),
+                    new Column("category", "category", Type.TEXT)), "extra", false));
+
+    static final Table DOCUMENTS = new Table("documents", List.of(), "data", true);
+
+    // Claves con las que se guardan en JSON los tipos de Firestore que JSON no tiene
+    private static final String TIMESTAMP_KEY = "$timestamp";
+    private static final String GEOPOINT_KEY = "$geopoint";
+    private static final String BYTES_KEY = "$bytes";
+
+    private static final DateTimeFormatter SQL_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private static final int MAX_IDS_PER_QUERY = 500;
+    private static final int MAX_BULK_FLUSHES = 4;
+
+    private final DataSource dataSource;
+    private final ExecutorService executor;
+    private final ObjectMapper json = new ObjectMapper().enable(DeserializationFeature.USE_LONG_FOR_INTS);
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public JdbcDocumentStore(DataSource dataSource, @Value("${storage.jdbc.pool-size:16}") int poolSize) {
+        this.dataSource = dataSource;
+        // Un hilo por conexión: más hilos solo esperarían al pool
+        this.executor = Executors.newFixedThreadPool(Math.max(1, poolSize),
+                Thread.ofPlatform().name("jdbc-store-", 0).daemon(true).factory());
+    }
+
+    @Override
+    public String backend() {
+        return "jdbc";
+    }
+
+    @Override
+    public CompletableFuture<String> add(String collection, Map<String, Object> data) {
+        String id = DocumentStore.newId();
+        return set(collection, id, data).thenApply(updateTime -> id);
+    }
+
+    @Override
+    public CompletableFuture<String> set(String collection, String id, Map<String, Object> data) {
+        Map<String, Object> document;
+        try {
+            document = InMemoryDocumentStore.normalizeDocument(data);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Table table = table(collection);
+        return call(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(upsertSql(table))) {
+                bindUpsert(statement, table, collection, id, document);
+                statement.executeUpdate();
+            }
+            writes.increment();
+            return now();
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> get(String collection, String id) {
+        Table table = table(collection);
+        return call(connection -> {
+            Sql sql = select(table, collection).and("id = ?", id);
+            List<Document> documents = query(connection, table, sql);
+            return documents.isEmpty() ? null : documents.get(0).data();
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Map<String, Object>>> getAll(String collection, Collection<String> ids) {
+        Table table = table(collection);
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        return call(connection -> {
+            Map<String, Map<String, Object>> found = new HashMap<>(unique.size() * 2);
+            for (int from = 0; from < unique.size(); from += MAX_IDS_PER_QUERY) {
+                List<String> chunk = unique.subList(from, Math.min(from + MAX_IDS_PER_QUERY, unique.size()));
+                Sql sql = select(table, collection).and("id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                        chunk.toArray());
+                for (Document document : query(connection, table, sql)) {
+                    found.put(document.id(), document.data());
+                }
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> list(String collection) {
+        Table table = table(collection);
+        return call(connection -> query(connection, table, select(table, collection).append(" ORDER BY id")));
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> page(String collection, int limit, String startAfter, List<String> fields) {
+        Table table = table(collection);
+        return call(connection -> project(query(connection, table, pageSql(select(table, collection), limit, startAfter)), fields));
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> findBy(String collection, String field, Object value) {
+        return pageBy(collection, field, value, Integer.MAX_VALUE, null, null);
+    }
+
+    @Override
+    public CompletableFuture<List<Document>> pageBy(String collection, String field, Object value, int limit,
+                                                    String startAfter, List<String> fields) {
+        Table table = table(collection);
+        Sql sql;
+        try {
+            sql = equalTo(select(table, collection), table, field, InMemoryDocumentStore.normalize(value));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return call(connection -> project(query(connection, table, pageSql(sql, limit, startAfter)), fields));
+    }
+
+    /**
+     * WHERE y ORDER BY en el servidor con cursor por clave (col, id), así cada página lee solo sus filas del índice.
+     * El campo ordenado y los rangos deben tener columna propia; los documentos sin valor en esa columna no entran.
+     */
+    @Override
+    public CompletableFuture<List<Document>> query(String collection, DocumentQuery query) {
+        Table table = table(collection);
+        Column order = null;
+        Sql sql = select(table, collection);
+        try {
+            for (Map.Entry<String, Object> filter : query.equalTo().entrySet()) {
+                equalTo(sql, table, filter.getKey(), InMemoryDocumentStore.normalize(filter.getValue()));
+            }
+            for (DocumentQuery.Range range : query.ranges()) {
+                Column column = rangeColumn(table, range.field());
+                Object min = InMemoryDocumentStore.normalize(range.min());
+                Object max = InMemoryDocumentStore.normalize(range.max());
+                if (min != null) {
+                    sql.and(column.name() + " >= ?", bound(column, min));
+                }
+                if (max != null) {
+                    sql.and(column.name() + " < ?", bound(column, max));
+                }
+            }
+            if (query.orderBy() != null) {
+                order = rangeColumn(table, query.orderBy());
+                sql.and(order.name() + " IS NOT NULL");
+            }
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Column orderColumn = order;
+        String direction = query.descending() ? " DESC" : "";
+        String after = query.descending() ? " < ?" : " > ?";
+        return call(connection -> {
+            if (query.startAfter() != null) {
+                if (orderColumn == null) {
+                    requireCursor(connection, table, collection, query.startAfter());
+                    sql.and("id" + after, query.startAfter());
+                } else {
+                    Object cursor = cursorValue(connection, table, orderColumn, query.startAfter());
+                    sql.and("(" + orderColumn.name() + after + " OR (" + orderColumn.name() + " = ? AND id" + after + "))",
+                            cursor, cursor, query.startAfter());
+                }
+            }
+            sql.append(orderColumn == null
+                    ? " ORDER BY id" + direction + " LIMIT ?"
+                    : " ORDER BY " + orderColumn.name() + direction + ", id" + direction + " LIMIT ?", query.limit());
+            return project(query(connection, table, sql), query.fields());
+        });
+    }
+
+    private static Column rangeColumn(Table table, String field) {
+        Column column = table.column(field);
+        if (column == null) {
+            throw new IllegalArgumentException("El campo " + field + " no tiene columna en la tabla " + table.name()
+                    + "; no se puede ordenar ni filtrar por rango");
+        }
+        return column;
+    }
+
+    private static Object bound(Column column, Object value) {
+        if (!fits(column, value) && !(value instanceof Number && (column.type() == Type.LONG || column.type() == Type.DOUBLE))) {
+            throw new IllegalArgumentException("Valor de tipo " + value.getClass().getSimpleName()
+                    + " no válido para el rango sobre " + column.field());
+        }
+        return value instanceof Timestamp timestamp ? toLocalDateTime(timestamp) : value;
+    }
+
+    private static void requireCursor(Connection connection, Table table, String collection, String id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM " + table.name() + " WHERE "
+                + (table.shared() ? "collection = ? AND " : "") + "id = ?")) {
+            bindKey(statement, table, collection, id);
+            try (ResultSet rows = statement.executeQuery()) {
+                if (!rows.next()) {
+                    throw new IllegalArgumentException("El documento de startAfter no existe: " + id);
+                }
+            }
+        }
+    }
+
+    private static Object cursorValue(Connection connection, Table table, Column column, String id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT " + column.name() + " FROM " + table.name() + " WHERE id = ?")) {
+            statement.setString(1, id);
+            try (ResultSet rows = statement.executeQuery()) {
+                Object value = rows.next() ? rows.getObject(1) : null;
+                if (value == null) {
+                    throw new IllegalArgumentException("El documento de startAfter no existe: " + id);
+                }
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Un GROUP BY en el servidor; con user_devices filtrado por userId lo resuelve el índice (user_id, category, kwh_month)
+     */
+    @Override
+    public CompletableFuture<List<Group>> aggregate(String collection, String field, Object value, String groupField,
+                                                    String sumField) {
+        Table table = table(collection);
+        Column groupColumn = table.column(groupField);
+        Column sumColumn = table.column(sumField);
+        if (sumColumn != null && sumColumn.type() != Type.LONG && sumColumn.type() != Type.DOUBLE) {
+            sumColumn = null;
+        }
+
+        Sql sql = new Sql();
+        List<Object> selectParams = new ArrayList<>();
+        String groupExpression;
+        if (groupColumn != null) {
+            groupExpression = groupColumn.name();
+        } else {
+            groupExpression = "JSON_EXTRACT(" + table.jsonColumn() + ", ?)";
+            selectParams.add(jsonPath(groupField));
+        }
+        String sumExpression;
+        String sumFilter;
+        List<Object> filterParams = new ArrayList<>();
+        if (sumColumn != null) {
+            sumExpression = sumColumn.name();
+            sumFilter = sumColumn.name() + " IS NOT NULL";
+        } else {
+            sumExpression = "CAST(JSON_EXTRACT(" + table.jsonColumn() + ", ?) AS DOUBLE)";
+            selectParams.add(jsonPath(sumField));
+            sumFilter = "JSON_TYPE(JSON_EXTRACT(" + table.jsonColumn() + ", ?)) IN ('INTEGER', 'UNSIGNED INTEGER', 'DOUBLE', 'DECIMAL')";
+            filterParams.add(jsonPath(sumField));
+        }
+        sql.append("SELECT " + groupExpression + ", COUNT(*), SUM(" + sumExpression + ") FROM " + table.name() + " WHERE 1 = 1",
+                selectParams.toArray());
+        if (table.shared()) {
+            sql.and("collection = ?", collection);
+        }
+        sql.and(sumFilter, filterParams.toArray());
+        if (field != null) {
+            try {
+                equalTo(sql, table, field, InMemoryDocumentStore.normalize(value));
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        // Por posición: la expresión JSON del SELECT lleva un parámetro y no se puede repetir tal cual
+        sql.append(" GROUP BY 1");
+
+        Column group = groupColumn;
+        return call(connection -> {
+            List<Group> result = new ArrayList<>();
+            try (PreparedStatement statement = sql.prepare(connection); ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    Object key = group != null ? read(rows, 1, group.type()) : decodeValue(rows.getString(1));
+                    result.add(new Group(key, rows.getLong(2), rows.getDouble(3)));
+                }
+            }
+            reads.add(result.size());
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> update(String collection, String id, Map<String, Object> data) {
+        Table table = table(collection);
+        return transaction(connection -> {
+            Sql sql = select(table, collection).and("id = ?", id).append(" FOR UPDATE");
+            List<Document> existing = query(connection, table, sql);
+            if (existing.isEmpty()) {
+                throw new NoSuchElementException("No existe el documento " + collection + "/" + id);
+            }
+            Map<String, Object> merged = InMemoryDocumentStore.merge(existing.get(0).data(),
+                    InMemoryDocumentStore.normalizeDocument(data));
+            try (PreparedStatement statement = connection.prepareStatement(upsertSql(table))) {
+                bindUpsert(statement, table, collection, id, merged);
+                statement.executeUpdate();
+            }
+            writes.increment();
+            return now();
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> delete(String collection, String id) {
+        Table table = table(collection);
+        return call(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(deleteSql(table))) {
+                bindKey(statement, table, collection, id);
+                statement.executeUpdate();
+            }
+            writes.increment();
+            return now();
+        });
+    }
+
+    /**
+     * Cada lote de 500 es una transacción con las escrituras enviadas por addBatch/executeBatch
+     * (con rewriteBatchedStatements=true el driver las agrupa en pocas sentencias)
+     */
+    @Override
+    public CompletableFuture<Void> commit(String collection, List<Write> batch) {
+        Table table = table(collection);
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += FirestoreBatches.MAX_WRITES_PER_BATCH) {
+            List<Write> chunk = batch.subList(from, Math.min(from + FirestoreBatches.MAX_WRITES_PER_BATCH, batch.size()));
+            List<Map<String, Object>> documents = new ArrayList<>(chunk.size());
+            try {
+                for (Write write : chunk) {
+                    documents.add(write.data() == null ? null : InMemoryDocumentStore.normalizeDocument(write.data()));
+                }
+            } catch (IllegalArgumentException e) {
+                chunk.forEach(write -> write.result().fail(500, "Error al confirmar el lote: " + e.getMessage()));
+                continue;
+            }
+            chunks.add(transaction(connection -> {
+                executeBatch(connection, table, collection, chunk, withUpdatesMerged(connection, table, collection, chunk, documents));
+                return now();
+            }).handle((updateTime, error) -> {
+                for (Write write : chunk) {
+                    BatchItemResult result = write.result();
+                    if (error != null) {
+                        result.fail(500, "Error al confirmar el lote: " + FirestoreFutures.unwrap(error).getMessage());
+                    } else {
+                        result.succeed("create".equals(result.getOperation()) ? 201 : 200, updateTime);
+                    }
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Agrupa los set en lotes: cuando hay pocos lotes en curso se envía lo acumulado de inmediato, y con más carga
+     * se acumula hasta 500 por lote. maxOpsPerSecond no aplica: el pool ya limita la concurrencia.
+     */
+    @Override
+    public Bulk openBulk(String collection, int maxOpsPerSecond) {
+        return new Bulk() {
+            private List<Write> buffered = new ArrayList<>();
+            private List<CompletableFuture<String>> callbacks = new ArrayList<>();
+            private final List<CompletableFuture<Void>> flushes = new ArrayList<>();
+            private int inFlight;
+
+            @Override
+            public synchronized CompletableFuture<String> set(String id, Map<String, Object> data) {
+                CompletableFuture<String> done = new CompletableFuture<>();
+                buffered.add(new Write(new BatchItemResult("set", 0, id), id, data));
+                callbacks.add(done);
+                if (inFlight < MAX_BULK_FLUSHES || buffered.size() >= FirestoreBatches.MAX_WRITES_PER_BATCH) {
+                    flush();
+                }
+                return done;
+            }
+
+            @Override
+            public void close() {
+                CompletableFuture<Void> all;
+                synchronized (this) {
+                    flush();
+                    all = CompletableFuture.allOf(flushes.toArray(new CompletableFuture[0]));
+                }
+                all.join();
+            }
+
+            private synchronized void flush() {
+                if (buffered.isEmpty()) {
+                    return;
+                }
+                List<Write> sent = buffered;
+                List<CompletableFuture<String>> waiting = callbacks;
+                buffered = new ArrayList<>();
+                callbacks = new ArrayList<>();
+                inFlight++;
+                flushes.removeIf(CompletableFuture::isDone);
+                flushes.add(commit(collection, sent).thenRun(() -> {
+                    for (int i = 0; i < sent.size(); i++) {
+                        BatchItemResult result = sent.get(i).result();
+                        if (result.isSuccess()) {
+                            waiting.get(i).complete(result.getUpdateTime());
+                        } else {
+                            waiting.get(i).completeExceptionally(new IllegalStateException(result.getError()));
+                        }
+                    }
+                    synchronized (this) {
+                        inFlight--;
+                        flush();
+                    }
+                }));
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", backend());
+        stats.put("reads", reads.sum());
+        stats.put("writes", writes.sum());
+        stats.put("batches", batches.sum());
+        if (dataSource instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            stats.put("pool", Map.of(
+                    "active", pool.getActiveConnections(),
+                    "idle", pool.getIdleConnections(),
+                    "total", pool.getTotalConnections(),
+                    "waiting", pool.getThreadsAwaitingConnection()));
+        }
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    static Table table(String collection) {
+        return TABLES.getOrDefault(collection, DOCUMENTS);
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    private <T> CompletableFuture<T> call(SqlWork<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return work.run(connection);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private <T> CompletableFuture<T> transaction(SqlWork<T> work) {
+        return call(connection -> {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+
+    /**
+     * Sustituye los cambios de cada update e increment por el documento completo resultante, leyendo los actuales
+     * con FOR UPDATE dentro de la transacción del lote; falla si el documento de un update ya no existe
+     */
+    private List<Map<String, Object>> withUpdatesMerged(Connection connection, Table table, String collection,
+                                                        List<Write> chunk, List<Map<String, Object>> documents) throws SQLException {
+        Set<String> ids = new LinkedHashSet<>();
+        chunk.stream().filter(write -> write.kind() == Write.Kind.UPDATE || write.kind() == Write.Kind.INCREMENT)
+                .forEach(write -> ids.add(write.id()));
+        if (ids.isEmpty()) {
+            return documents;
+        }
+        Map<String, Map<String, Object>> current = new HashMap<>(ids.size() * 2);
+        Sql sql = select(table, collection).and("id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")",
+                ids.toArray()).append(" FOR UPDATE");
+        for (Document document : query(connection, table, sql)) {
+            current.put(document.id(), document.data());
+        }
+        // Un lote puede tocar el mismo documento varias veces: cada update parte de la escritura anterior
+        List<Map<String, Object>> resolved = new ArrayList<>(documents);
+        for (int i = 0; i < chunk.size(); i++) {
+            Write write = chunk.get(i);
+            if (write.kind() == Write.Kind.INCREMENT) {
+                resolved.set(i, InMemoryDocumentStore.increment(current.get(write.id()), documents.get(i)));
+            } else if (write.kind() == Write.Kind.UPDATE) {
+                Map<String, Object> existing = current.get(write.id());
+                if (existing == null) {
+                    throw new NoSuchElementException("No existe el documento " + collection + "/" + write.id());
+                }
+                resolved.set(i, InMemoryDocumentStore.merge(existing, documents.get(i)));
+            }
+            if (ids.contains(write.id())) {
+                current.put(write.id(), resolved.get(i));
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Ejecuta las escrituras en orden; las secuencias de set y de delete van en un executeBatch cada una
+     */
+    private void executeBatch(Connection connection, Table table, String collection, List<Write> chunk,
+                              List<Map<String, Object>> documents) throws SQLException {
+        try (PreparedStatement upsert = connection.prepareStatement(upsertSql(table));
+             PreparedStatement delete = connection.prepareStatement(deleteSql(table))) {
+            PreparedStatement pending = null;
+            for (int i = 0; i < chunk.size(); i++) {
+                Map<String, Object> document = documents.get(i);
+                PreparedStatement statement = document == null ? delete : upsert;
+                if (pending != null && pending != statement) {
+                    pending.executeBatch();
+                    batches.increment();
+                }
+                if (document == null) {
+                    bindKey(delete, table, collection, chunk.get(i).id());
+                } else {
+                    bindUpsert(upsert, table, collection, chunk.get(i).id(), document);
+                }
+                statement.addBatch();
+                pending = statement;
+            }
+            if (pending != null) {
+                pending.executeBatch();
+                batches.increment();
+            }
+        }
+        writes.add(chunk.size());
+    }
+
+    private static String upsertSql(Table table) {
+        if (table.shared()) {
+            return "INSERT INTO " + table.name() + " (collection, id, " + table.jsonColumn() + ") VALUES (?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE " + table.jsonColumn() + " = VALUES(" + table.jsonColumn() + ")";
+        }
+        List<String> names = new ArrayList<>();
+        table.columns().forEach(column -> names.add(column.name()));
+        names.add(table.jsonColumn());
+        List<String> updates = new ArrayList<>();
+        names.forEach(name -> updates.add(name + " = VALUES(" + name + ")"));
+        return "INSERT INTO " + table.name() + " (id, " + String.join(", ", names) + ") VALUES (?, "
+                + String.join(", ", Collections.nCopies(names.size(), "?")) + ") ON DUPLICATE KEY UPDATE "
+                + String.join(", ", updates);
+    }
+
+    private static String deleteSql(Table table) {
+        return "DELETE FROM " + table.name() + " WHERE " + (table.shared() ? "collection = ? AND " : "") + "id = ?";
+    }
+
+    /**
+     * Parámetros de "[collection = ? AND] id = ?"
+     */
+    private static void bindKey(PreparedStatement statement, Table table, String collection, String id) throws SQLException {
+        int index = 1;
+        if (table.shared()) {
+            statement.setString(index++, collection);
+        }
+        statement.setString(index, id);
+    }
+
+    /**
+     * Reparte el documento normalizado entre las columnas y el JSON de extra/data
+     */
+    private void bindUpsert(PreparedStatement statement, Table table, String collection, String id,
+                            Map<String, Object> document) throws SQLException {
+        int index = 1;
+        if (table.shared()) {
+            statement.setString(index++, collection);
+            statement.setString(index++, id);
+            statement.setString(index, encode(document));
+            return;
+        }
+        statement.setString(index++, id);
+        Map<String, Object> extra = new LinkedHashMap<>(document);
+        for (Column column : table.columns()) {
+            Object value = document.get(column.field());
+            if (fits(column, value)) {
+                write(statement, index++, column.type(), value);
+                extra.remove(column.field());
+            } else {
+                // Sin valor o de otro tipo: columna NULL y el valor (o el null explícito) queda en extra
+                statement.setNull(index++, sqlType(column.type()));
+            }
+        }
+        if (extra.isEmpty()) {
+            statement.setNull(index, Types.VARCHAR);
+        } else {
+            statement.setString(index, encode(extra));
+        }
+    }
+
+    private Sql select(Table table, String collection) {
+        Sql sql = new Sql();
+        if (table.shared()) {
+            return sql.append("SELECT id, " + table.jsonColumn() + " FROM " + table.name() + " WHERE collection = ?", collection);
+        }
+        List<String> names = new ArrayList<>();
+        table.columns().forEach(column -> names.add(column.name()));
+        names.add(table.jsonColumn());
+        return sql.append("SELECT id, " + String.join(", ", names) + " FROM " + table.name() + " WHERE 1 = 1");
+    }
+
+    private static Sql pageSql(Sql sql, int limit, String startAfter) {
+        if (startAfter != null && !startAfter.isBlank()) {
+            sql.and("id > ?", startAfter);
+        }
+        return sql.append(" ORDER BY id LIMIT ?", limit);
+    }
+
+    /**
+     * Igualdad como en Firestore: con columna y valor del mismo tipo se compara la columna (y usa su índice);
+     * si no, se compara el valor dentro del JSON
+     */
+    private Sql equalTo(Sql sql, Table table, String field, Object value) {
+        Column column = table.column(field);
+        if (column != null && value == null) {
+            return sql.and(column.name() + " IS NULL");
+        }
+        if (column != null && (fits(column, value)
+                || value instanceof Number && (column.type() == Type.LONG || column.type() == Type.DOUBLE))) {
+            return sql.and(column.name() + " = ?", value instanceof Timestamp timestamp ? toLocalDateTime(timestamp) : value);
+        }
+        if (value == null) {
+            return sql.and("JSON_TYPE(JSON_EXTRACT(" + table.jsonColumn() + ", ?)) = 'NULL'", jsonPath(field));
+        }
+        return sql.and("JSON_EXTRACT(" + table.jsonColumn() + ", ?) = JSON_EXTRACT(?, '$')", jsonPath(field), encode(value));
+    }
+
+    private List<Document> query(Connection connection, Table table, Sql sql) throws SQLException {
+        List<Document> documents = new ArrayList<>();
+        try (PreparedStatement statement = sql.prepare(connection); ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                documents.add(new Document(rows.getString(1), readRow(rows, table)));
+            }
+        }
+        reads.add(documents.size());
+        return documents;
+    }
+
+    private Map<String, Object> readRow(ResultSet rows, Table table) throws SQLException {
+        Map<String, Object> data = new HashMap<>();
+        int index = 2;
+        for (Column column : table.columns()) {
+            Object value = read(rows, index++, column.type());
+            if (value != null) {
+                data.put(column.field(), value);
+            }
+        }
+        String stored = rows.getString(index);
+        if (stored != null) {
+            data.putAll(decode(stored));
+        }
+        return data;
+    }
+
+    private static List<Document> project(List<Document> documents, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return documents;
+        }
+        List<Document> projected = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            projected.add(new Document(document.id(), InMemoryDocumentStore.project(document.data(), fields)));
+        }
+        return projected;
+    }
+
+    private static boolean fits(Column column, Object value) {
+        return switch (column.type()) {
+            case TEXT -> value instanceof String;
+            case LONG -> value instanceof Long;
+            case DOUBLE -> value instanceof Double;
+            case TIMESTAMP -> value instanceof Timestamp;
+        };
+    }
+
+    private static int sqlType(Type type) {
+        return switch (type) {
+            case TEXT -> Types.VARCHAR;
+            case LONG -> Types.BIGINT;
+            case DOUBLE -> Types.DOUBLE;
+            case TIMESTAMP -> Types.TIMESTAMP;
+        };
+    }
+
+    private static void write(PreparedStatement statement, int index, Type type, Object value) throws SQLException {
+        switch (type) {
+            case TEXT -> statement.setString(index, (String) value);
+            case LONG -> statement.setLong(index, (Long) value);
+            case DOUBLE -> statement.setDouble(index, (Double) value);
+            case TIMESTAMP -> statement.setString(index, toSqlDateTime(toLocalDateTime((Timestamp) value)));
+        }
+    }
+
+    private static Object read(ResultSet rows, int index, Type type) throws SQLException {
+        Object value = switch (type) {
+            case TEXT -> rows.getString(index);
+            case LONG -> rows.getLong(index);
+            case DOUBLE -> rows.getDouble(index);
+            case TIMESTAMP -> {
+                LocalDateTime dateTime = rows.getObject(index, LocalDateTime.class);
+                yield dateTime == null ? null : Timestamp.ofTimeSecondsAndNanos(dateTime.toEpochSecond(ZoneOffset.UTC), dateTime.getNano());
+            }
+        };
+        return rows.wasNull() ? null : value;
+    }
+
+    /**
+     * Las fechas se guardan en UTC en columnas DATETIME(6), sin depender de la zona horaria de la sesión
+     */
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return LocalDateTime.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Fechas como texto con microsegundos: el driver los descarta al enviar un LocalDateTime a un servidor que se
+     * anuncia como 5.5 (MariaDB lo hace), y MySQL convierte el texto a DATETIME(6) sin perderlos
+     */
+    static String toSqlDateTime(LocalDateTime dateTime) {
+        return SQL_DATE_TIME.format(dateTime);
+    }
+
+    /**
+     * Ruta JSON de MySQL para un campo con puntos: a.b -> $."a"."b"
+     */
+    private static String jsonPath(String field) {
+        StringBuilder path = new StringBuilder("$");
+        for (String part : field.split("\\.")) {
+            path.append(".\"").append(part.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return path.toString();
+    }
+
+    private String encode(Object value) {
+        try {
+            return json.writeValueAsString(toJson(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudo convertir el documento a JSON", e);
+        }
+    }
+
+    private Map<String, Object> decode(String stored) {
+        try {
+            Map<String, Object> raw = json.readValue(stored, new TypeReference<Map<String, Object>>() {
+            });
+            Map<String, Object> data = new HashMap<>(raw.size() * 2);
+            raw.forEach((key, value) -> data.put(key, fromJson(value)));
+            return data;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("JSON inválido en la base de datos", e);
+        }
+    }
+
+    private Object decodeValue(String stored) throws SQLException {
+        if (stored == null) {
+            return null;
+        }
+        try {
+            return fromJson(json.readValue(stored, Object.class));
+        } catch (JsonProcessingException e) {
+            throw new SQLException("JSON inválido en la base de datos", e);
+        }
+    }
+
+    private static Object toJson(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return Map.of(TIMESTAMP_KEY, timestamp.toString());
+        }
+        if (value instanceof GeoPoint point) {
+            return Map.of(GEOPOINT_KEY, List.of(point.getLatitude(), point.getLongitude()));
+        }
+        if (value instanceof Blob blob) {
+            return Map.of(BYTES_KEY, Base64.getEncoder().encodeToString(blob.toBytes()));
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(map.size() * 2);
+            map.forEach((key, item) -> copy.put(key, toJson(item)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(toJson(item)));
+            return copy;
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object fromJson(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            if (map.size() == 1 && map.get(TIMESTAMP_KEY) instanceof String text) {
+                return Timestamp.parseTimestamp(text);
+            }
+            if (map.size() == 1 && map.get(GEOPOINT_KEY) instanceof List<?> point && point.size() == 2) {
+                return new GeoPoint(((Number) point.get(0)).doubleValue(), ((Number) point.get(1)).doubleValue());
+            }
+            if (map.size() == 1 && map.get(BYTES_KEY) instanceof String text) {
+                return Blob.fromBytes(Base64.getDecoder().decode(text));
+            }
+            Map<String, Object> copy = new HashMap<>(map.size() * 2);
+            ((Map<String, Object>) map).forEach((key, item) -> copy.put(key, fromJson(item)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(fromJson(item)));
+            return copy;
+        }
+        return value;
+    }
+
+    private static String now() {
+        return Timestamp.now().toString();
+    }
+
+    /**
+     * Texto SQL con sus parámetros en orden
+     */
+    private static final class Sql {
+        private final StringBuilder text = new StringBuilder();
+        private final List<Object> params = new ArrayList<>();
+
+        Sql append(String fragment, Object... values) {
+            text.append(fragment);
+            Collections.addAll(params, values);
+            return this;
+        }
+
+        Sql and(String condition, Object... values) {
+            return append(" AND " + condition, values);
+        }
+
+        PreparedStatement prepare(Connection connection) throws SQLException {
+            PreparedStatement statement = connection.prepareStatement(text.toString());
+            try {
+                for (int i = 0; i < params.size(); i++) {
+                    Object param = params.get(i);
+                    if (param instanceof LocalDateTime dateTime) {
+                        statement.setString(i + 1, toSqlDateTime(dateTime));
+                    } else {
+                        statement.setObject(i + 1, param);
+                    }
+                }
+            } catch (SQLException e) {
+                statement.close();
+                throw e;
+            }
+            return statement;
+        }
+    }
+}
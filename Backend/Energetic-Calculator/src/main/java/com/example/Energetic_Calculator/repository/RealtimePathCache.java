@@ -0,0 +1,221 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Copia local de las rutas calientes de Realtime Database (realtime.cache.paths), cada una suscrita con
+ * addValueEventListener. Cada evento de cambio reemplaza el árbol de su ruta, así que una lectura bajo esas rutas
+ * es una búsqueda en memoria sin red; si el listener se cancela la ruta se invalida y se vuelve a leer de la base
+ * hasta que se reconecte.
+ */
+@Component
+public class RealtimePathCache {
+
+    private static final Logger logger = Logger.getLogger(RealtimePathCache.class.getName());
+    private static final long RESUBSCRIBE_DELAY_SECONDS = 5;
+
+    private final FirebaseDatabase database;
+    private final List<String> paths;
+
+    // ruta suscrita -> último valor recibido; sin entrada = aún sin primer evento o invalidada
+    private final Map<String, Entry> values = new ConcurrentHashMap<>();
+    private final Map<String, ValueEventListener> listeners = new ConcurrentHashMap<>();
+    private ScheduledExecutorService resubscriber;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter events;
+
+    public RealtimePathCache(FirebaseDatabase database, @Value("${realtime.cache.paths:}") List<String> paths,
+                             MeterRegistry registry) {
+        this.database = database;
+        List<String> normalized = new ArrayList<>();
+        for (String path : paths) {
+            String root = normalize(path);
+            if (!root.isEmpty() && !normalized.contains(root)) {
+                normalized.add(root);
+            }
+        }
+        this.paths = List.copyOf(normalized);
+        this.hits = Counter.builder("realtime.cache.reads").tag("result", "hit")
+                .description("Lecturas de Realtime Database servidas por la copia local").register(registry);
+        this.misses = Counter.builder("realtime.cache.reads").tag("result", "miss")
+                .description("Lecturas de Realtime Database que fueron a la red").register(registry);
+        this.events = Counter.builder("realtime.cache.events")
+                .description("Eventos de cambio recibidos en las rutas suscritas").register(registry);
+        Gauge.builder("realtime.cache.paths.ready", values, Map::size)
+                .description("Rutas suscritas con valor local").register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (paths.isEmpty()) {
+            return;
+        }
+        resubscriber = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "realtime-cache-resubscribe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        paths.forEach(this::subscribe);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (resubscriber != null) {
+            resubscriber.shutdownNow();
+        }
+        listeners.forEach((path, listener) -> reference(path).removeEventListener(listener));
+        listeners.clear();
+        values.clear();
+    }
+
+    /**
+     * Valor local de la ruta (puede ser null si la ruta está vacía) o null si ninguna ruta suscrita la cubre
+     * o todavía no hay valor local. Los mapas y listas devueltos son inmutables.
+     */
+    public Hit get(String path) {
+        String normalized = normalize(path);
+        for (String root : paths) {
+            if (normalized.equals(root) || normalized.startsWith(root + "/")) {
+                Entry entry = values.get(root);
+                if (entry == null) {
+                    break;
+                }
+                hits.increment();
+                return new Hit(descend(entry.value(), normalized.substring(root.length())));
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public boolean isEnabled() {
+        return !paths.isEmpty();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> byPath = new LinkedHashMap<>();
+        for (String path : paths) {
+            Entry entry = values.get(path);
+            byPath.put(path, entry == null ? "pending" : entry.updatedAt().toString());
+        }
+        return Map.of(
+                "paths", byPath,
+                "hits", (long) hits.count(),
+                "misses", (long) misses.count(),
+                "events", (long) events.count());
+    }
+
+    private void subscribe(String path) {
+        ValueEventListener listener = new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                events.increment();
+                values.put(path, new Entry(freeze(snapshot.getValue()), Instant.now()));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                // El listener ya no recibe cambios: la copia dejaría de ser válida
+                logger.warning("⚠️ Listener de Realtime Database cancelado en " + path + ": " + error.getMessage());
+                values.remove(path);
+                listeners.remove(path, this);
+                if (!resubscriber.isShutdown()) {
+                    resubscriber.schedule(() -> subscribe(path), RESUBSCRIBE_DELAY_SECONDS, TimeUnit.SECONDS);
+                }
+            }
+        };
+        listeners.put(path, listener);
+        reference(path).addValueEventListener(listener);
+        logger.info("Realtime cache subscribed to '" + path + "'");
+    }
+
+    private DatabaseReference reference(String path) {
+        return database.getReference(path);
+    }
+
+    /**
+     * Ruta sin / inicial, final ni repetidas: "/meters//m1/" -> "meters/m1"
+     */
+    public static String normalize(String path) {
+        StringBuilder normalized = new StringBuilder();
+        for (String part : path.split("/")) {
+            if (!part.isEmpty()) {
+                if (!normalized.isEmpty()) {
+                    normalized.append('/');
+                }
+                normalized.append(part);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Baja por el árbol con el resto de la ruta ("/a/b"); las listas son nodos con claves 0..n
+     */
+    static Object descend(Object value, String rest) {
+        Object current = value;
+        for (String part : rest.split("/")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            if (current instanceof Map<?, ?> map) {
+                current = map.get(part);
+            } else if (current instanceof List<?> list && part.chars().allMatch(Character::isDigit)
+                    && part.length() < 10 && Integer.parseInt(part) < list.size()) {
+                current = list.get(Integer.parseInt(part));
+            } else {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Copia inmutable hecha una vez por evento, para que las lecturas devuelvan el árbol sin copiarlo
+     */
+    static Object freeze(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new HashMap<>(map.size() * 2);
+            map.forEach((key, item) -> copy.put(key, freeze(item)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(freeze(item)));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    private record Entry(Object value, Instant updatedAt) {
+    }
+
+    public record Hit(Object value) {
+    }
+}
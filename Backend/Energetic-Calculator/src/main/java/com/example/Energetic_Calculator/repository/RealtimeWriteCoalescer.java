@@ -0,0 +1,198 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupa las escrituras a Realtime Database que llegan dentro de una ventana corta en un solo updateChildren
+ * multi-ruta sobre la raíz. Varias escrituras a la misma ruta en la ventana se quedan con la última; cada futuro se
+ * completa con el CompletionListener del lote que la llevó. Si una ruta es ancestro o descendiente de otra pendiente
+ * se envía antes lo pendiente, porque updateChildren no admite las dos en la misma llamada y el orden importa.
+ * Con max-pending escrituras sin confirmar las nuevas se rechazan (503) en lugar de encolarse sin límite.
+ */
+@Component
+public class RealtimeWriteCoalescer {
+
+    private final FirebaseDatabase database;
+    private final long windowMillis;
+    private final int maxBatchPaths;
+    private final int maxPending;
+
+    // Protegidos por this
+    private TreeMap<String, Object> pending = new TreeMap<>();
+    private List<CompletableFuture<Void>> waiters = new ArrayList<>();
+    private ScheduledFuture<?> scheduled;
+    private int unacknowledged;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "realtime-write-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter writes;
+    private final Counter coalesced;
+    private final Counter flushes;
+    private final Counter rejected;
+
+    public RealtimeWriteCoalescer(FirebaseDatabase database,
+                                  @Value("${realtime.write.coalesce-window-ms:20}") long windowMillis,
+                                  @Value("${realtime.write.max-batch-paths:1000}") int maxBatchPaths,
+                                  @Value("${realtime.write.max-pending:10000}") int maxPending,
+                                  MeterRegistry registry) {
+        this.database = database;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.maxBatchPaths = Math.max(1, maxBatchPaths);
+        this.maxPending = Math.max(1, maxPending);
+        this.writes = Counter.builder("realtime.writes")
+                .description("Escrituras recibidas por el agrupador de Realtime Database").register(registry);
+        this.coalesced = Counter.builder("realtime.writes.coalesced")
+                .description("Rutas reemplazadas por otra escritura a la misma ruta antes de enviarse").register(registry);
+        this.flushes = Counter.builder("realtime.writes.flushes")
+                .description("Llamadas updateChildren enviadas").register(registry);
+        this.rejected = Counter.builder("realtime.writes.rejected")
+                .description("Escrituras rechazadas por demasiadas escrituras sin confirmar").register(registry);
+        Gauge.builder("realtime.writes.unacknowledged", this, coalescer -> coalescer.unacknowledged())
+                .description("Escrituras pendientes o enviadas sin confirmar").register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (this) {
+            flushLocked();
+        }
+        timer.shutdown();
+    }
+
+    /**
+     * Escribe cada valor en su ruta (relativa a la raíz, sin / inicial); null elimina. Falla con
+     * IllegalArgumentException si una ruta no es válida y con RejectedExecutionException si hay demasiadas pendientes.
+     */
+    public CompletableFuture<Void> write(Map<String, Object> values) {
+        if (values.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        for (String path : values.keySet()) {
+            if (path.isEmpty()) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("No se puede escribir en la raíz de la base"));
+            }
+            try {
+                // Valida los caracteres de la ruta aquí: en el lote un error haría fallar a todas las escrituras
+                database.getReference(path);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException(e.getMessage(), e));
+            }
+            for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                if (values.containsKey(path.substring(0, slash))) {
+                    return CompletableFuture.failedFuture(new IllegalArgumentException(
+                            "La ruta " + path + " está dentro de otra ruta de la misma escritura"));
+                }
+            }
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (unacknowledged >= maxPending) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Demasiadas escrituras sin confirmar en Realtime Database (" + maxPending + ")"));
+            }
+            for (String path : values.keySet()) {
+                if (overlapsPending(path)) {
+                    flushLocked();
+                    break;
+                }
+            }
+            for (Map.Entry<String, Object> value : values.entrySet()) {
+                if (pending.containsKey(value.getKey())) {
+                    coalesced.increment();
+                }
+                pending.put(value.getKey(), value.getValue());
+            }
+            waiters.add(future);
+            unacknowledged++;
+            writes.increment();
+
+            if (windowMillis == 0 || pending.size() >= maxBatchPaths) {
+                flushLocked();
+            } else if (scheduled == null) {
+                scheduled = timer.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return future;
+    }
+
+    public synchronized int unacknowledged() {
+        return unacknowledged;
+    }
+
+    private synchronized void flush() {
+        scheduled = null;
+        flushLocked();
+    }
+
+    /**
+     * true si la ruta es ancestro o descendiente (no igual) de una ruta pendiente
+     */
+    private boolean overlapsPending(String path) {
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            if (pending.containsKey(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        // '0' es el carácter siguiente a '/': el rango cubre exactamente las rutas "path/..."
+        return !pending.subMap(path + "/", path + "0").isEmpty();
+    }
+
+    private void flushLocked() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, Object> batch = new HashMap<>(pending);
+        List<CompletableFuture<Void>> batchWaiters = waiters;
+        pending = new TreeMap<>();
+        waiters = new ArrayList<>();
+        flushes.increment();
+
+        DatabaseReference.CompletionListener listener = (error, ref) -> {
+            synchronized (this) {
+                unacknowledged -= batchWaiters.size();
+            }
+            for (CompletableFuture<Void> waiter : batchWaiters) {
+                if (error == null) {
+                    waiter.complete(null);
+                } else {
+                    waiter.completeExceptionally(error.toException());
+                }
+            }
+        };
+        try {
+            database.getReference().updateChildren(batch, listener);
+        } catch (RuntimeException e) {
+            unacknowledged -= batchWaiters.size();
+            batchWaiters.forEach(waiter -> waiter.completeExceptionally(new IllegalArgumentException(e.getMessage(), e)));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.Energetic_Calculator.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Datos del usuario de la petición en curso, tal como los deja FirebaseAuthFilter en el contexto de seguridad
+ */
+public final class AuthenticatedUser {
+
+    /**
+     * Autoridad que FirebaseAuthFilter concede a los tokens con el custom claim admin=true
+     */
+    public static final String ADMIN_AUTHORITY = "ROLE_ADMIN";
+
+    private AuthenticatedUser() {
+    }
+
+    public static boolean isAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (ADMIN_AUTHORITY.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
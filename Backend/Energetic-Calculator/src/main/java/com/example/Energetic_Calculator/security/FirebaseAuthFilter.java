@@ -1,11 +1,11 @@
 package com.example.Energetic_Calculator.security;
 
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.FirebaseToken;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -18,6 +18,12 @@ import java.util.List;
 
 public class FirebaseAuthFilter extends OncePerRequestFilter {
 
+    private final FirebaseTokenVerifier tokenVerifier;
+
+    public FirebaseAuthFilter(FirebaseTokenVerifier tokenVerifier) {
+        this.tokenVerifier = tokenVerifier;
+    }
+
     private void writeUnauthorized(HttpServletResponse response, String msg) throws IOException {
         response.setStatus(HttpStatus.UNAUTHORIZED.value()); // 401
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
@@ -39,11 +45,13 @@ public class FirebaseAuthFilter extends OncePerRequestFilter {
         String token = header.substring(7).trim();
 
         try {
-            FirebaseToken decoded = FirebaseAuth.getInstance().verifyIdToken(token);
+            FirebaseToken decoded = tokenVerifier.verify(token);
             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                     decoded,
                     null,
-                    List.of());
+                    Boolean.TRUE.equals(decoded.getClaims().get("admin"))
+                            ? List.of(new SimpleGrantedAuthority(AuthenticatedUser.ADMIN_AUTHORITY))
+                            : List.of());
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
@@ -0,0 +1,109 @@
+package com.example.Energetic_Calculator.security;
+
+import com.example.Energetic_Calculator.cache.TtlCache;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verifica ID tokens de Firebase y guarda el token decodificado hasta su claim "exp",
+ * indexado por el hash SHA-256 del token para no repetir la verificación de firma.
+ */
+@Component
+public class FirebaseTokenVerifier {
+
+    private final FirebaseAuth firebaseAuth;
+    private final boolean cacheEnabled;
+    private final long maxTtlNanos;
+    private final TtlCache<String, FirebaseToken> cache;
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder verificationNanos = new LongAdder();
+    private final AtomicLong maxVerificationNanos = new AtomicLong();
+
+    public FirebaseTokenVerifier(FirebaseAuth firebaseAuth,
+                                 @Value("${auth.token-cache.enabled:true}") boolean cacheEnabled,
+                                 @Value("${auth.token-cache.max-entries:10000}") int maxEntries,
+                                 @Value("${auth.token-cache.max-ttl-seconds:3600}") long maxTtlSeconds) {
+        this.firebaseAuth = firebaseAuth;
+        this.cacheEnabled = cacheEnabled;
+        this.maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        this.cache = new TtlCache<>(maxEntries, maxTtlSeconds, TimeUnit.SECONDS);
+    }
+
+    public FirebaseToken verify(String idToken) throws FirebaseAuthException {
+        String key = cacheEnabled ? hash(idToken) : null;
+        if (key != null) {
+            FirebaseToken cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long start = System.nanoTime();
+        FirebaseToken decoded;
+        try {
+            decoded = firebaseAuth.verifyIdToken(idToken);
+        } catch (FirebaseAuthException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            recordVerification(System.nanoTime() - start);
+        }
+
+        if (key != null) {
+            long remainingNanos = remainingNanos(decoded);
+            if (remainingNanos > 0) {
+                cache.putUntil(key, decoded, cache.nanoTime() + Math.min(remainingNanos, maxTtlNanos));
+            }
+        }
+        return decoded;
+    }
+
+    public Map<String, Object> stats() {
+        long count = verifications.sum();
+        return Map.of(
+                "enabled", cacheEnabled,
+                "cache", cache.stats(),
+                "verifications", count,
+                "verificationFailures", failures.sum(),
+                "avgVerificationMillis", count == 0 ? 0.0 : verificationNanos.sum() / (double) count / 1_000_000,
+                "maxVerificationMillis", maxVerificationNanos.get() / 1_000_000.0);
+    }
+
+    private void recordVerification(long nanos) {
+        verifications.increment();
+        verificationNanos.add(nanos);
+        maxVerificationNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static long remainingNanos(FirebaseToken token) {
+        Object exp = token.getClaims().get("exp");
+        if (!(exp instanceof Number)) {
+            return 0;
+        }
+        long expMillis = TimeUnit.SECONDS.toMillis(((Number) exp).longValue());
+        return TimeUnit.MILLISECONDS.toNanos(expMillis - System.currentTimeMillis());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.Energetic_Calculator.security;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -11,18 +12,21 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     @Bean
-    public FirebaseAuthFilter firebaseAuthFilter() {
-        return new FirebaseAuthFilter();
+    public FirebaseAuthFilter firebaseAuthFilter(FirebaseTokenVerifier tokenVerifier) {
+        return new FirebaseAuthFilter(tokenVerifier);
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, FirebaseAuthFilter firebaseAuthFilter) throws Exception {
 
         return http
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
-                .addFilterBefore(firebaseAuthFilter(), UsernamePasswordAuthenticationFilter.class)
+                // Las métricas describen el tráfico de todos los usuarios: solo para administradores
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers(EndpointRequest.to("prometheus", "metrics")).hasRole("ADMIN")
+                        .anyRequest().permitAll())
+                .addFilterBefore(firebaseAuthFilter, UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.CatalogImportReport;
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.repository.BulkDeviceWriter;
+import com.example.Energetic_Calculator.repository.DeviceRepository;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Importa catálogos grandes: lee en streaming, normaliza unidades, valida con DeviceValidator,
+ * descarta duplicados por nombre y categoría y escribe con BulkWriter mientras sigue leyendo.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final Logger logger = Logger.getLogger(CatalogImportService.class.getName());
+    private static final long PROGRESS_EVERY = 10_000;
+
+    private final DeviceRepository deviceRepository;
+    private final CatalogRecordReader recordReader;
+    private final int maxOpsPerSecond;
+    private final int maxPending;
+
+    public CatalogImportService(DeviceRepository deviceRepository,
+                                CatalogRecordReader recordReader,
+                                @Value("${catalog.import.max-ops-per-second:0}") int maxOpsPerSecond,
+                                @Value("${catalog.import.max-pending:2000}") int maxPending) {
+        this.deviceRepository = deviceRepository;
+        this.recordReader = recordReader;
+        this.maxOpsPerSecond = maxOpsPerSecond;
+        this.maxPending = maxPending;
+    }
+
+    public CatalogImportReport importCatalog(InputStream in, CatalogRecordReader.Format format, boolean dryRun)
+            throws IOException, ExecutionException, InterruptedException {
+        CatalogImportReport report = new CatalogImportReport(format.name(), dryRun);
+        long start = System.nanoTime();
+
+        // Un dispositivo ya existente con el mismo nombre y categoría se sobrescribe en lugar de duplicarse
+        Map<String, String> existingIds = new HashMap<>();
+        for (Device device : deviceRepository.getAllDevices()) {
+            existingIds.putIfAbsent(CatalogRecordParser.dedupeKey(device), device.getId());
+        }
+
+        Set<String> seen = new HashSet<>();
+        long[] counters = new long[5]; // read, created, updated, duplicates, invalid
+        AtomicLong failed = new AtomicLong();
+
+        BulkDeviceWriter writer = dryRun ? null : deviceRepository.openBulkWriter(maxOpsPerSecond, maxPending);
+        try {
+            recordReader.read(in, format, record -> {
+                long index = ++counters[0];
+                Device device;
+                try {
+                    device = CatalogRecordParser.toDevice(record);
+                } catch (IllegalArgumentException e) {
+                    counters[4]++;
+                    report.addError("Registro " + index + ": " + e.getMessage());
+                    return;
+                }
+
+                String error = DeviceValidator.validate(device);
+                if (error != null) {
+                    counters[4]++;
+                    report.addError("Registro " + index + " (" + device.getNombre() + "): " + error);
+                    return;
+                }
+
+                String key = CatalogRecordParser.dedupeKey(device);
+                if (!seen.add(key)) {
+                    counters[3]++;
+                    return;
+                }
+
+                String existingId = existingIds.get(key);
+                if (existingId != null) {
+                    device.setId(existingId);
+                    counters[2]++;
+                } else {
+                    device.setId(UUID.randomUUID().toString());
+                    counters[1]++;
+                }
+
+                if (writer != null) {
+                    writer.save(device, (result, failure) -> {
+                        if (failure != null) {
+                            failed.incrementAndGet();
+                            report.addError("Registro " + index + " (" + device.getNombre() + "): "
+                                    + FirestoreFutures.unwrap(failure).getMessage());
+                        }
+                    });
+                }
+
+                if (index % PROGRESS_EVERY == 0) {
+                    logger.info(String.format("Catalog import: %d records read, %.0f records/s",
+                            index, index / seconds(start)));
+                }
+            });
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        report.setRead(counters[0]);
+        report.setCreated(counters[1]);
+        report.setUpdated(counters[2]);
+        report.setDuplicates(counters[3]);
+        report.setInvalid(counters[4]);
+        report.setFailed(failed.get());
+
+        double elapsed = seconds(start);
+        long written = counters[1] + counters[2] - failed.get();
+        report.setElapsedMillis(Math.round(elapsed * 1000));
+        report.setDocsPerSecond(elapsed > 0 ? Math.round(written / elapsed * 10) / 10.0 : 0);
+        logger.info(String.format("Catalog import finished: read=%d created=%d updated=%d duplicates=%d invalid=%d failed=%d in %d ms (%.1f docs/s)",
+                report.getRead(), report.getCreated(), report.getUpdated(), report.getDuplicates(),
+                report.getInvalid(), report.getFailed(), report.getElapsedMillis(), report.getDocsPerSecond()));
+        return report;
+    }
+
+    private static double seconds(long startNanos) {
+        return Math.max(System.nanoTime() - startNanos, 1) / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.Device;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Convierte un registro de catálogo (JSON o CSV) en Device normalizando textos y unidades:
+ * "150 W", "1,5 kW", "24 h", "20 min", "2 h/día" o valores numéricos.
+ */
+public final class CatalogRecordParser {
+
+    private static final Pattern QUANTITY = Pattern.compile("^(\\d+(?:[.,]\\d+)?)\\s*([\\p{L}]+)?");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private CatalogRecordParser() {
+    }
+
+    /**
+     * Lanza IllegalArgumentException con el campo que no se pudo interpretar
+     */
+    public static Device toDevice(Map<String, ?> record) {
+        Device device = new Device();
+        device.setNombre(normalizeText(record.get("nombre")));
+        device.setCategoria(normalizeCategoria(record.get("categoria")));
+        device.setPotenciaWatts((int) Math.round(parseWatts(record.get("potenciaWatts"))));
+        device.setHorasUsoDiario((float) parseHours(record.get("horasUsoDiario")));
+        Object dias = record.get("diasUsoMensual");
+        device.setDiasUsoMensual(dias == null || dias.toString().isBlank() ? 30 : (int) parseNumber(dias, "diasUsoMensual"));
+        return device;
+    }
+
+    public static double parseWatts(Object value) {
+        Matcher matcher = match(value, "potenciaWatts");
+        double number = toDouble(matcher.group(1));
+        String unit = matcher.group(2) == null ? "w" : matcher.group(2).toLowerCase(Locale.ROOT);
+        return switch (unit) {
+            case "w" -> number;
+            case "kw" -> number * 1000;
+            default -> throw new IllegalArgumentException("Unidad de potencia desconocida: " + unit);
+        };
+    }
+
+    public static double parseHours(Object value) {
+        Matcher matcher = match(value, "horasUsoDiario");
+        double number = toDouble(matcher.group(1));
+        String unit = matcher.group(2) == null ? "h" : matcher.group(2).toLowerCase(Locale.ROOT);
+        return switch (unit) {
+            case "h", "hr", "hrs", "hora", "horas" -> number;
+            case "min", "mins", "minutos" -> number / 60.0;
+            default -> throw new IllegalArgumentException("Unidad de horas desconocida: " + unit);
+        };
+    }
+
+    /**
+     * Clave para detectar duplicados: nombre y categoría sin mayúsculas, tildes ni espacios repetidos
+     */
+    public static String dedupeKey(Device device) {
+        return fold(device.getNombre()) + "|" + fold(device.getCategoria());
+    }
+
+    /**
+     * Quita espacios duros (U+00A0), espacios repetidos y los de los extremos
+     */
+    static String normalizeText(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return SPACES.matcher(value.toString().replace('\u00A0', ' ')).replaceAll(" ").trim();
+    }
+
+    /**
+     * Devuelve la categoría con la escritura canónica de DeviceValidator o el texto limpio si no coincide
+     */
+    static String normalizeCategoria(Object value) {
+        String text = normalizeText(value);
+        if (text == null) {
+            return null;
+        }
+        for (String categoria : DeviceValidator.CATEGORIAS_VALIDAS) {
+            if (fold(categoria).equals(fold(text))) {
+                return categoria;
+            }
+        }
+        return text;
+    }
+
+    private static double parseNumber(Object value, String field) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        return toDouble(match(value, field).group(1));
+    }
+
+    private static Matcher match(Object value, String field) {
+        String text = normalizeText(value);
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("El campo " + field + " es requerido");
+        }
+        Matcher matcher = QUANTITY.matcher(text);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Valor inválido para " + field + ": " + text);
+        }
+        return matcher;
+    }
+
+    private static double toDouble(String number) {
+        return Double.parseDouble(number.replace(',', '.'));
+    }
+
+    private static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String withoutAccents = Normalizer.normalize(normalizeText(text), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return withoutAccents.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.Energetic_Calculator.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lee un catálogo registro por registro sin cargar el archivo completo en memoria.
+ * JSON acepta un arreglo de objetos o un objeto por línea (el formato del export NDJSON);
+ * CSV usa la primera fila como encabezado y detecta si el separador es coma o punto y coma.
+ */
+@Component
+public class CatalogRecordReader {
+
+    public enum Format {
+        JSON, CSV;
+
+        public static Format fromName(String name) {
+            String lower = name == null ? "" : name.toLowerCase();
+            return lower.contains("csv") ? CSV : JSON;
+        }
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(Map<String, Object> record) throws InterruptedException;
+    }
+
+    private static final TypeReference<Map<String, Object>> RECORD = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public CatalogRecordReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void read(InputStream in, Format format, RecordHandler handler) throws IOException, InterruptedException {
+        if (format == Format.CSV) {
+            readCsv(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), handler);
+        } else {
+            readJson(in, handler);
+        }
+    }
+
+    private void readJson(InputStream in, RecordHandler handler) throws IOException, InterruptedException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    handler.handle(objectMapper.readValue(parser, RECORD));
+                } else if (token != JsonToken.START_ARRAY && token != JsonToken.END_ARRAY) {
+                    throw new IOException("Se esperaba un objeto JSON por dispositivo y se encontró " + token);
+                }
+            }
+        }
+    }
+
+    private void readCsv(BufferedReader reader, RecordHandler handler) throws IOException, InterruptedException {
+        List<String> header = null;
+        char separator = ',';
+        List<String> fields;
+        while ((fields = nextCsvRow(reader, separator)) != null) {
+            if (header == null) {
+                // La fila de encabezado se vuelve a partir si usa punto y coma (CSV de Excel en español)
+                if (fields.size() == 1 && fields.get(0).indexOf(';') >= 0) {
+                    separator = ';';
+                    fields = List.of(fields.get(0).split(";", -1));
+                }
+                header = new ArrayList<>(fields.size());
+                for (String name : fields) {
+                    header.add(name.replace("\uFEFF", "").trim());
+                }
+                continue;
+            }
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            Map<String, Object> record = new HashMap<>(header.size() * 2);
+            for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                record.put(header.get(i), fields.get(i));
+            }
+            handler.handle(record);
+        }
+    }
+
+    /**
+     * Siguiente fila del CSV o null al final. Soporta campos entre comillas con separadores,
+     * comillas dobles escapadas ("") y saltos de línea.
+     */
+    static List<String> nextCsvRow(BufferedReader reader, char separator) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (ch == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n') {
+                break;
+            } else if (ch != '\r') {
+                field.append(ch);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
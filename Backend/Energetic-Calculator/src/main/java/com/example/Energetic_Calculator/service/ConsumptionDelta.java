@@ -0,0 +1,90 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.UserDevice;
+import com.google.cloud.firestore.FieldValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cambio acumulado sobre el resumen de consumo de un usuario: kWh/mes, número de dispositivos y desglose por categoría
+ */
+public class ConsumptionDelta {
+
+    private double kwh;
+    private long count;
+    private final Map<String, Double> categoryKwh = new HashMap<>();
+    private final Map<String, Long> categoryCount = new HashMap<>();
+
+    /**
+     * Suma (sign = 1) o resta (sign = -1) la contribución guardada en el dispositivo.
+     * Un dispositivo sin kwhMonth se creó antes de existir el resumen y nunca se sumó, así que no cuenta.
+     */
+    public ConsumptionDelta add(UserDevice userDevice, int sign) {
+        if (userDevice.getKwhMonth() == null) {
+            return this;
+        }
+        double deviceKwh = userDevice.getKwhMonth();
+        kwh += sign * deviceKwh;
+        count += sign;
+        String category = userDevice.getCategory();
+        if (category != null) {
+            categoryKwh.merge(category, sign * deviceKwh, Double::sum);
+            categoryCount.merge(category, (long) sign, Long::sum);
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return count == 0 && kwh == 0 && categoryKwh.isEmpty();
+    }
+
+    public double getKwh() {
+        return kwh;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Map<String, Double> getCategoryKwh() {
+        return categoryKwh;
+    }
+
+    public Map<String, Long> getCategoryCount() {
+        return categoryCount;
+    }
+
+    /**
+     * Campos para set(merge) con FieldValue.increment: se aplican sin leer el documento
+     */
+    public Map<String, Object> toIncrements(String userId) {
+        Map<String, Object> kwhByCategory = new HashMap<>();
+        categoryKwh.forEach((category, value) -> kwhByCategory.put(category, FieldValue.increment(value)));
+        Map<String, Object> countByCategory = new HashMap<>();
+        categoryCount.forEach((category, value) -> countByCategory.put(category, FieldValue.increment(value)));
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("userId", userId);
+        fields.put("totalKwh", FieldValue.increment(kwh));
+        fields.put("deviceCount", FieldValue.increment(count));
+        fields.put("categoryKwh", kwhByCategory);
+        fields.put("categoryCount", countByCategory);
+        fields.put("updatedAt", FieldValue.serverTimestamp());
+        return fields;
+    }
+
+    /**
+     * Documento completo (sin merge) para reconstruir el resumen desde cero
+     */
+    public Map<String, Object> toDocument(String userId) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("userId", userId);
+        fields.put("totalKwh", kwh);
+        fields.put("deviceCount", count);
+        fields.put("categoryKwh", new HashMap<>(categoryKwh));
+        fields.put("categoryCount", new HashMap<>(categoryCount));
+        fields.put("updatedAt", FieldValue.serverTimestamp());
+        return fields;
+    }
+}
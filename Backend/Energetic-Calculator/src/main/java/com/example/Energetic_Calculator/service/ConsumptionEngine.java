@@ -0,0 +1,168 @@
+package com.example.Energetic_Calculator.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.Energetic_Calculator.model.ConsumptionSummary;
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.DeviceAlternative;
+import com.example.Energetic_Calculator.model.DeviceAlternatives;
+import com.example.Energetic_Calculator.model.DeviceConsumption;
+import com.example.Energetic_Calculator.model.UserDevice;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+
+@Service
+public class ConsumptionEngine {
+
+    /** Días de uso al mes por cada día de uso semanal (30 / 7), igual que el frontend */
+    public static final double DAYS_PER_MONTH_PER_WEEKLY_DAY = 30.0 / 7.0;
+
+    private final UserDeviceService userDeviceService;
+    private final DeviceService deviceService;
+    private final double defaultTariffPerKwh;
+    private final double co2KgPerKwh;
+
+    public ConsumptionEngine(UserDeviceService userDeviceService,
+                             DeviceService deviceService,
+                             @Value("${calculator.tariff-per-kwh:600}") double defaultTariffPerKwh,
+                             @Value("${calculator.co2-kg-per-kwh:0.164}") double co2KgPerKwh) {
+        this.userDeviceService = userDeviceService;
+        this.deviceService = deviceService;
+        this.defaultTariffPerKwh = defaultTariffPerKwh;
+        this.co2KgPerKwh = co2KgPerKwh;
+    }
+
+    /**
+     * Calcula el consumo mensual de todos los dispositivos de un usuario en una sola pasada
+     */
+    public ConsumptionSummary summarizeUser(String userId, Double tariffPerKwh) throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(summarizeUserAsync(userId, tariffPerKwh));
+    }
+
+    public CompletableFuture<ConsumptionSummary> summarizeUserAsync(String userId, Double tariffPerKwh) {
+        double tariff = tariffPerKwh != null ? tariffPerKwh : defaultTariffPerKwh;
+        // Solo se leen del catálogo los dispositivos que el usuario tiene, no el catálogo completo
+        return userDeviceService.getUserDevicesAsync(userId)
+                .thenCompose(userDevices -> {
+                    Set<String> deviceIds = new HashSet<>();
+                    for (UserDevice userDevice : userDevices) {
+                        deviceIds.add(userDevice.getDeviceId());
+                    }
+                    return deviceService.getDevicesByIdsAsync(deviceIds).thenApply(catalog -> {
+                        ConsumptionSummary summary = summarize(userDevices, catalog, tariff);
+                        summary.setUserId(userId);
+                        return summary;
+                    });
+                });
+    }
+
+    /**
+     * Une cada UserDevice con su Device del catálogo y acumula kWh, costo y CO2
+     */
+    public ConsumptionSummary summarize(List<UserDevice> userDevices, Map<String, Device> catalog, double tariffPerKwh) {
+        int n = userDevices.size();
+        Device[] resolved = new Device[n];
+        double[] kwh = new double[n];
+        double totalKwh = 0;
+
+        ConsumptionSummary summary = new ConsumptionSummary();
+        summary.setTariffPerKwh(tariffPerKwh);
+
+        for (int i = 0; i < n; i++) {
+            UserDevice userDevice = userDevices.get(i);
+            Device device = catalog.get(userDevice.getDeviceId());
+            if (device == null) {
+                summary.getUnresolvedDeviceIds().add(userDevice.getDeviceId());
+                continue;
+            }
+            resolved[i] = device;
+            kwh[i] = monthlyKwh(device.getPotenciaWatts(), userDevice.getDailyHours(),
+                    userDevice.getQuantity(), userDevice.getWeeklyDays());
+            totalKwh += kwh[i];
+        }
+
+        List<DeviceConsumption> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Device device = resolved[i];
+            if (device == null) {
+                continue;
+            }
+            UserDevice userDevice = userDevices.get(i);
+            rows.add(new DeviceConsumption(
+                    userDevice.getId(),
+                    userDevice.getDeviceId(),
+                    device.getNombre(),
+                    device.getCategoria(),
+                    round(kwh[i], 2),
+                    round(kwh[i] * tariffPerKwh, 2),
+                    round(kwh[i] * co2KgPerKwh, 3),
+                    totalKwh > 0 ? round(kwh[i] / totalKwh * 100, 1) : 0));
+        }
+
+        summary.setDevices(rows);
+        summary.setDeviceCount(rows.size());
+        summary.setTotalConsumptionKwh(round(totalKwh, 2));
+        summary.setTotalCost(round(totalKwh * tariffPerKwh, 2));
+        summary.setTotalCo2(round(totalKwh * co2KgPerKwh, 3));
+        return summary;
+    }
+
+    /**
+     * Alternativas más baratas de operar que el dispositivo con el mismo uso (por defecto el uso típico del
+     * catálogo, 1 unidad y 7 días por semana), de mayor a menor ahorro. null si el dispositivo no existe.
+     */
+    public CompletableFuture<DeviceAlternatives> alternativesAsync(String deviceId, int limit, Float dailyHours,
+                                                                   Integer quantity, Integer weeklyDays, Double tariffPerKwh) {
+        double tariff = tariffPerKwh != null ? tariffPerKwh : defaultTariffPerKwh;
+        return deviceService.findLowerPowerAlternativesAsync(deviceId, limit).thenApply(match -> {
+            if (match == null) {
+                return null;
+            }
+            Device device = match.device();
+            float hours = dailyHours != null ? dailyHours : device.getHorasUsoDiario();
+            int units = quantity != null ? quantity : 1;
+            int days = weeklyDays != null ? weeklyDays : 7;
+            double currentKwh = monthlyKwh(device.getPotenciaWatts(), hours, units, days);
+
+            // El índice las entrega de menor a mayor potencia, que con el mismo uso es de mayor a menor ahorro
+            List<DeviceAlternative> alternatives = new ArrayList<>(match.alternatives().size());
+            for (Device alternative : match.alternatives()) {
+                double kwh = monthlyKwh(alternative.getPotenciaWatts(), hours, units, days);
+                double savingsKwh = currentKwh - kwh;
+                alternatives.add(new DeviceAlternative(alternative, round(kwh, 2), round(kwh * tariff, 2),
+                        round(savingsKwh, 2), round(savingsKwh * tariff, 2),
+                        currentKwh > 0 ? round(savingsKwh / currentKwh * 100, 1) : 0,
+                        device.getPotenciaWatts() - alternative.getPotenciaWatts()));
+            }
+            return new DeviceAlternatives(device, round(currentKwh, 2), round(currentKwh * tariff, 2), tariff, alternatives);
+        });
+    }
+
+    /**
+     * kWh/mes = potencia * horas diarias * cantidad * (días semanales * 30 / 7) / 1000
+     */
+    public static double monthlyKwh(int potenciaWatts, float dailyHours, int quantity, int weeklyDays) {
+        return potenciaWatts * (double) dailyHours * quantity * (weeklyDays * DAYS_PER_MONTH_PER_WEEKLY_DAY) / 1000.0;
+    }
+
+    public double getDefaultTariffPerKwh() {
+        return defaultTariffPerKwh;
+    }
+
+    public double getCo2KgPerKwh() {
+        return co2KgPerKwh;
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+}
@@ -0,0 +1,485 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.UserConsumptionSummary;
+import com.example.Energetic_Calculator.model.UserDevice;
+import com.example.Energetic_Calculator.repository.DocumentStore;
+import com.example.Energetic_Calculator.repository.FirestoreBatches;
+import com.example.Energetic_Calculator.repository.FirestoreCallLimiter;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mantiene user_consumption_summary: un documento por usuario con kWh/mes, número de dispositivos
+ * y desglose por categoría. Las altas y bajas aplican deltas en la misma transacción que escriben el
+ * dispositivo; la reconciliación lo reconstruye todo desde user_devices y el catálogo actual.
+ * Con storage.backend jdbc o memory no hay documento de resumen: se calcula al leerlo con DocumentStore.aggregate
+ * (un GROUP BY sobre el índice de user_devices en MySQL).
+ */
+@Service
+public class ConsumptionSummaryService {
+
+    public static final String COLLECTION_NAME = "user_consumption_summary";
+    public static final String MIGRATIONS_COLLECTION = "migrations";
+    // Marca de la reconciliación inicial que sella kwhMonth/category en los user_devices anteriores al resumen
+    public static final String BACKFILL_MARKER = "consumption-summary-backfill";
+
+    private static final Logger logger = Logger.getLogger(ConsumptionSummaryService.class.getName());
+    private static final double EPSILON = 1e-9;
+    private static final int RECONCILE_PAGE_SIZE = 500;
+
+    private final FirebaseFirestoreService firestoreService;
+    private final DocumentStore store;
+    // Solo hay bean de Firestore con storage.backend=firestore, que es cuando el resumen se materializa
+    private final ObjectProvider<Firestore> firestoreProvider;
+    private final DeviceService deviceService;
+    private final FirestoreCallLimiter limiter;
+    private final double defaultTariffPerKwh;
+    private final double co2KgPerKwh;
+    // Hasta que termina el backfill, cada usuario se sella la primera vez que se leen sus totales
+    private final Set<String> stampedUsers = ConcurrentHashMap.newKeySet();
+    private volatile boolean backfilled;
+
+    public ConsumptionSummaryService(FirebaseFirestoreService firestoreService,
+                                     DocumentStore store,
+                                     ObjectProvider<Firestore> firestoreProvider,
+                                     DeviceService deviceService,
+                                     FirestoreCallLimiter limiter,
+                                     @Value("${calculator.tariff-per-kwh:600}") double defaultTariffPerKwh,
+                                     @Value("${calculator.co2-kg-per-kwh:0.164}") double co2KgPerKwh) {
+        this.firestoreService = firestoreService;
+        this.store = store;
+        this.firestoreProvider = firestoreProvider;
+        this.deviceService = deviceService;
+        this.limiter = limiter;
+        this.defaultTariffPerKwh = defaultTariffPerKwh;
+        this.co2KgPerKwh = co2KgPerKwh;
+    }
+
+    /**
+     * Guarda en el dispositivo su contribución según el catálogo (0 kWh y sin categoría si no existe)
+     */
+    public static void stamp(UserDevice userDevice, Device device) {
+        if (device == null) {
+            userDevice.setKwhMonth(0.0);
+            userDevice.setCategory(null);
+            return;
+        }
+        userDevice.setKwhMonth(ConsumptionEngine.monthlyKwh(device.getPotenciaWatts(), userDevice.getDailyHours(),
+                userDevice.getQuantity(), userDevice.getWeeklyDays()));
+        userDevice.setCategory(device.getCategoria());
+    }
+
+    /**
+     * true si el resumen es un documento mantenido con incrementos (Firestore); si no, se agrega al leerlo
+     */
+    public boolean isMaterialized() {
+        return "firestore".equals(store.backend());
+    }
+
+    public static DocumentReference summaryRef(Firestore db, String userId) {
+        return db.collection(COLLECTION_NAME).document(userId);
+    }
+
+    /**
+     * Agrega el delta a una transacción o WriteBatch con set(merge) + increment, sin leer el resumen
+     */
+    public static void applyDelta(UpdateBuilder<?> writes, Firestore db, String userId, ConsumptionDelta delta) {
+        if (!delta.isEmpty()) {
+            writes.set(summaryRef(db, userId), delta.toIncrements(userId), SetOptions.merge());
+        }
+    }
+
+    /**
+     * Aplica el delta fuera de una transacción (lotes, donde cada elemento ya se confirmó por separado)
+     */
+    public CompletableFuture<Void> applyDeltaAsync(String userId, ConsumptionDelta delta) {
+        if (delta.isEmpty() || !isMaterialized()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Firestore db = firestoreProvider.getObject();
+        return limiter.submit(COLLECTION_NAME, "increment", () -> summaryRef(db, userId).set(delta.toIncrements(userId), SetOptions.merge()))
+                .thenApply(ignored -> null);
+    }
+
+    /**
+     * Resumen del usuario con una sola lectura; costo y CO2 se calculan con la tarifa pedida.
+     * Si el documento no existe (dispositivos anteriores al resumen materializado) se reconstruye antes de responder.
+     */
+    public CompletableFuture<UserConsumptionSummary> getSummaryAsync(String userId, Double tariffPerKwh) {
+        return ensureStampedAsync(userId).thenCompose(ignored -> isMaterialized()
+                ? readSummaryAsync(userId, tariffPerKwh, true)
+                : aggregateAsync(userId).thenApply(summary -> price(summary, tariffPerKwh)));
+    }
+
+    /**
+     * Antes de que termine el backfill, reconstruye una vez al usuario para que sus dispositivos antiguos tengan
+     * kwhMonth y category: sin ellos no entran en el resumen ni en los filtros y órdenes de user_devices
+     */
+    public CompletableFuture<Void> ensureStampedAsync(String userId) {
+        if (backfilled || stampedUsers.contains(userId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return rebuildAsync(userId);
+    }
+
+    public boolean isBackfilled() {
+        return backfilled;
+    }
+
+    /**
+     * Reconciliación única para los datos anteriores al resumen: si no hay marca en migrations, reconcilia todo y la
+     * escribe; si alguna escritura falla no la escribe y se repite en el próximo arranque
+     */
+    public Map<String, Object> backfill() throws ExecutionException, InterruptedException, IOException {
+        Map<String, Object> marker = FirestoreFutures.await(store.get(MIGRATIONS_COLLECTION, BACKFILL_MARKER));
+        if (marker != null) {
+            markBackfilled();
+            return marker;
+        }
+        Map<String, Object> report = reconcile();
+        if (((Number) report.get("failedWrites")).longValue() > 0) {
+            return report;
+        }
+        marker = new HashMap<>(report);
+        marker.put("completedAt", new Date());
+        FirestoreFutures.await(store.set(MIGRATIONS_COLLECTION, BACKFILL_MARKER, marker));
+        markBackfilled();
+        return marker;
+    }
+
+    /**
+     * Da el backfill por hecho (consumption.summary.backfill=false: los datos ya están sellados)
+     */
+    public void markBackfilled() {
+        backfilled = true;
+        stampedUsers.clear();
+    }
+
+    private CompletableFuture<UserConsumptionSummary> readSummaryAsync(String userId, Double tariffPerKwh,
+                                                                      boolean rebuildIfMissing) {
+        Firestore db = firestoreProvider.getObject();
+        return limiter.submit(COLLECTION_NAME, "get", () -> summaryRef(db, userId).get()).thenCompose(document -> {
+            if (!document.exists() && rebuildIfMissing) {
+                logger.info("Consumption summary missing for user " + userId + ", rebuilding it from user_devices");
+                return rebuildAsync(userId).thenCompose(ignored -> readSummaryAsync(userId, tariffPerKwh, false));
+            }
+            UserConsumptionSummary summary = document.exists()
+                    ? document.toObject(UserConsumptionSummary.class)
+                    : new UserConsumptionSummary();
+            summary.setUserId(userId);
+            return CompletableFuture.completedFuture(price(summary, tariffPerKwh));
+        });
+    }
+
+    /**
+     * Recalcula el resumen de un usuario desde sus user_devices y corrige la contribución guardada en cada uno
+     */
+    public CompletableFuture<UserConsumptionSummary> rebuildUserAsync(String userId) {
+        return rebuildAsync(userId).thenCompose(ignored -> isMaterialized()
+                ? readSummaryAsync(userId, null, false)
+                : aggregateAsync(userId).thenApply(summary -> price(summary, null)));
+    }
+
+    private CompletableFuture<Void> rebuildAsync(String userId) {
+        return rebuildDevicesAsync(userId).thenAccept(committed -> {
+            if (committed && !backfilled) {
+                stampedUsers.add(userId);
+            }
+        });
+    }
+
+    /**
+     * Escribe las correcciones (y en Firestore el resumen); true si todas se confirmaron
+     */
+    private CompletableFuture<Boolean> rebuildDevicesAsync(String userId) {
+        if (!isMaterialized()) {
+            // Solo hay que corregir la contribución guardada en cada dispositivo; el resumen se agrega al leerlo
+            return store.findBy(UserDeviceService.COLLECTION_NAME, "userId", userId)
+                    .thenCompose(documents -> {
+                        List<UserDevice> userDevices = new ArrayList<>(documents.size());
+                        Set<String> deviceIds = new HashSet<>();
+                        for (DocumentStore.Document document : documents) {
+                            UserDevice userDevice = UserDeviceService.toUserDevice(document.id(), document.data());
+                            userDevices.add(userDevice);
+                            deviceIds.add(userDevice.getDeviceId());
+                        }
+                        return deviceService.getDevicesByIdsAsync(deviceIds).thenCompose(catalog -> {
+                            List<DocumentStore.Write> writes = new ArrayList<>();
+                            for (UserDevice userDevice : userDevices) {
+                                addCorrection(writes, userDevice, catalog.get(userDevice.getDeviceId()));
+                            }
+                            return store.commit(UserDeviceService.COLLECTION_NAME, writes).thenApply(ignored ->
+                                    writes.stream().allMatch(write -> write.result().isSuccess()));
+                        });
+                    });
+        }
+        Firestore db = firestoreProvider.getObject();
+        return limiter.submit(UserDeviceService.COLLECTION_NAME, "query", () -> db.collection(UserDeviceService.COLLECTION_NAME).whereEqualTo("userId", userId).get())
+                .thenCompose(querySnapshot -> {
+                    List<UserDevice> userDevices = new ArrayList<>();
+                    Set<String> deviceIds = new HashSet<>();
+                    for (QueryDocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        UserDevice userDevice = UserDeviceService.toUserDevice(doc.getId(), doc.getData());
+                        userDevices.add(userDevice);
+                        deviceIds.add(userDevice.getDeviceId());
+                    }
+                    return deviceService.getDevicesByIdsAsync(deviceIds).thenCompose(catalog -> {
+                        ConsumptionDelta totals = new ConsumptionDelta();
+                        List<FirestoreBatches.Write> writes = new ArrayList<>();
+                        for (UserDevice userDevice : userDevices) {
+                            addCorrection(writes, db, userDevice, catalog.get(userDevice.getDeviceId()));
+                            totals.add(userDevice, 1);
+                        }
+                        Map<String, Object> document = totals.toDocument(userId);
+                        writes.add(new FirestoreBatches.Write(new BatchItemResult("rebuild", 0, userId),
+                                batch -> batch.set(summaryRef(db, userId), document)));
+                        return FirestoreBatches.commit(db, limiter, COLLECTION_NAME, writes).thenApply(ignored ->
+                                writes.stream().allMatch(write -> write.result().isSuccess()));
+                    });
+                });
+    }
+
+    /**
+     * Reconstruye todos los resúmenes. Recorre user_devices por páginas y escribe las correcciones de cada página
+     * antes de leer la siguiente, así que la memoria crece con el número de usuarios y no con el de dispositivos.
+     */
+    @Scheduled(cron = "${consumption.summary.reconcile-cron:-}")
+    public void reconcileAll() {
+        try {
+            Map<String, Object> report = reconcile();
+            logger.info("Consumption summary reconciliation finished: " + report);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Consumption summary reconciliation failed", e);
+        }
+    }
+
+    public Map<String, Object> reconcile() throws ExecutionException, InterruptedException, IOException {
+        long start = System.nanoTime();
+
+        Map<String, Device> catalog = new HashMap<>();
+        for (Device device : deviceService.listDevices()) {
+            catalog.put(device.getId(), device);
+        }
+        if (!isMaterialized()) {
+            return reconcileDevices(catalog, start);
+        }
+        Firestore db = firestoreProvider.getObject();
+
+        Map<String, ConsumptionDelta> totals = new HashMap<>();
+        long[] corrected = new long[1];
+        long[] failed = new long[1];
+        long devices = firestoreService.forEachPage(UserDeviceService.COLLECTION_NAME, RECONCILE_PAGE_SIZE, page -> {
+            List<FirestoreBatches.Write> writes = new ArrayList<>();
+            for (DocumentStore.Document document : page) {
+                UserDevice userDevice = UserDeviceService.toUserDevice(document.id(), document.data());
+                addCorrection(writes, db, userDevice, catalog.get(userDevice.getDeviceId()));
+                if (userDevice.getUserId() != null) {
+                    totals.computeIfAbsent(userDevice.getUserId(), key -> new ConsumptionDelta()).add(userDevice, 1);
+                }
+            }
+            corrected[0] += writes.size();
+            failed[0] += commit(db, writes);
+        });
+
+        List<FirestoreBatches.Write> writes = new ArrayList<>();
+        for (Map.Entry<String, ConsumptionDelta> entry : totals.entrySet()) {
+            Map<String, Object> document = entry.getValue().toDocument(entry.getKey());
+            writes.add(new FirestoreBatches.Write(new BatchItemResult("rebuild", 0, entry.getKey()),
+                    batch -> batch.set(summaryRef(db, entry.getKey()), document)));
+        }
+
+        // Resúmenes de usuarios que ya no tienen dispositivos
+        List<String> orphaned = new ArrayList<>();
+        firestoreService.forEachDocument(COLLECTION_NAME, RECONCILE_PAGE_SIZE, (id, data) -> {
+            if (!totals.containsKey(id)) {
+                orphaned.add(id);
+            }
+        });
+        for (String userId : orphaned) {
+            writes.add(new FirestoreBatches.Write(new BatchItemResult("delete", 0, userId),
+                    batch -> batch.delete(summaryRef(db, userId))));
+        }
+        failed[0] += commit(db, writes);
+
+        return Map.of(
+                "users", totals.size(),
+                "devices", devices,
+                "correctedDevices", corrected[0],
+                "removedSummaries", orphaned.size(),
+                "failedWrites", failed[0],
+                "elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Reconciliación sin documentos de resumen: solo corrige kwhMonth/category de los dispositivos, página a página
+     */
+    private Map<String, Object> reconcileDevices(Map<String, Device> catalog, long start)
+            throws ExecutionException, InterruptedException {
+        Set<String> users = new HashSet<>();
+        long[] corrected = new long[1];
+        long[] failed = new long[1];
+        long devices = firestoreService.forEachPage(UserDeviceService.COLLECTION_NAME, RECONCILE_PAGE_SIZE, page -> {
+            List<DocumentStore.Write> writes = new ArrayList<>();
+            for (DocumentStore.Document document : page) {
+                UserDevice userDevice = UserDeviceService.toUserDevice(document.id(), document.data());
+                addCorrection(writes, userDevice, catalog.get(userDevice.getDeviceId()));
+                if (userDevice.getUserId() != null) {
+                    users.add(userDevice.getUserId());
+                }
+            }
+            FirestoreFutures.await(store.commit(UserDeviceService.COLLECTION_NAME, writes));
+            corrected[0] += writes.size();
+            failed[0] += writes.stream().filter(write -> !write.result().isSuccess()).count();
+        });
+
+        return Map.of(
+                "users", users.size(),
+                "devices", devices,
+                "correctedDevices", corrected[0],
+                "removedSummaries", 0,
+                "failedWrites", failed[0],
+                "elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Confirma las escrituras en lotes y devuelve cuántas fallaron
+     */
+    private long commit(Firestore db, List<FirestoreBatches.Write> writes) throws ExecutionException, InterruptedException {
+        if (writes.isEmpty()) {
+            return 0;
+        }
+        FirestoreFutures.await(FirestoreBatches.commit(db, limiter, COLLECTION_NAME, writes));
+        return writes.stream().filter(write -> !write.result().isSuccess()).count();
+    }
+
+    /**
+     * kWh/mes y número de dispositivos por categoría de todos los usuarios, de mayor a menor consumo.
+     * En MySQL es un solo GROUP BY; en Firestore se leen category y kwhMonth de toda la colección.
+     */
+    public CompletableFuture<Map<String, Object>> getCategoryReportAsync() {
+        return store.aggregate(UserDeviceService.COLLECTION_NAME, null, null, "category", "kwhMonth").thenApply(groups -> {
+            List<Map<String, Object>> categories = new ArrayList<>(groups.size());
+            double totalKwh = 0;
+            long totalDevices = 0;
+            for (DocumentStore.Group group : groups) {
+                totalKwh += group.sum();
+                totalDevices += group.count();
+                Map<String, Object> row = new HashMap<>();
+                row.put("category", group.key());
+                row.put("devices", group.count());
+                row.put("kwhMonth", round(group.sum(), 2));
+                categories.add(row);
+            }
+            categories.sort((a, b) -> Double.compare((double) b.get("kwhMonth"), (double) a.get("kwhMonth")));
+            return Map.of(
+                    "categories", categories,
+                    "devices", totalDevices,
+                    "totalKwh", round(totalKwh, 2));
+        });
+    }
+
+    /**
+     * Resumen de un usuario agregado en el almacén (storage.backend jdbc o memory)
+     */
+    private CompletableFuture<UserConsumptionSummary> aggregateAsync(String userId) {
+        return store.aggregate(UserDeviceService.COLLECTION_NAME, "userId", userId, "category", "kwhMonth").thenApply(groups -> {
+            UserConsumptionSummary summary = new UserConsumptionSummary();
+            summary.setUserId(userId);
+            double totalKwh = 0;
+            long deviceCount = 0;
+            for (DocumentStore.Group group : groups) {
+                totalKwh += group.sum();
+                deviceCount += group.count();
+                // Igual que ConsumptionDelta: sin categoría cuenta en el total pero no en el desglose
+                if (group.key() instanceof String category) {
+                    summary.getCategoryKwh().put(category, group.sum());
+                    summary.getCategoryCount().put(category, group.count());
+                }
+            }
+            summary.setTotalKwh(totalKwh);
+            summary.setDeviceCount(deviceCount);
+            summary.setUpdatedAt(new Date());
+            return summary;
+        });
+    }
+
+    /**
+     * Recalcula la contribución del dispositivo; true si cambió (p. ej. se editó el catálogo)
+     */
+    private static boolean restamp(UserDevice userDevice, Device device) {
+        Double storedKwh = userDevice.getKwhMonth();
+        String storedCategory = userDevice.getCategory();
+        stamp(userDevice, device);
+        return storedKwh == null || Math.abs(storedKwh - userDevice.getKwhMonth()) >= EPSILON
+                || !Objects.equals(storedCategory, userDevice.getCategory());
+    }
+
+    /**
+     * Si la contribución cambió, agrega la actualización de kwhMonth y category
+     */
+    private static void addCorrection(List<DocumentStore.Write> writes, UserDevice userDevice, Device device) {
+        if (restamp(userDevice, device)) {
+            Map<String, Object> changes = new HashMap<>();
+            changes.put("kwhMonth", userDevice.getKwhMonth());
+            changes.put("category", userDevice.getCategory());
+            writes.add(DocumentStore.Write.update(new BatchItemResult("update", 0, userDevice.getId()),
+                    userDevice.getId(), changes));
+        }
+    }
+
+    /**
+     * Si la contribución cambió, agrega la actualización de kwhMonth y category al lote de Firestore
+     */
+    private static void addCorrection(List<FirestoreBatches.Write> writes, Firestore db, UserDevice userDevice, Device device) {
+        if (!restamp(userDevice, device)) {
+            return;
+        }
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("kwhMonth", userDevice.getKwhMonth());
+        changes.put("category", userDevice.getCategory());
+        DocumentReference document = db.collection(UserDeviceService.COLLECTION_NAME).document(userDevice.getId());
+        writes.add(new FirestoreBatches.Write(new BatchItemResult("update", 0, userDevice.getId()),
+                batch -> batch.update(document, changes)));
+    }
+
+    private UserConsumptionSummary price(UserConsumptionSummary summary, Double tariffPerKwh) {
+        double tariff = tariffPerKwh != null ? tariffPerKwh : defaultTariffPerKwh;
+        double kwh = summary.getTotalKwh();
+        summary.setTotalKwh(round(kwh, 2));
+        summary.setTariffPerKwh(tariff);
+        summary.setTotalCost(round(kwh * tariff, 2));
+        summary.setTotalCo2(round(kwh * co2KgPerKwh, 3));
+        summary.getCategoryKwh().replaceAll((category, value) -> round(value, 2));
+        return summary;
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+}
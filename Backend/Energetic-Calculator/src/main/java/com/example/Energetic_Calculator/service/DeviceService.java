@@ -1,10 +1,21 @@
 package com.example.Energetic_Calculator.service;
 
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.example.Energetic_Calculator.model.BatchRequest;
+import com.example.Energetic_Calculator.model.BatchResult;
 import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.PageResult;
+import com.example.Energetic_Calculator.repository.DeviceAlternativesIndex;
 import com.example.Energetic_Calculator.repository.DeviceRepository;
+import com.example.Energetic_Calculator.repository.FirestoreBatches;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Service
@@ -20,21 +31,149 @@ public class DeviceService {
         return deviceRepository.saveDevice(device);
     }
 
+    public CompletableFuture<String> addDeviceAsync(Device device) {
+        return deviceRepository.saveDeviceAsync(device);
+    }
+
     public Device getDevice(String id) throws ExecutionException, InterruptedException {
         return deviceRepository.getDeviceById(id);
     }
 
+    public CompletableFuture<Device> getDeviceAsync(String id) {
+        return deviceRepository.getDeviceByIdAsync(id);
+    }
+
     public List<Device> listDevices() throws ExecutionException, InterruptedException {
         return deviceRepository.getAllDevices();
     }
 
+    public CompletableFuture<List<Device>> listDevicesAsync() {
+        return deviceRepository.getAllDevicesAsync();
+    }
+
+    public CompletableFuture<Map<String, Device>> getDevicesByIdsAsync(Collection<String> ids) {
+        return deviceRepository.getDevicesByIdsAsync(ids);
+    }
+
+    /**
+     * Dispositivos de la misma categoría con menor potencia, servidos desde el índice en memoria
+     */
+    public CompletableFuture<DeviceAlternativesIndex.Match> findLowerPowerAlternativesAsync(String id, int limit) {
+        return deviceRepository.findLowerPowerAlternativesAsync(id, limit);
+    }
+
+    public PageResult<Device> listDevicesPage(int limit, String startAfter) throws ExecutionException, InterruptedException {
+        return deviceRepository.getDevicesPage(limit, startAfter);
+    }
+
+    public CompletableFuture<PageResult<Device>> listDevicesPageAsync(int limit, String startAfter) {
+        return deviceRepository.getDevicesPageAsync(limit, startAfter);
+    }
+
+    public PageResult<Map<String, Object>> listDevicesPage(int limit, String startAfter, List<String> fields)
+            throws ExecutionException, InterruptedException {
+        return deviceRepository.getDevicesPage(limit, startAfter, fields);
+    }
+
+    public CompletableFuture<PageResult<Map<String, Object>>> listDevicesPageAsync(int limit, String startAfter, List<String> fields) {
+        return deviceRepository.getDevicesPageAsync(limit, startAfter, fields);
+    }
+
     public String deleteDevice(String id) throws ExecutionException, InterruptedException {
         return deviceRepository.deleteDevice(id);
     }
 
+    public CompletableFuture<String> deleteDeviceAsync(String id) {
+        return deviceRepository.deleteDeviceAsync(id);
+    }
+
     public String updateDevice(Device device) throws ExecutionException, InterruptedException {
         return deviceRepository.saveDevice(device);
     }
 
-}
+    public CompletableFuture<String> updateDeviceAsync(Device device) {
+        return deviceRepository.saveDeviceAsync(device);
+    }
+
+    /**
+     * Valida cada operación por separado, descarta las inválidas o sobre ids inexistentes
+     * y confirma el resto en lotes de hasta 500 escrituras
+     */
+    public CompletableFuture<BatchResult> applyBatchAsync(BatchRequest<Device> request) {
+        List<BatchItemResult> results = new ArrayList<>(request.size());
+        List<FirestoreBatches.Item<Device>> creates = new ArrayList<>();
+        List<FirestoreBatches.Item<Device>> updates = new ArrayList<>();
+        List<FirestoreBatches.Item<String>> deletes = new ArrayList<>();
+
+        for (int i = 0; i < request.getCreate().size(); i++) {
+            Device device = request.getCreate().get(i);
+            BatchItemResult result = new BatchItemResult("create", i, device != null ? device.getId() : null);
+            results.add(result);
+            String error = DeviceValidator.validate(device);
+            if (error != null) {
+                result.fail(400, error);
+            } else {
+                creates.add(new FirestoreBatches.Item<>(result, device));
+            }
+        }
+
+        for (int i = 0; i < request.getUpdate().size(); i++) {
+            Device device = request.getUpdate().get(i);
+            BatchItemResult result = new BatchItemResult("update", i, device != null ? device.getId() : null);
+            results.add(result);
+            String error = DeviceValidator.validate(device);
+            if (error == null && (device.getId() == null || device.getId().isBlank())) {
+                error = "❌ El id es requerido para actualizar.";
+            }
+            if (error != null) {
+                result.fail(400, error);
+            } else {
+                updates.add(new FirestoreBatches.Item<>(result, device));
+            }
+        }
 
+        for (int i = 0; i < request.getDelete().size(); i++) {
+            String id = request.getDelete().get(i);
+            BatchItemResult result = new BatchItemResult("delete", i, id);
+            results.add(result);
+            if (id == null || id.isBlank()) {
+                result.fail(400, "❌ El id es requerido para eliminar.");
+            } else {
+                deletes.add(new FirestoreBatches.Item<>(result, id));
+            }
+        }
+
+        List<String> targetIds = new ArrayList<>(updates.size() + deletes.size());
+        updates.forEach(item -> targetIds.add(item.value().getId()));
+        deletes.forEach(item -> targetIds.add(item.value()));
+
+        CompletableFuture<Set<String>> existing = targetIds.isEmpty()
+                ? CompletableFuture.completedFuture(Set.of())
+                : deviceRepository.findExistingIdsAsync(targetIds);
+
+        return existing.thenCompose(existingIds -> {
+            List<FirestoreBatches.Item<Device>> upserts = new ArrayList<>(creates);
+            for (FirestoreBatches.Item<Device> item : updates) {
+                if (existingIds.contains(item.value().getId())) {
+                    upserts.add(item);
+                } else {
+                    item.result().fail(404, "⚠️ No existe un dispositivo con el ID: " + item.value().getId());
+                }
+            }
+            List<FirestoreBatches.Item<String>> found = new ArrayList<>(deletes.size());
+            for (FirestoreBatches.Item<String> item : deletes) {
+                if (existingIds.contains(item.value())) {
+                    found.add(item);
+                } else {
+                    item.result().fail(404, "⚠️ No existe un dispositivo con el ID: " + item.value());
+                }
+            }
+            return deviceRepository.writeBatchAsync(upserts, found);
+        }).thenApply(ignored -> new BatchResult(results));
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return deviceRepository.getCacheStats();
+    }
+
+}
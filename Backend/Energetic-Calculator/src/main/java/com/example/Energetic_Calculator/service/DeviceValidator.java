@@ -0,0 +1,48 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.Device;
+
+import java.util.List;
+
+/**
+ * Reglas de validación del catálogo compartidas por los endpoints individuales y por lotes
+ */
+public final class DeviceValidator {
+
+    public static final List<String> CATEGORIAS_VALIDAS =
+            List.of("Cocina", "Lavandería", "Clima", "Entretenimiento", "Iluminación", "Otros");
+
+    private DeviceValidator() {
+    }
+
+    /**
+     * Devuelve el mensaje de error del primer campo inválido o null si el dispositivo es válido
+     */
+    public static String validate(Device device) {
+        if (device == null) {
+            return "❌ El dispositivo es requerido.";
+        }
+
+        if (device.getNombre() == null || device.getNombre().length() < 3 || device.getNombre().length() > 50) {
+            return "❌ El nombre debe tener entre 3 y 50 caracteres.";
+        }
+
+        if (!CATEGORIAS_VALIDAS.contains(device.getCategoria())) {
+            return "❌ La categoría debe ser una de: " + CATEGORIAS_VALIDAS;
+        }
+
+        if (device.getPotenciaWatts() < 1 || device.getPotenciaWatts() > 5000) {
+            return "❌ La potencia debe estar entre 1 y 5000 watts.";
+        }
+
+        if (device.getHorasUsoDiario() < 0.1 || device.getHorasUsoDiario() > 24.0) {
+            return "❌ Las horas de uso diario deben estar entre 0.1 y 24.";
+        }
+
+        if (device.getDiasUsoMensual() < 1 || device.getDiasUsoMensual() > 31) {
+            return "❌ Los días de uso mensual deben estar entre 1 y 31.";
+        }
+
+        return null;
+    }
+}
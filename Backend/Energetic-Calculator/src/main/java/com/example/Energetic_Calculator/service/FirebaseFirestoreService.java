@@ -1,54 +1,145 @@
 package com.example.Energetic_Calculator.service;
 
-import com.google.firebase.cloud.FirestoreClient;
+import com.example.Energetic_Calculator.model.PageResult;
+import com.example.Energetic_Calculator.repository.DocumentStore;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
+/**
+ * Operaciones genéricas sobre colecciones. Van al DocumentStore configurado (Firestore o memoria).
+ */
 @Service
 public class FirebaseFirestoreService {
 
+    private final DocumentStore store;
+
+    public FirebaseFirestoreService(DocumentStore store) {
+        this.store = store;
+    }
+
     public String createDocument(String collection, Map<String, Object> data) throws ExecutionException, InterruptedException {
-        var firestore = FirestoreClient.getFirestore();
-        var docRef = firestore.collection(collection).document();
-        var result = docRef.set(data).get();
-        return docRef.getId();
+        return FirestoreFutures.await(createDocumentAsync(collection, data));
+    }
+
+    public CompletableFuture<String> createDocumentAsync(String collection, Map<String, Object> data) {
+        return store.add(collection, data);
     }
 
     public Map<String, Object> getDocument(String collection, String documentId) throws ExecutionException, InterruptedException {
-        var firestore = FirestoreClient.getFirestore();
-        var docRef = firestore.collection(collection).document(documentId);
-        var document = docRef.get().get();
-        if (document.exists()) {
-            return document.getData();
-        } else {
-            return null;
-        }
+        return FirestoreFutures.await(getDocumentAsync(collection, documentId));
+    }
+
+    public CompletableFuture<Map<String, Object>> getDocumentAsync(String collection, String documentId) {
+        return store.get(collection, documentId);
     }
 
     public List<Map<String, Object>> getAllDocuments(String collection) throws ExecutionException, InterruptedException {
-        var firestore = FirestoreClient.getFirestore();
-        var future = firestore.collection(collection).get();
-        var querySnapshot = future.get();
-        return querySnapshot.getDocuments().stream().map(doc -> {
-            Map<String, Object> data = new HashMap<>(doc.getData());
-            data.put("id", doc.getId());
-            return data;
-        }).toList();
+        return FirestoreFutures.await(getAllDocumentsAsync(collection));
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> getAllDocumentsAsync(String collection) {
+        return store.list(collection)
+                .thenApply(documents -> documents.stream().map(DocumentStore.Document::toMap).toList());
+    }
+
+    /**
+     * Devuelve una página de la colección ordenada por id, opcionalmente proyectando solo algunos campos
+     */
+    public PageResult<Map<String, Object>> getDocumentsPage(String collection, int limit, String startAfter, List<String> fields)
+            throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(getDocumentsPageAsync(collection, limit, startAfter, fields));
+    }
+
+    public CompletableFuture<PageResult<Map<String, Object>>> getDocumentsPageAsync(String collection, int limit,
+                                                                                   String startAfter, List<String> fields) {
+        return store.page(collection, limit, startAfter, fields)
+                .thenApply(documents -> DocumentStore.toPage(documents, limit, DocumentStore.Document::toMap));
+    }
+
+    /**
+     * Documentos de la colección cuyo campo es igual al valor (con el backend en memoria usa un índice por campo)
+     */
+    public List<Map<String, Object>> findDocuments(String collection, String field, Object value)
+            throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(findDocumentsAsync(collection, field, value));
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> findDocumentsAsync(String collection, String field, Object value) {
+        return store.findBy(collection, field, value)
+                .thenApply(documents -> documents.stream().map(DocumentStore.Document::toMap).toList());
+    }
+
+    /**
+     * Recorre toda la colección por páginas y entrega cada documento al visitante.
+     * Solo se mantiene una página en memoria, sin importar el tamaño de la colección.
+     */
+    public long forEachDocument(String collection, int pageSize, DocumentVisitor visitor)
+            throws ExecutionException, InterruptedException, IOException {
+        long visited = 0;
+        String last = null;
+        while (true) {
+            List<DocumentStore.Document> documents = FirestoreFutures.await(store.page(collection, pageSize, last, null));
+            for (DocumentStore.Document document : documents) {
+                visitor.visit(document.id(), document.data());
+                visited++;
+            }
+            if (documents.size() < pageSize) {
+                return visited;
+            }
+            last = documents.get(documents.size() - 1).id();
+        }
+    }
+
+    @FunctionalInterface
+    public interface DocumentVisitor {
+        void visit(String id, Map<String, Object> data) throws IOException;
+    }
+
+    /**
+     * Como forEachDocument, pero entrega cada página completa para que el visitante escriba lo que calculó con ella
+     * antes de leer la siguiente
+     */
+    public long forEachPage(String collection, int pageSize, PageVisitor visitor)
+            throws ExecutionException, InterruptedException {
+        long visited = 0;
+        String last = null;
+        while (true) {
+            List<DocumentStore.Document> documents = FirestoreFutures.await(store.page(collection, pageSize, last, null));
+            if (!documents.isEmpty()) {
+                visitor.visit(documents);
+                visited += documents.size();
+            }
+            if (documents.size() < pageSize) {
+                return visited;
+            }
+            last = documents.get(documents.size() - 1).id();
+        }
+    }
+
+    @FunctionalInterface
+    public interface PageVisitor {
+        void visit(List<DocumentStore.Document> documents) throws ExecutionException, InterruptedException;
     }
 
     public void updateDocument(String collection, String documentId, Map<String, Object> data) throws ExecutionException, InterruptedException {
-        var firestore = FirestoreClient.getFirestore();
-        var docRef = firestore.collection(collection).document(documentId);
-        docRef.update(data).get();
+        FirestoreFutures.await(updateDocumentAsync(collection, documentId, data));
+    }
+
+    public CompletableFuture<Void> updateDocumentAsync(String collection, String documentId, Map<String, Object> data) {
+        return store.update(collection, documentId, data).thenApply(updateTime -> null);
     }
 
     public void deleteDocument(String collection, String documentId) throws ExecutionException, InterruptedException {
-        var firestore = FirestoreClient.getFirestore();
-        var docRef = firestore.collection(collection).document(documentId);
-        docRef.delete().get();
+        FirestoreFutures.await(deleteDocumentAsync(collection, documentId));
+    }
+
+    public CompletableFuture<Void> deleteDocumentAsync(String collection, String documentId) {
+        return store.delete(collection, documentId).thenApply(updateTime -> null);
     }
-}
\ No newline at end of file
+}
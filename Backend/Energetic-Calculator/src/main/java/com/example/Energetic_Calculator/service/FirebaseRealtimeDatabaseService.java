@@ -1,49 +1,163 @@
 package com.example.Energetic_Calculator.service;
 
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.example.Energetic_Calculator.repository.RealtimePathCache;
+import com.example.Energetic_Calculator.repository.RealtimeWriteCoalescer;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class FirebaseRealtimeDatabaseService {
 
     private final FirebaseDatabase database;
+    private final RealtimePathCache cache;
+    private final RealtimeWriteCoalescer writer;
+    private final long readTimeoutMillis;
+    private final long writeTimeoutMillis;
 
-    public FirebaseRealtimeDatabaseService() {
-        this.database = FirebaseDatabase.getInstance();
+    public FirebaseRealtimeDatabaseService(FirebaseDatabase database, RealtimePathCache cache, RealtimeWriteCoalescer writer,
+                                           @Value("${realtime.read-timeout-ms:10000}") long readTimeoutMillis,
+                                           @Value("${realtime.write-timeout-ms:10000}") long writeTimeoutMillis) {
+        this.database = database;
+        this.cache = cache;
+        this.writer = writer;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.writeTimeoutMillis = writeTimeoutMillis;
     }
 
-    public String createOrUpdateData(String path, Map<String, Object> data) {
-        DatabaseReference ref = database.getReference(path);
-        ref.setValue(data, (error, ref1) -> {
-            if (error != null) {
-                System.err.println("Error updating data: " + error.getMessage());
-            } else {
-                System.out.println("Data updated successfully");
+    /**
+     * Reemplaza el valor de la ruta y espera la confirmación del servidor
+     */
+    public void createOrUpdateData(String path, Map<String, Object> data) throws ExecutionException, InterruptedException {
+        FirestoreFutures.await(createOrUpdateDataAsync(path, data));
+    }
+
+    /**
+     * Reemplaza el valor de la ruta; el futuro se completa cuando el servidor confirma la escritura
+     */
+    public CompletableFuture<Void> createOrUpdateDataAsync(String path, Map<String, Object> data) {
+        return acknowledged(writer.write(Collections.singletonMap(RealtimePathCache.normalize(path), data)));
+    }
+
+    /**
+     * Modifica solo los hijos dados de la ruta. Las actualizaciones a la misma ruta dentro de la ventana de
+     * realtime.write.coalesce-window-ms se envían juntas en un solo updateChildren.
+     */
+    public CompletableFuture<Void> updateDataAsync(String path, Map<String, Object> children) {
+        if (children == null || children.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("La actualización no tiene campos"));
+        }
+        String base = RealtimePathCache.normalize(path);
+        Map<String, Object> values = new HashMap<>(children.size() * 2);
+        for (Map.Entry<String, Object> child : children.entrySet()) {
+            String childPath = RealtimePathCache.normalize(child.getKey());
+            if (childPath.isEmpty()) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Los campos no pueden estar vacíos"));
             }
-        });
-        return "Data update initiated at " + path;
+            values.put(base.isEmpty() ? childPath : base + "/" + childPath, child.getValue());
+        }
+        return acknowledged(writer.write(values));
+    }
+
+    /**
+     * Suma los valores a los hijos de la ruta en una transacción, que el servidor reintenta si otro nodo escribió la
+     * ruta entretanto; un hijo que no existe o no es numérico toma el valor. No pasa por el coalescedor de escrituras.
+     */
+    public CompletableFuture<Void> incrementAsync(String path, Map<String, ? extends Number> increments) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        database.getReference(RealtimePathCache.normalize(path)).runTransaction(new Transaction.Handler() {
+            @Override
+            public Transaction.Result doTransaction(MutableData current) {
+                for (Map.Entry<String, ? extends Number> increment : increments.entrySet()) {
+                    MutableData child = current.child(increment.getKey());
+                    child.setValue(add(child.getValue(), increment.getValue()));
+                }
+                return Transaction.success(current);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                if (error != null) {
+                    future.completeExceptionally(error.toException());
+                } else if (!committed) {
+                    future.completeExceptionally(new IllegalStateException("No se confirmó la transacción de " + path));
+                } else {
+                    future.complete(null);
+                }
+            }
+        }, false);
+        return acknowledged(future);
+    }
+
+    private static Number add(Object current, Number increment) {
+        if (!(current instanceof Number base)) {
+            return increment;
+        }
+        if (base instanceof Long && (increment instanceof Long || increment instanceof Integer)) {
+            return base.longValue() + increment.longValue();
+        }
+        return base.doubleValue() + increment.doubleValue();
     }
 
-    public Map<String, Object> getData(String path) {
-        DatabaseReference ref = database.getReference(path);
-        // Note: Synchronous get is not recommended; for simplicity, returning null
-        // In production, use listeners or async methods
-        return null;
+    /**
+     * Valor de la ruta (mapa, lista o valor simple; null si no existe)
+     */
+    public Object getData(String path) throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(getDataAsync(path));
     }
 
-    public String deleteData(String path) {
-        DatabaseReference ref = database.getReference(path);
-        ref.removeValue((error, ref1) -> {
-            if (error != null) {
-                System.err.println("Error deleting data: " + error.getMessage());
-            } else {
-                System.out.println("Data deleted successfully");
+    /**
+     * Bajo una ruta de realtime.cache.paths responde la copia local; si no, una lectura con
+     * addListenerForSingleValueEvent que falla con TimeoutException si la base no responde a tiempo
+     */
+    public CompletableFuture<Object> getDataAsync(String path) {
+        RealtimePathCache.Hit hit = cache.get(path);
+        if (hit != null) {
+            return CompletableFuture.completedFuture(hit.value());
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        database.getReference(path).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                future.complete(snapshot.getValue());
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                future.completeExceptionally(error.toException());
             }
         });
-        return "Data deletion initiated at " + path;
+        return future.orTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void deleteData(String path) throws ExecutionException, InterruptedException {
+        FirestoreFutures.await(deleteDataAsync(path));
+    }
+
+    public CompletableFuture<Void> deleteDataAsync(String path) {
+        return acknowledged(writer.write(Collections.singletonMap(RealtimePathCache.normalize(path), null)));
+    }
+
+    private CompletableFuture<Void> acknowledged(CompletableFuture<Void> write) {
+        return write.orTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return cache.stats();
     }
 
     public DatabaseReference getReference(String path) {
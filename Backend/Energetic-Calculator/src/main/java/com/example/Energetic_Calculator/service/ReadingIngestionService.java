@@ -0,0 +1,419 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.cache.TtlCache;
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.example.Energetic_Calculator.model.DeviceReadings;
+import com.example.Energetic_Calculator.model.ReadingHistory;
+import com.example.Energetic_Calculator.repository.DocumentStore;
+import com.example.Energetic_Calculator.timeseries.Level;
+import com.example.Energetic_Calculator.timeseries.TimeSeriesStore;
+import com.google.cloud.Timestamp;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Ingesta de lecturas de medidores. Las peticiones validan y encolan; un único hilo agregador saca los lotes de la
+ * cola, los suma en ReadingRollups y cada flush-interval-ms suma lo nuevo de cada periodo modificado a su total en el
+ * almacén de documentos (FieldValue.increment) o en Realtime Database (una transacción por periodo). Al escribir
+ * incrementos y no totales, un nodo recién arrancado o varios nodos con el mismo medidor no pisan lo persistido; a
+ * cambio, una escritura que falló tras aplicarse en el servidor se suma dos veces al reintentarla. La cola admite como
+ * máximo queue-capacity lecturas: pasado ese número las peticiones se rechazan con 503 en lugar de acumular memoria.
+ * Todo el estado de los anillos pertenece al hilo agregador; las consultas se le envían como tareas. El mismo hilo
+ * anexa las lecturas al historial (TimeSeriesStore) si está habilitado.
+ */
+@Service
+public class ReadingIngestionService {
+
+    private static final Logger logger = Logger.getLogger(ReadingIngestionService.class.getName());
+    public static final String COLLECTION_NAME = "meter_rollups";
+    // Tolerancia para relojes de medidores adelantados
+    private static final long MAX_CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final DocumentStore store;
+    private final FirebaseRealtimeDatabaseService realtimeService;
+    private final TimeSeriesStore history;
+    private final boolean realtimeSink;
+    private final int queueCapacity;
+    private final int maxPerRequest;
+    private final long flushIntervalMillis;
+    private final long idleMillis;
+
+    private final ReadingRollups rollups;
+    private final Semaphore capacity;
+    private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+    // userDeviceId -> userId; la propiedad no cambia, pero al eliminar el dispositivo se olvida (forgetDevice)
+    private final TtlCache<String, String> owners;
+
+    private volatile boolean running;
+    private Thread aggregator;
+    // Solo los usa el hilo agregador
+    private CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+    private long lastDropped;
+    private long lastOverwritten;
+
+    private final Counter ingested;
+    private final Counter rejected;
+    private final Counter dropped;
+    private final Counter overwritten;
+    private final Counter rollupsWritten;
+    private final Counter rollupsFailed;
+
+    public ReadingIngestionService(DocumentStore store, FirebaseRealtimeDatabaseService realtimeService,
+                                   TimeSeriesStore history,
+                                   @Value("${readings.rollups.sink:store}") String sink,
+                                   @Value("${readings.queue-capacity:500000}") int queueCapacity,
+                                   @Value("${readings.max-per-request:50000}") int maxPerRequest,
+                                   @Value("${readings.flush-interval-ms:5000}") long flushIntervalMillis,
+                                   @Value("${readings.rollups.minute-slots:120}") int minuteSlots,
+                                   @Value("${readings.rollups.hour-slots:48}") int hourSlots,
+                                   @Value("${readings.rollups.day-slots:35}") int daySlots,
+                                   @Value("${readings.series-idle-minutes:1440}") long idleMinutes,
+                                   MeterRegistry registry) {
+        if (!"store".equals(sink) && !"realtime".equals(sink)) {
+            throw new IllegalArgumentException("readings.rollups.sink debe ser store o realtime: " + sink);
+        }
+        this.store = store;
+        this.realtimeService = realtimeService;
+        this.history = history;
+        this.realtimeSink = "realtime".equals(sink);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxPerRequest = Math.max(1, Math.min(maxPerRequest, this.queueCapacity));
+        this.flushIntervalMillis = Math.max(100, flushIntervalMillis);
+        this.idleMillis = TimeUnit.MINUTES.toMillis(Math.max(1, idleMinutes));
+        this.rollups = new ReadingRollups(minuteSlots, hourSlots, daySlots);
+        this.capacity = new Semaphore(this.queueCapacity);
+        this.owners = new TtlCache<>(100_000, 1, TimeUnit.HOURS);
+
+        this.ingested = Counter.builder("readings.ingested")
+                .description("Lecturas aceptadas y encoladas").register(registry);
+        this.rejected = Counter.builder("readings.rejected")
+                .description("Lecturas rechazadas por cola llena").register(registry);
+        this.dropped = Counter.builder("readings.dropped")
+                .description("Lecturas más viejas que la ventana de los acumulados").register(registry);
+        this.overwritten = Counter.builder("readings.rollups.overwritten")
+                .description("Periodos reemplazados en el anillo antes de escribirse").register(registry);
+        this.rollupsWritten = Counter.builder("readings.rollups.written")
+                .description("Periodos escritos en el destino").register(registry);
+        this.rollupsFailed = Counter.builder("readings.rollups.failed")
+                .description("Periodos cuya escritura falló (se reintentan en el siguiente flush)").register(registry);
+        Gauge.builder("readings.queued", this, service -> service.queued())
+                .description("Lecturas encoladas pendientes de agregar").register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        aggregator = new Thread(this::run, "readings-aggregator");
+        aggregator.setDaemon(true);
+        aggregator.start();
+    }
+
+    /**
+     * Agrega lo encolado y escribe lo pendiente antes de terminar
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        aggregator.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Valida las lecturas, comprueba que los dispositivos sean del usuario y las encola. El futuro se completa con el
+     * número de lecturas encoladas; falla con IllegalArgumentException si una lectura no es válida, con
+     * SecurityException si un dispositivo es de otro usuario y con RejectedExecutionException si la cola está llena.
+     */
+    public CompletableFuture<Integer> ingestAsync(String userId, List<DeviceReadings> devices) {
+        int total;
+        try {
+            total = validate(devices);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        devices.forEach(device -> ids.add(device.getUserDeviceId()));
+
+        return checkOwnership(userId, ids).thenApply(ignored -> {
+            if (!running || !capacity.tryAcquire(total)) {
+                rejected.increment(total);
+                throw new RejectedExecutionException(
+                        "La cola de lecturas está llena (" + queueCapacity + " lecturas); reintenta más tarde");
+            }
+            long now = System.currentTimeMillis();
+            for (DeviceReadings device : devices) {
+                String userDeviceId = device.getUserDeviceId();
+                long[] timestamps = device.getTimestamps();
+                double[] kwh = device.getKwh();
+                tasks.add(() -> {
+                    try {
+                        rollups.add(userId, userDeviceId, timestamps, kwh, 0, timestamps.length, now);
+                        history.append(userDeviceId, timestamps, kwh, 0, timestamps.length);
+                    } finally {
+                        capacity.release(timestamps.length);
+                    }
+                });
+            }
+            ingested.increment(total);
+            return total;
+        });
+    }
+
+    /**
+     * Periodos que el nodo conserva en memoria para el dispositivo, del más antiguo al más reciente
+     */
+    public CompletableFuture<List<ReadingRollups.Rollup>> getRollupsAsync(String userId, String userDeviceId,
+                                                                          ReadingRollups.Resolution resolution) {
+        return checkOwnership(userId, Set.of(userDeviceId))
+                .thenCompose(ignored -> onAggregator(() -> rollups.rollups(userDeviceId, resolution)));
+    }
+
+    /**
+     * Historial del dispositivo en [from, to) leído de los segmentos del nodo
+     */
+    public CompletableFuture<ReadingHistory> getHistoryAsync(String userId, String userDeviceId, Level level,
+                                                             long from, long to) {
+        if (from >= to) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("from debe ser anterior a to"));
+        }
+        return checkOwnership(userId, Set.of(userDeviceId)).thenApply(ignored -> new ReadingHistory(userDeviceId,
+                level.key(), from, to, history.query(userDeviceId, level, from, to)));
+    }
+
+    /**
+     * Deja de aceptar en este nodo lecturas del dispositivo eliminado sin esperar a que caduque su propietario en
+     * caché (los demás nodos lo olvidan al caducar, como mucho en una hora)
+     */
+    public void forgetDevice(String userDeviceId) {
+        owners.invalidate(userDeviceId);
+    }
+
+    public boolean isHistoryEnabled() {
+        return history.isEnabled();
+    }
+
+    public CompletableFuture<Map<String, Object>> statsAsync() {
+        return onAggregator(() -> {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("sink", realtimeSink ? "realtime" : "store");
+            stats.put("series", rollups.size());
+            stats.put("queued", queued());
+            stats.put("queueCapacity", queueCapacity);
+            stats.put("aggregated", rollups.aggregated());
+            stats.put("dropped", rollups.dropped());
+            stats.put("overwritten", rollups.overwritten());
+            stats.put("rollupsWritten", (long) rollupsWritten.count());
+            stats.put("rollupsFailed", (long) rollupsFailed.count());
+            stats.put("history", history.stats());
+            return stats;
+        });
+    }
+
+    public int queued() {
+        return queueCapacity - capacity.availablePermits();
+    }
+
+    private int validate(List<DeviceReadings> devices) {
+        if (devices == null || devices.isEmpty()) {
+            throw new IllegalArgumentException("La petición no tiene lecturas");
+        }
+        long latest = System.currentTimeMillis() + MAX_CLOCK_SKEW_MILLIS;
+        long total = 0;
+        for (int d = 0; d < devices.size(); d++) {
+            DeviceReadings device = devices.get(d);
+            if (device == null || device.getUserDeviceId() == null || device.getUserDeviceId().isBlank()) {
+                throw new IllegalArgumentException("devices[" + d + "]: userDeviceId es obligatorio");
+            }
+            long[] timestamps = device.getTimestamps();
+            double[] kwh = device.getKwh();
+            if (timestamps == null || kwh == null || timestamps.length != kwh.length) {
+                throw new IllegalArgumentException("devices[" + d + "]: timestamps y kwh deben tener la misma longitud");
+            }
+            for (int i = 0; i < timestamps.length; i++) {
+                if (timestamps[i] <= 0 || timestamps[i] > latest) {
+                    throw new IllegalArgumentException("devices[" + d + "].timestamps[" + i + "] no es una fecha válida");
+                }
+                // !(x >= 0) también descarta NaN
+                if (!(kwh[i] >= 0) || Double.isInfinite(kwh[i])) {
+                    throw new IllegalArgumentException("devices[" + d + "].kwh[" + i + "] debe ser un número no negativo");
+                }
+            }
+            total += timestamps.length;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("La petición no tiene lecturas");
+        }
+        if (total > maxPerRequest) {
+            throw new IllegalArgumentException("Máximo " + maxPerRequest + " lecturas por petición");
+        }
+        return (int) total;
+    }
+
+    private CompletableFuture<Void> checkOwnership(String userId, Set<String> ids) {
+        List<String> unknown = new ArrayList<>();
+        for (String id : ids) {
+            String owner = owners.get(id);
+            if (owner == null) {
+                unknown.add(id);
+            } else if (!owner.equals(userId)) {
+                return CompletableFuture.failedFuture(
+                        new SecurityException("No tienes permisos para acceder a este dispositivo"));
+            }
+        }
+        if (unknown.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return store.getAll(UserDeviceService.COLLECTION_NAME, unknown).thenAccept(found -> {
+            for (String id : unknown) {
+                Map<String, Object> data = found.get(id);
+                if (data == null) {
+                    throw new IllegalArgumentException("El dispositivo no existe: " + id);
+                }
+                String owner = (String) data.get("userId");
+                if (owner == null || !owner.equals(userId)) {
+                    throw new SecurityException("No tienes permisos para acceder a este dispositivo");
+                }
+                owners.put(id, owner);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> onAggregator(Supplier<T> query) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("La ingesta de lecturas se está deteniendo"));
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        tasks.add(() -> {
+            try {
+                result.complete(query.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private void run() {
+        long nextFlush = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (running || !tasks.isEmpty()) {
+            try {
+                Runnable task = tasks.poll(Math.max(0, nextFlush - System.nanoTime()), TimeUnit.NANOSECONDS);
+                while (task != null) {
+                    task.run();
+                    task = tasks.poll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.warning("⚠️ Error agregando lecturas: " + e.getMessage());
+            }
+            publishCounters();
+            if (System.nanoTime() - nextFlush >= 0) {
+                flush();
+                nextFlush = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+            }
+        }
+        // Último flush al apagar: se espera al anterior para no perder periodos
+        inFlight.exceptionally(error -> null).join();
+        publishCounters();
+        flush();
+        inFlight.exceptionally(error -> null).join();
+    }
+
+    private void publishCounters() {
+        dropped.increment(rollups.dropped() - lastDropped);
+        overwritten.increment(rollups.overwritten() - lastOverwritten);
+        lastDropped = rollups.dropped();
+        lastOverwritten = rollups.overwritten();
+    }
+
+    /**
+     * Un flush a la vez: si el anterior no terminó, lo modificado espera al siguiente intervalo
+     */
+    private void flush() {
+        if (!inFlight.isDone()) {
+            return;
+        }
+        List<ReadingRollups.Rollup> dirty = rollups.drainDirty();
+        rollups.evictIdle(System.currentTimeMillis() - idleMillis);
+        if (dirty.isEmpty()) {
+            return;
+        }
+        inFlight = write(dirty)
+                .exceptionally(error -> {
+                    logger.warning("⚠️ No se pudieron escribir " + dirty.size() + " acumulados de lecturas: " + error.getMessage());
+                    return dirty;
+                })
+                .thenAccept(failed -> {
+                    rollupsWritten.increment(dirty.size() - failed.size());
+                    if (!failed.isEmpty()) {
+                        rollupsFailed.increment(failed.size());
+                        tasks.add(() -> failed.forEach(rollups::markDirty));
+                    }
+                });
+    }
+
+    /**
+     * Suma los incrementos de los periodos y completa con los que fallaron
+     */
+    private CompletableFuture<List<ReadingRollups.Rollup>> write(List<ReadingRollups.Rollup> dirty) {
+        if (realtimeSink) {
+            List<ReadingRollups.Rollup> failed = Collections.synchronizedList(new ArrayList<>());
+            CompletableFuture<?>[] increments = new CompletableFuture<?>[dirty.size()];
+            for (int i = 0; i < dirty.size(); i++) {
+                ReadingRollups.Rollup rollup = dirty.get(i);
+                String path = COLLECTION_NAME + "/" + rollup.userId() + "/" + rollup.userDeviceId() + "/"
+                        + rollup.resolution().key() + "/" + rollup.start();
+                increments[i] = realtimeService.incrementAsync(path, Map.of("kwh", rollup.kwh(), "count", rollup.count()))
+                        .exceptionally(error -> {
+                            failed.add(rollup);
+                            return null;
+                        });
+            }
+            return CompletableFuture.allOf(increments).thenApply(ignored -> failed);
+        }
+
+        List<DocumentStore.Write> writes = new ArrayList<>(dirty.size());
+        for (int i = 0; i < dirty.size(); i++) {
+            ReadingRollups.Rollup rollup = dirty.get(i);
+            String id = rollup.userDeviceId() + "_" + rollup.resolution().key() + "_" + rollup.start();
+            Map<String, Object> data = new HashMap<>();
+            data.put("userId", rollup.userId());
+            data.put("userDeviceId", rollup.userDeviceId());
+            data.put("resolution", rollup.resolution().key());
+            data.put("start", Timestamp.ofTimeMicroseconds(rollup.start() * 1000));
+            data.put("kwh", rollup.kwh());
+            data.put("count", rollup.count());
+            writes.add(DocumentStore.Write.increment(new BatchItemResult("update", i, id), id, data));
+        }
+        return store.commit(COLLECTION_NAME, writes).thenApply(ignored -> {
+            List<ReadingRollups.Rollup> failed = new ArrayList<>();
+            for (int i = 0; i < writes.size(); i++) {
+                if (!writes.get(i).result().isSuccess()) {
+                    failed.add(dirty.get(i));
+                }
+            }
+            return failed;
+        });
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.Energetic_Calculator.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Acumulados por minuto, hora y día (UTC) de las lecturas de cada dispositivo de usuario, en anillos de arreglos
+ * primitivos: sumar una lectura es aritmética sobre long[]/double[] sin crear objetos. Cada anillo guarda los últimos
+ * N periodos; una lectura más vieja que la ventana de un anillo no cuenta en él. Cada periodo guarda además lo sumado
+ * desde la última escritura: drainDirty entrega esos incrementos para sumarlos a lo persistido, así que un anillo
+ * vacío (tras reiniciar o descartar el dispositivo, o en otro nodo) nunca reemplaza totales guardados.
+ * No es seguro entre hilos: lo usa un solo hilo.
+ */
+public class ReadingRollups {
+
+    public enum Resolution {
+        MINUTE(60_000L), HOUR(3_600_000L), DAY(86_400_000L);
+
+        private final long millis;
+
+        Resolution(long millis) {
+            this.millis = millis;
+        }
+
+        public long millis() {
+            return millis;
+        }
+
+        public String key() {
+            return name().toLowerCase();
+        }
+
+        public static Resolution of(String key) {
+            for (Resolution resolution : values()) {
+                if (resolution.key().equals(key)) {
+                    return resolution;
+                }
+            }
+            throw new IllegalArgumentException("Resolución no soportada: " + key + " (minute, hour o day)");
+        }
+    }
+
+    /**
+     * Periodo: start es el inicio en epoch millis, kwh la suma y count el número de lecturas (en drainDirty, solo lo
+     * sumado desde la escritura anterior)
+     */
+    public record Rollup(String userId, String userDeviceId, Resolution resolution, long start, double kwh, long count) {
+    }
+
+    private final int[] slots;
+    private final Map<String, Series> series = new HashMap<>();
+    // Series con periodos sin escribir, para no recorrer todas en cada drainDirty
+    private final List<Series> dirtySeries = new ArrayList<>();
+
+    private long aggregated;
+    private long dropped;
+    private long overwritten;
+
+    public ReadingRollups(int minuteSlots, int hourSlots, int daySlots) {
+        if (minuteSlots < 1 || hourSlots < 1 || daySlots < 1) {
+            throw new IllegalArgumentException("Cada anillo necesita al menos un periodo");
+        }
+        this.slots = new int[]{minuteSlots, hourSlots, daySlots};
+    }
+
+    /**
+     * Suma las lecturas [from, to) al dispositivo y devuelve cuántas entraron en al menos un anillo.
+     * Los arreglos no se copian ni se guardan.
+     */
+    public int add(String userId, String userDeviceId, long[] timestamps, double[] kwh, int from, int to, long now) {
+        Series target = series.get(userDeviceId);
+        if (target == null) {
+            target = new Series(userId, userDeviceId, slots);
+            series.put(userDeviceId, target);
+        }
+        Ring minute = target.rings[0];
+        Ring hour = target.rings[1];
+        Ring day = target.rings[2];
+        int accepted = 0;
+        for (int i = from; i < to; i++) {
+            long timestamp = timestamps[i];
+            double value = kwh[i];
+            minute.add(timestamp, value);
+            hour.add(timestamp, value);
+            // El anillo de días es el de ventana más larga: si la descarta, ningún otro la tomó
+            if (day.add(timestamp, value)) {
+                accepted++;
+            }
+        }
+        aggregated += accepted;
+        dropped += (to - from) - accepted;
+        overwritten += minute.takeOverwritten() + hour.takeOverwritten() + day.takeOverwritten();
+        target.lastReading = now;
+        if (!target.dirty && accepted > 0) {
+            target.dirty = true;
+            dirtySeries.add(target);
+        }
+        return accepted;
+    }
+
+    /**
+     * Incrementos de los periodos modificados desde la llamada anterior, que dejan de estar marcados
+     */
+    public List<Rollup> drainDirty() {
+        List<Rollup> rollups = new ArrayList<>();
+        for (Series dirty : dirtySeries) {
+            for (Resolution resolution : Resolution.values()) {
+                dirty.rings[resolution.ordinal()].drain(dirty, resolution, rollups);
+            }
+            dirty.dirty = false;
+        }
+        dirtySeries.clear();
+        return rollups;
+    }
+
+    /**
+     * Devuelve a un periodo el incremento cuya escritura falló, si el anillo todavía lo tiene
+     */
+    public void markDirty(Rollup rollup) {
+        Series target = series.get(rollup.userDeviceId());
+        if (target != null && target.rings[rollup.resolution().ordinal()].restore(rollup)) {
+            if (!target.dirty) {
+                target.dirty = true;
+                dirtySeries.add(target);
+            }
+        }
+    }
+
+    /**
+     * Periodos que conserva el anillo del dispositivo, del más antiguo al más reciente
+     */
+    public List<Rollup> rollups(String userDeviceId, Resolution resolution) {
+        Series target = series.get(userDeviceId);
+        if (target == null) {
+            return List.of();
+        }
+        List<Rollup> rollups = target.rings[resolution.ordinal()].live(target, resolution);
+        rollups.sort((a, b) -> Long.compare(a.start(), b.start()));
+        return rollups;
+    }
+
+    /**
+     * Descarta los dispositivos sin lecturas desde idleSince que no tienen nada pendiente de escribir
+     */
+    public int evictIdle(long idleSince) {
+        int evicted = 0;
+        for (Iterator<Series> it = series.values().iterator(); it.hasNext(); ) {
+            Series candidate = it.next();
+            if (!candidate.dirty && candidate.lastReading < idleSince) {
+                it.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return series.size();
+    }
+
+    public long aggregated() {
+        return aggregated;
+    }
+
+    /**
+     * Lecturas fuera de la ventana de todos los anillos
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Periodos reemplazados por uno más nuevo antes de escribirse
+     */
+    public long overwritten() {
+        return overwritten;
+    }
+
+    private static final class Series {
+        final String userId;
+        final String userDeviceId;
+        final Ring[] rings;
+        long lastReading;
+        boolean dirty;
+
+        Series(String userId, String userDeviceId, int[] slots) {
+            this.userId = userId;
+            this.userDeviceId = userDeviceId;
+            Resolution[] resolutions = Resolution.values();
+            this.rings = new Ring[resolutions.length];
+            for (int i = 0; i < resolutions.length; i++) {
+                rings[i] = new Ring(resolutions[i].millis(), slots[i]);
+            }
+        }
+    }
+
+    /**
+     * Un periodo por posición: la posición de un periodo es su número módulo el tamaño del anillo, así que un periodo
+     * nuevo ocupa el lugar del que quedó fuera de la ventana
+     */
+    private static final class Ring {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        final long bucketMillis;
+        final long windowMillis;
+        final long[] starts;
+        final double[] sums;
+        final long[] counts;
+        // Lo sumado desde la última escritura; el periodo está marcado en dirty mientras no se haya drenado
+        final double[] pendingSums;
+        final long[] pendingCounts;
+        final long[] dirty;
+        // Inicio del periodo más reciente; la ventana son los size periodos que terminan en él
+        long newest = EMPTY;
+        int overwritten;
+
+        Ring(long bucketMillis, int size) {
+            this.bucketMillis = bucketMillis;
+            this.windowMillis = bucketMillis * size;
+            this.starts = new long[size];
+            this.sums = new double[size];
+            this.counts = new long[size];
+            this.pendingSums = new double[size];
+            this.pendingCounts = new long[size];
+            this.dirty = new long[(size + 63) >>> 6];
+            Arrays.fill(starts, EMPTY);
+        }
+
+        boolean add(long timestamp, double value) {
+            long start = timestamp - Math.floorMod(timestamp, bucketMillis);
+            if (newest != EMPTY && start <= newest - windowMillis) {
+                return false;
+            }
+            if (start > newest) {
+                newest = start;
+            }
+            int slot = (int) Math.floorMod(start / bucketMillis, (long) starts.length);
+            long current = starts[slot];
+            if (current != start) {
+                if (current != EMPTY && isDirty(slot)) {
+                    overwritten++;
+                }
+                starts[slot] = start;
+                sums[slot] = 0;
+                counts[slot] = 0;
+                pendingSums[slot] = 0;
+                pendingCounts[slot] = 0;
+            }
+            sums[slot] += value;
+            counts[slot]++;
+            pendingSums[slot] += value;
+            pendingCounts[slot]++;
+            dirty[slot >>> 6] |= 1L << slot;
+            return true;
+        }
+
+        int takeOverwritten() {
+            int taken = overwritten;
+            overwritten = 0;
+            return taken;
+        }
+
+        boolean restore(Rollup failed) {
+            int slot = (int) Math.floorMod(failed.start() / bucketMillis, (long) starts.length);
+            if (starts[slot] != failed.start()) {
+                return false;
+            }
+            pendingSums[slot] += failed.kwh();
+            pendingCounts[slot] += failed.count();
+            dirty[slot >>> 6] |= 1L << slot;
+            return true;
+        }
+
+        void drain(Series series, Resolution resolution, List<Rollup> out) {
+            for (int word = 0; word < dirty.length; word++) {
+                long bits = dirty[word];
+                while (bits != 0) {
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    out.add(new Rollup(series.userId, series.userDeviceId, resolution, starts[slot],
+                            pendingSums[slot], pendingCounts[slot]));
+                    pendingSums[slot] = 0;
+                    pendingCounts[slot] = 0;
+                }
+                dirty[word] = 0;
+            }
+        }
+
+        List<Rollup> live(Series series, Resolution resolution) {
+            List<Rollup> out = new ArrayList<>();
+            for (int slot = 0; slot < starts.length; slot++) {
+                if (starts[slot] != EMPTY) {
+                    out.add(new Rollup(series.userId, series.userDeviceId, resolution, starts[slot], sums[slot], counts[slot]));
+                }
+            }
+            return out;
+        }
+
+        private boolean isDirty(int slot) {
+            return (dirty[slot >>> 6] & (1L << slot)) != 0;
+        }
+    }
+}
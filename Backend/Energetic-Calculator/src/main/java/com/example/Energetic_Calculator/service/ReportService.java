@@ -0,0 +1,415 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.cache.TtlCache;
+import com.example.Energetic_Calculator.model.ReportJob;
+import com.example.Energetic_Calculator.model.ReportRequest;
+import com.example.Energetic_Calculator.repository.DocumentStore;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.example.Energetic_Calculator.timeseries.Level;
+import com.example.Energetic_Calculator.timeseries.TimeSeriesPoint;
+import com.example.Energetic_Calculator.timeseries.TimeSeriesStore;
+import com.google.cloud.Timestamp;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Reportes de administración calculados en segundo plano. Cada petición crea un trabajo que un pool acotado calcula
+ * recorriendo user_devices por páginas con solo los campos necesarios, así que la memoria crece con el número de
+ * categorías o usuarios y no con el de dispositivos. El resultado queda en cache por el hash de los parámetros:
+ * pedir el mismo reporte devuelve el trabajo terminado (o el que está en curso) en vez de recorrer todo otra vez.
+ */
+@Service
+public class ReportService {
+
+    public static final String CONSUMPTION_BY_CATEGORY = "consumption-by-category";
+    public static final String TOP_CONSUMERS = "top-consumers";
+
+    private static final Logger logger = Logger.getLogger(ReportService.class.getName());
+    private static final List<String> FIELDS = List.of("userId", "category", "kwhMonth", "createdAt");
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 1000;
+
+    private final DocumentStore store;
+    private final TimeSeriesStore history;
+    private final int pageSize;
+    private final ThreadPoolExecutor workers;
+
+    // Trabajos en cola o en curso, por id y por hash de parámetros
+    private final Map<String, Entry> active = new ConcurrentHashMap<>();
+    private final Map<String, Entry> activeByHash = new ConcurrentHashMap<>();
+    // Trabajos terminados por id (también los fallidos) y resultados correctos por hash
+    private final TtlCache<String, Entry> finished;
+    private final TtlCache<String, Entry> results;
+
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter cacheHits;
+    private final Counter rejected;
+
+    public ReportService(DocumentStore store,
+                         TimeSeriesStore history,
+                         @Value("${reports.workers:2}") int workers,
+                         @Value("${reports.max-queued:16}") int maxQueued,
+                         @Value("${reports.page-size:500}") int pageSize,
+                         @Value("${reports.cache-ttl-seconds:900}") long cacheTtlSeconds,
+                         MeterRegistry registry) {
+        this.store = store;
+        this.history = history;
+        this.pageSize = Math.max(1, pageSize);
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(Math.max(1, workers), Math.max(1, workers), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueued)), task -> {
+            Thread thread = new Thread(task, "reports-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        long ttl = Math.max(1, cacheTtlSeconds);
+        this.finished = new TtlCache<>(1_000, ttl, TimeUnit.SECONDS);
+        this.results = new TtlCache<>(1_000, ttl, TimeUnit.SECONDS);
+
+        this.completed = Counter.builder("reports.completed")
+                .description("Reportes calculados").register(registry);
+        this.failed = Counter.builder("reports.failed")
+                .description("Reportes que terminaron con error").register(registry);
+        this.cacheHits = Counter.builder("reports.cache.hits")
+                .description("Peticiones resueltas con un reporte en cache o en curso").register(registry);
+        this.rejected = Counter.builder("reports.rejected")
+                .description("Peticiones rechazadas por cola llena").register(registry);
+        Gauge.builder("reports.queued", this.workers, executor -> executor.getQueue().size())
+                .description("Reportes en cola").register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Devuelve el trabajo de los parámetros pedidos: el resultado en cache o el trabajo en curso si existen (salvo
+     * con refresh) y si no uno nuevo en cola. Falla con IllegalArgumentException si los parámetros no son válidos y
+     * con RejectedExecutionException si la cola está llena.
+     */
+    public synchronized ReportJob submit(ReportRequest request, boolean refresh) {
+        String type = request.getType();
+        if (!CONSUMPTION_BY_CATEGORY.equals(type) && !TOP_CONSUMERS.equals(type)) {
+            throw new IllegalArgumentException("Tipo de reporte no soportado: " + type
+                    + " (" + CONSUMPTION_BY_CATEGORY + " o " + TOP_CONSUMERS + ")");
+        }
+        String month = request.getMonth() == null || request.getMonth().isBlank() ? null : request.getMonth().trim();
+        if (month != null) {
+            try {
+                month = YearMonth.parse(month).toString();
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("month debe tener el formato YYYY-MM, por ejemplo 2024-05");
+            }
+        }
+        Integer limit = null;
+        if (TOP_CONSUMERS.equals(type)) {
+            limit = request.getLimit() != null ? request.getLimit() : DEFAULT_LIMIT;
+            if (limit < 1 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("limit debe estar entre 1 y " + MAX_LIMIT);
+            }
+        }
+        String hash = hash("type=" + type + ";month=" + month + ";limit=" + limit);
+
+        if (!refresh) {
+            Entry cached = results.get(hash);
+            if (cached == null) {
+                cached = activeByHash.get(hash);
+            }
+            if (cached != null) {
+                cacheHits.increment();
+                return cached.job;
+            }
+        }
+
+        Entry entry = new Entry(new ReportJob(DocumentStore.newId(), type, month, limit, hash));
+        try {
+            workers.execute(() -> run(entry));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RejectedExecutionException("Hay demasiados reportes en cola; reintenta más tarde");
+        }
+        active.put(entry.job.getId(), entry);
+        // Con refresh el trabajo nuevo reemplaza al anterior para las siguientes peticiones
+        activeByHash.put(hash, entry);
+        return entry.job;
+    }
+
+    /**
+     * Trabajo en curso o terminado hace menos de reports.cache-ttl-seconds; null si no existe
+     */
+    public ReportJob getJob(String jobId) {
+        Entry entry = find(jobId);
+        return entry != null ? entry.job : null;
+    }
+
+    /**
+     * Futuro que se completa con el trabajo cuando termina (ya completado si terminó); null si no existe
+     */
+    public CompletableFuture<ReportJob> completion(String jobId) {
+        Entry entry = find(jobId);
+        return entry != null ? entry.done : null;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", active.size());
+        stats.put("queued", workers.getQueue().size());
+        stats.put("running", workers.getActiveCount());
+        stats.put("finished", finished.size());
+        stats.put("cachedResults", results.size());
+        stats.put("completed", (long) completed.count());
+        stats.put("failed", (long) failed.count());
+        stats.put("cacheHits", (long) cacheHits.count());
+        stats.put("rejected", (long) rejected.count());
+        return stats;
+    }
+
+    private Entry find(String jobId) {
+        Entry entry = active.get(jobId);
+        return entry != null ? entry : finished.get(jobId);
+    }
+
+    private void run(Entry entry) {
+        ReportJob job = entry.job;
+        job.start();
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> result = TOP_CONSUMERS.equals(job.getType()) ? topConsumers(job) : consumptionByCategory(job);
+            result.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+            job.succeed(result);
+            completed.increment();
+        } catch (Exception e) {
+            Throwable cause = FirestoreFutures.unwrap(e);
+            logger.warning("⚠️ Reporte " + job.getType() + " (" + job.getId() + ") falló: " + cause.getMessage());
+            job.fail(cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+            failed.increment();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            // Primero en los terminados para que getJob lo encuentre siempre
+            finished.put(job.getId(), entry);
+            if (job.getStatus() == ReportJob.Status.DONE) {
+                results.put(job.getParametersHash(), entry);
+            }
+            active.remove(job.getId());
+            activeByHash.remove(job.getParametersHash(), entry);
+        }
+        entry.done.complete(job);
+    }
+
+    /**
+     * Por categoría: dispositivos, usuarios distintos, kWh/mes estimado y, con mes e historial, kWh medido en el mes
+     */
+    private Map<String, Object> consumptionByCategory(ReportJob job) throws Exception {
+        Map<Object, Totals> byCategory = new HashMap<>();
+        Totals all = new Totals();
+        Set<String> allUsers = new HashSet<>();
+        scan(job, (id, data, measured) -> {
+            Object category = data.get("category");
+            Totals totals = byCategory.computeIfAbsent(category instanceof String ? category : null, key -> new Totals());
+            String userId = data.get("userId") instanceof String user ? user : null;
+            double estimated = data.get("kwhMonth") instanceof Number kwh ? kwh.doubleValue() : 0;
+            totals.add(userId, estimated, measured);
+            all.add(null, estimated, measured);
+            if (userId != null) {
+                allUsers.add(userId);
+            }
+        });
+
+        boolean withMeasured = measuring(job);
+        List<Map<String, Object>> categories = new ArrayList<>(byCategory.size());
+        byCategory.forEach((category, totals) -> {
+            Map<String, Object> row = totals.toRow(withMeasured);
+            row.put("users", totals.users.size());
+            Map<String, Object> ordered = new LinkedHashMap<>();
+            ordered.put("category", category);
+            ordered.putAll(row);
+            categories.add(ordered);
+        });
+        categories.sort((a, b) -> Double.compare((double) b.get("estimatedKwh"), (double) a.get("estimatedKwh")));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("month", job.getMonth());
+        result.put("categories", categories);
+        result.putAll(all.toRow(withMeasured));
+        result.put("users", allUsers.size());
+        return result;
+    }
+
+    /**
+     * Los limit usuarios con más kWh/mes estimado, con su número de dispositivos y el consumo medido si hay mes
+     */
+    private Map<String, Object> topConsumers(ReportJob job) throws Exception {
+        Map<String, Totals> byUser = new HashMap<>();
+        scan(job, (id, data, measured) -> {
+            if (data.get("userId") instanceof String userId) {
+                double estimated = data.get("kwhMonth") instanceof Number kwh ? kwh.doubleValue() : 0;
+                byUser.computeIfAbsent(userId, key -> new Totals()).add(null, estimated, measured);
+            }
+        });
+
+        boolean withMeasured = measuring(job);
+        List<Map.Entry<String, Totals>> ranked = new ArrayList<>(byUser.entrySet());
+        ranked.sort((a, b) -> Double.compare(b.getValue().estimated, a.getValue().estimated));
+        List<Map<String, Object>> users = new ArrayList<>(Math.min(job.getLimit(), ranked.size()));
+        for (Map.Entry<String, Totals> user : ranked.subList(0, Math.min(job.getLimit(), ranked.size()))) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("userId", user.getKey());
+            row.putAll(user.getValue().toRow(withMeasured));
+            users.add(row);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("month", job.getMonth());
+        result.put("limit", job.getLimit());
+        result.put("users", users);
+        result.put("totalUsers", byUser.size());
+        return result;
+    }
+
+    private boolean measuring(ReportJob job) {
+        return job.getMonth() != null && history.isEnabled();
+    }
+
+    private interface DeviceVisitor {
+        void visit(String id, Map<String, Object> data, double measuredKwh);
+    }
+
+    /**
+     * Recorre user_devices por páginas. Con mes solo entran los dispositivos creados antes de que termine y el
+     * consumo medido es la suma de los totales diarios del historial en ese mes.
+     */
+    private void scan(ReportJob job, DeviceVisitor visitor) throws Exception {
+        long monthStart = 0;
+        long monthEnd = Long.MAX_VALUE;
+        if (job.getMonth() != null) {
+            YearMonth month = YearMonth.parse(job.getMonth());
+            monthStart = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            monthEnd = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+        boolean measure = measuring(job);
+        String startAfter = null;
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Reporte cancelado");
+            }
+            List<DocumentStore.Document> page = FirestoreFutures.await(
+                    store.page(UserDeviceService.COLLECTION_NAME, pageSize, startAfter, FIELDS));
+            for (DocumentStore.Document document : page) {
+                Map<String, Object> data = document.data();
+                if (createdAtMillis(data.get("createdAt")) >= monthEnd) {
+                    continue;
+                }
+                double measured = measure ? measuredKwh(document.id(), monthStart, monthEnd) : 0;
+                visitor.visit(document.id(), data, measured);
+            }
+            job.addScanned(page.size());
+            if (page.size() < pageSize) {
+                return;
+            }
+            startAfter = page.get(page.size() - 1).id();
+        }
+    }
+
+    private double measuredKwh(String userDeviceId, long from, long to) {
+        double kwh = 0;
+        for (TimeSeriesPoint point : history.query(userDeviceId, Level.DAY, from, to)) {
+            kwh += point.kwh();
+        }
+        return kwh;
+    }
+
+    /**
+     * Sin fecha de creación el dispositivo cuenta en todos los meses
+     */
+    private static long createdAtMillis(Object createdAt) {
+        if (createdAt instanceof Timestamp timestamp) {
+            return timestamp.toDate().getTime();
+        }
+        if (createdAt instanceof Date date) {
+            return date.getTime();
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static String hash(String parameters) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(parameters.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+
+    private static final class Totals {
+        final Set<String> users = new HashSet<>();
+        long devices;
+        double estimated;
+        double measured;
+
+        void add(String userId, double estimatedKwh, double measuredKwh) {
+            if (userId != null) {
+                users.add(userId);
+            }
+            devices++;
+            estimated += estimatedKwh;
+            measured += measuredKwh;
+        }
+
+        Map<String, Object> toRow(boolean withMeasured) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("devices", devices);
+            row.put("estimatedKwh", round(estimated, 2));
+            if (withMeasured) {
+                row.put("measuredKwh", round(measured, 2));
+            }
+            return row;
+        }
+    }
+
+    private static final class Entry {
+        final ReportJob job;
+        final CompletableFuture<ReportJob> done = new CompletableFuture<>();
+
+        Entry(ReportJob job) {
+            this.job = job;
+        }
+    }
+}
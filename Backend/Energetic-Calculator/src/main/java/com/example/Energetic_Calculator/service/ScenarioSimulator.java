@@ -0,0 +1,505 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.ScenarioChange;
+import com.example.Energetic_Calculator.model.SimulationRequest;
+import com.example.Energetic_Calculator.model.SimulationResult;
+import com.example.Energetic_Calculator.model.SimulationScenario;
+import com.example.Energetic_Calculator.model.UserDevice;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Evalúa en paralelo todas las combinaciones de hasta N cambios candidatos sobre los dispositivos
+ * de un hogar y devuelve las k con mayor ahorro. Corre en un ForkJoinPool propio para no competir
+ * con el pool común que usan los CompletableFuture de Firestore.
+ */
+@Service
+public class ScenarioSimulator {
+
+    public static final int MAX_CHANGES_PER_REQUEST = 64;
+    private static final int DEFAULT_MAX_CHANGES = 3;
+    private static final int DEFAULT_TOP_K = 10;
+    private static final int MAX_TOP_K = 100;
+
+    /** Profundidad hasta la que se parte el árbol de búsqueda en subtareas; por debajo se recorre en secuencia */
+    private static final int FORK_DEPTH = 2;
+    private static final int SEQUENTIAL_THRESHOLD = 6;
+
+    private final UserDeviceService userDeviceService;
+    private final DeviceService deviceService;
+    private final TariffService tariffService;
+    private final ForkJoinPool pool;
+    private final int maxChangesLimit;
+    private final long maxCombinations;
+    private final double defaultTariffPerKwh;
+    private final double co2KgPerKwh;
+
+    public ScenarioSimulator(UserDeviceService userDeviceService,
+                             DeviceService deviceService,
+                             TariffService tariffService,
+                             @Value("${simulations.parallelism:0}") int parallelism,
+                             @Value("${simulations.max-changes:6}") int maxChangesLimit,
+                             @Value("${simulations.max-combinations:2000000}") long maxCombinations,
+                             @Value("${calculator.tariff-per-kwh:600}") double defaultTariffPerKwh,
+                             @Value("${calculator.co2-kg-per-kwh:0.164}") double co2KgPerKwh) {
+        this.userDeviceService = userDeviceService;
+        this.deviceService = deviceService;
+        this.tariffService = tariffService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.maxChangesLimit = maxChangesLimit;
+        this.maxCombinations = maxCombinations;
+        this.defaultTariffPerKwh = defaultTariffPerKwh;
+        this.co2KgPerKwh = co2KgPerKwh;
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Resuelve los dispositivos (los del cuerpo o los guardados del usuario) y el catálogo, y simula en el pool
+     */
+    public CompletableFuture<SimulationResult> simulateAsync(String userId, SimulationRequest request) {
+        int maxChanges = request.getMaxChanges() != null ? request.getMaxChanges() : DEFAULT_MAX_CHANGES;
+        int topK = request.getTopK() != null ? request.getTopK() : DEFAULT_TOP_K;
+        try {
+            validate(request, maxChanges, topK);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<List<UserDevice>> devices = request.getDevices() != null
+                ? CompletableFuture.completedFuture(request.getDevices())
+                : userDeviceService.getUserDevicesAsync(userId);
+
+        return devices.thenCompose(userDevices -> {
+            Set<String> deviceIds = new HashSet<>();
+            userDevices.forEach(userDevice -> deviceIds.add(userDevice.getDeviceId()));
+            request.getChanges().stream()
+                    .filter(change -> change.getType() == ScenarioChange.Type.SWAP_DEVICE)
+                    .forEach(change -> deviceIds.add(change.getDeviceId()));
+            return deviceService.getDevicesByIdsAsync(deviceIds).thenApplyAsync(
+                    catalog -> simulate(userDevices, catalog, request.getChanges(), maxChanges, topK, pricing(request)),
+                    pool);
+        });
+    }
+
+    private void validate(SimulationRequest request, int maxChanges, int topK) {
+        List<ScenarioChange> changes = request.getChanges();
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("Debes enviar al menos un cambio candidato");
+        }
+        if (changes.contains(null)) {
+            throw new IllegalArgumentException("Los cambios candidatos no pueden ser nulos");
+        }
+        if (changes.size() > MAX_CHANGES_PER_REQUEST) {
+            throw new IllegalArgumentException("No se pueden enviar más de " + MAX_CHANGES_PER_REQUEST + " cambios candidatos");
+        }
+        if (maxChanges < 1 || maxChanges > maxChangesLimit) {
+            throw new IllegalArgumentException("maxChanges debe estar entre 1 y " + maxChangesLimit);
+        }
+        if (topK < 1 || topK > MAX_TOP_K) {
+            throw new IllegalArgumentException("topK debe estar entre 1 y " + MAX_TOP_K);
+        }
+        if (request.getTariff() != null && request.getTariff() < 0) {
+            throw new IllegalArgumentException("La tarifa no puede ser negativa");
+        }
+        if (request.getStratum() != null && (request.getStratum() < 1 || request.getStratum() > 6)) {
+            throw new IllegalArgumentException("El estrato debe estar entre 1 y 6");
+        }
+        if (request.getDevices() != null) {
+            if (request.getDevices().isEmpty()) {
+                throw new IllegalArgumentException("La lista de dispositivos está vacía");
+            }
+            for (UserDevice userDevice : request.getDevices()) {
+                if (userDevice == null || userDevice.getDeviceId() == null || userDevice.getDeviceId().isBlank()) {
+                    throw new IllegalArgumentException("Cada dispositivo necesita un deviceId");
+                }
+            }
+        }
+        if (countCombinations(changes.size(), maxChanges) > maxCombinations) {
+            throw new IllegalArgumentException("Demasiadas combinaciones: reduce los cambios candidatos o maxChanges (máximo "
+                    + maxCombinations + ")");
+        }
+    }
+
+    /**
+     * Con estrato se cotiza con la tabla de tarifas (bloques de subsistencia); si no, tarifa plana
+     */
+    private DoubleUnaryOperator pricing(SimulationRequest request) {
+        if (request.getStratum() != null) {
+            TariffTable table = tariffService.table();
+            int stratum = request.getStratum();
+            Date now = new Date();
+            return kwh -> table.quote(kwh, stratum, now).getTotalCost();
+        }
+        double tariff = request.getTariff() != null ? request.getTariff() : defaultTariffPerKwh;
+        return kwh -> kwh * tariff;
+    }
+
+    /**
+     * Cota superior de combinaciones: suma de C(n, k) para k = 1..maxChanges (sin descontar conflictos)
+     */
+    static long countCombinations(int n, int maxChanges) {
+        long total = 0;
+        long binomial = 1;
+        try {
+            for (int k = 1; k <= Math.min(n, maxChanges); k++) {
+                binomial = Math.multiplyExact(binomial, n - k + 1) / k;
+                total = Math.addExact(total, binomial);
+            }
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+        return total;
+    }
+
+    /**
+     * Evalúa todas las combinaciones compatibles de hasta maxChanges cambios. Dos cambios del mismo tipo
+     * sobre el mismo dispositivo son incompatibles; cambios de distinto tipo se combinan.
+     */
+    public SimulationResult simulate(List<UserDevice> userDevices, Map<String, Device> catalog, List<ScenarioChange> changes,
+                                     int maxChanges, int topK, DoubleUnaryOperator costOf) {
+        long start = System.nanoTime();
+        Household household = new Household(userDevices, catalog, changes);
+        double baselineCost = costOf.applyAsDouble(household.baselineKwh);
+        Search search = new Search(household, maxChanges, topK, costOf, baselineCost);
+
+        TopScenarios top = pool.invoke(new SearchTask(search, new int[0], 0));
+
+        List<SimulationScenario> scenarios = new ArrayList<>();
+        for (Candidate candidate : top.sorted()) {
+            scenarios.add(search.toScenario(candidate));
+        }
+        return new SimulationResult(round(household.baselineKwh, 2), round(baselineCost, 2),
+                round(household.baselineKwh * co2KgPerKwh, 3), search.evaluated.sum(),
+                (System.nanoTime() - start) / 1_000_000, scenarios, household.unresolvedDeviceIds);
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+
+    /**
+     * Dispositivos y cambios compilados a arreglos para evaluar cada combinación sin objetos intermedios
+     */
+    private static final class Household {
+        final int[] watts;
+        final float[] hours;
+        final int[] quantity;
+        final int[] days;
+        final double[] baseKwh;
+        final double baselineKwh;
+        final List<String> unresolvedDeviceIds = new ArrayList<>();
+
+        final ScenarioChange[] changes;
+        final int[] target;
+        /** Nuevo valor de cada cambio; en SWAP_DEVICE es la potencia del dispositivo del catálogo */
+        final double[] value;
+        final boolean[][] conflicts;
+
+        Household(List<UserDevice> userDevices, Map<String, Device> catalog, List<ScenarioChange> changeList) {
+            int n = userDevices.size();
+            watts = new int[n];
+            hours = new float[n];
+            quantity = new int[n];
+            days = new int[n];
+            baseKwh = new double[n];
+            Map<String, Integer> indexById = new HashMap<>();
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                UserDevice userDevice = userDevices.get(i);
+                Device device = catalog.get(userDevice.getDeviceId());
+                if (device == null) {
+                    unresolvedDeviceIds.add(userDevice.getDeviceId());
+                }
+                watts[i] = device != null ? device.getPotenciaWatts() : 0;
+                hours[i] = userDevice.getDailyHours();
+                quantity[i] = userDevice.getQuantity();
+                days[i] = userDevice.getWeeklyDays();
+                baseKwh[i] = ConsumptionEngine.monthlyKwh(watts[i], hours[i], quantity[i], days[i]);
+                total += baseKwh[i];
+                // Los dispositivos enviados en el cuerpo pueden no tener id: también se aceptan por deviceId
+                if (userDevice.getId() != null) {
+                    indexById.putIfAbsent(userDevice.getId(), i);
+                }
+                indexById.putIfAbsent(userDevice.getDeviceId(), i);
+            }
+            baselineKwh = total;
+
+            int m = changeList.size();
+            changes = changeList.toArray(new ScenarioChange[0]);
+            target = new int[m];
+            value = new double[m];
+            for (int c = 0; c < m; c++) {
+                ScenarioChange change = changes[c];
+                String label = label(change, c);
+                if (change.getType() == null) {
+                    throw new IllegalArgumentException("El cambio " + label + " no tiene tipo");
+                }
+                Integer index = change.getUserDeviceId() != null ? indexById.get(change.getUserDeviceId()) : null;
+                if (index == null) {
+                    throw new IllegalArgumentException("El cambio " + label + " apunta a un dispositivo que no está en el hogar");
+                }
+                target[c] = index;
+                value[c] = compile(change, label, catalog);
+            }
+            conflicts = new boolean[m][m];
+            for (int a = 0; a < m; a++) {
+                for (int b = 0; b < m; b++) {
+                    conflicts[a][b] = a != b && target[a] == target[b] && changes[a].getType() == changes[b].getType();
+                }
+            }
+        }
+
+        private static double compile(ScenarioChange change, String label, Map<String, Device> catalog) {
+            if (change.getType() == ScenarioChange.Type.SWAP_DEVICE) {
+                Device device = change.getDeviceId() != null ? catalog.get(change.getDeviceId()) : null;
+                if (device == null) {
+                    throw new IllegalArgumentException("El cambio " + label + " usa un dispositivo que no existe en el catálogo");
+                }
+                return device.getPotenciaWatts();
+            }
+            Double newValue = change.getValue();
+            if (newValue == null || newValue < 0) {
+                throw new IllegalArgumentException("El cambio " + label + " necesita un value mayor o igual a 0");
+            }
+            if (change.getType() == ScenarioChange.Type.DAILY_HOURS && newValue > 24) {
+                throw new IllegalArgumentException("El cambio " + label + ": las horas diarias deben estar entre 0 y 24");
+            }
+            if (change.getType() == ScenarioChange.Type.WEEKLY_DAYS && newValue > 7) {
+                throw new IllegalArgumentException("El cambio " + label + ": los días por semana deben estar entre 0 y 7");
+            }
+            // Días y cantidad se aplican como enteros: 2.7 no se trunca en silencio a 2
+            boolean integral = change.getType() == ScenarioChange.Type.WEEKLY_DAYS
+                    || change.getType() == ScenarioChange.Type.QUANTITY;
+            if (integral && (newValue != Math.rint(newValue) || newValue > Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException("El cambio " + label + " necesita un value entero");
+            }
+            return newValue;
+        }
+
+        static String label(ScenarioChange change, int index) {
+            return change.getId() != null ? change.getId() : "#" + index;
+        }
+
+        /**
+         * kWh/mes del hogar con los cambios aplicados: solo se recalculan los dispositivos afectados
+         */
+        double evaluate(int[] chosen) {
+            double kwh = baselineKwh;
+            for (int i = 0; i < chosen.length; i++) {
+                int device = target[chosen[i]];
+                if (appliedBefore(chosen, i, device)) {
+                    continue;
+                }
+                int newWatts = watts[device];
+                float newHours = hours[device];
+                int newQuantity = quantity[device];
+                int newDays = days[device];
+                for (int j = i; j < chosen.length; j++) {
+                    int c = chosen[j];
+                    if (target[c] != device) {
+                        continue;
+                    }
+                    switch (changes[c].getType()) {
+                        case SWAP_DEVICE -> newWatts = (int) value[c];
+                        case DAILY_HOURS -> newHours = (float) value[c];
+                        case WEEKLY_DAYS -> newDays = (int) value[c];
+                        case QUANTITY -> newQuantity = (int) value[c];
+                    }
+                }
+                kwh += ConsumptionEngine.monthlyKwh(newWatts, newHours, newQuantity, newDays) - baseKwh[device];
+            }
+            return kwh;
+        }
+
+        private boolean appliedBefore(int[] chosen, int position, int device) {
+            for (int j = 0; j < position; j++) {
+                if (target[chosen[j]] == device) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean compatible(int[] chosen, int candidate) {
+            for (int c : chosen) {
+                if (conflicts[c][candidate]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final class Search {
+        final Household household;
+        final int maxChanges;
+        final int topK;
+        final DoubleUnaryOperator costOf;
+        final double baselineCost;
+        final LongAdder evaluated = new LongAdder();
+
+        Search(Household household, int maxChanges, int topK, DoubleUnaryOperator costOf, double baselineCost) {
+            this.household = household;
+            this.maxChanges = maxChanges;
+            this.topK = topK;
+            this.costOf = costOf;
+            this.baselineCost = baselineCost;
+        }
+
+        void evaluate(int[] chosen, TopScenarios top) {
+            double kwh = household.evaluate(chosen);
+            double cost = costOf.applyAsDouble(kwh);
+            double investment = 0;
+            for (int c : chosen) {
+                investment += household.changes[c].getInvestment();
+            }
+            top.offer(new Candidate(chosen, kwh, cost, investment));
+            evaluated.increment();
+        }
+
+        /**
+         * Recorre en secuencia todas las extensiones de chosen con índices desde start
+         */
+        void explore(int[] chosen, int start, TopScenarios top) {
+            if (chosen.length == maxChanges) {
+                return;
+            }
+            for (int next = start; next < household.changes.length; next++) {
+                if (household.compatible(chosen, next)) {
+                    int[] extended = append(chosen, next);
+                    evaluate(extended, top);
+                    explore(extended, next + 1, top);
+                }
+            }
+        }
+
+        SimulationScenario toScenario(Candidate candidate) {
+            List<String> labels = new ArrayList<>(candidate.changes().length);
+            for (int index : candidate.changes()) {
+                labels.add(Household.label(household.changes[index], index));
+            }
+            double savingsKwh = household.baselineKwh - candidate.kwh();
+            double savingsCost = baselineCost - candidate.cost();
+            Double payback = candidate.investment() > 0 && savingsCost > 0
+                    ? round(candidate.investment() / savingsCost, 1)
+                    : null;
+            return new SimulationScenario(labels, round(candidate.kwh(), 2), round(candidate.cost(), 2),
+                    round(savingsKwh, 2), round(savingsCost, 2), round(savingsKwh * co2KgPerKwh, 3),
+                    candidate.investment(), payback);
+        }
+    }
+
+    private static int[] append(int[] chosen, int next) {
+        int[] extended = Arrays.copyOf(chosen, chosen.length + 1);
+        extended[chosen.length] = next;
+        return extended;
+    }
+
+    /**
+     * Las primeras FORK_DEPTH decisiones se reparten como subtareas (una por cambio siguiente);
+     * cada subtarea junta su propio top-k y se fusionan al volver
+     */
+    private static final class SearchTask extends RecursiveTask<TopScenarios> {
+        private final Search search;
+        private final int[] chosen;
+        private final int start;
+
+        SearchTask(Search search, int[] chosen, int start) {
+            this.search = search;
+            this.chosen = chosen;
+            this.start = start;
+        }
+
+        @Override
+        protected TopScenarios compute() {
+            TopScenarios top = new TopScenarios(search.topK);
+            if (chosen.length > 0) {
+                search.evaluate(chosen, top);
+            }
+            int remaining = search.household.changes.length - start;
+            if (chosen.length >= FORK_DEPTH || remaining <= SEQUENTIAL_THRESHOLD) {
+                search.explore(chosen, start, top);
+                return top;
+            }
+            if (chosen.length == search.maxChanges) {
+                return top;
+            }
+
+            List<SearchTask> subtasks = new ArrayList<>();
+            for (int next = start; next < search.household.changes.length; next++) {
+                if (search.household.compatible(chosen, next)) {
+                    subtasks.add(new SearchTask(search, append(chosen, next), next + 1));
+                }
+            }
+            for (SearchTask subtask : invokeAll(subtasks)) {
+                top.merge(subtask.join());
+            }
+            return top;
+        }
+    }
+
+    private record Candidate(int[] changes, double kwh, double cost, double investment) {
+    }
+
+    /**
+     * Mejor primero: mayor ahorro (menor costo), luego menos cambios y luego menor inversión
+     */
+    private static final Comparator<Candidate> BEST_FIRST = Comparator.comparingDouble(Candidate::cost)
+            .thenComparingInt(candidate -> candidate.changes().length)
+            .thenComparingDouble(Candidate::investment);
+
+    /**
+     * Top-k acotado: un heap cuya cabeza es el peor de los k guardados
+     */
+    private static final class TopScenarios {
+        private final int capacity;
+        private final PriorityQueue<Candidate> heap;
+
+        TopScenarios(int capacity) {
+            this.capacity = capacity;
+            this.heap = new PriorityQueue<>(capacity + 1, BEST_FIRST.reversed());
+        }
+
+        void offer(Candidate candidate) {
+            if (heap.size() < capacity) {
+                heap.add(candidate);
+            } else if (BEST_FIRST.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+
+        void merge(TopScenarios other) {
+            other.heap.forEach(this::offer);
+        }
+
+        List<Candidate> sorted() {
+            List<Candidate> result = new ArrayList<>(heap);
+            result.sort(BEST_FIRST);
+            return result;
+        }
+    }
+}
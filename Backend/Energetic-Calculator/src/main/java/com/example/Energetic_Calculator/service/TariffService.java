@@ -0,0 +1,211 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.cache.TtlCache;
+import com.example.Energetic_Calculator.model.Fee;
+import com.example.Energetic_Calculator.model.TariffQuote;
+import com.example.Energetic_Calculator.repository.FirestoreCallLimiter;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.cloud.FirestoreClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tarifas por estrato cargadas desde la colección fee. Un listener reconstruye la tabla completa en cada
+ * cambio y la publica como referencia inmutable, así que cotizar nunca consulta Firestore.
+ */
+@Service
+public class TariffService {
+
+    private static final Logger logger = Logger.getLogger(TariffService.class.getName());
+    public static final String COLLECTION_NAME = "fee";
+    private static final String USERS_COLLECTION = "users";
+    private static final long RESUBSCRIBE_DELAY_SECONDS = 5;
+    // En la cache de estratos: el usuario no tiene uno registrado. Se recuerda poco tiempo para no consultar users en
+    // cada petición sin que tarde en verse el estrato que registre después.
+    private static final int NO_STRATUM = 0;
+    private static final long NO_STRATUM_TTL_SECONDS = 60;
+
+    private final FirebaseApp firebaseApp;
+    private final ConsumptionSummaryService summaryService;
+    private final FirestoreCallLimiter limiter;
+    private final double subsistenceKwh;
+    private final double defaultPricePerKwh;
+    private final TtlCache<String, Integer> stratumCache;
+    private final long noStratumTtlNanos;
+
+    private volatile TariffTable table;
+    private volatile boolean ready;
+    private ListenerRegistration registration;
+    private ScheduledExecutorService resubscriber;
+
+    public TariffService(FirebaseApp firebaseApp,
+                         ConsumptionSummaryService summaryService,
+                         FirestoreCallLimiter limiter,
+                         @Value("${tariffs.subsistence-kwh:173}") double subsistenceKwh,
+                         @Value("${calculator.tariff-per-kwh:600}") double defaultPricePerKwh,
+                         @Value("${tariffs.user-stratum-cache.ttl-seconds:600}") long stratumTtlSeconds) {
+        this.firebaseApp = firebaseApp;
+        this.summaryService = summaryService;
+        this.limiter = limiter;
+        this.subsistenceKwh = subsistenceKwh;
+        this.defaultPricePerKwh = defaultPricePerKwh;
+        this.stratumCache = new TtlCache<>(10000, stratumTtlSeconds, TimeUnit.SECONDS);
+        this.noStratumTtlNanos = TimeUnit.SECONDS.toNanos(Math.min(stratumTtlSeconds, NO_STRATUM_TTL_SECONDS));
+        this.table = TariffTable.empty(subsistenceKwh, defaultPricePerKwh);
+    }
+
+    @PostConstruct
+    public void start() {
+        resubscriber = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tariff-resubscribe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        subscribe();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        if (resubscriber != null) {
+            resubscriber.shutdownNow();
+        }
+    }
+
+    private synchronized void subscribe() {
+        registration = FirestoreClient.getFirestore(firebaseApp)
+                .collection(COLLECTION_NAME)
+                .addSnapshotListener(this::onEvent);
+        logger.info("Tariff table subscribed to '" + COLLECTION_NAME + "'");
+    }
+
+    private void onEvent(QuerySnapshot querySnapshot, FirestoreException error) {
+        if (error != null) {
+            // Se conserva la última tabla cargada: una tarifa algo vieja es mejor que ninguna
+            logger.log(Level.WARNING, "Tariff listener failed, resubscribing", error);
+            synchronized (this) {
+                registration = null;
+            }
+            if (!resubscriber.isShutdown()) {
+                resubscriber.schedule(this::subscribe, RESUBSCRIBE_DELAY_SECONDS, TimeUnit.SECONDS);
+            }
+            return;
+        }
+        if (querySnapshot == null) {
+            return;
+        }
+
+        // La colección es pequeña: se reconstruye completa en vez de aplicar los cambios uno a uno
+        List<Fee> fees = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : querySnapshot.getDocuments()) {
+            try {
+                Fee fee = doc.toObject(Fee.class);
+                fee.setId(doc.getId());
+                fees.add(fee);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Skipping malformed fee document " + doc.getId(), e);
+            }
+        }
+        table = TariffTable.of(fees, subsistenceKwh, defaultPricePerKwh);
+        ready = true;
+    }
+
+    public TariffTable table() {
+        return table;
+    }
+
+    /**
+     * Cotiza un consumo mensual con la tarifa vigente hoy para el estrato
+     */
+    public TariffQuote quote(double kwhMonth, int stratum) {
+        return table.quote(kwhMonth, stratum, new Date());
+    }
+
+    /**
+     * Cotiza el consumo materializado del usuario. Sin estrato explícito se toma el de su perfil en users.
+     */
+    public CompletableFuture<TariffQuote> quoteUserAsync(String userId, Integer stratum) {
+        CompletableFuture<Integer> resolved = stratum != null
+                ? CompletableFuture.completedFuture(stratum)
+                : getUserStratumAsync(userId);
+        return resolved.thenCombine(summaryService.getSummaryAsync(userId, null),
+                (userStratum, summary) -> quote(summary.getTotalKwh(), userStratum));
+    }
+
+    /**
+     * Estrato del perfil del usuario (users.estrato, buscado por firebaseUid), cacheado unos minutos. Falla con
+     * NoSuchElementException si no tiene uno registrado.
+     */
+    public CompletableFuture<Integer> getUserStratumAsync(String userId) {
+        Integer cached = stratumCache.get(userId);
+        if (cached != null) {
+            return cached == NO_STRATUM
+                    ? CompletableFuture.failedFuture(missingStratum())
+                    : CompletableFuture.completedFuture(cached);
+        }
+        return limiter.submit(USERS_COLLECTION, "query", () -> FirestoreClient.getFirestore(firebaseApp)
+                        .collection(USERS_COLLECTION).whereEqualTo("firebaseUid", userId).limit(1).get())
+                .thenApply(querySnapshot -> {
+                    Object estrato = querySnapshot.isEmpty() ? null : querySnapshot.getDocuments().get(0).get("estrato");
+                    Integer value = toStratum(estrato);
+                    if (value == null || value == NO_STRATUM) {
+                        stratumCache.putUntil(userId, NO_STRATUM, stratumCache.nanoTime() + noStratumTtlNanos);
+                        throw missingStratum();
+                    }
+                    stratumCache.put(userId, value);
+                    return value;
+                });
+    }
+
+    private static NoSuchElementException missingStratum() {
+        return new NoSuchElementException("El usuario no tiene estrato registrado; envía el parámetro stratum");
+    }
+
+    /**
+     * El frontend guarda estrato como número al registrar y como texto al editar el perfil
+     */
+    static Integer toStratum(Object value) {
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            try {
+                return Integer.parseInt(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> stats() {
+        TariffTable current = table;
+        return Map.of(
+                "ready", ready,
+                "fees", current.size(),
+                "strata", current.getByStratum().keySet(),
+                "loadedAt", current.getLoadedAt().toString(),
+                "stratumCache", stratumCache.stats());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.Fee;
+import com.example.Energetic_Calculator.model.TariffQuote;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tabla inmutable de tarifas indexada por estrato. Cada estrato guarda sus tarifas de la más reciente
+ * a la más antigua, así que elegir la vigente en una fecha no toca Firestore.
+ */
+public final class TariffTable {
+
+    /** Los estratos 1 a 3 reciben subsidio solo en el bloque de subsistencia; el excedente se cobra a tarifa plena */
+    static final int MAX_SUBSIDIZED_STRATUM = 3;
+    /** La tarifa del estrato 4 es el costo de prestación del servicio, sin subsidio ni contribución */
+    static final int REFERENCE_STRATUM = 4;
+
+    private static final Comparator<Fee> NEWEST_FIRST = Comparator.comparing(
+            (Fee fee) -> fee.getStartDate() == null ? new Date(Long.MIN_VALUE) : fee.getStartDate()).reversed();
+
+    private final Map<Integer, List<Fee>> byStratum;
+    private final double subsistenceKwh;
+    private final double defaultPricePerKwh;
+    private final Date loadedAt;
+
+    private TariffTable(Map<Integer, List<Fee>> byStratum, double subsistenceKwh, double defaultPricePerKwh) {
+        this.byStratum = byStratum;
+        this.subsistenceKwh = subsistenceKwh;
+        this.defaultPricePerKwh = defaultPricePerKwh;
+        this.loadedAt = new Date();
+    }
+
+    public static TariffTable of(List<Fee> fees, double subsistenceKwh, double defaultPricePerKwh) {
+        Map<Integer, List<Fee>> grouped = new HashMap<>();
+        for (Fee fee : fees) {
+            grouped.computeIfAbsent(fee.getStratum(), key -> new ArrayList<>()).add(fee);
+        }
+        Map<Integer, List<Fee>> byStratum = new TreeMap<>();
+        grouped.forEach((stratum, list) -> {
+            list.sort(NEWEST_FIRST);
+            byStratum.put(stratum, List.copyOf(list));
+        });
+        return new TariffTable(Map.copyOf(byStratum), subsistenceKwh, defaultPricePerKwh);
+    }
+
+    public static TariffTable empty(double subsistenceKwh, double defaultPricePerKwh) {
+        return new TariffTable(Map.of(), subsistenceKwh, defaultPricePerKwh);
+    }
+
+    /**
+     * Tarifa vigente del estrato en la fecha dada, o null si no hay ninguna
+     */
+    public Fee activeFee(int stratum, Date at) {
+        for (Fee fee : byStratum.getOrDefault(stratum, List.of())) {
+            if (fee.isActiveAt(at)) {
+                return fee;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cotiza el consumo mensual. El bloque de subsistencia se cobra con price; el excedente con excessPrice
+     * si la tarifa lo trae, si no con la tarifa del estrato 4 para estratos subsidiados o con el mismo price.
+     * Sin tarifa vigente se usa calculator.tariff-per-kwh sin bloques.
+     */
+    public TariffQuote quote(double kwh, int stratum, Date at) {
+        Fee fee = activeFee(stratum, at);
+        if (fee == null) {
+            return new TariffQuote(stratum, null, "default", kwh, subsistenceKwh, defaultPricePerKwh, defaultPricePerKwh);
+        }
+
+        double price = toPesos(fee.getPrice());
+        double excessPrice = price;
+        if (fee.getExcessPrice() != null) {
+            excessPrice = toPesos(fee.getExcessPrice());
+        } else if (stratum <= MAX_SUBSIDIZED_STRATUM) {
+            Fee reference = activeFee(REFERENCE_STRATUM, at);
+            if (reference != null) {
+                excessPrice = Math.max(price, toPesos(reference.getPrice()));
+            }
+        }
+        double limit = fee.getSubsistenceKwh() != null ? fee.getSubsistenceKwh() : subsistenceKwh;
+        return new TariffQuote(stratum, fee.getId(), "fee", kwh, limit, price, excessPrice);
+    }
+
+    private static double toPesos(double cents) {
+        return cents / 100.0;
+    }
+
+    public Map<Integer, List<Fee>> getByStratum() {
+        return byStratum;
+    }
+
+    public int size() {
+        return byStratum.values().stream().mapToInt(List::size).sum();
+    }
+
+    public double getSubsistenceKwh() {
+        return subsistenceKwh;
+    }
+
+    public Date getLoadedAt() {
+        return loadedAt;
+    }
+}
@@ -1,140 +1,502 @@
 package com.example.Energetic_Calculator.service;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.example.Energetic_Calculator.model.BatchRequest;
+import com.example.Energetic_Calculator.model.BatchResult;
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.PageResult;
 import com.example.Energetic_Calculator.model.UserDevice;
+import com.example.Energetic_Calculator.model.UserDeviceQuery;
+import com.example.Energetic_Calculator.model.UserDeviceView;
+import com.example.Energetic_Calculator.repository.DocumentQuery;
+import com.example.Energetic_Calculator.repository.DocumentStore;
+import com.example.Energetic_Calculator.repository.FirestoreBatches;
+import com.example.Energetic_Calculator.repository.FirestoreCallLimiter;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
-import com.google.firebase.cloud.FirestoreClient;
 
 @Service
 public class UserDeviceService {
 
-    private static final String COLLECTION_NAME = "user_devices";
-    private final FirebaseFirestoreService firestoreService;
+    public static final String COLLECTION_NAME = "user_devices";
+    // Campos por los que hay índice compuesto (firestore.indexes.json y schema.sql)
+    private static final List<String> SORT_FIELDS = List.of("createdAt", "kwhMonth", "id");
+    private final DocumentStore store;
+    // Solo se usa para las transacciones con el resumen materializado (storage.backend=firestore)
+    private final ObjectProvider<Firestore> firestoreProvider;
+    private final FirestoreCallLimiter limiter;
+    private final DeviceService deviceService;
+    private final ConsumptionSummaryService summaryService;
 
-    public UserDeviceService(FirebaseFirestoreService firestoreService) {
-        this.firestoreService = firestoreService;
+    public UserDeviceService(DocumentStore store, ObjectProvider<Firestore> firestoreProvider, FirestoreCallLimiter limiter,
+                             DeviceService deviceService, ConsumptionSummaryService summaryService) {
+        this.store = store;
+        this.firestoreProvider = firestoreProvider;
+        this.limiter = limiter;
+        this.deviceService = deviceService;
+        this.summaryService = summaryService;
     }
 
     /**
      * Obtiene todos los dispositivos de un usuario específico
      */
     public List<UserDevice> getUserDevices(String userId) throws ExecutionException, InterruptedException {
-        Firestore firestore = FirestoreClient.getFirestore();
-        var query = firestore.collection(COLLECTION_NAME)
-                .whereEqualTo("userId", userId)
-                .get();
-        
-        var querySnapshot = query.get();
-        
-        return querySnapshot.getDocuments().stream()
-                .map(doc -> {
-                    UserDevice device = doc.toObject(UserDevice.class);
-                    device.setId(doc.getId());
-                    return device;
-                })
-                .collect(Collectors.toList());
+        return FirestoreFutures.await(getUserDevicesAsync(userId));
+    }
+
+    public CompletableFuture<List<UserDevice>> getUserDevicesAsync(String userId) {
+        return store.findBy(COLLECTION_NAME, "userId", userId)
+                .thenApply(documents -> documents.stream()
+                        .map(document -> toUserDevice(document.id(), document.data()))
+                        .collect(Collectors.toList()));
     }
 
     /**
-     * Crea un nuevo dispositivo para un usuario
+     * Dispositivos del usuario con su entrada del catálogo, resuelta en una sola lectura por lotes
      */
-    public UserDevice createUserDevice(UserDevice userDevice) throws ExecutionException, InterruptedException {
-        // Validaciones
-        if (userDevice.getUserId() == null || userDevice.getUserId().isEmpty()) {
-            throw new IllegalArgumentException("El userId es requerido");
+    public CompletableFuture<List<UserDeviceView>> getUserDevicesExpandedAsync(String userId) {
+        return getUserDevicesAsync(userId).thenCompose(this::expand);
+    }
+
+    public CompletableFuture<PageResult<UserDeviceView>> getUserDevicesPageExpandedAsync(String userId, int limit, String startAfter) {
+        return getUserDevicesPageAsync(userId, limit, startAfter)
+                .thenCompose(page -> expand(page.getItems())
+                        .thenApply(views -> new PageResult<>(views, page.getNextCursor())));
+    }
+
+    private CompletableFuture<List<UserDeviceView>> expand(List<UserDevice> userDevices) {
+        Set<String> deviceIds = new LinkedHashSet<>();
+        for (UserDevice userDevice : userDevices) {
+            deviceIds.add(userDevice.getDeviceId());
         }
-        if (userDevice.getDeviceId() == null || userDevice.getDeviceId().isEmpty()) {
-            throw new IllegalArgumentException("El deviceId es requerido");
+        return deviceService.getDevicesByIdsAsync(deviceIds).thenApply(catalog -> {
+            List<UserDeviceView> views = new ArrayList<>(userDevices.size());
+            for (UserDevice userDevice : userDevices) {
+                views.add(new UserDeviceView(userDevice, catalog.get(userDevice.getDeviceId())));
+            }
+            return views;
+        });
+    }
+
+    /**
+     * Obtiene una página de los dispositivos de un usuario (cursor por id de documento)
+     */
+    public PageResult<UserDevice> getUserDevicesPage(String userId, int limit, String startAfter)
+            throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(getUserDevicesPageAsync(userId, limit, startAfter));
+    }
+
+    public CompletableFuture<PageResult<UserDevice>> getUserDevicesPageAsync(String userId, int limit, String startAfter) {
+        return store.pageBy(COLLECTION_NAME, "userId", userId, limit, startAfter, null)
+                .thenApply(documents -> DocumentStore.toPage(documents, limit,
+                        document -> toUserDevice(document.id(), document.data())));
+    }
+
+    /**
+     * Obtiene una página de los dispositivos de un usuario con solo los campos pedidos
+     */
+    public PageResult<Map<String, Object>> getUserDevicesPage(String userId, int limit, String startAfter, List<String> fields)
+            throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(getUserDevicesPageAsync(userId, limit, startAfter, fields));
+    }
+
+    public CompletableFuture<PageResult<Map<String, Object>>> getUserDevicesPageAsync(String userId, int limit,
+                                                                                     String startAfter, List<String> fields) {
+        return store.pageBy(COLLECTION_NAME, "userId", userId, limit, startAfter, fields)
+                .thenApply(documents -> DocumentStore.toPage(documents, limit, DocumentStore.Document::toMap));
+    }
+
+    /**
+     * Página de los dispositivos del usuario filtrada y ordenada en el almacén (índices compuestos en Firestore,
+     * índices de user_devices en MySQL); nextCursor sigue siendo el id del último dispositivo
+     */
+    public CompletableFuture<PageResult<UserDevice>> queryUserDevicesAsync(String userId, UserDeviceQuery query, int limit,
+                                                                          String startAfter) {
+        return queryDocuments(userId, query, limit, startAfter, null)
+                .thenApply(documents -> DocumentStore.toPage(documents, limit,
+                        document -> toUserDevice(document.id(), document.data())));
+    }
+
+    public CompletableFuture<PageResult<Map<String, Object>>> queryUserDevicesAsync(String userId, UserDeviceQuery query,
+                                                                                   int limit, String startAfter,
+                                                                                   List<String> fields) {
+        return queryDocuments(userId, query, limit, startAfter, fields)
+                .thenApply(documents -> DocumentStore.toPage(documents, limit, DocumentStore.Document::toMap));
+    }
+
+    public CompletableFuture<PageResult<UserDeviceView>> queryUserDevicesExpandedAsync(String userId, UserDeviceQuery query,
+                                                                                      int limit, String startAfter) {
+        return queryUserDevicesAsync(userId, query, limit, startAfter)
+                .thenCompose(page -> expand(page.getItems())
+                        .thenApply(views -> new PageResult<>(views, page.getNextCursor())));
+    }
+
+    private CompletableFuture<List<DocumentStore.Document>> queryDocuments(String userId, UserDeviceQuery query, int limit,
+                                                                          String startAfter, List<String> fields) {
+        String sort = query.getSort() == null || query.getSort().isBlank() ? "-createdAt" : query.getSort().trim();
+        boolean descending = sort.startsWith("-");
+        String orderBy = descending ? sort.substring(1) : sort;
+        if (!SORT_FIELDS.contains(orderBy)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "sort debe ser uno de " + SORT_FIELDS + ", con - delante para orden descendente"));
         }
-        if (userDevice.getQuantity() < 1 || userDevice.getQuantity() > 10) {
-            throw new IllegalArgumentException("La cantidad debe estar entre 1 y 10");
+
+        Map<String, Object> equalTo = new LinkedHashMap<>();
+        equalTo.put("userId", userId);
+        if (query.getCategory() != null && !query.getCategory().isBlank()) {
+            equalTo.put("category", query.getCategory());
         }
-        if (userDevice.getDailyHours() < 0.1 || userDevice.getDailyHours() > 24) {
-            throw new IllegalArgumentException("Las horas diarias deben estar entre 0.1 y 24");
+        List<DocumentQuery.Range> ranges = new ArrayList<>();
+        if (query.getMinKwh() != null) {
+            ranges.add(new DocumentQuery.Range("kwhMonth", query.getMinKwh(), null));
         }
-        if (userDevice.getWeeklyDays() < 1 || userDevice.getWeeklyDays() > 7) {
-            throw new IllegalArgumentException("Los días semanales deben estar entre 1 y 7");
+        if (query.getCreatedFrom() != null || query.getCreatedTo() != null) {
+            ranges.add(new DocumentQuery.Range("createdAt",
+                    query.getCreatedFrom() == null ? null : Timestamp.of(query.getCreatedFrom()),
+                    query.getCreatedTo() == null ? null : Timestamp.of(query.getCreatedTo())));
+        }
+        DocumentQuery documentQuery = new DocumentQuery(equalTo, ranges, "id".equals(orderBy) ? null : orderBy,
+                descending, limit, startAfter, fields);
+        if (equalTo.containsKey("category") || query.getMinKwh() != null || "kwhMonth".equals(orderBy)) {
+            // Los documentos sin kwhMonth/category no pasarían el filtro ni el orden: se sellan antes si falta el backfill
+            return summaryService.ensureStampedAsync(userId)
+                    .thenCompose(ignored -> store.query(COLLECTION_NAME, documentQuery));
         }
+        return store.query(COLLECTION_NAME, documentQuery);
+    }
 
-        // Establecer fecha de creación
-        userDevice.setCreatedAt(new Date());
+    /**
+     * Crea un nuevo dispositivo para un usuario
+     */
+    public UserDevice createUserDevice(UserDevice userDevice) throws ExecutionException, InterruptedException {
+        return FirestoreFutures.await(createUserDeviceAsync(userDevice));
+    }
 
-        // Convertir a Map para guardar en Firestore
-        Map<String, Object> data = new HashMap<>();
-        data.put("userId", userDevice.getUserId());
-        data.put("deviceId", userDevice.getDeviceId());
-        data.put("quantity", userDevice.getQuantity());
-        data.put("dailyHours", userDevice.getDailyHours());
-        data.put("weeklyDays", userDevice.getWeeklyDays());
-        data.put("createdAt", userDevice.getCreatedAt());
+    public CompletableFuture<UserDevice> createUserDeviceAsync(UserDevice userDevice) {
+        try {
+            validate(userDevice);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        // Crear documento en Firestore
-        String documentId = firestoreService.createDocument(COLLECTION_NAME, data);
-        userDevice.setId(documentId);
+        // Establecer fecha de creación
+        userDevice.setCreatedAt(new Date());
 
-        return userDevice;
+        // Crear el documento y sumar su consumo al resumen del usuario en la misma transacción
+        return deviceService.getDeviceAsync(userDevice.getDeviceId()).thenCompose(device -> {
+            ConsumptionSummaryService.stamp(userDevice, device);
+            Map<String, Object> data = toData(userDevice);
+            if (!summaryService.isMaterialized()) {
+                // Sin documento de resumen que mantener: basta con guardar el dispositivo
+                return store.add(COLLECTION_NAME, data);
+            }
+            Firestore firestore = firestoreProvider.getObject();
+            DocumentReference document = firestore.collection(COLLECTION_NAME).document();
+            ConsumptionDelta delta = new ConsumptionDelta().add(userDevice, 1);
+            return limiter.submit(COLLECTION_NAME, "transaction", () -> firestore.runTransaction(transaction -> {
+                transaction.create(document, data);
+                ConsumptionSummaryService.applyDelta(transaction, firestore, userDevice.getUserId(), delta);
+                return document.getId();
+            }));
+        }).thenApply(documentId -> {
+            userDevice.setId(documentId);
+            return userDevice;
+        });
     }
 
     /**
      * Elimina un dispositivo verificando que pertenezca al usuario
      */
     public boolean deleteUserDevice(String deviceId, String userId) throws ExecutionException, InterruptedException {
-        // Obtener el documento
-        Map<String, Object> data = firestoreService.getDocument(COLLECTION_NAME, deviceId);
-        
-        if (data == null) {
-            return false; // El dispositivo no existe
-        }
+        return FirestoreFutures.await(deleteUserDeviceAsync(deviceId, userId));
+    }
 
-        // Verificar que pertenezca al usuario
-        String docUserId = (String) data.get("userId");
-        if (!userId.equals(docUserId)) {
-            throw new SecurityException("No tienes permisos para eliminar este dispositivo");
+    public CompletableFuture<Boolean> deleteUserDeviceAsync(String deviceId, String userId) {
+        if (!summaryService.isMaterialized()) {
+            // Sin documento de resumen que mantener no hace falta transacción
+            return store.get(COLLECTION_NAME, deviceId).thenCompose(data -> {
+                if (data == null) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                if (!userId.equals(data.get("userId"))) {
+                    throw new SecurityException("No tienes permisos para eliminar este dispositivo");
+                }
+                return store.delete(COLLECTION_NAME, deviceId).thenApply(updateTime -> true);
+            });
         }
 
-        // Eliminar el documento
-        firestoreService.deleteDocument(COLLECTION_NAME, deviceId);
-        return true;
+        Firestore firestore = firestoreProvider.getObject();
+        DocumentReference document = firestore.collection(COLLECTION_NAME).document(deviceId);
+
+        // Leer, verificar propiedad, eliminar y restar del resumen en una sola transacción
+        return limiter.submit(COLLECTION_NAME, "transaction", () -> firestore.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(document).get();
+            if (!snapshot.exists()) {
+                return false; // El dispositivo no existe
+            }
+
+            // Verificar que pertenezca al usuario
+            if (!userId.equals(snapshot.getString("userId"))) {
+                throw new SecurityException("No tienes permisos para eliminar este dispositivo");
+            }
+
+            transaction.delete(document);
+            UserDevice removed = toUserDevice(snapshot.getId(), snapshot.getData());
+            ConsumptionSummaryService.applyDelta(transaction, firestore, userId, new ConsumptionDelta().add(removed, -1));
+            return true;
+        }));
     }
 
     /**
      * Obtiene un dispositivo específico (con validación de propiedad)
      */
     public UserDevice getUserDevice(String deviceId, String userId) throws ExecutionException, InterruptedException {
-        Map<String, Object> data = firestoreService.getDocument(COLLECTION_NAME, deviceId);
-        
+        return FirestoreFutures.await(getUserDeviceAsync(deviceId, userId));
+    }
+
+    public CompletableFuture<UserDevice> getUserDeviceAsync(String deviceId, String userId) {
+        return store.get(COLLECTION_NAME, deviceId)
+                .thenApply(data -> {
+                    if (data == null) {
+                        return null;
+                    }
+
+                    // Verificar que pertenezca al usuario
+                    String docUserId = (String) data.get("userId");
+                    if (!userId.equals(docUserId)) {
+                        throw new SecurityException("No tienes permisos para acceder a este dispositivo");
+                    }
+
+                    // Convertir a UserDevice
+                    return toUserDevice(deviceId, data);
+                });
+    }
+
+    /**
+     * Crea, modifica y elimina dispositivos del usuario en lotes de hasta 500 escrituras.
+     * Cada operación se valida por separado (incluida la propiedad del documento) y tiene su propio resultado.
+     */
+    public CompletableFuture<BatchResult> applyBatchAsync(String userId, BatchRequest<UserDevice> request) {
+        List<BatchItemResult> results = new ArrayList<>(request.size());
+        List<DocumentStore.Write> writes = new ArrayList<>();
+        List<FirestoreBatches.Item<UserDevice>> creates = new ArrayList<>();
+        List<FirestoreBatches.Item<UserDevice>> updates = new ArrayList<>();
+        List<FirestoreBatches.Item<String>> deletes = new ArrayList<>();
+
+        for (int i = 0; i < request.getCreate().size(); i++) {
+            UserDevice userDevice = request.getCreate().get(i);
+            BatchItemResult result = new BatchItemResult("create", i, null);
+            results.add(result);
+            if (userDevice == null) {
+                result.fail(400, "El dispositivo es requerido");
+                continue;
+            }
+            userDevice.setUserId(userId);
+            userDevice.setCreatedAt(new Date());
+            try {
+                validate(userDevice);
+            } catch (IllegalArgumentException e) {
+                result.fail(400, e.getMessage());
+                continue;
+            }
+            creates.add(new FirestoreBatches.Item<>(result, userDevice));
+        }
+
+        for (int i = 0; i < request.getUpdate().size(); i++) {
+            UserDevice userDevice = request.getUpdate().get(i);
+            BatchItemResult result = new BatchItemResult("update", i, userDevice != null ? userDevice.getId() : null);
+            results.add(result);
+            if (userDevice == null || userDevice.getId() == null || userDevice.getId().isBlank()) {
+                result.fail(400, "El id es requerido para actualizar");
+                continue;
+            }
+            userDevice.setUserId(userId);
+            try {
+                validate(userDevice);
+            } catch (IllegalArgumentException e) {
+                result.fail(400, e.getMessage());
+                continue;
+            }
+            updates.add(new FirestoreBatches.Item<>(result, userDevice));
+        }
+
+        for (int i = 0; i < request.getDelete().size(); i++) {
+            String id = request.getDelete().get(i);
+            BatchItemResult result = new BatchItemResult("delete", i, id);
+            results.add(result);
+            if (id == null || id.isBlank()) {
+                result.fail(400, "El id es requerido para eliminar");
+                continue;
+            }
+            deletes.add(new FirestoreBatches.Item<>(result, id));
+        }
+
+        // Las modificaciones y eliminaciones solo se aplican sobre documentos existentes del mismo usuario
+        Set<String> targetIds = new LinkedHashSet<>();
+        updates.forEach(item -> targetIds.add(item.value().getId()));
+        deletes.forEach(item -> targetIds.add(item.value()));
+        CompletableFuture<Map<String, Map<String, Object>>> existing = targetIds.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : store.getAll(COLLECTION_NAME, targetIds);
+
+        // Catálogo de las altas y modificaciones para guardar su contribución al resumen
+        Set<String> catalogIds = new HashSet<>();
+        creates.forEach(item -> catalogIds.add(item.value().getDeviceId()));
+        updates.forEach(item -> catalogIds.add(item.value().getDeviceId()));
+        CompletableFuture<Map<String, Device>> catalog = catalogIds.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : deviceService.getDevicesByIdsAsync(catalogIds);
+
+        // Contribución previa de cada documento modificado o eliminado, para restarla del resumen
+        Map<String, UserDevice> previous = new HashMap<>();
+
+        return existing.thenCombine(catalog, (documents, devices) -> {
+            for (FirestoreBatches.Item<UserDevice> item : creates) {
+                UserDevice userDevice = item.value();
+                ConsumptionSummaryService.stamp(userDevice, devices.get(userDevice.getDeviceId()));
+                String id = DocumentStore.newId();
+                userDevice.setId(id);
+                item.result().setId(id);
+                writes.add(new DocumentStore.Write(item.result(), id, toData(userDevice)));
+            }
+            for (FirestoreBatches.Item<UserDevice> item : updates) {
+                UserDevice userDevice = item.value();
+                Map<String, Object> data = documents.get(userDevice.getId());
+                if (checkOwnership(item.result(), data, userId,
+                        "No tienes permisos para modificar este dispositivo")) {
+                    UserDevice stored = toUserDevice(userDevice.getId(), data);
+                    previous.put(userDevice.getId(), stored);
+                    ConsumptionSummaryService.stamp(userDevice, devices.get(userDevice.getDeviceId()));
+                    userDevice.setCreatedAt(stored.getCreatedAt());
+                    // Solo los campos del dispositivo: se conservan los demás y falla si se eliminó entretanto
+                    Map<String, Object> changes = toData(userDevice);
+                    changes.remove("createdAt");
+                    writes.add(DocumentStore.Write.update(item.result(), userDevice.getId(), changes));
+                }
+            }
+            for (FirestoreBatches.Item<String> item : deletes) {
+                Map<String, Object> data = documents.get(item.value());
+                if (checkOwnership(item.result(), data, userId,
+                        "No tienes permisos para eliminar este dispositivo")) {
+                    previous.put(item.value(), toUserDevice(item.value(), data));
+                    writes.add(new DocumentStore.Write(item.result(), item.value(), null));
+                }
+            }
+            return writes;
+        }).thenCompose(pending -> store.commit(COLLECTION_NAME, pending)).thenCompose(ignored -> {
+            // Los lotes no son atómicos entre sí: el resumen solo recibe lo que realmente se confirmó
+            ConsumptionDelta delta = new ConsumptionDelta();
+            creates.stream().filter(item -> item.result().isSuccess()).forEach(item -> delta.add(item.value(), 1));
+            for (FirestoreBatches.Item<UserDevice> item : updates) {
+                if (item.result().isSuccess()) {
+                    delta.add(previous.get(item.value().getId()), -1).add(item.value(), 1);
+                }
+            }
+            for (FirestoreBatches.Item<String> item : deletes) {
+                if (item.result().isSuccess()) {
+                    delta.add(previous.get(item.value()), -1);
+                }
+            }
+            return summaryService.applyDeltaAsync(userId, delta);
+        }).thenApply(ignored -> new BatchResult(results));
+    }
+
+    /**
+     * Marca 404 o 403 en el resultado si el documento no existe o es de otro usuario
+     */
+    private static boolean checkOwnership(BatchItemResult result, Map<String, Object> data, String userId, String forbidden) {
         if (data == null) {
-            return null;
+            result.fail(404, "Dispositivo no encontrado");
+            return false;
+        }
+        if (!userId.equals(data.get("userId"))) {
+            result.fail(403, forbidden);
+            return false;
         }
+        return true;
+    }
 
-        // Verificar que pertenezca al usuario
-        String docUserId = (String) data.get("userId");
-        if (!userId.equals(docUserId)) {
-            throw new SecurityException("No tienes permisos para acceder a este dispositivo");
+    /**
+     * Convierte a Map para guardar en el DocumentStore
+     */
+    static Map<String, Object> toData(UserDevice userDevice) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("userId", userDevice.getUserId());
+        data.put("deviceId", userDevice.getDeviceId());
+        data.put("quantity", userDevice.getQuantity());
+        data.put("dailyHours", userDevice.getDailyHours());
+        data.put("weeklyDays", userDevice.getWeeklyDays());
+        data.put("createdAt", userDevice.getCreatedAt());
+        data.put("kwhMonth", userDevice.getKwhMonth());
+        data.put("category", userDevice.getCategory());
+        return data;
+    }
+
+    /**
+     * Valida los campos de un dispositivo de usuario antes de guardarlo
+     */
+    private static void validate(UserDevice userDevice) {
+        if (userDevice.getUserId() == null || userDevice.getUserId().isEmpty()) {
+            throw new IllegalArgumentException("El userId es requerido");
+        }
+        if (userDevice.getDeviceId() == null || userDevice.getDeviceId().isEmpty()) {
+            throw new IllegalArgumentException("El deviceId es requerido");
         }
+        if (userDevice.getQuantity() < 1 || userDevice.getQuantity() > 10) {
+            throw new IllegalArgumentException("La cantidad debe estar entre 1 y 10");
+        }
+        if (userDevice.getDailyHours() < 0.1 || userDevice.getDailyHours() > 24) {
+            throw new IllegalArgumentException("Las horas diarias deben estar entre 0.1 y 24");
+        }
+        if (userDevice.getWeeklyDays() < 1 || userDevice.getWeeklyDays() > 7) {
+            throw new IllegalArgumentException("Los días semanales deben estar entre 1 y 7");
+        }
+    }
 
-        // Convertir a UserDevice
+    /**
+     * Convierte los datos crudos de un documento de user_devices. Firestore devuelve los números
+     * como Long o Double según cómo se guardaron y las fechas como Timestamp.
+     */
+    public static UserDevice toUserDevice(String id, Map<String, Object> data) {
         UserDevice device = new UserDevice();
-        device.setId(deviceId);
+        device.setId(id);
         device.setUserId((String) data.get("userId"));
         device.setDeviceId((String) data.get("deviceId"));
-        device.setQuantity(((Long) data.get("quantity")).intValue());
-        device.setDailyHours(((Double) data.get("dailyHours")).floatValue());
-        device.setWeeklyDays(((Long) data.get("weeklyDays")).intValue());
-        
-        if (data.get("createdAt") != null) {
-            device.setCreatedAt((Date) data.get("createdAt"));
-        }
+        device.setQuantity(intValue(data.get("quantity")));
+        device.setDailyHours(data.get("dailyHours") instanceof Number hours ? hours.floatValue() : 0f);
+        device.setWeeklyDays(intValue(data.get("weeklyDays")));
+        device.setKwhMonth(data.get("kwhMonth") instanceof Number kwh ? kwh.doubleValue() : null);
+        device.setCategory((String) data.get("category"));
 
+        Object createdAt = data.get("createdAt");
+        if (createdAt instanceof Timestamp timestamp) {
+            device.setCreatedAt(timestamp.toDate());
+        } else if (createdAt instanceof Date date) {
+            device.setCreatedAt(date);
+        }
         return device;
     }
-}
 
+    private static int intValue(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+}
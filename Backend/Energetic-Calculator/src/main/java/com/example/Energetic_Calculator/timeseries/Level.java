@@ -0,0 +1,79 @@
+package com.example.Energetic_Calculator.timeseries;
+
+import java.time.LocalDate;
+
+/**
+ * Niveles de la serie: lecturas crudas, totales por hora y totales por día (UTC). Cada nivel se reduce al siguiente y
+ * agrupa sus puntos en bloques de un periodo: una hora de lecturas, un día de horas o un mes de días.
+ */
+public enum Level {
+    RAW(0, 4096),
+    HOUR(3_600_000L, 24),
+    DAY(86_400_000L, 31);
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final long bucketMillis;
+    private final int maxBlockPoints;
+
+    Level(long bucketMillis, int maxBlockPoints) {
+        this.bucketMillis = bucketMillis;
+        this.maxBlockPoints = maxBlockPoints;
+    }
+
+    /**
+     * Duración del periodo de un punto del nivel (0 en RAW)
+     */
+    public long bucketMillis() {
+        return bucketMillis;
+    }
+
+    int maxBlockPoints() {
+        return maxBlockPoints;
+    }
+
+    public String key() {
+        return name().toLowerCase();
+    }
+
+    public static Level of(String key) {
+        for (Level level : values()) {
+            if (level.key().equals(key)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Resolución no soportada: " + key + " (raw, hour o day)");
+    }
+
+    /**
+     * Nivel al que se reduce este, o null para DAY
+     */
+    Level next() {
+        return this == RAW ? HOUR : this == HOUR ? DAY : null;
+    }
+
+    Level previous() {
+        return this == DAY ? HOUR : this == HOUR ? RAW : null;
+    }
+
+    long bucketStart(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, bucketMillis);
+    }
+
+    long blockStart(long timestamp) {
+        return switch (this) {
+            case RAW -> timestamp - Math.floorMod(timestamp, HOUR_MILLIS);
+            case HOUR -> timestamp - Math.floorMod(timestamp, DAY_MILLIS);
+            case DAY -> LocalDate.ofEpochDay(Math.floorDiv(timestamp, DAY_MILLIS)).withDayOfMonth(1).toEpochDay() * DAY_MILLIS;
+        };
+    }
+
+    long blockEnd(long blockStart) {
+        return switch (this) {
+            case RAW -> blockStart + HOUR_MILLIS;
+            case HOUR -> blockStart + DAY_MILLIS;
+            case DAY -> LocalDate.ofEpochDay(Math.floorDiv(blockStart, DAY_MILLIS)).plusMonths(1).toEpochDay() * DAY_MILLIS;
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.Energetic_Calculator.timeseries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Archivo de tamaño fijo mapeado en memoria con los bloques de un nivel, uno detrás de otro:
+ * [longitud int][crc32 int][bloque]. Al abrirlo se recorren los bloques hasta el primero con longitud 0 o crc
+ * inválido (una escritura cortada por una caída), que es donde continúa la escritura.
+ */
+final class Segment {
+
+    static final long MAGIC = 0x5453534547303031L; // "TSSEG001"
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_OVERHEAD = 8;
+
+    interface BlockVisitor {
+        void visit(Segment segment, int offset, ByteBuffer body);
+    }
+
+    private final Path path;
+    private final Level level;
+    private final int sequence;
+    private final MappedByteBuffer buffer;
+    private int position;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    private Segment(Path path, Level level, int sequence, MappedByteBuffer buffer) {
+        this.path = path;
+        this.level = level;
+        this.sequence = sequence;
+        this.buffer = buffer;
+    }
+
+    static Path file(Path directory, Level level, int sequence) {
+        return directory.resolve(String.format("%s-%08d.seg", level.key(), sequence));
+    }
+
+    static Segment create(Path directory, Level level, int sequence, int size) throws IOException {
+        Path path = file(directory, level, sequence);
+        Segment segment = new Segment(path, level, sequence, map(path, size));
+        segment.buffer.putLong(0, MAGIC);
+        segment.buffer.putInt(8, level.ordinal());
+        segment.position = HEADER_BYTES;
+        return segment;
+    }
+
+    /**
+     * Abre un segmento existente y entrega cada bloque válido al visitante
+     */
+    static Segment open(Path path, Level level, int sequence, BlockVisitor visitor) throws IOException {
+        Segment segment = new Segment(path, level, sequence, map(path, (int) Files.size(path)));
+        MappedByteBuffer buffer = segment.buffer;
+        if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != level.ordinal()) {
+            throw new IOException("No es un segmento de " + level.key() + ": " + path);
+        }
+        int at = HEADER_BYTES;
+        while (at + RECORD_OVERHEAD <= buffer.capacity()) {
+            int length = buffer.getInt(at);
+            if (length <= 0 || at + RECORD_OVERHEAD + length > buffer.capacity()) {
+                break;
+            }
+            ByteBuffer body = buffer.slice(at + RECORD_OVERHEAD, length);
+            if (crc(body) != buffer.getInt(at + 4)) {
+                break;
+            }
+            segment.maxTimestamp = Math.max(segment.maxTimestamp, TimeSeriesCodec.header(body).lastTimestamp());
+            visitor.visit(segment, at, body);
+            at += RECORD_OVERHEAD + length;
+        }
+        segment.position = at;
+        return segment;
+    }
+
+    /**
+     * Escribe el bloque y devuelve su posición, o -1 si no cabe
+     */
+    int append(byte[] body, long lastTimestamp) {
+        int at = position;
+        if (at + RECORD_OVERHEAD + body.length > buffer.capacity()) {
+            return -1;
+        }
+        buffer.put(at + RECORD_OVERHEAD, body);
+        buffer.putInt(at + 4, crc(ByteBuffer.wrap(body)));
+        // La longitud va al final: hasta entonces el bloque no existe para open
+        buffer.putInt(at, body.length);
+        position = at + RECORD_OVERHEAD + body.length;
+        maxTimestamp = Math.max(maxTimestamp, lastTimestamp);
+        return at;
+    }
+
+    /**
+     * Vista del bloque escrito en offset; cada llamada devuelve una vista propia, así que se puede leer desde
+     * varios hilos
+     */
+    ByteBuffer body(int offset) {
+        return buffer.slice(offset + RECORD_OVERHEAD, buffer.getInt(offset));
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    Path path() {
+        return path;
+    }
+
+    Level level() {
+        return level;
+    }
+
+    int sequence() {
+        return sequence;
+    }
+
+    int used() {
+        return position;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    long maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // El mapeo sigue siendo válido al cerrar el canal
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static int crc(ByteBuffer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.Energetic_Calculator.timeseries;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Formato de un bloque: id de la serie, primer y último instante, número de puntos y un flujo de bits con los puntos.
+ * Cada instante se guarda como diferencia de diferencias (lecturas a intervalo fijo ocupan un bit), la cuenta de
+ * HOUR y DAY como varint de 7 bits y los kWh con la compresión XOR de Gorilla: un valor igual al anterior ocupa un
+ * bit y uno parecido solo sus bits significativos. El bloque abierto se codifica a medida que llegan los puntos,
+ * así que en memoria ocupa lo mismo que en disco.
+ */
+final class TimeSeriesCodec {
+
+    interface PointConsumer {
+        void accept(long timestamp, double kwh, long count);
+    }
+
+    record Header(String seriesId, long firstTimestamp, long lastTimestamp, int count, int payloadOffset) {
+    }
+
+    private TimeSeriesCodec() {
+    }
+
+    /**
+     * Codificador de un bloque abierto; se reutiliza tras reset
+     */
+    static final class Encoder {
+        private final Level level;
+        private final BitOutput out = new BitOutput();
+        private int size;
+        private long first;
+        private long previous;
+        private long previousDelta;
+        private long previousBits;
+        private int previousLeading = -1;
+        private int previousTrailing;
+
+        Encoder(Level level) {
+            this.level = level;
+        }
+
+        void add(long timestamp, double kwh, long count) {
+            long bits = Double.doubleToRawLongBits(kwh);
+            if (size == 0) {
+                first = timestamp;
+                out.writeBits(bits, 64);
+            } else {
+                long delta = timestamp - previous;
+                writeDeltaOfDelta(delta - previousDelta);
+                previousDelta = delta;
+                writeValue(bits ^ previousBits);
+            }
+            if (level != Level.RAW) {
+                writeCount(count);
+            }
+            previous = timestamp;
+            previousBits = bits;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long first() {
+            return first;
+        }
+
+        long last() {
+            return previous;
+        }
+
+        /**
+         * Bloque completo listo para escribir en un segmento
+         */
+        byte[] body(String seriesId) {
+            byte[] id = seriesId.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer body = ByteBuffer.allocate(2 + id.length + 20 + out.length());
+            body.putShort((short) id.length).put(id).putLong(first).putLong(previous).putInt(size);
+            body.put(out.bytes, 0, out.length());
+            return body.array();
+        }
+
+        /**
+         * Copia de los puntos aún sin escribir, para consultas
+         */
+        ByteBuffer payload() {
+            return ByteBuffer.wrap(Arrays.copyOf(out.bytes, out.length()));
+        }
+
+        void reset() {
+            out.clear();
+            size = 0;
+            previousDelta = 0;
+            previousLeading = -1;
+            previousTrailing = 0;
+        }
+
+        private void writeDeltaOfDelta(long deltaOfDelta) {
+            long zigzag = (deltaOfDelta << 1) ^ (deltaOfDelta >> 63);
+            if (zigzag == 0) {
+                out.writeBits(0, 1);
+            } else if (zigzag < (1 << 7)) {
+                out.writeBits(0b10, 2);
+                out.writeBits(zigzag, 7);
+            } else if (zigzag < (1 << 9)) {
+                out.writeBits(0b110, 3);
+                out.writeBits(zigzag, 9);
+            } else if (zigzag < (1 << 12)) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(zigzag, 12);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(zigzag, 64);
+            }
+        }
+
+        private void writeValue(long xor) {
+            if (xor == 0) {
+                out.writeBits(0, 1);
+                return;
+            }
+            out.writeBits(1, 1);
+            int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // Cabe en la ventana de bits significativos del valor anterior
+                out.writeBits(0, 1);
+                out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                out.writeBits(1, 1);
+                out.writeBits(leading, 5);
+                out.writeBits(significant - 1, 6);
+                out.writeBits(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+
+        private void writeCount(long count) {
+            while ((count & ~0x7FL) != 0) {
+                out.writeBits(0x80 | (count & 0x7F), 8);
+                count >>>= 7;
+            }
+            out.writeBits(count, 8);
+        }
+    }
+
+    static Header header(ByteBuffer body) {
+        int idLength = Short.toUnsignedInt(body.getShort(0));
+        byte[] id = new byte[idLength];
+        body.get(2, id);
+        int at = 2 + idLength;
+        return new Header(new String(id, StandardCharsets.UTF_8), body.getLong(at), body.getLong(at + 8),
+                body.getInt(at + 16), at + 20);
+    }
+
+    static void decode(ByteBuffer body, Level level, PointConsumer consumer) {
+        int at = 2 + Short.toUnsignedInt(body.getShort(0));
+        decode(body, at + 20, level, body.getLong(at), body.getInt(at + 16), consumer);
+    }
+
+    static void decode(ByteBuffer payload, int offset, Level level, long first, int size, PointConsumer consumer) {
+        BitInput in = new BitInput(payload, offset);
+        long timestamp = first;
+        long delta = 0;
+        long bits = 0;
+        int leading = 0;
+        int significant = 64;
+        for (int i = 0; i < size; i++) {
+            if (i == 0) {
+                bits = in.readBits(64);
+            } else {
+                delta += readDeltaOfDelta(in);
+                timestamp += delta;
+                if (in.readBits(1) != 0) {
+                    if (in.readBits(1) != 0) {
+                        leading = (int) in.readBits(5);
+                        significant = (int) in.readBits(6) + 1;
+                    }
+                    bits ^= in.readBits(significant) << (64 - leading - significant);
+                }
+            }
+            long count = level == Level.RAW ? 1 : readCount(in);
+            consumer.accept(timestamp, Double.longBitsToDouble(bits), count);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitInput in) {
+        long zigzag;
+        if (in.readBits(1) == 0) {
+            return 0;
+        } else if (in.readBits(1) == 0) {
+            zigzag = in.readBits(7);
+        } else if (in.readBits(1) == 0) {
+            zigzag = in.readBits(9);
+        } else if (in.readBits(1) == 0) {
+            zigzag = in.readBits(12);
+        } else {
+            zigzag = in.readBits(64);
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static long readCount(BitInput in) {
+        long count = 0;
+        for (int shift = 0; ; shift += 7) {
+            long group = in.readBits(8);
+            count |= (group & 0x7F) << shift;
+            if ((group & 0x80) == 0) {
+                return count;
+            }
+        }
+    }
+
+    private static final class BitOutput {
+        private byte[] bytes = new byte[64];
+        private long bit;
+
+        void writeBits(long value, int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                int index = (int) (bit >>> 3);
+                if (index == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                if (((value >>> i) & 1) != 0) {
+                    bytes[index] |= (byte) (0x80 >>> (bit & 7));
+                }
+                bit++;
+            }
+        }
+
+        int length() {
+            return (int) ((bit + 7) >>> 3);
+        }
+
+        void clear() {
+            Arrays.fill(bytes, 0, length(), (byte) 0);
+            bit = 0;
+        }
+    }
+
+    private static final class BitInput {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private long bit;
+
+        BitInput(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        long readBits(int count) {
+            long value = 0;
+            for (int i = 0; i < count; i++) {
+                int current = buffer.get(offset + (int) (bit >>> 3));
+                value = (value << 1) | ((current >>> (7 - (bit & 7))) & 1);
+                bit++;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.Energetic_Calculator.timeseries;
+
+/**
+ * Punto de una serie: en RAW una lectura (count 1); en HOUR y DAY el inicio del periodo, la suma de kWh y el número
+ * de lecturas que la forman
+ */
+public record TimeSeriesPoint(long timestamp, double kwh, long count) {
+}
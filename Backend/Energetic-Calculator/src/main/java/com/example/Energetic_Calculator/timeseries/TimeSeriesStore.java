@@ -0,0 +1,469 @@
+package com.example.Energetic_Calculator.timeseries;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Historial de lecturas por dispositivo de usuario en segmentos mapeados en memoria, solo de anexado. Las lecturas
+ * (RAW) se reducen solas a totales por hora y estos a totales por día al cerrarse cada periodo; cada nivel tiene su
+ * retención y borra segmentos completos cuando todos sus bloques quedan fuera de ella. Los bloques se escriben al
+ * terminar su periodo (una hora de lecturas, un día de horas, un mes de días); una caída pierde solo las lecturas de
+ * la hora en curso, porque al arrancar las horas y días sin escribir se recalculan desde el nivel anterior.
+ */
+@Component
+public class TimeSeriesStore {
+
+    private static final Logger logger = Logger.getLogger(TimeSeriesStore.class.getName());
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final long graceMillis;
+    private final long maintenanceSeconds;
+    private final Map<Level, Long> retentionMillis = new EnumMap<>(Level.class);
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    // Por nivel, segmentos por secuencia; el último es el de escritura. Se modifican con writeLock.
+    private final Map<Level, ConcurrentSkipListMap<Integer, Segment>> segments = new EnumMap<>(Level.class);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private ScheduledExecutorService maintenance;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder late = new LongAdder();
+    private final LongAdder blocksWritten = new LongAdder();
+
+    public TimeSeriesStore(@Value("${timeseries.enabled:true}") boolean enabled,
+                           @Value("${timeseries.dir:data/timeseries}") String directory,
+                           @Value("${timeseries.segment-mb:16}") int segmentMb,
+                           @Value("${timeseries.retention.raw-days:7}") int rawDays,
+                           @Value("${timeseries.retention.hour-days:400}") int hourDays,
+                           @Value("${timeseries.retention.day-days:0}") int dayDays,
+                           @Value("${timeseries.close-grace-seconds:900}") long graceSeconds,
+                           @Value("${timeseries.maintenance-seconds:60}") long maintenanceSeconds) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentBytes = (int) Math.min(Integer.MAX_VALUE, Math.max(1, segmentMb) * 1024L * 1024L);
+        this.graceMillis = TimeUnit.SECONDS.toMillis(Math.max(0, graceSeconds));
+        this.maintenanceSeconds = Math.max(1, maintenanceSeconds);
+        retentionMillis.put(Level.RAW, TimeUnit.DAYS.toMillis(Math.max(0, rawDays)));
+        retentionMillis.put(Level.HOUR, TimeUnit.DAYS.toMillis(Math.max(0, hourDays)));
+        retentionMillis.put(Level.DAY, TimeUnit.DAYS.toMillis(Math.max(0, dayDays)));
+        for (Level level : Level.values()) {
+            segments.put(level, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        for (Level level : Level.values()) {
+            for (Path path : segmentFiles(level)) {
+                int sequence = Integer.parseInt(path.getFileName().toString().replaceAll("\\D", ""));
+                Segment segment = Segment.open(path, level, sequence, (owner, offset, body) -> {
+                    TimeSeriesCodec.Header header = TimeSeriesCodec.header(body);
+                    Series target = series.computeIfAbsent(header.seriesId(), Series::new);
+                    target.blocks[level.ordinal()].add(owner.sequence(), offset, header.firstTimestamp(), header.lastTimestamp());
+                    target.lastTimestamp[level.ordinal()] = Math.max(target.lastTimestamp[level.ordinal()], header.lastTimestamp());
+                });
+                segments.get(level).put(sequence, segment);
+            }
+        }
+        series.values().forEach(this::recover);
+        logger.info("✅ Historial de lecturas en " + directory.toAbsolutePath() + ": " + series.size() + " series");
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "timeseries-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                maintain(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                logger.warning("⚠️ Error en el mantenimiento del historial: " + e.getMessage());
+            }
+        }, maintenanceSeconds, maintenanceSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Escribe los bloques abiertos aunque su periodo no haya terminado; al arrancar el periodo continúa en otro bloque
+     */
+    @PreDestroy
+    public void stop() {
+        if (!enabled || maintenance == null) {
+            return;
+        }
+        maintenance.shutdownNow();
+        for (Series target : series.values()) {
+            synchronized (target) {
+                for (Level level : Level.values()) {
+                    seal(target, level);
+                }
+            }
+        }
+        segments.values().forEach(bySequence -> bySequence.values().forEach(Segment::force));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Añade las lecturas [from, to) de la serie y devuelve cuántas se aceptaron. Cada lectura debe ser posterior a
+     * la anterior de la serie y no caer en una hora ya cerrada; las demás se descartan.
+     */
+    public int append(String seriesId, long[] timestamps, double[] kwh, int from, int to) {
+        if (!enabled) {
+            return 0;
+        }
+        Series target = series.computeIfAbsent(seriesId, Series::new);
+        int accepted = 0;
+        synchronized (target) {
+            for (int i = from; i < to; i++) {
+                if (add(target, Level.RAW, timestamps[i], kwh[i], 1)) {
+                    accepted++;
+                }
+            }
+        }
+        appended.add(accepted);
+        late.add((to - from) - accepted);
+        return accepted;
+    }
+
+    /**
+     * Puntos del nivel con instante en [from, to), en orden. Incluye los bloques abiertos pero no el periodo en curso
+     * de HOUR y DAY, que aparece al cerrarse.
+     */
+    public List<TimeSeriesPoint> query(String seriesId, Level level, long from, long to) {
+        Series target = enabled ? series.get(seriesId) : null;
+        if (target == null) {
+            return List.of();
+        }
+        BlockList blocks = target.blocks[level.ordinal()];
+        int[] sequences;
+        int[] offsets;
+        ByteBuffer open = null;
+        long openFirst = 0;
+        int openSize = 0;
+        synchronized (target) {
+            int count = 0;
+            sequences = new int[blocks.size];
+            offsets = new int[blocks.size];
+            for (int i = 0; i < blocks.size; i++) {
+                if (blocks.last[i] >= from && blocks.first[i] < to) {
+                    sequences[count] = blocks.segments[i];
+                    offsets[count++] = blocks.offsets[i];
+                }
+            }
+            sequences = Arrays.copyOf(sequences, count);
+            offsets = Arrays.copyOf(offsets, count);
+            TimeSeriesCodec.Encoder encoder = target.open[level.ordinal()];
+            if (encoder != null && encoder.size() > 0 && encoder.last() >= from && encoder.first() < to) {
+                open = encoder.payload();
+                openFirst = encoder.first();
+                openSize = encoder.size();
+            }
+        }
+
+        // La decodificación lee el mapeo sin bloquear la serie
+        List<TimeSeriesPoint> points = new ArrayList<>();
+        TimeSeriesCodec.PointConsumer collect = (timestamp, kwh, count) -> {
+            if (timestamp >= from && timestamp < to) {
+                points.add(new TimeSeriesPoint(timestamp, kwh, count));
+            }
+        };
+        for (int i = 0; i < sequences.length; i++) {
+            Segment segment = segments.get(level).get(sequences[i]);
+            if (segment != null) {
+                TimeSeriesCodec.decode(segment.body(offsets[i]), level, collect);
+            }
+        }
+        if (open != null) {
+            TimeSeriesCodec.decode(open, 0, level, openFirst, openSize, collect);
+        }
+        return points;
+    }
+
+    /**
+     * Cierra las horas y días terminados hace más de close-grace-seconds, escribe los bloques de periodos terminados,
+     * borra los segmentos fuera de retención y sincroniza los segmentos con disco
+     */
+    public void maintain(long now) {
+        if (!enabled) {
+            return;
+        }
+        for (Series target : series.values()) {
+            synchronized (target) {
+                for (Level level : List.of(Level.HOUR, Level.DAY)) {
+                    int index = level.ordinal();
+                    long end = target.accumulatorStart[index] + level.bucketMillis();
+                    if (target.accumulatorCount[index] > 0 && end + graceMillis <= now) {
+                        closeBucket(target, level);
+                        // Lo que llegue después para ese periodo ya no puede sumarse
+                        int below = level.previous().ordinal();
+                        target.lastTimestamp[below] = Math.max(target.lastTimestamp[below], end - 1);
+                    }
+                }
+                for (Level level : Level.values()) {
+                    TimeSeriesCodec.Encoder encoder = target.open[level.ordinal()];
+                    if (encoder != null && encoder.size() > 0
+                            && level.blockEnd(level.blockStart(encoder.first())) + graceMillis <= now) {
+                        seal(target, level);
+                    }
+                }
+            }
+        }
+        applyRetention(now);
+        segments.values().forEach(bySequence -> bySequence.values().forEach(Segment::force));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("directory", directory.toAbsolutePath().toString());
+        stats.put("series", series.size());
+        for (Level level : Level.values()) {
+            long used = 0;
+            long blocks = 0;
+            for (Segment segment : segments.get(level).values()) {
+                used += segment.used();
+            }
+            for (Series target : series.values()) {
+                blocks += target.blocks[level.ordinal()].size;
+            }
+            stats.put(level.key(), Map.of("segments", segments.get(level).size(), "bytes", used, "blocks", blocks,
+                    "retentionDays", TimeUnit.MILLISECONDS.toDays(retentionMillis.get(level))));
+        }
+        stats.put("appended", appended.sum());
+        stats.put("late", late.sum());
+        stats.put("blocksWritten", blocksWritten.sum());
+        return stats;
+    }
+
+    /**
+     * Añade un punto al nivel y lo suma al periodo abierto del nivel siguiente; false si no es posterior al último
+     */
+    private boolean add(Series target, Level level, long timestamp, double kwh, long count) {
+        int index = level.ordinal();
+        if (timestamp <= target.lastTimestamp[index]) {
+            return false;
+        }
+        TimeSeriesCodec.Encoder encoder = target.open[index];
+        if (encoder == null) {
+            encoder = new TimeSeriesCodec.Encoder(level);
+            target.open[index] = encoder;
+        } else if (encoder.size() > 0 && (encoder.size() == level.maxBlockPoints()
+                || level.blockStart(timestamp) != level.blockStart(encoder.first()))) {
+            seal(target, level);
+        }
+        encoder.add(timestamp, kwh, count);
+        target.lastTimestamp[index] = timestamp;
+        Level next = level.next();
+        if (next != null) {
+            accumulate(target, next, timestamp, kwh, count);
+        }
+        return true;
+    }
+
+    private void accumulate(Series target, Level level, long timestamp, double kwh, long count) {
+        int index = level.ordinal();
+        long bucket = level.bucketStart(timestamp);
+        if (target.accumulatorCount[index] > 0 && target.accumulatorStart[index] != bucket) {
+            closeBucket(target, level);
+        }
+        target.accumulatorStart[index] = bucket;
+        target.accumulatorSum[index] += kwh;
+        target.accumulatorCount[index] += count;
+    }
+
+    private void closeBucket(Series target, Level level) {
+        int index = level.ordinal();
+        long start = target.accumulatorStart[index];
+        double sum = target.accumulatorSum[index];
+        long count = target.accumulatorCount[index];
+        target.accumulatorSum[index] = 0;
+        target.accumulatorCount[index] = 0;
+        add(target, level, start, sum, count);
+    }
+
+    /**
+     * Rehace los periodos abiertos de HOUR y DAY con los puntos escritos del nivel anterior que aún no se habían
+     * reducido (los que estaban en memoria al caer el proceso)
+     */
+    private void recover(Series target) {
+        synchronized (target) {
+            for (Level level : List.of(Level.HOUR, Level.RAW)) {
+                Level next = level.next();
+                long reducedUntil = target.lastTimestamp[next.ordinal()] == Long.MIN_VALUE
+                        ? Long.MIN_VALUE : target.lastTimestamp[next.ordinal()] + next.bucketMillis();
+                for (TimeSeriesPoint point : query(target.id, level, reducedUntil, Long.MAX_VALUE)) {
+                    accumulate(target, next, point.timestamp(), point.kwh(), point.count());
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe el bloque abierto del nivel en el segmento de escritura (abre otro si no cabe)
+     */
+    private void seal(Series target, Level level) {
+        TimeSeriesCodec.Encoder encoder = target.open[level.ordinal()];
+        if (encoder == null || encoder.size() == 0) {
+            return;
+        }
+        byte[] body = encoder.body(target.id);
+        writeLock.lock();
+        try {
+            ConcurrentSkipListMap<Integer, Segment> bySequence = segments.get(level);
+            Segment segment = bySequence.isEmpty() ? null : bySequence.lastEntry().getValue();
+            int offset = segment == null ? -1 : segment.append(body, encoder.last());
+            if (offset < 0) {
+                int sequence = segment == null ? 1 : segment.sequence() + 1;
+                segment = Segment.create(directory, level, sequence,
+                        Math.max(segmentBytes, Segment.HEADER_BYTES + Segment.RECORD_OVERHEAD + body.length));
+                bySequence.put(sequence, segment);
+                offset = segment.append(body, encoder.last());
+            }
+            target.blocks[level.ordinal()].add(segment.sequence(), offset, encoder.first(), encoder.last());
+            blocksWritten.increment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear un segmento del historial", e);
+        } finally {
+            writeLock.unlock();
+        }
+        encoder.reset();
+    }
+
+    private void applyRetention(long now) {
+        for (Level level : Level.values()) {
+            long retention = retentionMillis.get(level);
+            if (retention == 0) {
+                continue;
+            }
+            List<Segment> expired = new ArrayList<>();
+            writeLock.lock();
+            try {
+                ConcurrentSkipListMap<Integer, Segment> bySequence = segments.get(level);
+                // El segmento de escritura nunca se borra
+                for (Segment segment : bySequence.headMap(bySequence.isEmpty() ? 0 : bySequence.lastKey()).values()) {
+                    if (segment.maxTimestamp() >= now - retention) {
+                        break;
+                    }
+                    expired.add(segment);
+                }
+                expired.forEach(segment -> bySequence.remove(segment.sequence()));
+            } finally {
+                writeLock.unlock();
+            }
+            if (expired.isEmpty()) {
+                continue;
+            }
+            int upTo = expired.get(expired.size() - 1).sequence();
+            for (Series target : series.values()) {
+                synchronized (target) {
+                    target.blocks[level.ordinal()].removeSegmentsUpTo(upTo);
+                }
+            }
+            for (Segment segment : expired) {
+                try {
+                    // Las lecturas en curso conservan el mapeo aunque se borre el archivo
+                    Files.deleteIfExists(segment.path());
+                } catch (IOException e) {
+                    logger.warning("⚠️ No se pudo borrar " + segment.path() + ": " + e.getMessage());
+                }
+            }
+            logger.info("Historial: " + expired.size() + " segmentos " + level.key() + " fuera de retención borrados");
+        }
+    }
+
+    private List<Path> segmentFiles(Level level) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().matches(level.key() + "-\\d{8}\\.seg"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static final class Series {
+        final String id;
+        final BlockList[] blocks = {new BlockList(), new BlockList(), new BlockList()};
+        final TimeSeriesCodec.Encoder[] open = new TimeSeriesCodec.Encoder[3];
+        final long[] lastTimestamp = {Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE};
+        // Periodo abierto de HOUR y DAY (la posición de RAW no se usa)
+        final long[] accumulatorStart = new long[3];
+        final double[] accumulatorSum = new double[3];
+        final long[] accumulatorCount = new long[3];
+
+        Series(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Bloques escritos de una serie en un nivel, en orden, en arreglos primitivos
+     */
+    private static final class BlockList {
+        int[] segments = new int[4];
+        int[] offsets = new int[4];
+        long[] first = new long[4];
+        long[] last = new long[4];
+        int size;
+
+        void add(int segment, int offset, long firstTimestamp, long lastTimestamp) {
+            if (size == segments.length) {
+                int capacity = size * 2;
+                segments = Arrays.copyOf(segments, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                first = Arrays.copyOf(first, capacity);
+                last = Arrays.copyOf(last, capacity);
+            }
+            segments[size] = segment;
+            offsets[size] = offset;
+            first[size] = firstTimestamp;
+            last[size] = lastTimestamp;
+            size++;
+        }
+
+        void removeSegmentsUpTo(int sequence) {
+            int removed = 0;
+            while (removed < size && segments[removed] <= sequence) {
+                removed++;
+            }
+            if (removed == 0) {
+                return;
+            }
+            System.arraycopy(segments, removed, segments, 0, size - removed);
+            System.arraycopy(offsets, removed, offsets, 0, size - removed);
+            System.arraycopy(first, removed, first, 0, size - removed);
+            System.arraycopy(last, removed, last, 0, size - removed);
+            size -= removed;
+        }
+    }
+}
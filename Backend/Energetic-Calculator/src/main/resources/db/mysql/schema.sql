@@ -0,0 +1,46 @@
+-- Esquema de storage.backend=jdbc (MySQL 8). Se aplica al arrancar con storage.jdbc.initialize-schema=true.
+-- Los ids se comparan en binario para que las páginas salgan en el mismo orden que en Firestore.
+
+CREATE TABLE IF NOT EXISTS devices (
+    id               VARCHAR(255) NOT NULL,
+    nombre           VARCHAR(255) NULL,
+    categoria        VARCHAR(100) NULL,
+    potencia_watts   BIGINT       NULL,
+    horas_uso_diario DOUBLE       NULL,
+    dias_uso_mensual BIGINT       NULL,
+    extra            JSON         NULL,
+    PRIMARY KEY (id),
+    -- Alternativas: misma categoría ordenada por potencia
+    KEY idx_devices_categoria (categoria, potencia_watts)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_bin;
+
+CREATE TABLE IF NOT EXISTS user_devices (
+    id          VARCHAR(255) NOT NULL,
+    user_id     VARCHAR(128) NULL,
+    device_id   VARCHAR(255) NULL,
+    quantity    BIGINT       NULL,
+    daily_hours DOUBLE       NULL,
+    weekly_days BIGINT       NULL,
+    created_at  DATETIME(6)  NULL,
+    kwh_month   DOUBLE       NULL,
+    category    VARCHAR(100) NULL,
+    extra       JSON         NULL,
+    PRIMARY KEY (id),
+    -- Listado y páginas por usuario (WHERE user_id = ? AND id > ? ORDER BY id)
+    KEY idx_user_devices_user (user_id, id),
+    -- Resumen por usuario: el GROUP BY category se resuelve solo con el índice
+    KEY idx_user_devices_user_category (user_id, category, kwh_month),
+    -- Consultas con orden de GET /api/user-devices?sort=...: ORDER BY columna, id sale del índice sin ordenar filas
+    KEY idx_user_devices_user_created (user_id, created_at),
+    KEY idx_user_devices_user_kwh (user_id, kwh_month),
+    KEY idx_user_devices_user_category_created (user_id, category, created_at),
+    KEY idx_user_devices_device (device_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_bin;
+
+-- Resto de colecciones (API genérica /api/data/firestore) como documentos JSON
+CREATE TABLE IF NOT EXISTS documents (
+    collection VARCHAR(128) NOT NULL,
+    id         VARCHAR(255) NOT NULL,
+    data       JSON         NOT NULL,
+    PRIMARY KEY (collection, id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_bin;
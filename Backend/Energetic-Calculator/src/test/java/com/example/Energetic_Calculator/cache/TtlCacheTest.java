@@ -0,0 +1,71 @@
+package com.example.Energetic_Calculator.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlCacheTest {
+
+    private AtomicLong clock;
+    private TtlCache<String, String> cache;
+
+    @BeforeEach
+    void setup() {
+        clock = new AtomicLong();
+        cache = new TtlCache<>(2, 10, TimeUnit.SECONDS, clock::get);
+    }
+
+    @Test
+    void get_countsHitsAndMisses() {
+        cache.put("a", "1");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    void get_expiredEntry_isRemoved() {
+        cache.put("a", "1");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_overCapacity_evictsLeastRecentlyUsed() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void putUntil_usesEntrySpecificExpiry() {
+        cache.putUntil("token", "t", clock.get() + TimeUnit.SECONDS.toNanos(1));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void invalidate_removesEntry() {
+        cache.put("a", "1");
+        cache.invalidate("a");
+
+        assertNull(cache.get("a"));
+    }
+}
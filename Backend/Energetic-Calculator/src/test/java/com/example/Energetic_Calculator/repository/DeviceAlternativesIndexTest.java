@@ -0,0 +1,52 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.Device;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceAlternativesIndexTest {
+
+    private DeviceAlternativesIndex index;
+
+    private final Device nevera = new Device("n1", "Nevera", "Cocina", 150, 24f, 30);
+    private final Device neveraEficiente = new Device("n2", "Nevera eficiente", "Cocina", 90, 24f, 30);
+    private final Device neveraIgual = new Device("n3", "Nevera gemela", "Cocina", 150, 24f, 30);
+    private final Device minibar = new Device("n4", "Minibar", "Cocina", 60, 24f, 30);
+    private final Device bombillo = new Device("b1", "Bombillo", "Iluminación", 10, 5f, 30);
+
+    @BeforeEach
+    void setup() {
+        index = new DeviceAlternativesIndex(300);
+        index.rebuild(List.of(nevera, neveraEficiente, neveraIgual, minibar, bombillo), false);
+    }
+
+    @Test
+    void lowerPower_returnsSameCategoryStrictlyLowerPowerAscending() {
+        assertEquals(List.of(minibar, neveraEficiente), index.lowerPower(nevera, 5));
+        assertEquals(List.of(minibar), index.lowerPower(nevera, 1));
+        assertEquals(List.of(), index.lowerPower(bombillo, 5));
+    }
+
+    @Test
+    void putAndRemove_updateIndexIncrementally() {
+        Device moved = new Device("n4", "Minibar", "Oficina", 60, 24f, 30);
+        index.put(moved);
+        index.remove("n2");
+
+        assertEquals(List.of(), index.lowerPower(nevera, 5));
+        assertSame(moved, index.get("n4"));
+        assertNull(index.get("n2"));
+    }
+
+    @Test
+    void rebuild_expiredIsUsableButNotFresh() {
+        index.rebuild(List.of(nevera, minibar), true);
+
+        assertFalse(index.isFresh());
+        assertEquals(List.of(minibar), index.lowerPower(nevera, 5));
+    }
+}
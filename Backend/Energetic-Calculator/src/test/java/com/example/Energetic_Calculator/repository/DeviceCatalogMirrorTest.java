@@ -0,0 +1,30 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.PageResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceCatalogMirrorTest {
+
+    @Test
+    void page_usesDocumentIdsForOrderAndCursor() {
+        // El campo id guardado de "b" no coincide con su clave y ordenaría antes que "a"
+        DeviceCatalogMirror.Snapshot snapshot = new DeviceCatalogMirror.Snapshot(Map.of(
+                "a", new Device("a", "A", "X", 1, 1f, 1),
+                "b", new Device("0-legacy", "B", "X", 1, 1f, 1),
+                "c", new Device("c", "C", "X", 1, 1f, 1)));
+
+        PageResult<Device> first = snapshot.page(2, null);
+        assertEquals(List.of("A", "B"), first.getItems().stream().map(Device::getNombre).toList());
+        assertEquals("b", first.getNextCursor());
+
+        PageResult<Device> second = snapshot.page(2, first.getNextCursor());
+        assertEquals(List.of("C"), second.getItems().stream().map(Device::getNombre).toList());
+        assertNull(second.getNextCursor());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.Device;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceRepositoryTest {
+
+    private DeviceRepository repository;
+
+    @BeforeEach
+    void setup() throws Exception {
+        repository = new DeviceRepository(new DeviceCatalogMirror(null, false, "memory"), new DeviceAlternativesIndex(300),
+                new InMemoryDocumentStore(), true, 300, 100);
+        repository.saveDevice(new Device("d1", "Nevera", "Cocina", 150, 24f, 30));
+        repository.saveDevice(new Device("d2", "Microondas", "Cocina", 1200, 0.5f, 30));
+    }
+
+    @Test
+    void getAllDevices_returnsUnmodifiableCopiesOnEveryPath() throws Exception {
+        // Primera lectura desde el almacén, segunda desde la cache
+        for (int read = 0; read < 2; read++) {
+            List<Device> devices = repository.getAllDevices();
+            assertEquals(2, devices.size());
+            assertThrows(UnsupportedOperationException.class, () -> devices.add(new Device()));
+            devices.get(0).setNombre("modificado");
+            devices.get(0).setPotenciaWatts(1);
+        }
+
+        assertEquals("Nevera", repository.getAllDevices().get(0).getNombre());
+        Device cached = repository.getDeviceById("d1");
+        assertEquals(150, cached.getPotenciaWatts());
+        cached.setPotenciaWatts(1);
+        assertEquals(150, repository.getDeviceById("d1").getPotenciaWatts());
+        assertEquals(150, repository.getDevicesByIds(List.of("d1")).get("d1").getPotenciaWatts());
+    }
+
+    @Test
+    void saveDevice_doesNotCacheTheCallersInstance() throws Exception {
+        Device device = new Device("d3", "Lavadora", "Lavado", 500, 1f, 8);
+        repository.saveDevice(device);
+        device.setNombre("modificado");
+
+        assertEquals("Lavadora", repository.getDeviceById("d3").getNombre());
+    }
+
+    @Test
+    void openBulkWriter_raisesANonPositiveMaxPendingToOneBatch() {
+        // Con un semáforo de 0 permisos save() se bloquearía para siempre
+        AtomicInteger written = new AtomicInteger();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (BulkDeviceWriter writer = repository.openBulkWriter(0, 0)) {
+                for (int i = 0; i < 3; i++) {
+                    writer.save(new Device("bulk" + i, "Bombillo", "Iluminación", 9, 5f, 30),
+                            (updateTime, error) -> written.incrementAndGet());
+                }
+            }
+        });
+
+        assertEquals(3, written.get());
+    }
+}
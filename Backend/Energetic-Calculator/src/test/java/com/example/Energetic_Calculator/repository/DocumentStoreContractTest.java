@@ -0,0 +1,206 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comportamiento común de los backends de DocumentStore; cada backend lo ejecuta con su propio almacén vacío
+ */
+abstract class DocumentStoreContractTest {
+
+    protected DocumentStore store;
+
+    protected abstract DocumentStore createStore() throws Exception;
+
+    @BeforeEach
+    void setup() throws Exception {
+        store = createStore();
+    }
+
+    @Test
+    void set_normalizesValuesLikeFirestore() throws Exception {
+        store.set("user_devices", "u1", Map.of("quantity", 2, "dailyHours", 6.5f, "createdAt", new Date(0),
+                "meta", Map.of("weeklyDays", 5))).get();
+
+        Map<String, Object> stored = store.get("user_devices", "u1").get();
+
+        assertEquals(2L, stored.get("quantity"));
+        assertEquals(6.5d, stored.get("dailyHours"));
+        assertEquals(Timestamp.of(new Date(0)), stored.get("createdAt"));
+        assertEquals(Map.of("weeklyDays", 5L), stored.get("meta"));
+        assertNull(store.get("user_devices", "missing").get());
+    }
+
+    @Test
+    void findBy_keepsFieldIndexInSyncWithWrites() throws Exception {
+        store.set("devices", "a", Map.of("categoria", "Cocina", "potenciaWatts", 150)).get();
+        store.set("devices", "b", Map.of("categoria", "Cocina", "potenciaWatts", 90)).get();
+        assertEquals(List.of("a", "b"), ids(store.findBy("devices", "categoria", "Cocina").get()));
+
+        store.update("devices", "a", Map.of("categoria", "Oficina")).get();
+        store.delete("devices", "b").get();
+        store.set("devices", "c", Map.of("categoria", "Cocina", "potenciaWatts", 60)).get();
+
+        assertEquals(List.of("c"), ids(store.findBy("devices", "categoria", "Cocina").get()));
+        assertEquals(List.of("a"), ids(store.findBy("devices", "categoria", "Oficina").get()));
+        // 150 guardado como Long coincide con 150.0, como en Firestore
+        assertEquals(List.of("a"), ids(store.findBy("devices", "potenciaWatts", 150.0).get()));
+    }
+
+    @Test
+    void pageAndCommit_followFirestoreSemantics() throws Exception {
+        BatchItemResult first = new BatchItemResult("create", 0, "d1");
+        BatchItemResult second = new BatchItemResult("create", 1, "d2");
+        BatchItemResult third = new BatchItemResult("update", 2, "d3");
+        store.commit("devices", List.of(
+                new DocumentStore.Write(first, "d1", Map.of("nombre", "Nevera", "potenciaWatts", 150)),
+                new DocumentStore.Write(second, "d2", Map.of("nombre", "Bombillo")),
+                new DocumentStore.Write(third, "d3", Map.of("nombre", "Horno")))).get();
+        assertEquals(201, first.getStatus());
+        assertEquals(200, third.getStatus());
+
+        List<DocumentStore.Document> page = store.page("devices", 2, "d1", List.of("nombre")).get();
+
+        assertEquals(List.of("d2", "d3"), ids(page));
+        assertEquals(Map.of("nombre", "Bombillo"), page.get(0).data());
+        ExecutionException missing = assertThrows(ExecutionException.class,
+                () -> store.update("devices", "nope", Map.of("nombre", "x")).get());
+        assertInstanceOf(NoSuchElementException.class, missing.getCause());
+    }
+
+    @Test
+    void commitUpdate_changesOnlyTheGivenFieldsAndFailsTheBatchWhenTheDocumentIsGone() throws Exception {
+        store.set("user_devices", "a", Map.of("userId", "u1", "quantity", 1, "note", "conservar")).get();
+        store.set("user_devices", "b", Map.of("userId", "u1", "quantity", 1)).get();
+
+        BatchItemResult updated = new BatchItemResult("update", 0, "a");
+        BatchItemResult again = new BatchItemResult("update", 1, "a");
+        store.commit("user_devices", List.of(
+                DocumentStore.Write.update(updated, "a", Map.of("quantity", 3, "meta.weeklyDays", 5)),
+                DocumentStore.Write.update(again, "a", Map.of("meta.source", "batch")))).get();
+
+        assertEquals(200, again.getStatus());
+        assertEquals(Map.of("userId", "u1", "quantity", 3L, "note", "conservar",
+                "meta", Map.of("weeklyDays", 5L, "source", "batch")), store.get("user_devices", "a").get());
+
+        // Como en Firestore el lote es atómico: el update de un documento eliminado hace fallar también el delete
+        BatchItemResult deleted = new BatchItemResult("delete", 0, "b");
+        BatchItemResult gone = new BatchItemResult("update", 1, "missing");
+        store.commit("user_devices", List.of(
+                new DocumentStore.Write(deleted, "b", null),
+                DocumentStore.Write.update(gone, "missing", Map.of("quantity", 2)))).get();
+
+        assertFalse(deleted.isSuccess());
+        assertFalse(gone.isSuccess());
+        assertNotNull(store.get("user_devices", "b").get());
+        assertNull(store.get("user_devices", "missing").get());
+    }
+
+    @Test
+    void commitIncrement_createsTheDocumentAndAddsToItsNumbers() throws Exception {
+        Timestamp start = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0);
+        BatchItemResult created = new BatchItemResult("update", 0, "m1");
+        BatchItemResult added = new BatchItemResult("update", 1, "m1");
+        store.commit("meter_rollups", List.of(
+                DocumentStore.Write.increment(created, "m1", Map.of("userId", "u1", "start", start, "kwh", 0.5, "count", 2)),
+                DocumentStore.Write.increment(added, "m1", Map.of("userId", "u1", "kwh", 0.25, "count", 1)))).get();
+        assertEquals(200, added.getStatus());
+        assertEquals(Map.of("userId", "u1", "start", start, "kwh", 0.75, "count", 3L), store.get("meter_rollups", "m1").get());
+
+        // Otro lote (otro nodo) suma a lo guardado en lugar de reemplazarlo; un campo no numérico toma el valor
+        store.update("meter_rollups", "m1", Map.of("note", "texto")).get();
+        store.commit("meter_rollups", List.of(DocumentStore.Write.increment(new BatchItemResult("update", 0, "m1"), "m1",
+                Map.of("kwh", 1.0, "count", 4, "note", 2)))).get();
+        assertEquals(Map.of("userId", "u1", "start", start, "kwh", 1.75, "count", 7L, "note", 2L),
+                store.get("meter_rollups", "m1").get());
+    }
+
+    @Test
+    void pageByAndAggregate_filterThroughTheFieldIndex() throws Exception {
+        store.set("user_devices", "a", Map.of("userId", "u1", "category", "Cocina", "kwhMonth", 10.5)).get();
+        store.set("user_devices", "b", Map.of("userId", "u1", "category", "Cocina", "kwhMonth", 4.5)).get();
+        store.set("user_devices", "c", Map.of("userId", "u1", "kwhMonth", 1.0)).get();
+        store.set("user_devices", "d", Map.of("userId", "u1", "category", "Oficina")).get();
+        store.set("user_devices", "e", Map.of("userId", "u2", "category", "Cocina", "kwhMonth", 2.0)).get();
+
+        List<DocumentStore.Document> page = store.pageBy("user_devices", "userId", "u1", 2, "a", List.of("kwhMonth")).get();
+        assertEquals(List.of("b", "c"), ids(page));
+        assertEquals(Map.of("kwhMonth", 4.5), page.get(0).data());
+
+        // Sin kwhMonth no cuenta; sin category va al grupo null
+        Map<Object, DocumentStore.Group> groups = new HashMap<>();
+        store.aggregate("user_devices", "userId", "u1", "category", "kwhMonth").get()
+                .forEach(group -> groups.put(group.key(), group));
+        assertEquals(2, groups.size());
+        assertEquals(new DocumentStore.Group("Cocina", 2, 15.0), groups.get("Cocina"));
+        assertEquals(new DocumentStore.Group(null, 1, 1.0), groups.get(null));
+        assertEquals(4, store.aggregate("user_devices", null, null, "category", "kwhMonth").get().stream()
+                .mapToLong(DocumentStore.Group::count).sum());
+    }
+
+    @Test
+    void query_filtersSortsAndPagesByTheOrderedField() throws Exception {
+        store.set("user_devices", "a", Map.of("userId", "u1", "category", "Cocina", "kwhMonth", 10.5, "createdAt", new Date(3000))).get();
+        store.set("user_devices", "b", Map.of("userId", "u1", "category", "Cocina", "kwhMonth", 4, "createdAt", new Date(1000))).get();
+        store.set("user_devices", "c", Map.of("userId", "u1", "category", "Cocina", "kwhMonth", 10.5, "createdAt", new Date(2000))).get();
+        store.set("user_devices", "d", Map.of("userId", "u1", "category", "Oficina", "kwhMonth", 30.0)).get();
+        store.set("user_devices", "e", Map.of("userId", "u2", "category", "Cocina", "kwhMonth", 50.0)).get();
+
+        // Mayor consumo primero; los empates por id en la misma dirección
+        DocumentQuery byKwh = new DocumentQuery(Map.of("userId", "u1"), List.of(new DocumentQuery.Range("kwhMonth", 4.5, null)),
+                "kwhMonth", true, 2, null, null);
+        assertEquals(List.of("d", "c"), ids(store.query("user_devices", byKwh).get()));
+        DocumentQuery next = new DocumentQuery(byKwh.equalTo(), byKwh.ranges(), "kwhMonth", true, 2, "c", null);
+        assertEquals(List.of("a"), ids(store.query("user_devices", next).get()));
+
+        // Sin createdAt no entra en el orden; el límite superior del rango se excluye
+        DocumentQuery byDate = new DocumentQuery(Map.of("userId", "u1", "category", "Cocina"),
+                List.of(new DocumentQuery.Range("createdAt", null, Timestamp.of(new Date(3000)))), "createdAt", false, 10, null,
+                List.of("kwhMonth"));
+        List<DocumentStore.Document> page = store.query("user_devices", byDate).get();
+        assertEquals(List.of("b", "c"), ids(page));
+        assertEquals(Map.of("kwhMonth", 4L), page.get(0).data());
+
+        DocumentQuery missingCursor = new DocumentQuery(Map.of("userId", "u1"), null, null, false, 10, "zz", null);
+        ExecutionException error = assertThrows(ExecutionException.class, () -> store.query("user_devices", missingCursor).get());
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+    }
+
+    @Test
+    void query_pagesThroughTiesWithTheKeysetCursor() throws Exception {
+        // Tres documentos con la misma fecha (con microsegundos) repartidos entre páginas
+        Timestamp tied = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 123_456_000);
+        for (String id : List.of("a", "c", "e")) {
+            store.set("user_devices", id, Map.of("userId", "u1", "createdAt", tied)).get();
+        }
+        store.set("user_devices", "b", Map.of("userId", "u1", "createdAt", Timestamp.ofTimeSecondsAndNanos(1_700_000_001L, 0))).get();
+        store.set("user_devices", "d", Map.of("userId", "u1", "createdAt", Timestamp.ofTimeSecondsAndNanos(1_699_999_999L, 0))).get();
+
+        List<String> visited = new ArrayList<>();
+        String cursor = null;
+        do {
+            DocumentQuery page = new DocumentQuery(Map.of("userId", "u1"), null, "createdAt", true, 2, cursor, null);
+            List<DocumentStore.Document> documents = store.query("user_devices", page).get();
+            visited.addAll(ids(documents));
+            cursor = documents.size() == 2 ? documents.get(1).id() : null;
+        } while (cursor != null);
+
+        assertEquals(List.of("b", "e", "c", "a", "d"), visited);
+    }
+
+    private static List<String> ids(List<DocumentStore.Document> documents) {
+        return documents.stream().map(DocumentStore.Document::id).toList();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FirestoreCallLimiterTest {
+
+    private SimpleMeterRegistry registry;
+    private FirestoreMetrics metrics;
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        metrics = new FirestoreMetrics(registry);
+    }
+
+    @Test
+    void submit_recordsLatencyAndDocumentsByCollectionAndOperation() throws Exception {
+        FirestoreCallLimiter limiter = new FirestoreCallLimiter(metrics, 4, 10);
+
+        assertEquals(List.of("a", "b"), limiter.submit("devices", "getAll", () -> ApiFutures.immediateFuture(List.of("a", "b"))).get());
+
+        Timer timer = registry.get("firestore.calls").tags("collection", "devices", "operation", "getAll", "outcome", "success").timer();
+        assertEquals(1, timer.count());
+        assertEquals(2.0, registry.get("firestore.documents").tags("collection", "devices").summary().totalAmount());
+    }
+
+    @Test
+    void submit_recordsFailuresWithExceptionTag() {
+        FirestoreCallLimiter limiter = new FirestoreCallLimiter(metrics, 0, 0);
+
+        CompletableFuture<Object> call = limiter.submit("users", "query",
+                () -> ApiFutures.immediateFailedFuture(new IllegalStateException("sin conexión")));
+
+        assertThrows(ExecutionException.class, call::get);
+        assertEquals(1, registry.get("firestore.calls")
+                .tags("collection", "users", "outcome", "error", "exception", "IllegalStateException").timer().count());
+    }
+
+    @Test
+    void submit_countsRejectionsWhenQueueIsFull() throws Exception {
+        FirestoreCallLimiter limiter = new FirestoreCallLimiter(metrics, 1, 1);
+        SettableApiFuture<String> first = SettableApiFuture.create();
+
+        CompletableFuture<String> running = limiter.submit("devices", "get", () -> first);
+        CompletableFuture<String> queued = limiter.submit("devices", "get", () -> ApiFutures.immediateFuture("queued"));
+        CompletableFuture<String> rejected = limiter.submit("devices", "get", () -> ApiFutures.immediateFuture("rejected"));
+
+        ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(1.0, registry.get("firestore.calls.rejected").counter().count());
+        assertEquals(1.0, registry.get("firestore.limiter.queued").gauge().value());
+
+        first.set("first");
+        assertEquals("first", running.get());
+        assertEquals("queued", queued.get());
+        assertEquals(1, registry.get("firestore.limiter.wait").timer().count());
+        assertEquals(0.0, registry.get("firestore.limiter.in-flight").gauge().value());
+    }
+
+    @Test
+    void submit_drainsABurstOfImmediateFailuresWithoutRecursing() throws Exception {
+        int burst = 50_000;
+        FirestoreCallLimiter limiter = new FirestoreCallLimiter(metrics, 1, burst);
+        SettableApiFuture<String> first = SettableApiFuture.create();
+
+        limiter.submit("devices", "get", () -> first);
+        List<CompletableFuture<Object>> failing = new ArrayList<>(burst);
+        for (int i = 0; i < burst; i++) {
+            failing.add(limiter.submit("devices", "get", () -> {
+                throw new IllegalStateException("sin conexión");
+            }));
+        }
+
+        first.set("first");
+        for (CompletableFuture<Object> call : failing) {
+            // Con recursión el desborde de pila se pierde dentro de whenComplete y las llamadas nunca terminan
+            ExecutionException error = assertThrows(ExecutionException.class, () -> call.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+        }
+        assertEquals(0.0, registry.get("firestore.limiter.queued").gauge().value());
+        assertEquals(0.0, registry.get("firestore.limiter.in-flight").gauge().value());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class FirestoreDocumentStoreTest {
+
+    private final FirestoreDocumentStore store = new FirestoreDocumentStore(null,
+            new FirestoreCallLimiter(new FirestoreMetrics(new SimpleMeterRegistry()), 4, 10));
+
+    @Test
+    void queryPages_fetchesFullPagesAndStopsAtTheLastReturnedDocument() throws Exception {
+        Query base = mock(Query.class);
+        Query afterFirstPage = mock(Query.class);
+        QueryDocumentSnapshot lastOfFirstPage = snapshot("c", 0.0);
+        page(base, snapshot("a", 1.0), snapshot("b", 5.0), lastOfFirstPage);
+        when(base.startAfter(lastOfFirstPage)).thenReturn(afterFirstPage);
+        page(afterFirstPage, snapshot("d", 6.0), snapshot("e", 7.0), snapshot("f", 8.0));
+
+        // kwhMonth >= 2 se filtra aquí: la primera página solo aporta b
+        DocumentQuery query = new DocumentQuery(null, List.of(new DocumentQuery.Range("kwhMonth", 2.0, null)), null,
+                false, 3, null, null);
+        List<DocumentStore.Document> found = store.queryPages("user_devices", base, null, query.residualRanges(), query,
+                new ArrayList<>()).get();
+
+        // Se corta en e: f no se devuelve y la página siguiente empezará después de e
+        assertEquals(List.of("b", "d", "e"), found.stream().map(DocumentStore.Document::id).toList());
+        verify(base).limit(3);
+        verify(afterFirstPage).limit(3);
+        verify(base, never()).limit(2);
+        verify(afterFirstPage, never()).startAfter(any(QueryDocumentSnapshot.class));
+    }
+
+    @Test
+    void queryPages_stopsOnAShortPage() throws Exception {
+        Query base = mock(Query.class);
+        page(base, snapshot("a", 1.0), snapshot("b", 5.0));
+
+        DocumentQuery query = new DocumentQuery(null, List.of(new DocumentQuery.Range("kwhMonth", 2.0, null)), null,
+                false, 3, null, null);
+        List<DocumentStore.Document> found = store.queryPages("user_devices", base, null, query.residualRanges(), query,
+                new ArrayList<>()).get();
+
+        assertEquals(List.of("b"), found.stream().map(DocumentStore.Document::id).toList());
+        verify(base, never()).startAfter(any(QueryDocumentSnapshot.class));
+    }
+
+    @Test
+    void toIncrements_turnsNumbersIntoServerIncrements() {
+        Map<String, Object> increments = FirestoreDocumentStore.toIncrements(Map.of("userId", "u1", "kwh", 0.5, "count", 2L));
+        assertEquals(Map.of("userId", "u1", "kwh", FieldValue.increment(0.5), "count", FieldValue.increment(2L)), increments);
+    }
+
+    private static void page(Query query, QueryDocumentSnapshot... documents) {
+        Query limited = mock(Query.class);
+        QuerySnapshot result = mock(QuerySnapshot.class);
+        when(result.getDocuments()).thenReturn(List.of(documents));
+        when(query.limit(anyInt())).thenReturn(limited);
+        when(limited.get()).thenReturn(ApiFutures.immediateFuture(result));
+    }
+
+    private static QueryDocumentSnapshot snapshot(String id, double kwhMonth) {
+        QueryDocumentSnapshot snapshot = mock(QueryDocumentSnapshot.class);
+        when(snapshot.getId()).thenReturn(id);
+        when(snapshot.get("kwhMonth")).thenReturn(kwhMonth);
+        when(snapshot.getData()).thenReturn(Map.of("kwhMonth", kwhMonth));
+        return snapshot;
+    }
+}
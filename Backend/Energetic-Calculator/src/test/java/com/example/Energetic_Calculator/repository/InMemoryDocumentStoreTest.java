@@ -0,0 +1,9 @@
+package com.example.Energetic_Calculator.repository;
+
+class InMemoryDocumentStoreTest extends DocumentStoreContractTest {
+
+    @Override
+    protected DocumentStore createStore() {
+        return new InMemoryDocumentStore();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.Energetic_Calculator.repository;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.example.Energetic_Calculator.config.JdbcConfig;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.GeoPoint;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El contrato de DocumentStore sobre un MariaDB embebido (MariaDB4j) con el esquema de db/mysql/schema.sql
+ */
+class JdbcDocumentStoreTest extends DocumentStoreContractTest {
+
+    private static DB database;
+    private static HikariDataSource dataSource;
+
+    private JdbcDocumentStore jdbcStore;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0);
+        if ("root".equals(System.getProperty("user.name"))) {
+            config.addArg("--user=root");
+
+        }
+        database = DB.newEmbeddedDB(config.build());
+        database.start();
+        String server = "jdbc:mysql://localhost:" + database.getConfiguration().getPort() + "/";
+        try (Connection connection = DriverManager.getConnection(server, "root", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE energetic");
+        }
+        dataSource = new JdbcConfig().dataSource(server + "energetic", "root", "", 4, true, new SimpleMeterRegistry());
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (database != null) {
+            database.stop();
+        }
+    }
+
+    @Override
+    protected DocumentStore createStore() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String table : List.of("devices", "user_devices", "documents")) {
+                statement.execute("TRUNCATE TABLE " + table);
+            }
+        }
+        jdbcStore = new JdbcDocumentStore(dataSource, 4);
+        return jdbcStore;
+    }
+
+    @AfterEach
+    void closeStore() {
+        jdbcStore.destroy();
+    }
+
+    @Test
+    void set_readsBackFirestoreTypesFromColumnsAndJson() throws Exception {
+        Timestamp createdAt = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 123_456_000);
+        Map<String, Object> nested = Map.of("at", new Date(5000), "tags", List.of("a", 1), "deep", Map.of("x", 1.5));
+        store.set("user_devices", "u1", Map.of("userId", "u1", "createdAt", createdAt, "quantity", 2,
+                "category", 7, "meta", nested)).get();
+        store.set("readings", "r1", Map.of("at", new Date(5000), "where", new GeoPoint(4.6, -74.1),
+                "raw", Blob.fromBytes(new byte[]{1, 2, 3}), "nested", nested, "empty", Map.of())).get();
+
+        // Columnas: Timestamp con microsegundos y Long; category con otro tipo va a extra y conserva el suyo
+        Map<String, Object> device = store.get("user_devices", "u1").get();
+        assertEquals(createdAt, device.get("createdAt"));
+        assertEquals(2L, device.get("quantity"));
+        assertEquals(7L, device.get("category"));
+        Map<String, Object> expectedNested = Map.of("at", Timestamp.of(new Date(5000)), "tags", List.of("a", 1L),
+                "deep", Map.of("x", 1.5));
+        assertEquals(expectedNested, device.get("meta"));
+
+        // Tabla documents: todo en JSON con las claves $timestamp, $geopoint y $bytes
+        assertEquals(Map.of("at", Timestamp.of(new Date(5000)), "where", new GeoPoint(4.6, -74.1),
+                "raw", Blob.fromBytes(new byte[]{1, 2, 3}), "nested", expectedNested, "empty", Map.of()),
+                store.get("readings", "r1").get());
+        // La misma id en otra colección de la tabla compartida es otro documento
+        assertNull(store.get("other", "r1").get());
+    }
+}
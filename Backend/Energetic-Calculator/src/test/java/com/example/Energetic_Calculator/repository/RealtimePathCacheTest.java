@@ -0,0 +1,102 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RealtimePathCacheTest {
+
+    private DatabaseReference reference;
+    private RealtimePathCache cache;
+
+    @BeforeEach
+    void setup() {
+        FirebaseDatabase database = mock(FirebaseDatabase.class);
+        reference = mock(DatabaseReference.class);
+        when(database.getReference("meters")).thenReturn(reference);
+        cache = new RealtimePathCache(database, List.of("/meters/", "meters", ""), new SimpleMeterRegistry());
+        cache.start();
+    }
+
+    @AfterEach
+    void teardown() {
+        cache.stop();
+    }
+
+    @Test
+    void normalizeAndDescend_walkMapsAndListIndexes() {
+        assertEquals("meters/m1", RealtimePathCache.normalize("/meters//m1/"));
+        assertEquals("", RealtimePathCache.normalize("/"));
+
+        Map<String, Object> tree = Map.of("m1", Map.of("readings", List.of(10L, 20L)));
+        assertEquals(20L, RealtimePathCache.descend(tree, "/m1/readings/1"));
+        assertEquals(tree, RealtimePathCache.descend(tree, ""));
+        assertNull(RealtimePathCache.descend(tree, "/m1/readings/2"));
+        assertNull(RealtimePathCache.descend(tree, "/m1/readings/x"));
+        assertNull(RealtimePathCache.descend(tree, "/m1/readings/1/deeper"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void get_servesFrozenCopiesOfTheLastEvent() {
+        // Las rutas repetidas o vacías se suscriben una sola vez
+        ValueEventListener listener = subscribedListener();
+        assertNull(cache.get("meters/m1"));
+
+        Map<String, Object> m1 = new HashMap<>(Map.of("kwh", 1.5));
+        List<Object> tags = new ArrayList<>(List.of("a"));
+        m1.put("tags", tags);
+        Map<String, Object> value = new HashMap<>(Map.of("m1", m1));
+        listener.onDataChange(snapshot(value));
+        m1.put("kwh", 99.0);
+        tags.add("b");
+
+        RealtimePathCache.Hit hit = cache.get("/meters/m1");
+        assertEquals(Map.of("kwh", 1.5, "tags", List.of("a")), hit.value());
+        assertThrows(UnsupportedOperationException.class, () -> ((Map<String, Object>) hit.value()).put("kwh", 2.0));
+        assertThrows(UnsupportedOperationException.class,
+                () -> ((List<Object>) cache.get("meters/m1/tags").value()).add("c"));
+        // Ruta cubierta pero sin valor: acierto con null; fuera de las rutas suscritas: sin acierto
+        assertNull(cache.get("meters/m2").value());
+        assertNull(cache.get("users/u1"));
+    }
+
+    @Test
+    void cancelledListener_invalidatesThePath() {
+        ValueEventListener listener = subscribedListener();
+        listener.onDataChange(snapshot(Map.of("m1", Map.of("kwh", 1.5))));
+        assertNotNull(cache.get("meters/m1"));
+
+        listener.onCancelled(DatabaseError.fromCode(DatabaseError.PERMISSION_DENIED));
+
+        assertNull(cache.get("meters/m1"));
+        assertEquals("pending", ((Map<?, ?>) cache.stats().get("paths")).get("meters"));
+    }
+
+    private ValueEventListener subscribedListener() {
+        ArgumentCaptor<ValueEventListener> captor = ArgumentCaptor.forClass(ValueEventListener.class);
+        verify(reference, times(1)).addValueEventListener(captor.capture());
+        return captor.getValue();
+    }
+
+    private static DataSnapshot snapshot(Object value) {
+        DataSnapshot snapshot = mock(DataSnapshot.class);
+        when(snapshot.getValue()).thenReturn(value);
+        return snapshot;
+    }
+}
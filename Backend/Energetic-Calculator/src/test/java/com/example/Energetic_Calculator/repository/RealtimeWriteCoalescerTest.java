@@ -0,0 +1,114 @@
+package com.example.Energetic_Calculator.repository;
+
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RealtimeWriteCoalescerTest {
+
+    private DatabaseReference root;
+    private RealtimeWriteCoalescer coalescer;
+
+    @BeforeEach
+    void setup() {
+        FirebaseDatabase database = mock(FirebaseDatabase.class);
+        root = mock(DatabaseReference.class);
+        when(database.getReference()).thenReturn(root);
+        // Ventana larga: solo se envía al solaparse una ruta, al llenar el lote o con stop()
+        coalescer = new RealtimeWriteCoalescer(database, 60_000, 1000, 4, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void teardown() {
+        coalescer.stop();
+    }
+
+    @Test
+    void write_keepsTheLastValuePerPathWithinTheWindow() throws Exception {
+        CompletableFuture<Void> first = coalescer.write(Map.of("meters/m1", 1L));
+        CompletableFuture<Void> second = coalescer.write(Map.of("meters/m1", 2L, "meters/m2", 3L));
+        verify(root, never()).updateChildren(anyMap(), any());
+
+        coalescer.stop();
+
+        List<DatabaseReference.CompletionListener> listeners = sentBatches(Map.of("meters/m1", 2L, "meters/m2", 3L));
+        assertFalse(first.isDone());
+        listeners.get(0).onComplete(null, root);
+        first.get();
+        second.get();
+        assertEquals(0, coalescer.unacknowledged());
+    }
+
+    @Test
+    void write_flushesPendingPathsBeforeAnOverlappingOne() {
+        coalescer.write(Map.of("meters/m1/kwh", 1L));
+        // Hermanos con prefijo común ("meters/m1x", "meters/m10") no se solapan con "meters/m1"
+        coalescer.write(Map.of("meters/m1x", 2L, "meters/m10", 3L));
+        verify(root, never()).updateChildren(anyMap(), any());
+
+        // Ancestro de una ruta pendiente: subMap("meters/m1/", "meters/m10") la encuentra
+        coalescer.write(Map.of("meters/m1", 4L));
+        // Descendiente de una ruta pendiente
+        coalescer.write(Map.of("meters/m1/kwh", 5L));
+        coalescer.stop();
+
+        sentBatches(Map.of("meters/m1/kwh", 1L, "meters/m1x", 2L, "meters/m10", 3L),
+                Map.of("meters/m1", 4L),
+                Map.of("meters/m1/kwh", 5L));
+    }
+
+    @Test
+    void write_rejectsWhenTooManyWritesAreUnacknowledged() throws Exception {
+        CompletableFuture<Void> first = coalescer.write(Map.of("a", 1L));
+        coalescer.write(Map.of("b", 1L));
+        coalescer.write(Map.of("c", 1L));
+        coalescer.write(Map.of("d", 1L));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> coalescer.write(Map.of("e", 1L)).get());
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+
+        // Enviadas pero sin confirmar siguen contando hasta que responde el servidor
+        coalescer.stop();
+        assertEquals(4, coalescer.unacknowledged());
+        sentBatches(Map.of("a", 1L, "b", 1L, "c", 1L, "d", 1L)).get(0)
+                .onComplete(DatabaseError.fromCode(DatabaseError.WRITE_CANCELED), root);
+        assertEquals(0, coalescer.unacknowledged());
+        assertThrows(ExecutionException.class, first::get);
+    }
+
+    @Test
+    void write_rejectsNestedPathsInTheSameWrite() {
+        CompletableFuture<Void> nested = coalescer.write(Map.of("meters", Map.of(), "meters/m1", 1L));
+        ExecutionException error = assertThrows(ExecutionException.class, nested::get);
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+    }
+
+    /**
+     * Comprueba los lotes enviados en orden y devuelve sus CompletionListener
+     */
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private List<DatabaseReference.CompletionListener> sentBatches(Map<String, Object>... expected) {
+        ArgumentCaptor<Map<String, Object>> batches = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<DatabaseReference.CompletionListener> listeners =
+                ArgumentCaptor.forClass(DatabaseReference.CompletionListener.class);
+        verify(root, times(expected.length)).updateChildren(batches.capture(), listeners.capture());
+        assertEquals(List.of(expected), batches.getAllValues());
+        return listeners.getAllValues();
+    }
+}
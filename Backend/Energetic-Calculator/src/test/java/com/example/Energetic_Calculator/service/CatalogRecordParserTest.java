@@ -0,0 +1,56 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.Device;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogRecordParserTest {
+
+    @Test
+    void toDevice_normalizesPreloadedCatalogStrings() {
+        Device device = CatalogRecordParser.toDevice(Map.of(
+                "nombre", "Nevera 240 L  (1 puerta) ",
+                "categoria", " cocina ",
+                "potenciaWatts", "30 W (300 W en uso)",
+                "horasUsoDiario", " 0.15 h/día ",
+                "diasUsoMensual", 1));
+
+        assertEquals("Nevera 240 L (1 puerta)", device.getNombre());
+        assertEquals("Cocina", device.getCategoria());
+        assertEquals(30, device.getPotenciaWatts());
+        assertEquals(0.15f, device.getHorasUsoDiario(), 1e-6);
+        assertEquals(1, device.getDiasUsoMensual());
+    }
+
+    @Test
+    void parse_convertsKilowattsAndMinutes() {
+        assertEquals(1500.0, CatalogRecordParser.parseWatts("1,5 kW"), 1e-9);
+        assertEquals(0.5, CatalogRecordParser.parseHours("30 min"), 1e-9);
+        assertEquals(2.0, CatalogRecordParser.parseHours(2), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> CatalogRecordParser.parseWatts("mucha"));
+    }
+
+    @Test
+    void dedupeKey_ignoresCaseAccentsAndSpacing() {
+        Device a = new Device(null, "Televisor  LED", "Iluminación", 10, 1f, 1);
+        Device b = new Device(null, "televisor led", "iluminacion", 20, 2f, 2);
+
+        assertEquals(CatalogRecordParser.dedupeKey(a), CatalogRecordParser.dedupeKey(b));
+    }
+
+    @Test
+    void nextCsvRow_handlesQuotedSeparatorsAndEscapedQuotes() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader("\"Horno, 45 L\",\"Dice \"\"hola\"\"\",3\r\nx,y\n"));
+
+        assertEquals(List.of("Horno, 45 L", "Dice \"hola\"", "3"), CatalogRecordReader.nextCsvRow(reader, ','));
+        assertEquals(List.of("x", "y"), CatalogRecordReader.nextCsvRow(reader, ','));
+        assertNull(CatalogRecordReader.nextCsvRow(reader, ','));
+    }
+}
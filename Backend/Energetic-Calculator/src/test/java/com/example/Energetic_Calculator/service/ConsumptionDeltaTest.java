@@ -0,0 +1,61 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.UserDevice;
+import com.google.cloud.firestore.FieldValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsumptionDeltaTest {
+
+    @Test
+    void add_sumsAndSubtractsStoredContributionByCategory() {
+        ConsumptionDelta delta = new ConsumptionDelta()
+                .add(device(30.0, "Cocina"), 1)
+                .add(device(12.5, "Cocina"), 1)
+                .add(device(100.0, "Clima"), 1)
+                .add(device(30.0, "Cocina"), -1);
+
+        assertEquals(112.5, delta.getKwh(), 1e-9);
+        assertEquals(2, delta.getCount());
+        assertEquals(Map.of("Cocina", 12.5, "Clima", 100.0), delta.getCategoryKwh());
+        assertEquals(Map.of("Cocina", 1L, "Clima", 1L), delta.getCategoryCount());
+    }
+
+    @Test
+    void add_ignoresDevicesWithoutContributionAndKeepsUncategorizedInTotals() {
+        ConsumptionDelta delta = new ConsumptionDelta().add(device(null, "Cocina"), 1);
+        assertTrue(delta.isEmpty());
+
+        delta.add(device(8.0, null), 1);
+        assertFalse(delta.isEmpty());
+        assertEquals(8.0, delta.getKwh());
+        assertEquals(1, delta.getCount());
+        assertTrue(delta.getCategoryKwh().isEmpty());
+    }
+
+    @Test
+    void toDocumentAndToIncrements_carryTheSameFields() {
+        ConsumptionDelta delta = new ConsumptionDelta().add(device(20.0, "Cocina"), 1);
+
+        Map<String, Object> document = delta.toDocument("u1");
+        assertEquals("u1", document.get("userId"));
+        assertEquals(20.0, document.get("totalKwh"));
+        assertEquals(1L, document.get("deviceCount"));
+        assertEquals(Map.of("Cocina", 20.0), document.get("categoryKwh"));
+
+        Map<String, Object> increments = delta.toIncrements("u1");
+        assertEquals(document.keySet(), increments.keySet());
+        assertInstanceOf(FieldValue.class, increments.get("totalKwh"));
+        assertInstanceOf(FieldValue.class, ((Map<?, ?>) increments.get("categoryCount")).get("Cocina"));
+    }
+
+    private static UserDevice device(Double kwhMonth, String category) {
+        UserDevice userDevice = new UserDevice("id", "u1", "d1", 1, 1f, 7);
+        userDevice.setKwhMonth(kwhMonth);
+        userDevice.setCategory(category);
+        return userDevice;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.ConsumptionSummary;
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.DeviceConsumption;
+import com.example.Energetic_Calculator.model.UserDevice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumptionEngineTest {
+
+    @Mock
+    private UserDeviceService userDeviceService;
+
+    @Mock
+    private DeviceService deviceService;
+
+    private ConsumptionEngine engine;
+
+    private Device nevera;
+    private Device bombillo;
+
+    @BeforeEach
+    void setup() {
+        engine = new ConsumptionEngine(userDeviceService, deviceService, 600, 0.164);
+        nevera = new Device("d1", "Nevera", "Cocina", 150, 24f, 30);
+        bombillo = new Device("d2", "Bombillo LED", "Iluminación", 10, 5f, 30);
+    }
+
+    @Test
+    void monthlyKwh_matchesFrontendFormula() {
+        // 150 W * 24 h * 1 * (7 * 30 / 7) / 1000 = 108 kWh
+        assertEquals(108.0, ConsumptionEngine.monthlyKwh(150, 24f, 1, 7), 1e-9);
+    }
+
+    @Test
+    void summarizeUser_joinsCatalogAndComputesTotals() throws ExecutionException, InterruptedException {
+        UserDevice u1 = new UserDevice("u1", "user", "d1", 1, 24f, 7);
+        UserDevice u2 = new UserDevice("u2", "user", "d2", 4, 5f, 7);
+        when(userDeviceService.getUserDevicesAsync("user")).thenReturn(CompletableFuture.completedFuture(Arrays.asList(u1, u2)));
+        when(deviceService.getDevicesByIdsAsync(Set.of("d1", "d2")))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("d1", nevera, "d2", bombillo)));
+
+        ConsumptionSummary summary = engine.summarizeUser("user", null);
+
+        assertEquals("user", summary.getUserId());
+        assertEquals(2, summary.getDeviceCount());
+        // 108 kWh + 10 W * 5 h * 4 * 30 / 1000 = 108 + 6 = 114 kWh
+        assertEquals(114.0, summary.getTotalConsumptionKwh(), 1e-9);
+        assertEquals(114.0 * 600, summary.getTotalCost(), 1e-6);
+        assertEquals(18.696, summary.getTotalCo2(), 1e-9);
+
+        DeviceConsumption first = summary.getDevices().get(0);
+        assertEquals("Nevera", first.getNombre());
+        assertEquals(94.7, first.getPercentage(), 1e-9);
+        verify(deviceService, times(1)).getDevicesByIdsAsync(Set.of("d1", "d2"));
+        verify(deviceService, never()).listDevicesAsync();
+    }
+
+    @Test
+    void summarize_skipsDevicesMissingFromCatalog() {
+        UserDevice orphan = new UserDevice("u3", "user", "missing", 1, 1f, 1);
+
+        ConsumptionSummary summary = engine.summarize(List.of(orphan), Map.of("d1", nevera), 600);
+
+        assertEquals(0, summary.getDeviceCount());
+        assertEquals(0.0, summary.getTotalConsumptionKwh());
+        assertEquals(List.of("missing"), summary.getUnresolvedDeviceIds());
+    }
+
+    @Test
+    void summarizeUser_usesRequestedTariff() throws ExecutionException, InterruptedException {
+        UserDevice u1 = new UserDevice("u1", "user", "d1", 1, 24f, 7);
+        when(userDeviceService.getUserDevicesAsync("user")).thenReturn(CompletableFuture.completedFuture(List.of(u1)));
+        when(deviceService.getDevicesByIdsAsync(Set.of("d1"))).thenReturn(CompletableFuture.completedFuture(Map.of("d1", nevera)));
+
+        ConsumptionSummary summary = engine.summarizeUser("user", 800.0);
+
+        assertEquals(800.0, summary.getTariffPerKwh());
+        assertEquals(108.0 * 800, summary.getTotalCost(), 1e-6);
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.Energetic_Calculator.service;
 
+import com.example.Energetic_Calculator.model.BatchRequest;
+import com.example.Energetic_Calculator.model.BatchResult;
 import com.example.Energetic_Calculator.model.Device;
 import com.example.Energetic_Calculator.repository.DeviceRepository;
+import com.example.Energetic_Calculator.repository.FirestoreBatches;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,6 +14,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -106,4 +111,34 @@ class DeviceServiceTest {
         assertThrows(InterruptedException.class, () -> deviceService.getDevice("1"));
         verify(deviceRepository, times(1)).getDeviceById("1");
     }
-}
\ No newline at end of file
+
+    @Test
+    void applyBatch_rejectsInvalidAndMissingItems_commitsTheRest() throws ExecutionException, InterruptedException {
+        Device valid = new Device(null, "Nevera", "Cocina", 150, 24f, 30);
+        Device invalid = new Device(null, "TV", "Cocina", 150, 24f, 30);
+        Device missing = new Device("x", "Horno", "Cocina", 1200, 1f, 10);
+        BatchRequest<Device> request = new BatchRequest<>();
+        request.setCreate(List.of(valid, invalid));
+        request.setUpdate(List.of(missing));
+        request.setDelete(List.of("1"));
+
+        when(deviceRepository.findExistingIdsAsync(List.of("x", "1")))
+                .thenReturn(CompletableFuture.completedFuture(Set.of("1")));
+        when(deviceRepository.writeBatchAsync(anyList(), anyList())).thenAnswer(invocation -> {
+            List<FirestoreBatches.Item<Device>> upserts = invocation.getArgument(0);
+            List<FirestoreBatches.Item<String>> deletes = invocation.getArgument(1);
+            upserts.forEach(item -> item.result().succeed(201, "t"));
+            deletes.forEach(item -> item.result().succeed(200, "t"));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        BatchResult result = deviceService.applyBatchAsync(request).get();
+
+        assertEquals(2, result.getSucceeded());
+        assertEquals(2, result.getFailed());
+        assertEquals(201, result.getResults().get(0).getStatus());
+        assertEquals(400, result.getResults().get(1).getStatus());
+        assertEquals(404, result.getResults().get(2).getStatus());
+        assertEquals(200, result.getResults().get(3).getStatus());
+    }
+}
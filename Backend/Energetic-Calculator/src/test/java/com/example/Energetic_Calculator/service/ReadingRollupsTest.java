@@ -0,0 +1,71 @@
+package com.example.Energetic_Calculator.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingRollupsTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void add_sumsIntoEachResolutionAndDrainsOnlyModifiedPeriods() {
+        ReadingRollups rollups = new ReadingRollups(90, 2, 2);
+        long base = 10 * HOUR;
+        long[] timestamps = {base + 1_000, base + 2_000, base + MINUTE + 5, base + HOUR};
+        double[] kwh = {0.5, 0.25, 1.0, 2.0};
+
+        assertEquals(4, rollups.add("u1", "m1", timestamps, kwh, 0, timestamps.length, 0));
+
+        List<ReadingRollups.Rollup> minutes = rollups.rollups("m1", ReadingRollups.Resolution.MINUTE);
+        assertEquals(List.of(base, base + MINUTE, base + HOUR), minutes.stream().map(ReadingRollups.Rollup::start).toList());
+        assertEquals(0.75, minutes.get(0).kwh());
+        assertEquals(2, minutes.get(0).count());
+        List<ReadingRollups.Rollup> hours = rollups.rollups("m1", ReadingRollups.Resolution.HOUR);
+        assertEquals(1.75, hours.get(0).kwh());
+        assertEquals(3.75, rollups.rollups("m1", ReadingRollups.Resolution.DAY).get(0).kwh());
+        assertEquals(3 + 2 + 1, rollups.drainDirty().size());
+        assertTrue(rollups.drainDirty().isEmpty());
+
+        // Solo vuelve el periodo tocado, con lo sumado desde el drenado anterior; la consulta sigue dando el total
+        rollups.add("u1", "m1", new long[]{base + 3_000}, new double[]{0.25}, 0, 1, 0);
+        List<ReadingRollups.Rollup> dirty = rollups.drainDirty();
+        assertEquals(3, dirty.size());
+        ReadingRollups.Rollup minute = dirty.stream()
+                .filter(rollup -> rollup.resolution() == ReadingRollups.Resolution.MINUTE).findFirst().orElseThrow();
+        assertEquals(new ReadingRollups.Rollup("u1", "m1", ReadingRollups.Resolution.MINUTE, base, 0.25, 1), minute);
+        assertEquals(1.0, rollups.rollups("m1", ReadingRollups.Resolution.MINUTE).get(0).kwh());
+
+        // Un incremento que no se pudo escribir vuelve a sumarse a lo que llegó entretanto
+        rollups.add("u1", "m1", new long[]{base + 4_000}, new double[]{0.5}, 0, 1, 0);
+        rollups.drainDirty();
+        rollups.markDirty(minute);
+        assertEquals(List.of(minute), rollups.drainDirty());
+        rollups.add("u1", "m1", new long[]{base + 5_000}, new double[]{0.5}, 0, 1, 0);
+        rollups.markDirty(minute);
+        assertTrue(rollups.drainDirty().contains(
+                new ReadingRollups.Rollup("u1", "m1", ReadingRollups.Resolution.MINUTE, base, 0.75, 2)));
+    }
+
+    @Test
+    void add_dropsReadingsOlderThanTheWindowAndCountsUnflushedOverwrites() {
+        ReadingRollups rollups = new ReadingRollups(2, 2, 2);
+        long day = 86_400_000L;
+        long base = 100 * day;
+
+        rollups.add("u1", "m1", new long[]{base}, new double[]{1.0}, 0, 1, 0);
+        rollups.add("u1", "m1", new long[]{base + 2 * MINUTE}, new double[]{1.0}, 0, 1, 0);
+        // El minuto base se reemplazó sin escribirse; una lectura de hace tres días no entra en ningún anillo
+        assertEquals(1, rollups.overwritten());
+        assertEquals(0, rollups.add("u1", "m1", new long[]{base - 3 * day}, new double[]{1.0}, 0, 1, 0));
+        assertEquals(1, rollups.dropped());
+
+        rollups.drainDirty();
+        assertEquals(0, rollups.evictIdle(0));
+        assertEquals(1, rollups.evictIdle(1));
+        assertTrue(rollups.rollups("m1", ReadingRollups.Resolution.HOUR).isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.ReportJob;
+import com.example.Energetic_Calculator.model.ReportRequest;
+import com.example.Energetic_Calculator.repository.InMemoryDocumentStore;
+import com.example.Energetic_Calculator.timeseries.TimeSeriesStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportServiceTest {
+
+    private static final long DAY = 86_400_000L;
+    // 2026-04-01T00:00:00Z
+    private static final long APRIL = 20_544 * DAY;
+
+    @TempDir
+    Path directory;
+
+    private TimeSeriesStore history;
+    private ReportService service;
+
+    @BeforeEach
+    void setup() throws Exception {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        device(store, "d1", "u1", "Cocina", 30.0, APRIL - DAY);
+        device(store, "d2", "u1", "Cocina", 10.0, APRIL - DAY);
+        device(store, "d3", "u2", "Cocina", 20.0, APRIL + DAY);
+        device(store, "d4", "u2", "Climatización", 100.0, APRIL - DAY);
+        // Creado en mayo: no cuenta en el reporte de abril
+        device(store, "d5", "u3", "Iluminación", 5.0, APRIL + 30 * DAY);
+
+        history = new TimeSeriesStore(true, directory.toString(), 1, 7, 400, 0, 900, 3600);
+        history.start();
+        history.append("d1", new long[]{APRIL + 3_600_000L, APRIL + 7_200_000L}, new double[]{1.5, 2.5}, 0, 2);
+        history.maintain(APRIL + 2 * DAY);
+
+        // Páginas de 2 para recorrer user_devices en varias lecturas
+        service = new ReportService(store, history, 1, 4, 2, 60, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void teardown() {
+        service.stop();
+        history.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void consumptionByCategory_streamsDevicesAndCachesByParameters() throws Exception {
+        ReportJob job = service.submit(new ReportRequest("consumption-by-category", "2026-04", 99), false);
+        ReportJob done = service.completion(job.getId()).get(10, TimeUnit.SECONDS);
+
+        assertEquals(ReportJob.Status.DONE, done.getStatus());
+        assertEquals(5, done.getScannedDocuments());
+        Map<String, Object> result = done.getResult();
+        assertEquals(4L, result.get("devices"));
+        assertEquals(160.0, result.get("estimatedKwh"));
+        assertEquals(4.0, result.get("measuredKwh"));
+        assertEquals(2, result.get("users"));
+        List<Map<String, Object>> categories = (List<Map<String, Object>>) result.get("categories");
+        assertEquals(List.of("Climatización", "Cocina"), categories.stream().map(row -> row.get("category")).toList());
+        assertEquals(3L, categories.get(1).get("devices"));
+        assertEquals(2, categories.get(1).get("users"));
+        assertEquals(4.0, categories.get(1).get("measuredKwh"));
+
+        // Mismos parámetros (limit no aplica a este tipo): mismo trabajo; refresh calcula otro
+        assertSame(done, service.submit(new ReportRequest("consumption-by-category", "2026-04", null), false));
+        ReportJob refreshed = service.submit(new ReportRequest("consumption-by-category", "2026-04", null), true);
+        assertNotEquals(job.getId(), refreshed.getId());
+        service.completion(refreshed.getId()).get(10, TimeUnit.SECONDS);
+        assertSame(refreshed, service.getJob(refreshed.getId()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void topConsumers_ranksUsersAndValidatesParameters() throws Exception {
+        ReportJob job = service.submit(new ReportRequest("top-consumers", null, 2), false);
+        ReportJob done = service.completion(job.getId()).get(10, TimeUnit.SECONDS);
+
+        List<Map<String, Object>> users = (List<Map<String, Object>>) done.getResult().get("users");
+        assertEquals(List.of("u2", "u1"), users.stream().map(row -> row.get("userId")).toList());
+        assertEquals(120.0, users.get(0).get("estimatedKwh"));
+        assertFalse(users.get(0).containsKey("measuredKwh"));
+        assertEquals(3, done.getResult().get("totalUsers"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.submit(new ReportRequest("unknown", null, null), false));
+        assertThrows(IllegalArgumentException.class, () -> service.submit(new ReportRequest("top-consumers", "2026-13", 5), false));
+        assertThrows(IllegalArgumentException.class, () -> service.submit(new ReportRequest("top-consumers", null, 0), false));
+        assertNull(service.getJob("missing"));
+    }
+
+    private static void device(InMemoryDocumentStore store, String id, String userId, String category, double kwhMonth,
+                               long createdAt) throws Exception {
+        store.set(UserDeviceService.COLLECTION_NAME, id, Map.of("userId", userId, "category", category,
+                "kwhMonth", kwhMonth, "createdAt", new Date(createdAt), "deviceId", "x")).get();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.ScenarioChange;
+import com.example.Energetic_Calculator.model.SimulationResult;
+import com.example.Energetic_Calculator.model.SimulationScenario;
+import com.example.Energetic_Calculator.model.UserDevice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScenarioSimulatorTest {
+
+    private ScenarioSimulator simulator;
+
+    private final Map<String, Device> catalog = Map.of(
+            "d1", new Device("d1", "Nevera", "Cocina", 150, 24f, 30),
+            "d2", new Device("d2", "Bombillo", "Iluminación", 60, 5f, 30),
+            "d3", new Device("d3", "Nevera eficiente", "Cocina", 90, 24f, 30),
+            "d4", new Device("d4", "Bombillo LED", "Iluminación", 10, 5f, 30));
+
+    @BeforeEach
+    void setup() {
+        simulator = new ScenarioSimulator(null, null, null, 2, 6, 2_000_000, 600, 0.164);
+    }
+
+    @AfterEach
+    void teardown() {
+        simulator.stop();
+    }
+
+    @Test
+    void simulate_ranksCombinationsBySavingsAndSkipsConflicts() {
+        List<UserDevice> household = List.of(
+                new UserDevice("u1", "user", "d1", 1, 24f, 7),
+                new UserDevice("u2", "user", "d2", 4, 5f, 7));
+        List<ScenarioChange> changes = List.of(
+                new ScenarioChange("nevera", "u1", ScenarioChange.Type.SWAP_DEVICE, "d3", null, 1_200_000),
+                new ScenarioChange("led", "u2", ScenarioChange.Type.SWAP_DEVICE, "d4", null, 40_000),
+                new ScenarioChange("menos-horas", "u2", ScenarioChange.Type.DAILY_HOURS, null, 2.0, 0),
+                new ScenarioChange("otro-led", "u2", ScenarioChange.Type.SWAP_DEVICE, "d4", null, 50_000));
+
+        SimulationResult result = simulator.simulate(household, catalog, changes, 3, 3, kwh -> kwh * 600);
+
+        // 108 kWh + 60 W * 5 h * 4 * 30 / 1000 = 108 + 36
+        assertEquals(144.0, result.getBaselineKwh(), 1e-9);
+        // 4 simples + 5 pares (led/otro-led chocan) + 2 tríos
+        assertEquals(11, result.getEvaluated());
+        SimulationScenario best = result.getScenarios().get(0);
+        assertEquals(List.of("nevera", "led", "menos-horas"), best.getChanges());
+        // 64.8 kWh + 10 W * 2 h * 4 * 30 / 1000 = 64.8 + 2.4
+        assertEquals(144.0 - 67.2, best.getSavingsKwh(), 1e-9);
+        assertEquals(3, result.getScenarios().size());
+    }
+
+    @Test
+    void simulate_parallelSearchMatchesCombinationCount() {
+        List<UserDevice> household = new ArrayList<>();
+        List<ScenarioChange> changes = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            household.add(new UserDevice("u" + i, "user", "d1", 1, 24f, 7));
+            changes.add(new ScenarioChange("c" + i, "u" + i, ScenarioChange.Type.DAILY_HOURS, null, (double) i, 0));
+        }
+
+        SimulationResult result = simulator.simulate(household, catalog, changes, 3, 5, kwh -> kwh * 600);
+
+        assertEquals(12 + 66 + 220, result.getEvaluated());
+        assertEquals(List.of("c0", "c1", "c2"), result.getScenarios().get(0).getChanges());
+        assertEquals(5, result.getScenarios().size());
+    }
+
+    @Test
+    void simulate_rejectsChangesForUnknownDevices() {
+        List<UserDevice> household = List.of(new UserDevice("u1", "user", "d1", 1, 24f, 7));
+        List<ScenarioChange> changes = List.of(
+                new ScenarioChange("x", "u9", ScenarioChange.Type.QUANTITY, null, 0.0, 0));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> simulator.simulate(household, catalog, changes, 2, 3, kwh -> kwh * 600));
+    }
+
+    @Test
+    void simulate_rejectsNonIntegralDaysAndQuantities() {
+        List<UserDevice> household = List.of(new UserDevice("u1", "user", "d1", 1, 24f, 7));
+
+        for (ScenarioChange.Type type : List.of(ScenarioChange.Type.QUANTITY, ScenarioChange.Type.WEEKLY_DAYS)) {
+            List<ScenarioChange> changes = List.of(new ScenarioChange("x", "u1", type, null, 2.7, 0));
+            assertThrows(IllegalArgumentException.class,
+                    () -> simulator.simulate(household, catalog, changes, 1, 3, kwh -> kwh * 600));
+        }
+        List<ScenarioChange> hours = List.of(new ScenarioChange("x", "u1", ScenarioChange.Type.DAILY_HOURS, null, 2.7, 0));
+        assertEquals(1, simulator.simulate(household, catalog, hours, 1, 3, kwh -> kwh * 600).getScenarios().size());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.repository.FirestoreCallLimiter;
+import com.example.Energetic_Calculator.repository.FirestoreFutures;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TariffServiceTest {
+
+    private FirestoreCallLimiter limiter;
+    private TariffService service;
+
+    @BeforeEach
+    void setup() {
+        limiter = mock(FirestoreCallLimiter.class);
+        service = new TariffService(null, mock(ConsumptionSummaryService.class), limiter, 173, 600, 600);
+    }
+
+    @Test
+    void getUserStratum_cachesTheProfileStratum() throws Exception {
+        answerUsersQuery("3");
+
+        assertEquals(3, service.getUserStratumAsync("u1").get());
+        assertEquals(3, service.getUserStratumAsync("u1").get());
+        verify(limiter, times(1)).submit(eq("users"), eq("query"), any());
+    }
+
+    @Test
+    void getUserStratum_failsWithNoSuchElementAndRemembersMissingStratum() {
+        answerUsersQuery(null);
+
+        for (int i = 0; i < 2; i++) {
+            ExecutionException error = assertThrows(ExecutionException.class, () -> service.getUserStratumAsync("u1").get());
+            assertInstanceOf(NoSuchElementException.class, FirestoreFutures.unwrap(error));
+        }
+        verify(limiter, times(1)).submit(eq("users"), eq("query"), any());
+    }
+
+    private void answerUsersQuery(Object estrato) {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        if (estrato == null) {
+            when(snapshot.isEmpty()).thenReturn(true);
+        } else {
+            QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+            when(document.get("estrato")).thenReturn(estrato);
+            when(snapshot.isEmpty()).thenReturn(false);
+            when(snapshot.getDocuments()).thenReturn(List.of(document));
+        }
+        when(limiter.<QuerySnapshot>submit(eq("users"), eq("query"), any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(snapshot));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.Fee;
+import com.example.Energetic_Calculator.model.TariffQuote;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffTableTest {
+
+    private static final Date JAN_2024 = new Date(1704067200000L);
+    private static final Date JUN_2024 = new Date(1717200000000L);
+    private static final Date JAN_2025 = new Date(1735689600000L);
+
+    @Test
+    void quote_subsidizedStratumPaysReferencePriceForExcess() {
+        TariffTable table = TariffTable.of(List.of(
+                new Fee("e1", 1, 35000, JAN_2024, null, "Active"),
+                new Fee("e4", 4, 80000, JAN_2024, null, "Active")), 173, 600);
+
+        TariffQuote quote = table.quote(200, 1, JAN_2025);
+
+        assertEquals("fee", quote.getSource());
+        assertEquals(173, quote.getSubsistenceKwh(), 1e-9);
+        assertEquals(27, quote.getExcessKwh(), 1e-9);
+        // 173 * 350 + 27 * 800
+        assertEquals(60550 + 21600, quote.getTotalCost(), 1e-6);
+    }
+
+    @Test
+    void quote_picksNewestActiveFeeAndHonorsExplicitBlocks() {
+        Fee old = new Fee("old", 5, 90000, JAN_2024, JUN_2024, "Active");
+        Fee current = new Fee("new", 5, 100000, JUN_2024, null, "Active");
+        current.setExcessPrice(120000.0);
+        current.setSubsistenceKwh(130.0);
+        Fee inactive = new Fee("off", 5, 1, JAN_2025, null, "Inactive");
+        TariffTable table = TariffTable.of(List.of(old, current, inactive), 173, 600);
+
+        TariffQuote quote = table.quote(150, 5, JAN_2025);
+
+        assertEquals("new", quote.getFeeId());
+        assertEquals(130 * 1000 + 20 * 1200, quote.getTotalCost(), 1e-6);
+        assertEquals("old", table.activeFee(5, new Date(JAN_2024.getTime() + 1)).getId());
+    }
+
+    @Test
+    void quote_fallsBackToDefaultTariffWithoutFee() {
+        TariffQuote quote = TariffTable.empty(173, 600).quote(100, 3, JAN_2025);
+
+        assertEquals("default", quote.getSource());
+        assertNull(quote.getFeeId());
+        assertEquals(60000, quote.getTotalCost(), 1e-6);
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.Energetic_Calculator.service;
+
+import com.example.Energetic_Calculator.model.BatchItemResult;
+import com.example.Energetic_Calculator.model.BatchRequest;
+import com.example.Energetic_Calculator.model.BatchResult;
+import com.example.Energetic_Calculator.model.Device;
+import com.example.Energetic_Calculator.model.PageResult;
+import com.example.Energetic_Calculator.model.UserConsumptionSummary;
+import com.example.Energetic_Calculator.model.UserDevice;
+import com.example.Energetic_Calculator.model.UserDeviceQuery;
+import com.example.Energetic_Calculator.repository.DeviceAlternativesIndex;
+import com.example.Energetic_Calculator.repository.DeviceCatalogMirror;
+import com.example.Energetic_Calculator.repository.DeviceRepository;
+import com.example.Energetic_Calculator.repository.FirestoreCallLimiter;
+import com.example.Energetic_Calculator.repository.FirestoreMetrics;
+import com.example.Energetic_Calculator.repository.InMemoryDocumentStore;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UserDeviceServiceTest {
+
+    private static final Device FRIDGE = new Device("nevera", "Nevera", "Cocina", 150, 24f, 30);
+    private static final Device AIR = new Device("aire", "Aire", "Clima", 1000, 6f, 30);
+
+    private InMemoryDocumentStore store;
+    private DeviceService deviceService;
+    private ConsumptionSummaryService summaryService;
+    private UserDeviceService service;
+
+    @BeforeEach
+    void setup() throws Exception {
+        store = new InMemoryDocumentStore();
+        DeviceRepository repository = new DeviceRepository(new DeviceCatalogMirror(null, false, "memory"),
+                new DeviceAlternativesIndex(300), store, true, 300, 100);
+        repository.saveDevice(FRIDGE);
+        repository.saveDevice(AIR);
+        deviceService = spy(new DeviceService(repository));
+        summaryService = spy(new ConsumptionSummaryService(new FirebaseFirestoreService(store), store,
+                firestoreProvider(null), deviceService, null, 600, 0.164));
+        service = new UserDeviceService(store, firestoreProvider(null), null, deviceService, summaryService);
+    }
+
+    @Test
+    void createUserDevice_writesTheDeviceAndItsDeltaInOneTransaction() throws Exception {
+        Firestore db = mock(Firestore.class);
+        Transaction transaction = mockTransaction(db);
+        DocumentReference created = document(db, UserDeviceService.COLLECTION_NAME, "new1");
+        when(db.collection(UserDeviceService.COLLECTION_NAME).document()).thenReturn(created);
+        DocumentReference summary = document(db, ConsumptionSummaryService.COLLECTION_NAME, "u1");
+        UserDeviceService materialized = materialized(db);
+
+        UserDevice userDevice = materialized.createUserDeviceAsync(new UserDevice(null, "u1", "aire", 2, 3f, 7)).get();
+
+        assertEquals("new1", userDevice.getId());
+        double kwh = kwh(AIR, 2, 3f);
+        assertEquals(kwh, userDevice.getKwhMonth(), 1e-9);
+        verify(transaction).create(created, UserDeviceService.toData(userDevice));
+        Map<String, Object> increments = summaryIncrements(transaction, summary);
+        assertEquals(FieldValue.increment(kwh), increments.get("totalKwh"));
+        assertEquals(FieldValue.increment(1L), increments.get("deviceCount"));
+        assertEquals(Map.of("Clima", FieldValue.increment(kwh)), increments.get("categoryKwh"));
+        assertNull(store.get(UserDeviceService.COLLECTION_NAME, "new1").get());
+    }
+
+    @Test
+    void deleteUserDevice_checksOwnershipAndSubtractsTheStoredContribution() throws Exception {
+        Firestore db = mock(Firestore.class);
+        Transaction transaction = mockTransaction(db);
+        UserDevice stored = new UserDevice("ud1", "u1", "nevera", 1, 24f, 7);
+        stored.setCreatedAt(new Date());
+        ConsumptionSummaryService.stamp(stored, FRIDGE);
+        DocumentReference existing = document(db, UserDeviceService.COLLECTION_NAME, "ud1");
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getId()).thenReturn("ud1");
+        when(snapshot.getString("userId")).thenReturn("u1");
+        when(snapshot.getData()).thenReturn(UserDeviceService.toData(stored));
+        when(transaction.get(existing)).thenReturn(ApiFutures.immediateFuture(snapshot));
+        DocumentReference summary = document(db, ConsumptionSummaryService.COLLECTION_NAME, "u1");
+        UserDeviceService materialized = materialized(db);
+
+        ExecutionException denied = assertThrows(ExecutionException.class,
+                () -> materialized.deleteUserDeviceAsync("ud1", "u2").get());
+        assertInstanceOf(SecurityException.class, denied.getCause());
+        verify(transaction, never()).delete(any(DocumentReference.class));
+
+        assertTrue(materialized.deleteUserDeviceAsync("ud1", "u1").get());
+
+        verify(transaction).delete(existing);
+        Map<String, Object> increments = summaryIncrements(transaction, summary);
+        assertEquals(FieldValue.increment(-kwh(FRIDGE, 1, 24f)), increments.get("totalKwh"));
+        assertEquals(FieldValue.increment(-1L), increments.get("deviceCount"));
+        assertEquals(Map.of("Cocina", FieldValue.increment(-1L)), increments.get("categoryCount"));
+    }
+
+    @Test
+    void applyBatch_appliesOnlyCommittedChangesToTheSummary() throws Exception {
+        save("ud1", "u1", FRIDGE, 1, 24f);
+        save("ud2", "u1", AIR, 1, 4f);
+        save("other", "u2", AIR, 1, 4f);
+
+        BatchRequest<UserDevice> request = new BatchRequest<>();
+        request.setCreate(List.of(new UserDevice(null, null, "nevera", 2, 24f, 7)));
+        request.setUpdate(List.of(new UserDevice("ud1", null, "aire", 1, 2f, 7)));
+        request.setDelete(List.of("ud2", "other", "missing"));
+
+        BatchResult result = service.applyBatchAsync("u1", request).get();
+
+        assertEquals(List.of(201, 200, 200, 403, 404),
+                result.getResults().stream().map(BatchItemResult::getStatus).toList());
+        ArgumentCaptor<ConsumptionDelta> captor = ArgumentCaptor.forClass(ConsumptionDelta.class);
+        verify(summaryService).applyDeltaAsync(eq("u1"), captor.capture());
+        ConsumptionDelta delta = captor.getValue();
+
+        double created = kwh(FRIDGE, 2, 24f);
+        double updated = kwh(AIR, 1, 2f);
+        // + alta, - nevera anterior de ud1, + su aire nuevo, - ud2 eliminado
+        assertEquals(created - kwh(FRIDGE, 1, 24f) + updated - kwh(AIR, 1, 4f), delta.getKwh(), 1e-9);
+        assertEquals(0, delta.getCount());
+        assertEquals(created - kwh(FRIDGE, 1, 24f), delta.getCategoryKwh().get("Cocina"), 1e-9);
+        assertEquals(Map.of("Cocina", 0L, "Clima", 0L), delta.getCategoryCount());
+
+        UserConsumptionSummary summary = summaryService.getSummaryAsync("u1", null).get();
+        assertEquals(2, summary.getDeviceCount());
+        assertEquals(Math.round((created + updated) * 100) / 100.0, summary.getTotalKwh());
+        assertNotNull(store.get(UserDeviceService.COLLECTION_NAME, "other").get());
+    }
+
+    @Test
+    void applyBatch_updatesOnlyTheDeviceFields() throws Exception {
+        save("ud1", "u1", FRIDGE, 1, 24f);
+        store.update(UserDeviceService.COLLECTION_NAME, "ud1", Map.of("room", "Cocina")).get();
+        Object createdAt = store.get(UserDeviceService.COLLECTION_NAME, "ud1").get().get("createdAt");
+
+        BatchRequest<UserDevice> request = new BatchRequest<>();
+        request.setUpdate(List.of(new UserDevice("ud1", null, "aire", 2, 3f, 5)));
+        assertEquals(200, service.applyBatchAsync("u1", request).get().getResults().get(0).getStatus());
+
+        Map<String, Object> stored = store.get(UserDeviceService.COLLECTION_NAME, "ud1").get();
+        assertEquals("aire", stored.get("deviceId"));
+        assertEquals(2L, stored.get("quantity"));
+        assertEquals("Clima", stored.get("category"));
+        // Campos que toData no escribe y la fecha de creación se conservan
+        assertEquals("Cocina", stored.get("room"));
+        assertEquals(createdAt, stored.get("createdAt"));
+    }
+
+    @Test
+    void reconcile_correctsStaleContributionsPageByPage() throws Exception {
+        int devices = 1_100;
+        for (int i = 0; i < devices; i++) {
+            UserDevice userDevice = new UserDevice(null, "u" + (i % 3), "nevera", 1, 24f, 7);
+            userDevice.setCreatedAt(new Date());
+            // Contribución desactualizada: sin categoría y 0 kWh
+            userDevice.setKwhMonth(0.0);
+            store.set(UserDeviceService.COLLECTION_NAME, String.format("ud%05d", i), UserDeviceService.toData(userDevice)).get();
+        }
+
+        Map<String, Object> report = summaryService.reconcile();
+
+        assertEquals((long) devices, report.get("devices"));
+        assertEquals((long) devices, report.get("correctedDevices"));
+        assertEquals(0L, report.get("failedWrites"));
+        assertEquals(3, report.get("users"));
+        Map<String, Object> last = store.get(UserDeviceService.COLLECTION_NAME, "ud01099").get();
+        assertEquals("Cocina", last.get("category"));
+        assertEquals(kwh(FRIDGE, 1, 24f), (double) last.get("kwhMonth"), 1e-9);
+        assertEquals(0L, summaryService.reconcile().get("correctedDevices"));
+    }
+
+    @Test
+    void queryUserDevices_stampsOlderDevicesBeforeFilteringOnTheirContribution() throws Exception {
+        save("ud1", "u1", FRIDGE, 1, 24f);
+        saveUnstamped("old", "u1", "aire", 1, 4f);
+        saveUnstamped("other", "u2", "aire", 1, 4f);
+
+        PageResult<UserDevice> page = service.queryUserDevicesAsync("u1",
+                new UserDeviceQuery("Clima", 1.0, null, null, "-kwhMonth"), 10, null).get();
+
+        assertEquals(List.of("old"), page.getItems().stream().map(UserDevice::getId).toList());
+        assertEquals(kwh(AIR, 1, 4f), page.getItems().get(0).getKwhMonth(), 1e-9);
+        // Solo se sella el usuario consultado, y una sola vez hasta el backfill
+        assertNull(store.get(UserDeviceService.COLLECTION_NAME, "other").get().get("kwhMonth"));
+        service.queryUserDevicesAsync("u1", new UserDeviceQuery("Cocina", null, null, null, null), 10, null).get();
+        verify(deviceService, times(1)).getDevicesByIdsAsync(any());
+    }
+
+    @Test
+    void backfill_stampsEveryUserOnceAndRecordsTheMarker() throws Exception {
+        saveUnstamped("old", "u1", "aire", 1, 4f);
+        saveUnstamped("other", "u2", "nevera", 1, 24f);
+
+        Map<String, Object> report = summaryService.backfill();
+
+        assertEquals(2L, report.get("correctedDevices"));
+        assertTrue(summaryService.isBackfilled());
+        assertNotNull(store.get(ConsumptionSummaryService.MIGRATIONS_COLLECTION, ConsumptionSummaryService.BACKFILL_MARKER).get());
+        assertEquals("Cocina", store.get(UserDeviceService.COLLECTION_NAME, "other").get().get("category"));
+
+        // Con la marca escrita, otra instancia no vuelve a reconciliar ni a sellar por usuario
+        ConsumptionSummaryService restarted = spy(new ConsumptionSummaryService(new FirebaseFirestoreService(store), store,
+                firestoreProvider(null), deviceService, null, 600, 0.164));
+        restarted.backfill();
+        verify(restarted, never()).reconcile();
+        assertTrue(restarted.isBackfilled());
+    }
+
+    @Test
+    void getSummary_rebuildsAMissingSummaryFromTheUserDevices() throws Exception {
+        Firestore db = mock(Firestore.class);
+        DocumentReference summary = document(db, ConsumptionSummaryService.COLLECTION_NAME, "u1");
+        DocumentSnapshot missing = mock(DocumentSnapshot.class);
+        DocumentSnapshot rebuilt = mock(DocumentSnapshot.class);
+        when(rebuilt.exists()).thenReturn(true);
+        UserConsumptionSummary stored = new UserConsumptionSummary();
+        stored.setTotalKwh(kwh(AIR, 1, 4f));
+        stored.setDeviceCount(1);
+        when(rebuilt.toObject(UserConsumptionSummary.class)).thenReturn(stored);
+        when(summary.get()).thenReturn(ApiFutures.immediateFuture(missing), ApiFutures.immediateFuture(rebuilt));
+
+        // Dispositivo anterior al resumen: sin kwhMonth ni category
+        Map<String, Object> unstamped = UserDeviceService.toData(new UserDevice("ud1", "u1", "aire", 1, 4f, 7));
+        unstamped.remove("kwhMonth");
+        unstamped.remove("category");
+        QueryDocumentSnapshot device = mock(QueryDocumentSnapshot.class);
+        when(device.getId()).thenReturn("ud1");
+        when(device.getData()).thenReturn(unstamped);
+        QuerySnapshot devices = mock(QuerySnapshot.class);
+        when(devices.getDocuments()).thenReturn(List.of(device));
+        DocumentReference deviceRef = document(db, UserDeviceService.COLLECTION_NAME, "ud1");
+        Query byUser = mock(Query.class);
+        when(db.collection(UserDeviceService.COLLECTION_NAME).whereEqualTo("userId", "u1")).thenReturn(byUser);
+        when(byUser.get()).thenReturn(ApiFutures.immediateFuture(devices));
+        WriteBatch batch = mock(WriteBatch.class);
+        when(db.batch()).thenReturn(batch);
+        WriteResult written = mock(WriteResult.class);
+        when(written.getUpdateTime()).thenReturn(Timestamp.now());
+        when(batch.commit()).thenReturn(ApiFutures.immediateFuture(List.of(written, written)));
+
+        ConsumptionSummaryService summaryService = materializedSummary(db);
+        // Tras el backfill solo falta el documento: lo reconstruye la lectura
+        summaryService.markBackfilled();
+        UserConsumptionSummary result = summaryService.getSummaryAsync("u1", 500.0).get();
+
+        double kwh = kwh(AIR, 1, 4f);
+        assertEquals("u1", result.getUserId());
+        assertEquals(Math.round(kwh * 500 * 100) / 100.0, result.getTotalCost());
+        verify(batch).update(deviceRef, Map.of("kwhMonth", kwh, "category", "Clima"));
+        ArgumentCaptor<Map<String, Object>> document = mapCaptor();
+        verify(batch).set(eq(summary), document.capture());
+        assertEquals(kwh, (double) document.getValue().get("totalKwh"), 1e-9);
+        assertEquals(1L, document.getValue().get("deviceCount"));
+        verify(summary, times(2)).get();
+    }
+
+    /**
+     * Servicios con el resumen materializado sobre un Firestore simulado
+     */
+    private UserDeviceService materialized(Firestore db) {
+        return new UserDeviceService(store, firestoreProvider(db), limiter(), deviceService, materializedSummary(db));
+    }
+
+    private ConsumptionSummaryService materializedSummary(Firestore db) {
+        ConsumptionSummaryService materializedSummary = spy(new ConsumptionSummaryService(new FirebaseFirestoreService(store),
+                store, firestoreProvider(db), deviceService, limiter(), 600, 0.164));
+        doReturn(true).when(materializedSummary).isMaterialized();
+        return materializedSummary;
+    }
+
+    private static FirestoreCallLimiter limiter() {
+        return new FirestoreCallLimiter(new FirestoreMetrics(new SimpleMeterRegistry()), 4, 10);
+    }
+
+    /**
+     * runTransaction ejecuta la función una vez con la transacción simulada, como un intento sin contención
+     */
+    private static Transaction mockTransaction(Firestore db) {
+        Transaction transaction = mock(Transaction.class);
+        when(db.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> function = invocation.getArgument(0);
+            try {
+                return ApiFutures.immediateFuture(function.updateCallback(transaction));
+            } catch (Exception e) {
+                return ApiFutures.immediateFailedFuture(e);
+            }
+        });
+        return transaction;
+    }
+
+    private static DocumentReference document(Firestore db, String collection, String id) {
+        CollectionReference reference = db.collection(collection);
+        if (reference == null) {
+            reference = mock(CollectionReference.class);
+            when(db.collection(collection)).thenReturn(reference);
+        }
+        DocumentReference document = mock(DocumentReference.class);
+        when(document.getId()).thenReturn(id);
+        when(reference.document(id)).thenReturn(document);
+        return document;
+    }
+
+    private static Map<String, Object> summaryIncrements(Transaction transaction, DocumentReference summary) {
+        ArgumentCaptor<Map<String, Object>> captor = mapCaptor();
+        verify(transaction).set(eq(summary), captor.capture(), any(SetOptions.class));
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Map<String, Object>> mapCaptor() {
+        return ArgumentCaptor.forClass(Map.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<Firestore> firestoreProvider(Firestore db) {
+        ObjectProvider<Firestore> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(db);
+        return provider;
+    }
+
+    private void save(String id, String userId, Device device, int quantity, float hours) throws Exception {
+        UserDevice userDevice = new UserDevice(id, userId, device.getId(), quantity, hours, 7);
+        userDevice.setCreatedAt(new Date());
+        ConsumptionSummaryService.stamp(userDevice, device);
+        store.set(UserDeviceService.COLLECTION_NAME, id, UserDeviceService.toData(userDevice)).get();
+    }
+
+    /**
+     * Dispositivo guardado antes del resumen: sin kwhMonth ni category
+     */
+    private void saveUnstamped(String id, String userId, String deviceId, int quantity, float hours) throws Exception {
+        UserDevice userDevice = new UserDevice(id, userId, deviceId, quantity, hours, 7);
+        userDevice.setCreatedAt(new Date());
+        Map<String, Object> data = UserDeviceService.toData(userDevice);
+        data.remove("kwhMonth");
+        data.remove("category");
+        store.set(UserDeviceService.COLLECTION_NAME, id, data).get();
+    }
+
+    private static double kwh(Device device, int quantity, float hours) {
+        return ConsumptionEngine.monthlyKwh(device.getPotenciaWatts(), hours, quantity, 7);
+    }
+}
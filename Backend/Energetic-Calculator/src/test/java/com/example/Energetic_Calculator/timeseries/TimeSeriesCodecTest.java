@@ -0,0 +1,83 @@
+package com.example.Energetic_Calculator.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesCodecTest {
+
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    void decode_roundTripsEveryDeltaOfDeltaWidthAndLargeGaps() {
+        // Zigzag 126 y 128 (límite de 7 bits), 512 y 509 (12 y 9 bits), 4096 y 4093 (64 y 12 bits); después huecos
+        // de días y años que solo caben en la rama de 64 bits, hacia adelante y de vuelta al intervalo normal
+        long[] deltasOfDeltas = {0, 63, 64, 256, -255, 2048, -2047, 40 * DAY, -(40 * DAY), 3_650 * DAY, -(3_650 * DAY) + 1};
+        long[] timestamps = new long[deltasOfDeltas.length + 2];
+        timestamps[0] = 1_000;
+        long delta = 60;
+        timestamps[1] = timestamps[0] + delta;
+        for (int i = 0; i < deltasOfDeltas.length; i++) {
+            delta += deltasOfDeltas[i];
+            timestamps[i + 2] = timestamps[i + 1] + delta;
+        }
+        double[] kwh = new double[timestamps.length];
+        for (int i = 0; i < kwh.length; i++) {
+            kwh[i] = 0.001 * i;
+        }
+
+        List<TimeSeriesPoint> decoded = roundTrip(Level.RAW, timestamps, kwh, new long[timestamps.length]);
+
+        assertEquals(timestamps.length, decoded.size());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], decoded.get(i).timestamp(), "punto " + i);
+            assertEquals(kwh[i], decoded.get(i).kwh(), "punto " + i);
+            assertEquals(1, decoded.get(i).count());
+        }
+    }
+
+    @Test
+    void decode_keepsTheExactBitsOfSpecialValuesAndLargeCounts() {
+        double[] kwh = {Double.NaN, -1.5, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE,
+                -Double.MAX_VALUE, Double.NaN, 1e-300, -1e-300, 42.0, 42.0};
+        long[] counts = {0, 1, 127, 128, 16_383, 16_384, Long.MAX_VALUE, Long.MIN_VALUE, 3, 300, 1, 1, 2};
+        long[] timestamps = new long[kwh.length];
+        for (int i = 0; i < kwh.length; i++) {
+            timestamps[i] = 10 * DAY + i * 3_600_000L;
+        }
+
+        List<TimeSeriesPoint> decoded = roundTrip(Level.HOUR, timestamps, kwh, counts);
+
+        for (int i = 0; i < kwh.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(kwh[i]), Double.doubleToRawLongBits(decoded.get(i).kwh()), "punto " + i);
+            assertEquals(counts[i], decoded.get(i).count(), "punto " + i);
+            assertEquals(timestamps[i], decoded.get(i).timestamp());
+        }
+    }
+
+    /**
+     * Codifica, comprueba la cabecera del bloque y decodifica tanto el bloque como la copia del bloque abierto
+     */
+    private static List<TimeSeriesPoint> roundTrip(Level level, long[] timestamps, double[] kwh, long[] counts) {
+        TimeSeriesCodec.Encoder encoder = new TimeSeriesCodec.Encoder(level);
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.add(timestamps[i], kwh[i], counts[i]);
+        }
+        ByteBuffer body = ByteBuffer.wrap(encoder.body("m1"));
+        TimeSeriesCodec.Header header = TimeSeriesCodec.header(body);
+        assertEquals(new TimeSeriesCodec.Header("m1", timestamps[0], timestamps[timestamps.length - 1], timestamps.length,
+                header.payloadOffset()), header);
+
+        List<TimeSeriesPoint> decoded = new ArrayList<>();
+        TimeSeriesCodec.decode(body, level, (timestamp, value, count) -> decoded.add(new TimeSeriesPoint(timestamp, value, count)));
+        List<TimeSeriesPoint> open = new ArrayList<>();
+        TimeSeriesCodec.decode(encoder.payload(), 0, level, encoder.first(), encoder.size(),
+                (timestamp, value, count) -> open.add(new TimeSeriesPoint(timestamp, value, count)));
+        assertEquals(decoded, open);
+        return decoded;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.Energetic_Calculator.timeseries;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesStoreTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 86_400_000L;
+    // 2026-03-31T00:00:00Z: dos días que cruzan de marzo a abril
+    private static final long START = 20_543 * DAY;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_downsamplesToHoursAndDaysAndSurvivesRestart() throws Exception {
+        TimeSeriesStore store = open();
+        // Una lectura cada 10 minutos durante dos días: 6 por hora
+        int size = 2 * 24 * 6;
+        long[] timestamps = new long[size];
+        double[] kwh = new double[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = START + i * 600_000L + (i % 3);
+            kwh[i] = i % 2 == 0 ? 0.125 : 0.1 * (i % 7);
+        }
+        assertEquals(size, store.append("m1", timestamps, kwh, 0, size));
+        // Fuera de orden: se descarta
+        assertEquals(0, store.append("m1", new long[]{START}, new double[]{1.0}, 0, 1));
+
+        List<TimeSeriesPoint> raw = store.query("m1", Level.RAW, START, START + 2 * DAY);
+        assertEquals(size, raw.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(timestamps[i], raw.get(i).timestamp());
+            assertEquals(kwh[i], raw.get(i).kwh());
+        }
+        // La última hora sigue abierta hasta que pase el margen
+        assertEquals(47, store.query("m1", Level.HOUR, START, START + 2 * DAY).size());
+        store.maintain(START + 2 * DAY + HOUR);
+
+        List<TimeSeriesPoint> hours = store.query("m1", Level.HOUR, START, START + 2 * DAY);
+        assertEquals(48, hours.size());
+        assertEquals(6, hours.get(0).count());
+        List<TimeSeriesPoint> days = store.query("m1", Level.DAY, START, START + 2 * DAY);
+        assertEquals(List.of(START, START + DAY), days.stream().map(TimeSeriesPoint::timestamp).toList());
+        double total = 0;
+        for (double value : kwh) {
+            total += value;
+        }
+        assertEquals(total, days.get(0).kwh() + days.get(1).kwh(), 1e-9);
+        assertEquals(size, days.get(0).count() + days.get(1).count());
+
+        // Lecturas del día siguiente: la hora en curso se rehace al reabrir desde lo escrito
+        store.append("m1", new long[]{START + 2 * DAY + 2 * HOUR, START + 2 * DAY + 2 * HOUR + 60_000}, new double[]{1.5, 0.5}, 0, 2);
+        store.stop();
+
+        TimeSeriesStore reopened = open();
+        assertEquals(days, reopened.query("m1", Level.DAY, START, START + 2 * DAY));
+        assertEquals(size + 2, reopened.query("m1", Level.RAW, START, START + 3 * DAY).size());
+        reopened.append("m1", new long[]{START + 2 * DAY + 3 * HOUR}, new double[]{1.0}, 0, 1);
+        List<TimeSeriesPoint> restarted = reopened.query("m1", Level.HOUR, START + 2 * DAY, START + 3 * DAY);
+        assertEquals(List.of(new TimeSeriesPoint(START + 2 * DAY + 2 * HOUR, 2.0, 2)), restarted);
+        reopened.stop();
+    }
+
+    @Test
+    void maintain_deletesWholeSegmentsOutsideTheRetention() throws Exception {
+        // Segmentos de 1 MB y valores aleatorios (unos 7 bytes por lectura): cinco días de lecturas por segundo
+        // ocupan varios segmentos RAW; RAW guarda un día y HOUR la retención por defecto
+        TimeSeriesStore store = open(1);
+        int size = 5 * 24 * 3_600;
+        long[] timestamps = new long[size];
+        double[] kwh = new double[size];
+        Random random = new Random(7);
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = START + i * 1_000L;
+            kwh[i] = random.nextDouble();
+        }
+        store.append("m1", timestamps, kwh, 0, size);
+        long now = START + 5 * DAY + HOUR;
+        // Sin retención alcanzada: solo se escriben bloques
+        store.maintain(START + 2 * HOUR);
+        List<Path> before = rawSegments();
+        assertTrue(before.size() >= 3, "segmentos RAW: " + before.size());
+
+        store.maintain(now);
+
+        List<Path> after = rawSegments();
+        assertTrue(after.size() < before.size());
+        assertEquals(before.subList(before.size() - after.size(), before.size()), after);
+        // Se borran segmentos completos: lo que queda es un sufijo continuo que cubre todo el último día
+        List<TimeSeriesPoint> raw = store.query("m1", Level.RAW, START, now);
+        long firstKept = raw.get(0).timestamp();
+        assertTrue(firstKept > START && firstKept <= now - DAY, "primera lectura: " + firstKept);
+        assertEquals((START + size * 1_000L - firstKept) / 1_000, raw.size());
+        assertEquals(kwh[size - 1], raw.get(raw.size() - 1).kwh());
+        // Los niveles reducidos no dependen de los segmentos RAW borrados
+        assertEquals(5 * 24, store.query("m1", Level.HOUR, START, now).size());
+        assertEquals(5, store.query("m1", Level.DAY, START, now).size());
+        store.stop();
+
+        // Al reabrir no vuelven las lecturas borradas
+        TimeSeriesStore reopened = open(1);
+        assertEquals(raw.size(), reopened.query("m1", Level.RAW, START, now).size());
+        reopened.stop();
+    }
+
+    private List<Path> rawSegments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("raw-")).sorted().toList();
+        }
+    }
+
+    private TimeSeriesStore open() throws Exception {
+        return open(7);
+    }
+
+    private TimeSeriesStore open(int rawDays) throws Exception {
+        TimeSeriesStore store = new TimeSeriesStore(true, directory.toString(), 1, rawDays, 400, 0, 900, 3600);
+        store.start();
+        return store;
+    }
+}